@@ -3,11 +3,17 @@ package tech.octopusdragon.cursordodge.application;
 import java.io.IOException;
 
 import tech.octopusdragon.cursordodge.application.scenes.GameOverSceneController;
+import tech.octopusdragon.cursordodge.application.scenes.GameSceneController;
+import tech.octopusdragon.cursordodge.data.DataFiles;
+import tech.octopusdragon.cursordodge.data.Score;
+import tech.octopusdragon.cursordodge.data.ScoreStore;
+import tech.octopusdragon.cursordodge.diagnostics.SceneSwitchEvent;
 import tech.octopusdragon.cursordodge.game.classes.GameOverReason;
 
 import javafx.application.Application;
 import javafx.fxml.FXMLLoader;
 import javafx.geometry.Rectangle2D;
+import javafx.scene.Parent;
 import javafx.scene.Scene;
 import javafx.scene.image.Image;
 import javafx.stage.Screen;
@@ -27,12 +33,22 @@ public class CursorDodgeApplication extends Application {
 			"scenes/GameOverScene.fxml";
 	public static final String HOW_TO_PLAY_SCENE_FXML =
 			"scenes/HowToPlayScene.fxml";
+	public static final String STATISTICS_SCENE_FXML =
+			"scenes/StatisticsScene.fxml";
+	public static final String SPECTATOR_SCENE_FXML =
+			"scenes/SpectatorScene.fxml";
+	public static final String HEATMAP_SCENE_FXML =
+			"scenes/HeatmapScene.fxml";
 	// Other file paths
 	private static final String ICON_PATH = "resources/icon.png";
 	
 	// --- Variables ---
 	// GUI components
 	private static Stage stage;
+	// Scores of past games, which are loaded in the background
+	private static ScoreStore scoreStore;
+	// Scenes that are loaded once and kept
+	private static SceneCache sceneCache;
 
 	
 	@Override
@@ -50,42 +66,78 @@ public class CursorDodgeApplication extends Application {
 		primaryStage.setWidth(windowSize);
 		primaryStage.setHeight(windowSize);
 		
+		// Load the scenes that are kept while the rest starts up
+		sceneCache = new SceneCache(TITLE_SCENE_FXML, GAME_SCENE_FXML,
+				GAME_OVER_SCENE_FXML, HOW_TO_PLAY_SCENE_FXML);
+		sceneCache.preload();
+		
+		// Start loading the scores of past games in the background
+		scoreStore = new ScoreStore(DataFiles.DATA_DIRECTORY);
+		
 		switchToTitleScene();
 		primaryStage.show();
 	}
 
+	@Override
+	public void stop() {
+		if (scoreStore != null) {
+			try {
+				scoreStore.close();
+			} catch (IOException e) {
+				System.out.println("Error saving scores");
+				e.printStackTrace();
+			}
+		}
+	}
+
 	public static void main(String[] args) {
 		launch(args);
 	}
 	
 	/**
-	 * Sets the stage's current scene to a new scene with a root loaded with an
-	 * FXML file
+	 * Sets the stage's current scene to a root loaded with an FXML file. Roots
+	 * of scenes that are kept are reused rather than loaded again.
 	 * @param fxmlPath The path of the FXML file
 	 * @return The FXMLLoader associated with the new scene
 	 */
 	private static FXMLLoader switchToScene(String fxmlPath) {
-		FXMLLoader loader = new FXMLLoader(
-					CursorDodgeApplication.class.getResource(fxmlPath));
+		SceneSwitchEvent event = new SceneSwitchEvent();
+		event.begin();
+		FXMLLoader loader = sceneCache.get(fxmlPath);
+		event.cached = loader != null;
 		try {
+			if (loader == null) {
+				loader = new FXMLLoader(
+						CursorDodgeApplication.class.getResource(fxmlPath));
+				loader.load();
+			}
+			Parent root = loader.getRoot();
 			if (stage.getScene() == null) {
-				stage.setScene(new Scene(loader.load()));
+				stage.setScene(new Scene(root));
 			}
 			else {
-				stage.getScene().setRoot(loader.load());
+				stage.getScene().setRoot(root);
 			}
+			event.succeeded = true;
 		} catch (IOException e) {
 			System.out.println("Error loading FXML file");
 			e.printStackTrace();
 		}
+		event.end();
+		if (event.shouldCommit()) {
+			event.scene = fxmlPath;
+			event.commit();
+		}
 		return loader;
 	}
 	
 	/**
-	 * Switches to the game scene
+	 * Switches to the game scene and starts a new round
 	 */
 	public static void switchToGameScene() {
-		switchToScene(GAME_SCENE_FXML);
+		FXMLLoader loader = switchToScene(GAME_SCENE_FXML);
+		GameSceneController controller = loader.getController();
+		controller.newRound();
 	}
 	
 	/**
@@ -102,6 +154,29 @@ public class CursorDodgeApplication extends Application {
 		switchToScene(HOW_TO_PLAY_SCENE_FXML);
 	}
 	
+	/**
+	 * Switches to the statistics scene
+	 */
+	public static void switchToStatisticsScene() {
+		switchToScene(STATISTICS_SCENE_FXML);
+	}
+	
+	/**
+	 * Switches to the spectator scene, which watches a game being played in
+	 * another window
+	 */
+	public static void switchToSpectatorScene() {
+		switchToScene(SPECTATOR_SCENE_FXML);
+	}
+	
+	/**
+	 * Switches to the heatmap scene, which shows where the cursor was kept
+	 * and where games were lost over every saved replay
+	 */
+	public static void switchToHeatmapScene() {
+		switchToScene(HEATMAP_SCENE_FXML);
+	}
+	
 	/**
 	 * Switches to the game over scene
 	 */
@@ -112,15 +187,31 @@ public class CursorDodgeApplication extends Application {
 	}
 	
 	/**
-	 * Switches to the game over scene
+	 * Switches to the game over scene and saves the score
 	 */
 	public static void switchToGameOverScene(GameOverReason reason, double time,
 			double sceneWidth, double sceneHeight,
 			double screenWidth, double screenHeight) {
+		Score score = new Score(System.currentTimeMillis(), reason, time,
+				sceneWidth, sceneHeight, screenWidth, screenHeight);
+		Score best = null;
+		if (scoreStore != null) {
+			best = scoreStore.best(score.getScreenAreaFraction());
+			scoreStore.add(score);
+		}
+		
 		FXMLLoader loader = switchToScene(GAME_OVER_SCENE_FXML);
 		GameOverSceneController controller = loader.getController();
 		controller.gameOverMessage(reason, time,
-				sceneWidth, sceneHeight, screenWidth, screenHeight);
+				sceneWidth, sceneHeight, screenWidth, screenHeight, best);
+	}
+	
+	/**
+	 * @return The scores of past games, or null if they have not been loaded
+	 * yet or could not be
+	 */
+	public static ScoreStore getScoreStore() {
+		return scoreStore != null && scoreStore.isLoaded() ? scoreStore : null;
 	}
 
 }
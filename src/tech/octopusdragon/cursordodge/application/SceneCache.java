@@ -0,0 +1,91 @@
+package tech.octopusdragon.cursordodge.application;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+
+import javafx.fxml.FXMLLoader;
+
+/**
+ * Scenes loaded from FXML files once and kept, so that switching to them again
+ * only has to swap the root of the window instead of parsing the file. The
+ * files are loaded in order on a background thread as soon as the game
+ * starts. If a scene is wanted before the thread has got to it, it is loaded
+ * on the thread that wants it instead; if the thread is already loading it,
+ * the one that wants it waits for it.
+ * <p>
+ * A kept scene is shown again as it was left, so its controller has to set
+ * everything that can change each time it is shown.
+ * @author Alex Gill
+ *
+ */
+public class SceneCache {
+
+	// --- Variables ---
+	// Loading of each scene by the path of its FXML file, only used by the
+	// application thread once the scenes are being preloaded
+	private Map<String, FutureTask<FXMLLoader>> loaders =
+			new LinkedHashMap<String, FutureTask<FXMLLoader>>();
+
+
+	/**
+	 * Constructs a cache of scenes that have not been loaded yet
+	 * @param fxmlPaths The paths of the FXML files of the scenes, relative to
+	 * {@link CursorDodgeApplication}, in the order they are loaded
+	 */
+	public SceneCache(String... fxmlPaths) {
+		for (String fxmlPath : fxmlPaths) {
+			loaders.put(fxmlPath, new FutureTask<FXMLLoader>(() -> {
+				FXMLLoader loader = new FXMLLoader(
+						CursorDodgeApplication.class.getResource(fxmlPath));
+				loader.load();
+				return loader;
+			}));
+		}
+	}
+
+
+	/**
+	 * Starts loading every scene on a background thread
+	 */
+	public void preload() {
+		List<FutureTask<FXMLLoader>> order =
+				new ArrayList<FutureTask<FXMLLoader>>(loaders.values());
+		Thread thread = new Thread(() -> {
+			for (FutureTask<FXMLLoader> loader : order) {
+				loader.run();
+			}
+		}, "Scene preloader");
+		thread.setDaemon(true);
+		thread.start();
+	}
+
+
+	/**
+	 * Gets a scene, loading it or waiting for it to be loaded if it has not
+	 * been yet
+	 * @param fxmlPath The path of the FXML file of the scene
+	 * @return The loader the scene was loaded with, or null if the scene is not
+	 * kept or could not be loaded
+	 */
+	public FXMLLoader get(String fxmlPath) {
+		FutureTask<FXMLLoader> loader = loaders.get(fxmlPath);
+		if (loader == null) return null;
+		loader.run();
+		try {
+			return loader.get();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			return null;
+		} catch (ExecutionException e) {
+			System.out.println("Error preloading FXML file");
+			e.getCause().printStackTrace();
+			loaders.remove(fxmlPath);
+			return null;
+		}
+	}
+
+}
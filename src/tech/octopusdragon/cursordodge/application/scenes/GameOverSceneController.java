@@ -1,6 +1,7 @@
 package tech.octopusdragon.cursordodge.application.scenes;
 
 import tech.octopusdragon.cursordodge.application.CursorDodgeApplication;
+import tech.octopusdragon.cursordodge.data.Score;
 import tech.octopusdragon.cursordodge.game.classes.GameOverReason;
 
 import javafx.event.ActionEvent;
@@ -31,7 +32,7 @@ public class GameOverSceneController {
 	
 	public void gameOverMessage(GameOverReason reason, double time,
 			double sceneWidth, double sceneHeight,
-			double screenWidth, double screenHeight) {
+			double screenWidth, double screenHeight, Score best) {
 		StringBuilder message = new StringBuilder();
 
 		message.append(gameOverReasonString(reason));
@@ -46,6 +47,16 @@ public class GameOverSceneController {
 				((sceneWidth * sceneHeight) / (screenWidth * screenHeight)
 						* 100)));
 		
+		message.append("\n");
+		if (best == null || time > best.getTime()) {
+			message.append("That is your best time on a window this size!");
+		}
+		else {
+			message.append(String.format(
+					"Your best time on a window this size is %.2f seconds.",
+					best.getTime()));
+		}
+		
 		messageLabel.setText(message.toString());
 	}
 	
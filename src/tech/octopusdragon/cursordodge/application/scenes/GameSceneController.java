@@ -1,5 +1,6 @@
 package tech.octopusdragon.cursordodge.application.scenes;
 
+import tech.octopusdragon.cursordodge.diagnostics.PerformanceOverlay;
 import tech.octopusdragon.cursordodge.game.Game;
 
 import javafx.fxml.FXML;
@@ -11,9 +12,21 @@ public class GameSceneController {
 	@FXML private StackPane root;
 	@FXML private Label messageLabel;
 
+	private Game game;
+	
 	@FXML
 	public void initialize() {
-		root.getChildren().add(0, new Game(messageLabel));
+		game = new Game(messageLabel);
+		root.getChildren().add(0, game);
+		root.getChildren().add(new PerformanceOverlay(game));
+	}
+	
+	
+	/**
+	 * Starts a new round of the game, once the scene is shown
+	 */
+	public void newRound() {
+		game.newRound();
 	}
 
 }
\ No newline at end of file
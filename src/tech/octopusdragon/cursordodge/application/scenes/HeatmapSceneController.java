@@ -0,0 +1,129 @@
+package tech.octopusdragon.cursordodge.application.scenes;
+
+import java.io.IOException;
+
+import tech.octopusdragon.cursordodge.application.CursorDodgeApplication;
+import tech.octopusdragon.cursordodge.data.DataFiles;
+import tech.octopusdragon.cursordodge.heatmap.DensityGrid;
+import tech.octopusdragon.cursordodge.heatmap.Heatmap;
+import tech.octopusdragon.cursordodge.heatmap.HeatmapAggregator;
+
+import javafx.animation.AnimationTimer;
+import javafx.application.Platform;
+import javafx.event.ActionEvent;
+import javafx.fxml.FXML;
+import javafx.scene.control.Button;
+import javafx.scene.control.Label;
+import javafx.scene.image.ImageView;
+import javafx.scene.image.PixelFormat;
+import javafx.scene.image.WritableImage;
+import javafx.scene.layout.StackPane;
+
+public class HeatmapSceneController {
+
+	@FXML private Label statusLabel;
+	@FXML private StackPane viewPane;
+	@FXML private ImageView imageView;
+	@FXML private Button toggleButton;
+
+	private HeatmapAggregator aggregator;	// Reads the replays
+	private AnimationTimer progressTimer;	// Shows how many have been read
+	private Heatmap heatmap;				// The heatmap once read
+	private boolean showingDeaths;			// Whether deaths are shown
+
+
+	@FXML
+	public void initialize() {
+		imageView.fitWidthProperty().bind(viewPane.widthProperty());
+		imageView.fitHeightProperty().bind(viewPane.heightProperty());
+		aggregator = new HeatmapAggregator(HeatmapAggregator.DEFAULT_SIZE,
+				Runtime.getRuntime().availableProcessors());
+		progressTimer = new AnimationTimer() {
+			@Override
+			public void handle(long now) {
+				statusLabel.setText(String.format("Reading replays... %d",
+						aggregator.getRunsRead()));
+			}
+		};
+		progressTimer.start();
+
+		// Read the replays away from the application thread
+		Thread thread = new Thread(() -> {
+			try {
+				Heatmap heatmap = aggregator.aggregate(
+						DataFiles.REPLAY_DIRECTORY);
+				Platform.runLater(() -> show(heatmap));
+			} catch (IOException e) {
+				System.out.println("Error building heatmap");
+				e.printStackTrace();
+				Platform.runLater(() -> {
+					progressTimer.stop();
+					statusLabel.setText("The replays could not be read.");
+				});
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+		}, "Heatmap");
+		thread.setDaemon(true);
+		thread.start();
+	}
+
+
+	@FXML
+	private void toggle(ActionEvent event) {
+		showingDeaths = !showingDeaths;
+		draw();
+	}
+
+
+	@FXML
+	private void switchToTitleScene(ActionEvent event) {
+		progressTimer.stop();
+		aggregator.cancel();
+		CursorDodgeApplication.switchToTitleScene();
+	}
+
+
+	/**
+	 * Shows a heatmap once every replay has been read
+	 * @param heatmap The heatmap
+	 */
+	private void show(Heatmap heatmap) {
+		progressTimer.stop();
+		this.heatmap = heatmap;
+		toggleButton.setDisable(false);
+		draw();
+	}
+
+
+	/**
+	 * Draws the heatmap being shown
+	 */
+	private void draw() {
+		DensityGrid grid = showingDeaths ?
+				heatmap.getDeaths() : heatmap.getPresence();
+		int size = grid.getSize();
+		WritableImage image = new WritableImage(size, size);
+		image.getPixelWriter().setPixels(0, 0, size, size,
+				PixelFormat.getIntArgbInstance(), grid.render(), 0, size);
+		imageView.setImage(image);
+		toggleButton.setText(showingDeaths ? "Show Cursor" : "Show Deaths");
+		statusLabel.setText(statusString());
+	}
+
+
+	private String statusString() {
+		if (heatmap.getRuns() == 0) return "There are no replays yet.";
+		String status = showingDeaths ?
+				String.format("Where %.0f games were lost, over %d replays",
+						heatmap.getDeaths().getTotal(), heatmap.getRuns()) :
+				String.format("Where the cursor was for %.0f seconds, " +
+						"over %d replays", heatmap.getPresence().getTotal(),
+						heatmap.getRuns());
+		if (heatmap.getSkipped() > 0)
+			status += String.format(" (%d could not be read)",
+					heatmap.getSkipped());
+		return status;
+	}
+
+}
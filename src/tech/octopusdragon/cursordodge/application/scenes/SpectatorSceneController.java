@@ -0,0 +1,149 @@
+package tech.octopusdragon.cursordodge.application.scenes;
+
+import tech.octopusdragon.cursordodge.application.CursorDodgeApplication;
+import tech.octopusdragon.cursordodge.game.Game;
+import tech.octopusdragon.cursordodge.game.GamePaints;
+import tech.octopusdragon.cursordodge.game.Simulation;
+import tech.octopusdragon.cursordodge.game.classes.GameOverReason;
+import tech.octopusdragon.cursordodge.spectator.SpectatorClient;
+import tech.octopusdragon.cursordodge.spectator.SpectatorPublisher;
+import tech.octopusdragon.cursordodge.spectator.SpectatorState;
+
+import javafx.animation.AnimationTimer;
+import javafx.event.ActionEvent;
+import javafx.fxml.FXML;
+import javafx.scene.canvas.Canvas;
+import javafx.scene.canvas.GraphicsContext;
+import javafx.scene.control.Label;
+import javafx.scene.layout.Pane;
+import javafx.scene.paint.Color;
+import javafx.scene.paint.Paint;
+
+public class SpectatorSceneController {
+
+	// Paint of each kind of circle, in the order of the kinds
+	private static final Paint[] CIRCLE_PAINTS = {
+			GamePaints.OBSTACLE_CIRCLE_PAINT,
+			GamePaints.CATCH_CIRCLE_PAINT,
+			GamePaints.CORNER_CIRCLE_PAINT
+	};
+	// Paint of the cursor
+	private static final Paint CURSOR_PAINT = Color.BLACK;
+	// Paint around the scene of the game
+	private static final Paint BORDER_PAINT = Color.LIGHTGRAY;
+	// Radius in pixels of the mark where the cursor is
+	private static final double CURSOR_RADIUS = 3.0;
+
+	@FXML private Label statusLabel;
+	@FXML private Pane viewPane;
+	@FXML private Canvas canvas;
+
+	private SpectatorClient client;		// Reads the game being watched
+	private SpectatorState state;		// The game as last drawn
+	private AnimationTimer drawTimer;	// Draws the game every frame
+
+
+	@FXML
+	public void initialize() {
+		canvas.widthProperty().bind(viewPane.widthProperty());
+		canvas.heightProperty().bind(viewPane.heightProperty());
+		state = new SpectatorState();
+		client = new SpectatorClient(Integer.getInteger(
+				Game.SPECTATOR_PORT_PROPERTY, SpectatorPublisher.DEFAULT_PORT));
+		drawTimer = new AnimationTimer() {
+			@Override
+			public void handle(long now) {
+				draw();
+			}
+		};
+		drawTimer.start();
+	}
+
+
+	@FXML
+	private void switchToTitleScene(ActionEvent event) {
+		drawTimer.stop();
+		client.close();
+		CursorDodgeApplication.switchToTitleScene();
+	}
+
+
+	/**
+	 * Draws the game as last read, scaled to fit the pane
+	 */
+	private void draw() {
+		client.copyTo(state);
+		GraphicsContext gc = canvas.getGraphicsContext2D();
+		double width = canvas.getWidth();
+		double height = canvas.getHeight();
+		gc.clearRect(0, 0, width, height);
+		statusLabel.setText(statusString());
+		if (!state.isSynced()) return;
+
+		// Fit the scene of the game in the pane, keeping its shape
+		double scale = Math.min(width / state.getSceneWidth(),
+				height / state.getSceneHeight());
+		double offsetX = (width - state.getSceneWidth() * scale) / 2;
+		double offsetY = (height - state.getSceneHeight() * scale) / 2;
+		gc.setStroke(BORDER_PAINT);
+		gc.strokeRect(offsetX, offsetY, state.getSceneWidth() * scale,
+				state.getSceneHeight() * scale);
+
+		double radius = state.getCircleRadius() * scale;
+		for (int kind = 0; kind < SpectatorState.KINDS; kind++) {
+			gc.setFill(CIRCLE_PAINTS[kind]);
+			for (int i = 0; i < state.getCount(kind); i++) {
+				gc.setGlobalAlpha(state.getOpacity(kind, i));
+				gc.fillOval(offsetX + state.getX(kind, i) * scale - radius,
+						offsetY + state.getY(kind, i) * scale - radius,
+						radius * 2, radius * 2);
+			}
+		}
+		gc.setGlobalAlpha(1.0);
+
+		if (state.isCursorKnown()) {
+			gc.setFill(CURSOR_PAINT);
+			gc.fillOval(
+					offsetX + state.getCursorX() * scale - CURSOR_RADIUS,
+					offsetY + state.getCursorY() * scale - CURSOR_RADIUS,
+					CURSOR_RADIUS * 2, CURSOR_RADIUS * 2);
+		}
+	}
+
+
+	private String statusString() {
+		if (!client.isConnected()) return "Waiting for a game...";
+		if (!state.isSynced()) return "Connected. Waiting for a game...";
+		GameOverReason reason = state.getGameOverReason();
+		if (reason == null) return String.format("Game %d: %.2f seconds",
+				state.getRound(), state.getTick() * Simulation.TICK_DURATION);
+		return String.format("Game %d over after %.2f seconds: %s",
+				state.getRound(), state.getTick() * Simulation.TICK_DURATION,
+				gameOverReasonString(reason));
+	}
+
+
+	private String gameOverReasonString(GameOverReason reason) {
+		String reasonString;
+
+		switch (reason) {
+		case OBSTACLE:
+			reasonString = "Hit an obstacle";
+			break;
+		case DID_NOT_CATCH:
+			reasonString = "Missed a catch circle";
+			break;
+		case OUT_OF_BOUNDS:
+			reasonString = "Left the window";
+			break;
+		case RESIZE:
+			reasonString = "Resized the window";
+			break;
+		default:
+			reasonString = reason.toString();
+		}
+
+		return reasonString;
+	}
+
+}
@@ -0,0 +1,94 @@
+package tech.octopusdragon.cursordodge.application.scenes;
+
+import tech.octopusdragon.cursordodge.application.CursorDodgeApplication;
+import tech.octopusdragon.cursordodge.data.ScoreStore;
+import tech.octopusdragon.cursordodge.data.SurvivalStatistics;
+import tech.octopusdragon.cursordodge.data.TimeHistogram;
+import tech.octopusdragon.cursordodge.game.classes.GameOverReason;
+
+import javafx.event.ActionEvent;
+import javafx.fxml.FXML;
+import javafx.scene.control.Label;
+import javafx.scene.layout.GridPane;
+
+public class StatisticsSceneController {
+	
+	@FXML private GridPane statisticsGrid;
+	
+	private int row;	// Next row of the grid
+	
+	
+	@FXML
+	public void initialize() {
+		ScoreStore scoreStore = CursorDodgeApplication.getScoreStore();
+		if (scoreStore == null) {
+			statisticsGrid.add(new Label("Scores have not been loaded."), 0, 0);
+			return;
+		}
+		SurvivalStatistics statistics = scoreStore.getStatistics();
+		
+		addRow("", "Games", "Median", "90th", "99th");
+		addRow("All games", statistics.all());
+		for (GameOverReason reason : GameOverReason.values()) {
+			addRow(gameOverReasonString(reason), statistics.byReason(reason));
+		}
+		for (int i = 0; i < ScoreStore.BUCKET_COUNT; i++) {
+			TimeHistogram histogram = statistics.byWindowSize(i);
+			if (histogram.getCount() == 0) continue;
+			addRow(String.format("%.1f-%.1f%% of screen",
+					i * ScoreStore.BUCKET_PERCENT,
+					(i + 1) * ScoreStore.BUCKET_PERCENT), histogram);
+		}
+	}
+	
+	
+	@FXML
+	private void switchToTitleScene(ActionEvent event) {
+		CursorDodgeApplication.switchToTitleScene();
+	}
+	
+	
+	private void addRow(String name, TimeHistogram histogram) {
+		if (histogram.getCount() == 0) {
+			addRow(name, "0", "-", "-", "-");
+			return;
+		}
+		addRow(name, String.valueOf(histogram.getCount()),
+				String.format("%.2f s", histogram.quantile(0.5)),
+				String.format("%.2f s", histogram.quantile(0.9)),
+				String.format("%.2f s", histogram.quantile(0.99)));
+	}
+	
+	
+	private void addRow(String... cells) {
+		for (int column = 0; column < cells.length; column++) {
+			statisticsGrid.add(new Label(cells[column]), column, row);
+		}
+		row++;
+	}
+	
+	
+	private String gameOverReasonString(GameOverReason reason) {
+		String reasonString;
+		
+		switch (reason) {
+		case OBSTACLE:
+			reasonString = "Hit an obstacle";
+			break;
+		case DID_NOT_CATCH:
+			reasonString = "Missed a catch circle";
+			break;
+		case OUT_OF_BOUNDS:
+			reasonString = "Left the window";
+			break;
+		case RESIZE:
+			reasonString = "Resized the window";
+			break;
+		default:
+			reasonString = reason.toString();
+		}
+		
+		return reasonString;
+	}
+
+}
@@ -17,4 +17,19 @@ public class TitleSceneController {
 		CursorDodgeApplication.switchToHowToPlayScene();
 	}
 
+	@FXML
+	private void switchToStatisticsScene(ActionEvent event) {
+		CursorDodgeApplication.switchToStatisticsScene();
+	}
+
+	@FXML
+	private void switchToSpectatorScene(ActionEvent event) {
+		CursorDodgeApplication.switchToSpectatorScene();
+	}
+
+	@FXML
+	private void switchToHeatmapScene(ActionEvent event) {
+		CursorDodgeApplication.switchToHeatmapScene();
+	}
+
 }
@@ -0,0 +1,94 @@
+package tech.octopusdragon.cursordodge.benchmark;
+
+import tech.octopusdragon.cursordodge.bot.EvasiveBot;
+import tech.octopusdragon.cursordodge.game.Arena;
+import tech.octopusdragon.cursordodge.game.Difficulty;
+import tech.octopusdragon.cursordodge.game.Simulation;
+
+/**
+ * Where {@link EvasiveBot} put the cursor at every step of a seeded game. The
+ * game is played with the bot once to write the script, so that it can then be
+ * played again from the script without the bot's own work counting against
+ * what is being measured. The bot only moves once per frame, as the mouse is
+ * only read once per frame.
+ * @author Alex Gill
+ *
+ */
+class BotScript {
+
+	// --- Variables ---
+	private double botSpeed;	// Speed of the bot
+	private double[] x;			// X-coordinate of the cursor at every step
+	private double[] y;			// Y-coordinate of the cursor at every step
+	private long ticks;			// Number of steps the last game lasted
+
+
+	/**
+	 * Constructs an empty script
+	 * @param maxTicks Most steps a game is played for
+	 * @param botSpeed Speed of the bot
+	 */
+	public BotScript(long maxTicks, double botSpeed) {
+		this.botSpeed = botSpeed;
+		x = new double[(int)maxTicks + 1];
+		y = new double[(int)maxTicks + 1];
+	}
+
+
+	/**
+	 * Plays a game with the bot and writes down where it put the cursor at
+	 * every step, replacing the last game
+	 * @param arena The geometry of the scene
+	 * @param difficulty How hard the game is
+	 * @param seed Seed of the game
+	 * @param ticksPerFrame Steps in every frame
+	 * @return Number of steps the game lasted
+	 */
+	public long record(Arena arena, Difficulty difficulty, long seed,
+			int ticksPerFrame) {
+		long maxTicks = x.length - 1;
+		Simulation simulation = new Simulation(arena, difficulty, seed);
+		EvasiveBot bot = new EvasiveBot(arena, botSpeed);
+		// The bot places the cursor before the game starts, as a player does
+		// during the countdown, so the first step keeps that position
+		bot.move(simulation);
+		simulation.start();
+		while (!simulation.isGameOver() && simulation.getTick() < maxTicks) {
+			if (simulation.getTick() > 0 &&
+					simulation.getTick() % ticksPerFrame == 0)
+				bot.move(simulation);
+			x[(int)simulation.getTick()] = bot.getX();
+			y[(int)simulation.getTick()] = bot.getY();
+			simulation.step();
+		}
+		ticks = simulation.getTick();
+		return ticks;
+	}
+
+
+	/**
+	 * @param tick A step
+	 * @return X-coordinate of the cursor before the step
+	 */
+	public double getX(long tick) {
+		return x[(int)tick];
+	}
+
+
+	/**
+	 * @param tick A step
+	 * @return Y-coordinate of the cursor before the step
+	 */
+	public double getY(long tick) {
+		return y[(int)tick];
+	}
+
+
+	/**
+	 * @return Number of steps the last game lasted
+	 */
+	public long getTicks() {
+		return ticks;
+	}
+
+}
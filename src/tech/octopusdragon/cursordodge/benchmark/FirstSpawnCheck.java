@@ -0,0 +1,214 @@
+package tech.octopusdragon.cursordodge.benchmark;
+
+import tech.octopusdragon.cursordodge.game.Arena;
+import tech.octopusdragon.cursordodge.game.Difficulty;
+import tech.octopusdragon.cursordodge.game.Simulation;
+import tech.octopusdragon.cursordodge.game.classes.GameOverReason;
+import tech.octopusdragon.cursordodge.game.classes.ObstacleCircles;
+import tech.octopusdragon.cursordodge.replay.Replay;
+
+/**
+ * Checks that the direction of the first obstacle circle is picked again
+ * when the game starts with the cursor in its way, and that a replay plays
+ * the circle the same way.
+ * <p>
+ * For each seed, the game is first started without a cursor and played
+ * until the spawn prediction time has passed, and the cursor is put where
+ * the first circle got to, so that the direction first drawn heads straight
+ * at it. Real bounces are random, so where the path predicted for that
+ * direction does not reach the cursor, the seed is skipped. The game is
+ * then started again with the cursor there. The first
+ * circle must not move in the direction first drawn, and its predicted path
+ * must keep further from the cursor than that direction would have. It
+ * cannot always keep outside the safety margin, since the cursor may be
+ * little further away than the margin, so how often it does is only shown.
+ * Last, the cursor and the start are recorded in a replay, which must move
+ * the circle the same way when played.
+ * <p>
+ * Usage: {@code FirstSpawnCheck [--seeds N] [--scene WxH] [--screen WxH]}
+ * <p>
+ * Exits with status 1 if the direction of any first circle was not picked
+ * again, was picked no further from the cursor or a replay moved it
+ * differently.
+ * @author Alex Gill
+ *
+ */
+public class FirstSpawnCheck {
+
+	// --- Variables ---
+	private int seeds = 1000;				// Games checked
+	private double sceneWidth = 800.0;		// Scene width
+	private double sceneHeight = 600.0;		// Scene height
+	private double screenWidth = 1920.0;	// Screen width
+	private double screenHeight = 1080.0;	// Screen height
+
+
+	public static void main(String[] args) {
+		FirstSpawnCheck check = new FirstSpawnCheck();
+		try {
+			check.parse(args);
+		} catch (IllegalArgumentException e) {
+			System.err.println(e.getMessage());
+			System.err.println("Usage: FirstSpawnCheck [--seeds N] " +
+					"[--scene WxH] [--screen WxH]");
+			System.exit(2);
+		}
+		System.exit(check.run() ? 0 : 1);
+	}
+
+
+	/**
+	 * Reads the command line arguments
+	 * @param args The arguments
+	 * @throws IllegalArgumentException If an argument is not valid
+	 */
+	private void parse(String[] args) throws IllegalArgumentException {
+		for (int i = 0; i < args.length; i++) {
+			String arg = args[i];
+			if (i + 1 >= args.length)
+				throw new IllegalArgumentException("Missing value for " + arg);
+			switch (arg) {
+			case "--seeds":
+				seeds = Integer.parseInt(args[++i]);
+				break;
+			case "--scene":
+				double[] scene = parseSize(args[++i]);
+				sceneWidth = scene[0];
+				sceneHeight = scene[1];
+				break;
+			case "--screen":
+				double[] screen = parseSize(args[++i]);
+				screenWidth = screen[0];
+				screenHeight = screen[1];
+				break;
+			default:
+				throw new IllegalArgumentException("Unknown argument " + arg);
+			}
+		}
+	}
+
+
+	/**
+	 * @param size A size such as 800x600
+	 * @return The width and height
+	 */
+	private static double[] parseSize(String size) {
+		String[] parts = size.split("x");
+		if (parts.length != 2)
+			throw new IllegalArgumentException("Invalid size " + size);
+		return new double[] {
+				Double.parseDouble(parts[0]), Double.parseDouble(parts[1]) };
+	}
+
+
+	/**
+	 * Checks every seed and prints the result
+	 * @return Whether every first circle was picked again further from the
+	 * cursor and replayed the same way
+	 */
+	private boolean run() {
+		Difficulty difficulty = new Difficulty();
+		double predictionTime = difficulty.getSpawnPredictionTime();
+		if (predictionTime <= 0.0) {
+			System.out.println("Spawn prediction is turned off");
+			return false;
+		}
+		long ticksToCursor =
+				(long)(predictionTime * Simulation.TICKS_PER_SECOND);
+
+		int skipped = 0;
+		int notPicked = 0;
+		int notFurther = 0;
+		int clear = 0;
+		int notReplayed = 0;
+		for (long seed = 0; seed < seeds; seed++) {
+			Arena arena = new Arena(sceneWidth, sceneHeight,
+					screenWidth, screenHeight);
+
+			// Find where the direction first drawn takes the circle
+			Simulation blind = new Simulation(arena, difficulty, seed);
+			blind.start();
+			ObstacleCircles blindCircles = blind.getObstacleCircles();
+			double spawnX = blindCircles.getX(0);
+			double spawnY = blindCircles.getY(0);
+			double blindVelocityX = blindCircles.getVelocityX(0);
+			double blindVelocityY = blindCircles.getVelocityY(0);
+			while (blind.getTick() < ticksToCursor) {
+				blind.step();
+			}
+			double cursorX = blindCircles.getX(0);
+			double cursorY = blindCircles.getY(0);
+			double blindClearance = clearance(arena, difficulty, spawnX, spawnY,
+					blindVelocityX, blindVelocityY, cursorX, cursorY);
+
+			// Start again with the cursor there, as the game does
+			Simulation simulation = new Simulation(arena, difficulty, seed);
+			Replay replay = new Replay(seed, arena);
+			simulation.setCursor(cursorX, cursorY);
+			replay.recordCursor(simulation.getTick(), cursorX, cursorY);
+			simulation.start();
+			ObstacleCircles circles = simulation.getObstacleCircles();
+			double clearance = clearance(arena, difficulty, spawnX, spawnY,
+					circles.getVelocityX(0), circles.getVelocityY(0),
+					cursorX, cursorY);
+			if (blindClearance >= 0.0)
+				skipped++;
+			else if (circles.getVelocityX(0) == blindVelocityX &&
+					circles.getVelocityY(0) == blindVelocityY)
+				notPicked++;
+			else if (clearance <= blindClearance)
+				notFurther++;
+			else if (clearance >= 0.0)
+				clear++;
+
+			// Play the start of the game again from the replay
+			simulation.step();
+			replay.recordEnd(simulation.getTick(), GameOverReason.RESIZE);
+			simulation.end(GameOverReason.RESIZE);
+			ObstacleCircles played = replay.play().getObstacleCircles();
+			if (played.getX(0) != circles.getX(0) ||
+					played.getY(0) != circles.getY(0) ||
+					played.getVelocityX(0) != circles.getVelocityX(0) ||
+					played.getVelocityY(0) != circles.getVelocityY(0))
+				notReplayed++;
+		}
+
+		System.out.println(String.format("%d games, %d skipped: %d first " +
+				"circles not picked again, %d picked no further from the " +
+				"cursor, %d played differently from the replay, %d kept " +
+				"outside the safety margin", seeds, skipped, notPicked,
+				notFurther, notReplayed, clear));
+		boolean passed = notPicked == 0 && notFurther == 0 &&
+				notReplayed == 0;
+		System.out.println(passed ? "PASSED" : "FAILED");
+		return passed;
+	}
+
+
+	/**
+	 * @param arena The geometry of the scene
+	 * @param difficulty How hard the game is
+	 * @param x X-coordinate the circle starts from
+	 * @param y Y-coordinate the circle starts from
+	 * @param velocityX Speed the circle starts with along the X-axis
+	 * @param velocityY Speed the circle starts with along the Y-axis
+	 * @param cursorX X-coordinate of the cursor
+	 * @param cursorY Y-coordinate of the cursor
+	 * @return How far the predicted path of the circle keeps outside the
+	 * safety margin around the cursor, or less than zero if it comes inside
+	 * it
+	 */
+	private static double clearance(Arena arena, Difficulty difficulty,
+			double x, double y, double velocityX, double velocityY,
+			double cursorX, double cursorY) {
+		double speed = Math.sqrt(velocityX * velocityX + velocityY * velocityY);
+		// Angles are measured with the Y-axis pointing up the screen
+		double angle = Math.toDegrees(Math.atan2(-velocityY, velocityX));
+		double safeDistance = arena.getCircleRadius() *
+				(1.0 + difficulty.getSpawnSafetyMargin());
+		return arena.closestApproach(x, y, angle,
+				speed * difficulty.getSpawnPredictionTime(),
+				cursorX, cursorY) - safeDistance;
+	}
+
+}
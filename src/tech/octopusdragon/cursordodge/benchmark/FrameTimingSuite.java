@@ -0,0 +1,482 @@
+package tech.octopusdragon.cursordodge.benchmark;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+import tech.octopusdragon.cursordodge.bot.EvasiveBot;
+import tech.octopusdragon.cursordodge.diagnostics.DurationHistogram;
+import tech.octopusdragon.cursordodge.game.Arena;
+import tech.octopusdragon.cursordodge.game.Difficulty;
+import tech.octopusdragon.cursordodge.game.Simulation;
+
+/**
+ * Plays a fixed set of scenarios and checks how long their frames take against
+ * stored baselines, so that a change that makes the game slower shows up as a
+ * failure rather than as a feeling. A scenario is a scene size, a number of
+ * obstacle circles and a path the cursor follows. Each one plays seeded games
+ * from seed 0 on, adding an obstacle circle every
+ * {@value #SPAWN_INTERVAL} s until there are as many as the scenario asks for
+ * and no more, and times every frame from then on until {@code --frames}
+ * frames have been timed. The cursor follows one of these paths:
+ * <ul>
+ * <li>{@code bot}: where {@link EvasiveBot} put it in the same game, worked out
+ * before the game is timed</li>
+ * <li>{@code orbit}: round the middle of the scene, once every
+ * {@value #ORBIT_PERIOD} s</li>
+ * </ul>
+ * Everything but the clock is deterministic, so two runs play exactly the same
+ * frames. A frame is the work the game loop does without a display: feeding in
+ * the cursor and stepping the simulation. Every scenario is played once first
+ * without timing it so that the code is compiled. Each scenario is then timed
+ * {@code --runs} times, and each time taken is the median over the runs.
+ * <p>
+ * The report is CSV with one line per scenario in a fixed order, giving the
+ * 50th and 99th percentile and longest frame in microseconds next to their
+ * baselines and whether the scenario passed, so reports of two changes can be
+ * diffed. A baseline keeps how far apart its runs were as well as the times,
+ * as the range of the middle half of the runs so that one run interrupted by
+ * the machine does not widen it.
+ * A scenario fails if a time is more than its baseline times the tolerance
+ * plus that spread times the spread factor, so the allowance is relative to
+ * the time and only as wide as the noise measured when the baselines were
+ * written. With the defaults, frames that take twice as long at the 50th or
+ * 99th percentile fail. The longest frame has a tolerance of its own, though
+ * since it is mostly decided by what else the machine is doing, its spread
+ * is usually wide. Baselines are read from {@code --baseline}, or from the
+ * ones kept with the game, and {@code --write-baseline} writes the times of
+ * this run as new baselines.
+ * <p>
+ * Usage: {@code FrameTimingSuite [--sizes WxH,...] [--obstacles N,...]
+ * [--paths bot,orbit] [--frames N] [--warmup N] [--runs N] [--fps N]
+ * [--tolerance X] [--max-tolerance X] [--spread-factor X]
+ * [--baseline FILE] [--write-baseline FILE]}
+ * <p>
+ * Exits with status 1 if any scenario is slower than its baseline.
+ * @author Alex Gill
+ *
+ */
+public class FrameTimingSuite {
+
+	// --- Constants ---
+	// Baselines kept with the game
+	private static final String BASELINE_PATH =
+			"resources/frame-timing-baseline.csv";
+	// Header of the baseline file
+	private static final String BASELINE_HEADER =
+			"scenario,frames,p50_us,p99_us,max_us," +
+			"p50_spread_us,p99_spread_us,max_spread_us";
+	// Times kept of a scenario: the 50th and 99th percentile and longest
+	private static final int TIMES = 3;
+	// Header of the report
+	private static final String REPORT_HEADER = "scenario,frames,p50_us," +
+			"p99_us,max_us,base_p50_us,base_p99_us,base_max_us,result";
+	// Screen size, which decides the size of the circles
+	private static final double SCREEN_WIDTH = 1920.0;
+	private static final double SCREEN_HEIGHT = 1080.0;
+	// Seconds between obstacle circles until there are enough
+	private static final double SPAWN_INTERVAL = 0.25;
+	// Longest game in seconds before moving on to the next seed
+	private static final double MAX_GAME_TIME = 120.0;
+	// Most games a scenario plays looking for enough frames
+	private static final int MAX_GAMES = 10000;
+	// Seconds the orbit path takes to go round once
+	private static final double ORBIT_PERIOD = 8.0;
+	// Radius of the orbit path as a fraction of the shorter side of the scene
+	private static final double ORBIT_RADIUS = 0.35;
+	// Paths the cursor can follow
+	private static final String BOT = "bot";
+	private static final String ORBIT = "orbit";
+
+	// --- Variables ---
+	private List<double[]> sizes = new ArrayList<double[]>();	// Scene sizes
+	private int[] obstacles = { 1, 4, 8, 16 };	// Obstacle circle counts
+	private String[] paths = { BOT, ORBIT };	// Paths of the cursor
+	private int frames = 20000;				// Frames timed per scenario
+	private int warmupFrames = 10000;		// Frames played before timing
+	private int runs = 9;					// Times each scenario is timed
+	private int framesPerSecond = 60;		// Frames the game loop runs
+	private double tolerance = 1.5;			// Allowed p50 and p99 growth
+	private double maxTolerance = 4.0;		// Allowed growth of the longest
+	private double spreadFactor = 2.0;		// Spreads of the runs allowed
+	private File baselineFile;				// Baselines, or null for the kept
+	private File writeBaselineFile;			// Where to write new baselines
+	private BotScript script;				// Path of the bot in the game
+	private int ticksPerFrame;				// Steps in every frame
+
+
+	public static void main(String[] args) {
+		FrameTimingSuite suite = new FrameTimingSuite();
+		try {
+			suite.parse(args);
+		} catch (IllegalArgumentException e) {
+			System.err.println(e.getMessage());
+			System.err.println("Usage: FrameTimingSuite [--sizes WxH,...] " +
+					"[--obstacles N,...] [--paths bot,orbit] [--frames N] " +
+					"[--warmup N] [--runs N] [--fps N] [--tolerance X] " +
+					"[--max-tolerance X] [--spread-factor X] " +
+					"[--baseline FILE] [--write-baseline FILE]");
+			System.exit(2);
+		}
+
+		try {
+			System.exit(suite.run() ? 0 : 1);
+		} catch (IOException e) {
+			System.out.println("Error reading or writing baselines");
+			e.printStackTrace();
+			System.exit(2);
+		}
+	}
+
+
+	/**
+	 * Reads the command line arguments
+	 * @param args The arguments
+	 * @throws IllegalArgumentException If an argument is not valid
+	 */
+	private void parse(String[] args) throws IllegalArgumentException {
+		String sizeList = "640x480,800x600,1280x720,1920x1080";
+		for (int i = 0; i < args.length; i++) {
+			String arg = args[i];
+			if (i + 1 >= args.length)
+				throw new IllegalArgumentException("Missing value for " + arg);
+			switch (arg) {
+			case "--sizes":
+				sizeList = args[++i];
+				break;
+			case "--obstacles":
+				String[] counts = args[++i].split(",");
+				obstacles = new int[counts.length];
+				for (int j = 0; j < counts.length; j++) {
+					obstacles[j] = Integer.parseInt(counts[j]);
+					if (obstacles[j] < 1)
+						throw new IllegalArgumentException(
+								"Invalid obstacle count " + counts[j]);
+				}
+				break;
+			case "--paths":
+				paths = args[++i].split(",");
+				for (String path : paths) {
+					if (!path.equals(BOT) && !path.equals(ORBIT))
+						throw new IllegalArgumentException(
+								"Unknown path " + path);
+				}
+				break;
+			case "--frames":
+				frames = Integer.parseInt(args[++i]);
+				break;
+			case "--warmup":
+				warmupFrames = Integer.parseInt(args[++i]);
+				break;
+			case "--fps":
+				framesPerSecond = Integer.parseInt(args[++i]);
+				break;
+			case "--tolerance":
+				tolerance = Double.parseDouble(args[++i]);
+				break;
+			case "--max-tolerance":
+				maxTolerance = Double.parseDouble(args[++i]);
+				break;
+			case "--runs":
+				runs = Integer.parseInt(args[++i]);
+				if (runs < 1)
+					throw new IllegalArgumentException(
+							"Invalid number of runs");
+				break;
+			case "--spread-factor":
+				spreadFactor = Double.parseDouble(args[++i]);
+				break;
+			case "--baseline":
+				baselineFile = new File(args[++i]);
+				break;
+			case "--write-baseline":
+				writeBaselineFile = new File(args[++i]);
+				break;
+			default:
+				throw new IllegalArgumentException("Unknown argument " + arg);
+			}
+		}
+		for (String size : sizeList.split(",")) {
+			sizes.add(parseSize(size));
+		}
+	}
+
+
+	/**
+	 * @param size A size such as 800x600
+	 * @return The width and height
+	 */
+	private static double[] parseSize(String size) {
+		String[] parts = size.split("x");
+		if (parts.length != 2)
+			throw new IllegalArgumentException("Invalid size " + size);
+		return new double[] {
+				Double.parseDouble(parts[0]), Double.parseDouble(parts[1]) };
+	}
+
+
+	/**
+	 * Plays every scenario, prints the report and writes the baselines if
+	 * asked to
+	 * @return Whether every scenario was within its baseline
+	 * @throws IOException If the baselines could not be read or written
+	 */
+	private boolean run() throws IOException {
+		Map<String, double[]> baselines = readBaselines();
+		ticksPerFrame = Math.max(1,
+				Simulation.TICKS_PER_SECOND / framesPerSecond);
+		script = new BotScript(
+				(long)(MAX_GAME_TIME * Simulation.TICKS_PER_SECOND),
+				EvasiveBot.DEFAULT_SPEED);
+
+		// Compile the code before anything is timed
+		DurationHistogram histogram = new DurationHistogram();
+		for (double[] size : sizes) {
+			for (int count : obstacles) {
+				for (String path : paths) {
+					play(size, count, path, warmupFrames, histogram);
+				}
+			}
+		}
+
+		boolean passed = true;
+		Map<String, double[]> results = new LinkedHashMap<String, double[]>();
+		System.out.println(REPORT_HEADER);
+		for (double[] size : sizes) {
+			for (int count : obstacles) {
+				for (String path : paths) {
+					String name = String.format(Locale.ROOT, "%.0fx%.0f-%d-%s",
+							size[0], size[1], count, path);
+					double[] result = time(size, count, path, histogram);
+					results.put(name, result);
+					double[] baseline = baselines.get(name);
+					String verdict = check(result, baseline);
+					if (!verdict.equals("OK") && !verdict.equals("NEW"))
+						passed = false;
+					System.out.println(String.format(Locale.ROOT,
+							"%s,%d,%.3f,%.3f,%.3f,%s,%s,%s,%s", name,
+							(long)result[0], result[1], result[2], result[3],
+							baselineValue(baseline, 1),
+							baselineValue(baseline, 2),
+							baselineValue(baseline, 3), verdict));
+				}
+			}
+		}
+		System.out.println(passed ? "PASSED" : "FAILED");
+
+		if (writeBaselineFile != null) writeBaselines(results);
+		return passed;
+	}
+
+
+	/**
+	 * Times a scenario {@code --runs} times
+	 * @param size Width and height of the scene
+	 * @param obstacleCount Number of obstacle circles
+	 * @param path Path the cursor follows
+	 * @param histogram Where the time of every frame is counted
+	 * @return Number of frames timed in each run, the median of each time
+	 * over the runs and the range of the middle half of the runs on each, in
+	 * microseconds
+	 */
+	private double[] time(double[] size, int obstacleCount, String path,
+			DurationHistogram histogram) {
+		double[][] times = new double[TIMES][runs];
+		long frameCount = 0;
+		for (int run = 0; run < runs; run++) {
+			histogram.clear();
+			System.gc();
+			play(size, obstacleCount, path, frames, histogram);
+			frameCount = histogram.getCount();
+			times[0][run] = histogram.quantile(0.5) / 1e3;
+			times[1][run] = histogram.quantile(0.99) / 1e3;
+			times[2][run] = histogram.getMax() / 1e3;
+		}
+		double[] result = new double[1 + 2 * TIMES];
+		result[0] = frameCount;
+		for (int i = 0; i < TIMES; i++) {
+			Arrays.sort(times[i]);
+			result[1 + i] = times[i][runs / 2];
+			result[1 + TIMES + i] =
+					times[i][runs * 3 / 4] - times[i][runs / 4];
+		}
+		return result;
+	}
+
+
+	/**
+	 * Plays games of a scenario until enough frames have been timed
+	 * @param size Width and height of the scene
+	 * @param obstacleCount Number of obstacle circles
+	 * @param path Path the cursor follows
+	 * @param frameCount Number of frames to time
+	 * @param histogram Where the time of every frame is counted
+	 */
+	private void play(double[] size, int obstacleCount, String path,
+			int frameCount, DurationHistogram histogram) {
+		Arena arena = new Arena(size[0], size[1], SCREEN_WIDTH, SCREEN_HEIGHT);
+		Difficulty difficulty = new Difficulty();
+		difficulty.set("OBSTACLE_CIRCLE_INITIAL_INTERVAL", SPAWN_INTERVAL);
+		difficulty.set("OBSTACLE_CIRCLE_INTERVAL_ADDER", 0.0);
+		difficulty.set("OBSTACLE_CIRCLE_LIMIT", obstacleCount);
+		long maxTicks = (long)(MAX_GAME_TIME * Simulation.TICKS_PER_SECOND);
+		double centerX = size[0] / 2;
+		double centerY = size[1] / 2;
+		double radius = Math.min(size[0], size[1]) * ORBIT_RADIUS;
+		boolean bot = path.equals(BOT);
+
+		long timed = 0;
+		for (long seed = 0; seed < MAX_GAMES && timed < frameCount; seed++) {
+			long ticks = bot ?
+					script.record(arena, difficulty, seed, ticksPerFrame) :
+					maxTicks;
+			Simulation simulation = new Simulation(arena, difficulty, seed);
+			if (bot) simulation.setCursor(script.getX(0), script.getY(0));
+			else simulation.setCursor(centerX + radius, centerY);
+			simulation.start();
+			while (!simulation.isGameOver() && simulation.getTick() < ticks &&
+					timed < frameCount) {
+				// Work out where the cursor is before the frame starts
+				long tick = simulation.getTick();
+				double x;
+				double y;
+				if (bot) {
+					x = script.getX(tick);
+					y = script.getY(tick);
+				}
+				else {
+					double angle = 2 * Math.PI *
+							(tick * Simulation.TICK_DURATION) / ORBIT_PERIOD;
+					x = centerX + radius * Math.cos(angle);
+					y = centerY + radius * Math.sin(angle);
+				}
+				boolean counted =
+						simulation.getObstacleCircles().size() >= obstacleCount;
+
+				long start = System.nanoTime();
+				for (int i = 0; i < ticksPerFrame &&
+						!simulation.isGameOver(); i++) {
+					simulation.setCursor(x, y);
+					simulation.step();
+				}
+				long end = System.nanoTime();
+				if (counted) {
+					histogram.record(end - start);
+					timed++;
+				}
+			}
+		}
+	}
+
+
+	/**
+	 * @param result Number of frames and times of a scenario
+	 * @param baseline Baseline of the scenario, or null
+	 * @return OK, NEW if there is no baseline, or which times are too slow
+	 */
+	private String check(double[] result, double[] baseline) {
+		if (baseline == null) return "NEW";
+		StringBuilder slower = new StringBuilder();
+		if (result[1] > limit(baseline, 1, tolerance))
+			slower.append(" p50");
+		if (result[2] > limit(baseline, 2, tolerance))
+			slower.append(" p99");
+		if (result[3] > limit(baseline, 3, maxTolerance))
+			slower.append(" max");
+		return slower.length() == 0 ? "OK" : "SLOWER:" + slower.toString();
+	}
+
+
+	/**
+	 * @param baseline Baseline of a scenario
+	 * @param index Which time
+	 * @param growth How many times longer the time may get
+	 * @return Longest the time can be and still pass
+	 */
+	private double limit(double[] baseline, int index, double growth) {
+		return baseline[index] * growth +
+				baseline[index + TIMES] * spreadFactor;
+	}
+
+
+	/**
+	 * @param baseline Baseline of a scenario, or null
+	 * @param index Which time
+	 * @return The time in the baseline, or an empty string if there is none
+	 */
+	private static String baselineValue(double[] baseline, int index) {
+		if (baseline == null) return "";
+		return String.format(Locale.ROOT, "%.3f", baseline[index]);
+	}
+
+
+	/**
+	 * Reads the baselines from the given file or from the ones kept with the
+	 * game
+	 * @return Number of frames and times of every scenario by its name, which
+	 * is empty if there are no baselines
+	 * @throws IOException If the baselines could not be read
+	 */
+	private Map<String, double[]> readBaselines() throws IOException {
+		Map<String, double[]> baselines = new LinkedHashMap<String, double[]>();
+		InputStream in = baselineFile != null ?
+				new FileInputStream(baselineFile) :
+				getClass().getClassLoader().getResourceAsStream(BASELINE_PATH);
+		if (in == null) return baselines;
+		try (BufferedReader reader = new BufferedReader(
+				new InputStreamReader(in, StandardCharsets.UTF_8))) {
+			String line = reader.readLine();
+			if (!BASELINE_HEADER.equals(line))
+				throw new IOException("Not a frame timing baseline file");
+			while ((line = reader.readLine()) != null) {
+				if (line.isEmpty()) continue;
+				String[] fields = line.split(",");
+				if (fields.length != 2 + 2 * TIMES)
+					throw new IOException("Invalid baseline " + line);
+				double[] baseline = new double[1 + 2 * TIMES];
+				for (int i = 0; i < baseline.length; i++) {
+					baseline[i] = Double.parseDouble(fields[i + 1]);
+				}
+				baselines.put(fields[0], baseline);
+			}
+		}
+		return baselines;
+	}
+
+
+	/**
+	 * Writes the times of this run as baselines
+	 * @param results Number of frames and times of every scenario by its name
+	 * @throws IOException If the file could not be written
+	 */
+	private void writeBaselines(Map<String, double[]> results)
+			throws IOException {
+		try (PrintWriter out = new PrintWriter(
+				new BufferedWriter(new FileWriter(writeBaselineFile)))) {
+			out.println(BASELINE_HEADER);
+			for (Map.Entry<String, double[]> entry : results.entrySet()) {
+				double[] result = entry.getValue();
+				out.println(String.format(Locale.ROOT,
+						"%s,%d,%.3f,%.3f,%.3f,%.3f,%.3f,%.3f",
+						entry.getKey(), (long)result[0], result[1], result[2],
+						result[3], result[4], result[5], result[6]));
+			}
+			if (out.checkError())
+				throw new IOException("Error writing " + writeBaselineFile);
+		}
+	}
+
+}
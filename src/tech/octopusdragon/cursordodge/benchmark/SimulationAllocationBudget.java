@@ -0,0 +1,237 @@
+package tech.octopusdragon.cursordodge.benchmark;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+
+import tech.octopusdragon.cursordodge.bot.EvasiveBot;
+import tech.octopusdragon.cursordodge.diagnostics.FrameProfile;
+import tech.octopusdragon.cursordodge.diagnostics.InputLatency;
+import tech.octopusdragon.cursordodge.diagnostics.PerformanceOverlay;
+import tech.octopusdragon.cursordodge.game.Arena;
+import tech.octopusdragon.cursordodge.game.Difficulty;
+import tech.octopusdragon.cursordodge.game.Simulation;
+import tech.octopusdragon.cursordodge.replay.Replay;
+
+/**
+ * Measures how many bytes the simulation side of the game loop allocates per
+ * simulated second while a game is played, and fails if it is more than a
+ * budget. Used to move the hot paths of the simulation to ones that do not
+ * allocate and to keep them that way.
+ * <p>
+ * Only the simulation is budgeted. The loop is a headless copy of the game
+ * loop run on the thread of the harness, not on the FX thread, so the mouse
+ * handler, drawing the circles and everything else JavaFX does each frame are
+ * not measured here. What the FX thread allocates while the game is really
+ * played is shown on the {@link PerformanceOverlay}.
+ * <p>
+ * Games are scripted: {@link EvasiveBot} plays each seed once to decide where
+ * the cursor goes at every step, and then the game is played again from that
+ * script the way the game loop plays it. Each frame feeds the cursor in and
+ * records it in the replay, steps the simulation, and times the frame and its
+ * input. Only the second run is measured, so the bot does not count against
+ * the budget. The first {@code --warmup} seconds of every game are left out,
+ * since creating the game and compiling the code allocate. Games are played
+ * until {@code --seconds} of steady play have been measured.
+ * <p>
+ * The inputs recorded in the replay are kept for the whole game and count
+ * against the budget, so what is allocated grows with {@code --fps}.
+ * <p>
+ * Usage: {@code SimulationAllocationBudget [--seconds S] [--warmup S]
+ * [--budget BYTES] [--fps N] [--scene WxH] [--screen WxH]
+ * [--bot-speed PIXELS]}
+ * <p>
+ * Exits with status 1 if the simulation allocated more than the budget in
+ * bytes per simulated second.
+ * @author Alex Gill
+ *
+ */
+public class SimulationAllocationBudget {
+
+	// --- Constants ---
+	// Most games played looking for enough steady play
+	private static final int MAX_GAMES = 1000;
+
+	// --- Variables ---
+	private double seconds = 600.0;			// Steady play to measure
+	private double warmup = 10.0;			// Play left out of every game
+	private double budget = 6144.0;			// Most bytes per simulated second
+	private int framesPerSecond = 60;		// Frames the game loop runs
+	private double sceneWidth = 800.0;		// Scene width
+	private double sceneHeight = 600.0;		// Scene height
+	private double screenWidth = 1920.0;	// Screen width
+	private double screenHeight = 1080.0;	// Screen height
+	private double botSpeed = EvasiveBot.DEFAULT_SPEED;	// Speed of the bot
+	private com.sun.management.ThreadMXBean threads;	// Counts allocation
+
+
+	public static void main(String[] args) {
+		SimulationAllocationBudget harness = new SimulationAllocationBudget();
+		try {
+			harness.parse(args);
+		} catch (IllegalArgumentException e) {
+			System.err.println(e.getMessage());
+			System.err.println("Usage: SimulationAllocationBudget " +
+					"[--seconds S] [--warmup S] [--budget BYTES] [--fps N] " +
+					"[--scene WxH] [--screen WxH] [--bot-speed PIXELS]");
+			System.exit(2);
+		}
+
+		ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+		if (!(threads instanceof com.sun.management.ThreadMXBean)) {
+			System.err.println("This JVM cannot count allocated bytes");
+			System.exit(2);
+		}
+		harness.threads = (com.sun.management.ThreadMXBean)threads;
+		if (!harness.threads.isThreadAllocatedMemorySupported()) {
+			System.err.println("This JVM cannot count allocated bytes");
+			System.exit(2);
+		}
+		harness.threads.setThreadAllocatedMemoryEnabled(true);
+
+		System.exit(harness.run() ? 0 : 1);
+	}
+
+
+	/**
+	 * Reads the command line arguments
+	 * @param args The arguments
+	 * @throws IllegalArgumentException If an argument is not valid
+	 */
+	private void parse(String[] args) throws IllegalArgumentException {
+		for (int i = 0; i < args.length; i++) {
+			String arg = args[i];
+			if (i + 1 >= args.length)
+				throw new IllegalArgumentException("Missing value for " + arg);
+			switch (arg) {
+			case "--seconds":
+				seconds = Double.parseDouble(args[++i]);
+				break;
+			case "--warmup":
+				warmup = Double.parseDouble(args[++i]);
+				break;
+			case "--budget":
+				budget = Double.parseDouble(args[++i]);
+				break;
+			case "--fps":
+				framesPerSecond = Integer.parseInt(args[++i]);
+				break;
+			case "--scene":
+				double[] scene = parseSize(args[++i]);
+				sceneWidth = scene[0];
+				sceneHeight = scene[1];
+				break;
+			case "--screen":
+				double[] screen = parseSize(args[++i]);
+				screenWidth = screen[0];
+				screenHeight = screen[1];
+				break;
+			case "--bot-speed":
+				botSpeed = Double.parseDouble(args[++i]);
+				break;
+			default:
+				throw new IllegalArgumentException("Unknown argument " + arg);
+			}
+		}
+	}
+
+
+	/**
+	 * @param size A size such as 800x600
+	 * @return The width and height
+	 */
+	private static double[] parseSize(String size) {
+		String[] parts = size.split("x");
+		if (parts.length != 2)
+			throw new IllegalArgumentException("Invalid size " + size);
+		return new double[] {
+				Double.parseDouble(parts[0]), Double.parseDouble(parts[1]) };
+	}
+
+
+	/**
+	 * Plays games until enough steady play has been measured and prints the
+	 * result
+	 * @return Whether the allocation was within the budget
+	 */
+	private boolean run() {
+		long threadId = Thread.currentThread().getId();
+		long maxTicks = (long)((seconds + warmup) * Simulation.TICKS_PER_SECOND);
+		long warmupTicks = (long)(warmup * Simulation.TICKS_PER_SECOND);
+		int ticksPerFrame = Math.max(1,
+				Simulation.TICKS_PER_SECOND / framesPerSecond);
+		BotScript script = new BotScript(maxTicks, botSpeed);
+
+		long measuredTicks = 0;
+		long measuredBytes = 0;
+		int games = 0;
+		long wallStart = System.nanoTime();
+		for (long seed = 0; seed < MAX_GAMES &&
+				measuredTicks * Simulation.TICK_DURATION < seconds; seed++) {
+			Arena arena = new Arena(sceneWidth, sceneHeight,
+					screenWidth, screenHeight);
+			long ticks = script.record(arena, new Difficulty(), seed,
+					ticksPerFrame);
+			if (ticks <= warmupTicks) continue;
+
+			// Play the script the way the game loop does
+			Simulation simulation = new Simulation(arena, seed);
+			Replay replay = new Replay(seed, arena);
+			FrameProfile profile = new FrameProfile();
+			InputLatency latency = new InputLatency();
+			simulation.setProfile(profile);
+			simulation.setCursor(script.getX(0), script.getY(0));
+			replay.recordCursor(0, script.getX(0), script.getY(0));
+			simulation.start();
+			long start = 0;
+			long startTick = 0;
+			while (!simulation.isGameOver() && simulation.getTick() < ticks) {
+				if (start == 0 && simulation.getTick() >= warmupTicks) {
+					start = threads.getThreadAllocatedBytes(threadId);
+					startTick = simulation.getTick();
+				}
+				// The cursor position is read once per frame
+				long received = System.nanoTime();
+				latency.dispatched(received, received);
+				int frameTick = (int)simulation.getTick();
+				double x = script.getX(frameTick);
+				double y = script.getY(frameTick);
+				for (int i = 0; i < ticksPerFrame &&
+						!simulation.isGameOver(); i++) {
+					long inputStart = System.nanoTime();
+					if (simulation.setCursor(x, y)) {
+						replay.recordCursor(simulation.getTick(), x, y);
+					}
+					profile.lap(FrameProfile.INPUT, inputStart);
+					simulation.step();
+					if (i == 0) latency.decided(System.nanoTime());
+				}
+				latency.shown(System.nanoTime());
+				profile.endFrame(simulation.getObstacleCircles().size());
+			}
+			if (start == 0) continue;
+			measuredBytes += threads.getThreadAllocatedBytes(threadId) - start;
+			measuredTicks += simulation.getTick() - startTick;
+			games++;
+		}
+		double wallSeconds = (System.nanoTime() - wallStart) / 1e9;
+
+		if (measuredTicks == 0) {
+			System.out.println("No game lasted longer than the warmup");
+			return false;
+		}
+		double measuredSeconds = measuredTicks * Simulation.TICK_DURATION;
+		double bytesPerSecond = measuredBytes / measuredSeconds;
+		boolean withinBudget = bytesPerSecond <= budget;
+		System.out.println(String.format(
+				"%d games, %.1f simulated s measured in %.1f s wall time",
+				games, measuredSeconds, wallSeconds));
+		System.out.println(String.format(
+				"Allocated %d bytes: %.1f bytes per simulated s, " +
+						"%.2f bytes per step (budget %.1f bytes per s)",
+				measuredBytes, bytesPerSecond,
+				(double)measuredBytes / measuredTicks, budget));
+		System.out.println(withinBudget ? "OK" : "OVER BUDGET");
+		return withinBudget;
+	}
+
+}
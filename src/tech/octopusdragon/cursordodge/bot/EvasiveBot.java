@@ -0,0 +1,179 @@
+package tech.octopusdragon.cursordodge.bot;
+
+import tech.octopusdragon.cursordodge.game.Arena;
+import tech.octopusdragon.cursordodge.game.Simulation;
+import tech.octopusdragon.cursordodge.game.classes.CatchCircles;
+import tech.octopusdragon.cursordodge.game.classes.CornerCircles;
+import tech.octopusdragon.cursordodge.game.classes.ObstacleCircles;
+
+/**
+ * A scripted player for simulated games. It is pushed away from where the
+ * obstacle circles are and are about to be, pulled toward catch circles, and
+ * kept away from the edges and corners of the scene. It moves the cursor no
+ * faster than a set speed and does nothing random, so a game it plays depends
+ * only on the seed of the game.
+ * @author Alex Gill
+ *
+ */
+public class EvasiveBot {
+
+	// --- Constants ---
+	// Default fastest speed of the cursor in pixels per second
+	public static final double DEFAULT_SPEED = 1500.0;
+	// How far ahead in seconds the bot looks at where circles are going
+	private static final double LOOKAHEAD = 0.3;
+	// Number of points along the lookahead the bot avoids
+	private static final int LOOKAHEAD_SAMPLES = 3;
+	// Distance in circle radii from an edge the cursor is kept
+	private static final double EDGE_MARGIN = 2.0;
+	// Strength of the pull toward catch circles compared to the push of an
+	// obstacle at full speed distance
+	private static final double CATCH_PULL = 4.0;
+	// Distance in circle radii from a single obstacle at which the bot moves
+	// at full speed; a weaker push moves it slower
+	private static final double FULL_SPEED_DISTANCE = 5.0;
+	// Smallest push the bot reacts to
+	private static final double DEAD_ZONE = 1e-12;
+
+	// --- Variables ---
+	private Arena arena;	// The geometry of the scene
+	private double speed;	// Fastest speed of the cursor in pixels per second
+	private double x;		// X-coordinate of the cursor
+	private double y;		// Y-coordinate of the cursor
+
+
+	/**
+	 * Constructs a bot that starts with the cursor in the center of the scene
+	 * @param arena The geometry of the scene
+	 */
+	public EvasiveBot(Arena arena) {
+		this(arena, DEFAULT_SPEED);
+	}
+
+
+	/**
+	 * Constructs a bot that starts with the cursor in the center of the scene
+	 * @param arena The geometry of the scene
+	 * @param speed Fastest speed of the cursor in pixels per second
+	 */
+	public EvasiveBot(Arena arena, double speed) {
+		this.arena = arena;
+		this.speed = speed;
+		x = arena.getSceneWidth() / 2;
+		y = arena.getSceneHeight() / 2;
+	}
+
+
+	/**
+	 * Decides where to move the cursor before the next step and moves it
+	 * @param simulation The simulation
+	 */
+	public void move(Simulation simulation) {
+		double radius = arena.getCircleRadius();
+		double pushX = 0.0;
+		double pushY = 0.0;
+
+		// Push away from obstacle circles, now and along where they are going
+		ObstacleCircles obstacles = simulation.getObstacleCircles();
+		for (int c = 0; c < obstacles.size(); c++) {
+			for (int i = 0; i <= LOOKAHEAD_SAMPLES; i++) {
+				double ahead = LOOKAHEAD * i / LOOKAHEAD_SAMPLES;
+				double weight = 1.0 - 0.5 * i / LOOKAHEAD_SAMPLES;
+				double dx = x - obstacles.getX(c) -
+						obstacles.getVelocityX(c) * ahead;
+				double dy = y - obstacles.getY(c) -
+						obstacles.getVelocityY(c) * ahead;
+				pushX += push(dx, dy, radius, weight, true);
+				pushY += push(dx, dy, radius, weight, false);
+			}
+		}
+		CornerCircles corners = simulation.getCornerCircles();
+		for (int c = 0; c < corners.size(); c++) {
+			pushX += push(x - corners.getX(c), y - corners.getY(c),
+					radius, 1.0, true);
+			pushY += push(x - corners.getX(c), y - corners.getY(c),
+					radius, 1.0, false);
+		}
+
+		// Push away from the edges
+		double width = arena.getSceneWidth();
+		double height = arena.getSceneHeight();
+		pushX += push(x, 0.0, radius, 1.0, true);
+		pushX += push(x - width, 0.0, radius, 1.0, true);
+		pushY += push(0.0, y, radius, 1.0, false);
+		pushY += push(0.0, y - height, radius, 1.0, false);
+
+		// Pull toward the catch circle that will fade out first
+		double fullSpeedDistance = FULL_SPEED_DISTANCE * radius;
+		CatchCircles catches = simulation.getCatchCircles();
+		int target = -1;
+		for (int c = 0; c < catches.size(); c++) {
+			if (target == -1 ||
+					catches.getEndTime(c) < catches.getEndTime(target))
+				target = c;
+		}
+		if (target != -1) {
+			double dx = catches.getX(target) - x;
+			double dy = catches.getY(target) - y;
+			double distance = Math.sqrt(dx * dx + dy * dy);
+			if (distance > 0.0) {
+				double pull = CATCH_PULL /
+						(fullSpeedDistance * fullSpeedDistance);
+				pushX += pull * dx / distance;
+				pushY += pull * dy / distance;
+			}
+		}
+
+		// Move as far as the cursor can in one step in that direction
+		double push = Math.sqrt(pushX * pushX + pushY * pushY);
+		if (push > DEAD_ZONE) {
+			double step = speed * Simulation.TICK_DURATION * Math.min(1.0,
+					push * fullSpeedDistance * fullSpeedDistance);
+			x += pushX / push * step;
+			y += pushY / push * step;
+		}
+		double margin = EDGE_MARGIN * radius;
+		x = Math.max(margin, Math.min(width - margin, x));
+		y = Math.max(margin, Math.min(height - margin, y));
+
+		simulation.setCursor(x, y);
+	}
+
+
+	/**
+	 * Calculates one component of a push that gets weaker with the square of
+	 * the distance
+	 * @param dx Distance along the X-axis from what pushes
+	 * @param dy Distance along the Y-axis from what pushes
+	 * @param radius The radius of the circles
+	 * @param weight Strength of the push
+	 * @param xComponent Whether to return the X component, or the Y one
+	 * @return The component of the push
+	 */
+	private static double push(double dx, double dy, double radius,
+			double weight, boolean xComponent) {
+		double distanceSquared = dx * dx + dy * dy;
+		double minimum = radius * radius / 4;
+		if (distanceSquared < minimum) distanceSquared = minimum;
+		double distance = Math.sqrt(distanceSquared);
+		double strength = weight / distanceSquared;
+		return strength * (xComponent ? dx : dy) / distance;
+	}
+
+
+	/**
+	 * @return X-coordinate of the cursor
+	 */
+	public double getX() {
+		return x;
+	}
+
+
+	/**
+	 * @return Y-coordinate of the cursor
+	 */
+	public double getY() {
+		return y;
+	}
+
+}
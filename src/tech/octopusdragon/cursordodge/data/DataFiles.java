@@ -0,0 +1,26 @@
+package tech.octopusdragon.cursordodge.data;
+
+import java.io.File;
+
+/**
+ * Locations of the files the game keeps between runs
+ * @author Alex Gill
+ *
+ */
+public class DataFiles {
+
+	// --- Constants ---
+	// Directory all game data is kept in
+	public static final File DATA_DIRECTORY = new File(
+			System.getProperty("user.home"), ".cursordodge");
+	// Directory recorded games are kept in
+	public static final File REPLAY_DIRECTORY = new File(
+			DATA_DIRECTORY, "replays");
+	// Directory recorded telemetry is kept in
+	public static final File TELEMETRY_DIRECTORY = new File(
+			DATA_DIRECTORY, "telemetry");
+
+
+	private DataFiles() {}
+
+}
@@ -0,0 +1,104 @@
+package tech.octopusdragon.cursordodge.data;
+
+import tech.octopusdragon.cursordodge.game.classes.GameOverReason;
+
+/**
+ * The result of one finished game
+ * @author Alex Gill
+ *
+ */
+public class Score {
+
+	private long timestamp;			// Time the game ended in milliseconds
+	private GameOverReason reason;	// The reason the game ended
+	private double time;			// Time in seconds the player lasted
+	private double sceneWidth;		// Scene width
+	private double sceneHeight;		// Scene height
+	private double screenWidth;		// Screen width
+	private double screenHeight;	// Screen height
+
+	/**
+	 * Constructs a score
+	 * @param timestamp Time the game ended in milliseconds since the epoch
+	 * @param reason The reason the game ended
+	 * @param time Time in seconds the player lasted
+	 * @param sceneWidth Scene width
+	 * @param sceneHeight Scene height
+	 * @param screenWidth Screen width
+	 * @param screenHeight Screen height
+	 */
+	public Score(long timestamp, GameOverReason reason, double time,
+			double sceneWidth, double sceneHeight,
+			double screenWidth, double screenHeight) {
+		this.timestamp = timestamp;
+		this.reason = reason;
+		this.time = time;
+		this.sceneWidth = sceneWidth;
+		this.sceneHeight = sceneHeight;
+		this.screenWidth = screenWidth;
+		this.screenHeight = screenHeight;
+	}
+
+	/**
+	 * @return Time the game ended in milliseconds since the epoch
+	 */
+	public long getTimestamp() {
+		return timestamp;
+	}
+
+	/**
+	 * @return The reason the game ended
+	 */
+	public GameOverReason getReason() {
+		return reason;
+	}
+
+	/**
+	 * @return Time in seconds the player lasted
+	 */
+	public double getTime() {
+		return time;
+	}
+
+	/**
+	 * @return Scene width
+	 */
+	public double getSceneWidth() {
+		return sceneWidth;
+	}
+
+	/**
+	 * @return Scene height
+	 */
+	public double getSceneHeight() {
+		return sceneHeight;
+	}
+
+	/**
+	 * @return Screen width
+	 */
+	public double getScreenWidth() {
+		return screenWidth;
+	}
+
+	/**
+	 * @return Screen height
+	 */
+	public double getScreenHeight() {
+		return screenHeight;
+	}
+
+	/**
+	 * @return The area of the scene as a fraction of the area of the screen
+	 */
+	public double getScreenAreaFraction() {
+		return (sceneWidth * sceneHeight) / (screenWidth * screenHeight);
+	}
+
+	@Override
+	public String toString() {
+		return String.format("%.2f seconds on a %dx%d window (%s)",
+				time, (int)sceneWidth, (int)sceneHeight, reason);
+	}
+
+}
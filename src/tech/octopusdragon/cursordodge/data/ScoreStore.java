@@ -0,0 +1,468 @@
+package tech.octopusdragon.cursordodge.data;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.CRC32;
+
+import tech.octopusdragon.cursordodge.game.classes.GameOverReason;
+
+/**
+ * Keeps the scores of every finished game.
+ * <p>
+ * Scores are appended to a log file of fixed-size records, each with a
+ * checksum. A record cut short by a crash is dropped from the end of the log
+ * the next time the store is opened, and a whole record that is damaged is
+ * left out of the index and the statistics but kept in the log, so that the
+ * scores after it are never lost. Next to the log is a memory-mapped index
+ * holding the best scores for each window size class, so that the best scores
+ * can be looked up without reading the log. The window size class of a score is the
+ * area of the scene as a percentage of the area of the screen, in steps of
+ * {@value #BUCKET_PERCENT} percent. The distributions of the scores are kept
+ * up to date alongside in {@link SurvivalStatistics}.
+ * <p>
+ * The store is opened and scores are written on a background thread, so
+ * that a long log never holds up the thread that asked. Scores added before
+ * it is open are written once it is. Lookups can be made from any thread and
+ * find nothing until it is open. A score is appended and made durable
+ * without blocking lookups, which only wait while the index is updated.
+ * <p>
+ * The index is marked as being updated while a record is added to it, and
+ * is flushed to disk after every score like the log, so an update cut short
+ * by a crash is found the next time the store is opened and the index is
+ * built again from the log.
+ * @author Alex Gill
+ *
+ */
+public class ScoreStore {
+
+	// --- Constants ---
+	// File names of the log and the index
+	public static final String LOG_FILE_NAME = "scores.log";
+	public static final String INDEX_FILE_NAME = "scores.idx";
+	// Width of a window size class in percent of the screen area
+	public static final double BUCKET_PERCENT = 2.5;
+	// Number of window size classes
+	public static final int BUCKET_COUNT = 40;
+	// Number of best scores kept in the index for each window size class
+	public static final int TOP_COUNT = 100;
+	// Size in bytes of a record in the log
+	private static final int RECORD_SIZE = 64;
+	// Identifies an index file
+	private static final int INDEX_MAGIC = 0x43445349;
+	// Version of the index file format
+	private static final int INDEX_VERSION = 2;
+	// Layout of the index file
+	private static final int HEADER_SIZE = 40;
+	private static final int ENTRY_SIZE = 16;
+	private static final int BUCKET_SIZE = 8 + TOP_COUNT * ENTRY_SIZE;
+	private static final int INDEX_SIZE =
+			HEADER_SIZE + BUCKET_COUNT * BUCKET_SIZE;
+	private static final int INDEXED_RECORDS_OFFSET = 8;
+	private static final int BEST_TIME_OFFSET = 16;
+	private static final int BEST_RECORD_OFFSET = 24;
+	private static final int UPDATING_OFFSET = 32;
+
+	// --- Variables ---
+	private FileChannel log;			// The log of every score
+	private FileChannel indexChannel;	// The index file
+	private MappedByteBuffer index;		// The index, mapped into memory
+	private long recordCount;			// Number of whole records in the log
+	private long damagedRecords;		// Records left out as damaged
+	private ByteBuffer recordBuffer;	// Buffer for writing records
+	private ExecutorService writer;		// Thread scores are written on
+	private SurvivalStatistics statistics;	// Distributions of the scores
+	private volatile boolean loaded;	// Whether the store is open
+
+
+	/**
+	 * Starts opening the score store in the given directory on the background
+	 * thread, creating it if it does not exist
+	 * @param directory The directory
+	 */
+	public ScoreStore(File directory) {
+		writer = Executors.newSingleThreadExecutor(runnable -> {
+			Thread thread = new Thread(runnable, "Score writer");
+			thread.setDaemon(true);
+			return thread;
+		});
+		writer.execute(() -> {
+			try {
+				load(directory);
+			} catch (IOException e) {
+				System.out.println("Error loading scores");
+				e.printStackTrace();
+			}
+		});
+	}
+
+
+	/**
+	 * Opens the files. Drops any incomplete record at the end of the log and
+	 * brings the index up to date with the log.
+	 * @param directory The directory
+	 * @throws IOException If the files could not be opened
+	 */
+	private void load(File directory) throws IOException {
+		directory.mkdirs();
+		log = FileChannel.open(new File(directory, LOG_FILE_NAME).toPath(),
+				StandardOpenOption.CREATE, StandardOpenOption.READ,
+				StandardOpenOption.WRITE);
+		indexChannel = FileChannel.open(
+				new File(directory, INDEX_FILE_NAME).toPath(),
+				StandardOpenOption.CREATE, StandardOpenOption.READ,
+				StandardOpenOption.WRITE);
+		index = indexChannel.map(FileChannel.MapMode.READ_WRITE, 0, INDEX_SIZE);
+		recordBuffer = ByteBuffer.allocate(RECORD_SIZE);
+
+		// Start the index over if it is missing, from another version or was
+		// being updated when the game stopped
+		long indexedRecords = index.getLong(INDEXED_RECORDS_OFFSET);
+		if (index.getInt(0) != INDEX_MAGIC ||
+				index.getInt(4) != INDEX_VERSION ||
+				index.getInt(UPDATING_OFFSET) != 0 ||
+				indexedRecords < 0 ||
+				indexedRecords * RECORD_SIZE > log.size()) {
+			clearIndex();
+			indexedRecords = 0;
+		}
+
+		// Drop a record cut short at the end of the log, and index the records
+		// written after the index was last saved, leaving out damaged ones
+		long storedRecords = log.size() / RECORD_SIZE;
+		if (log.size() % RECORD_SIZE != 0)
+			log.truncate(storedRecords * RECORD_SIZE);
+		for (long record = indexedRecords; record < storedRecords; record++) {
+			Score score = readRecord(record);
+			if (score == null) damagedRecords++;
+			else addToIndex(score, record);
+		}
+		recordCount = storedRecords;
+		index.putLong(INDEXED_RECORDS_OFFSET, recordCount);
+		index.putInt(UPDATING_OFFSET, 0);
+		index.force();
+
+		// Bring the statistics up to date with the log the same way, counting
+		// everything again if they are ahead of it
+		statistics = new SurvivalStatistics(directory);
+		if (statistics.getRecordedScores() > recordCount) {
+			statistics.clear();
+		}
+		for (long record = statistics.getRecordedScores();
+				record < recordCount; record++) {
+			Score score = readRecord(record);
+			if (score != null) statistics.record(score);
+			else statistics.skip();
+		}
+		if (damagedRecords > 0)
+			System.out.println("Error reading " + damagedRecords +
+					" damaged scores");
+
+		loaded = true;
+	}
+
+
+	/**
+	 * Adds a score to the store on the background thread
+	 * @param score The score
+	 */
+	public void add(Score score) {
+		writer.execute(() -> {
+			if (!loaded) return;
+			try {
+				addNow(score);
+			} catch (IOException e) {
+				System.out.println("Error saving score");
+				e.printStackTrace();
+			}
+		});
+	}
+
+
+	/**
+	 * Adds a score to the store on the writer thread, which appends every
+	 * record, so the log is written without holding the lock lookups take
+	 * @param score The score
+	 * @throws IOException If the score could not be written
+	 */
+	private void addNow(Score score) throws IOException {
+
+		// Append the record to the log and make sure it is on disk before
+		// the index refers to it
+		recordBuffer.clear();
+		recordBuffer.putInt(0);
+		recordBuffer.putLong(score.getTimestamp());
+		recordBuffer.putDouble(score.getTime());
+		recordBuffer.putDouble(score.getSceneWidth());
+		recordBuffer.putDouble(score.getSceneHeight());
+		recordBuffer.putDouble(score.getScreenWidth());
+		recordBuffer.putDouble(score.getScreenHeight());
+		recordBuffer.put((byte)score.getReason().ordinal());
+		while (recordBuffer.hasRemaining()) {
+			recordBuffer.put((byte)0);
+		}
+		recordBuffer.putInt(0, checksum(recordBuffer));
+		recordBuffer.clear();
+		long position = recordCount * RECORD_SIZE;
+		while (recordBuffer.hasRemaining()) {
+			position += log.write(recordBuffer, position);
+		}
+		log.force(false);
+
+		synchronized (this) {
+			addToIndex(score, recordCount);
+			recordCount++;
+			index.putLong(INDEXED_RECORDS_OFFSET, recordCount);
+			index.putInt(UPDATING_OFFSET, 0);
+		}
+		index.force();
+		statistics.record(score);
+	}
+
+
+	/**
+	 * @return The best score of all, or null if there are none or the store
+	 * is not open
+	 */
+	public synchronized Score best() {
+		if (!loaded) return null;
+		long record = index.getLong(BEST_RECORD_OFFSET);
+		return record < 0 ? null : readStoredRecord(record);
+	}
+
+
+	/**
+	 * @param screenAreaFraction Area of a scene as a fraction of the area of
+	 * the screen
+	 * @return The best score on windows about this size, or null if there are
+	 * none
+	 */
+	public Score best(double screenAreaFraction) {
+		List<Score> top = top(1, screenAreaFraction);
+		return top.isEmpty() ? null : top.get(0);
+	}
+
+
+	/**
+	 * @param n The number of scores
+	 * @param screenAreaFraction Area of a scene as a fraction of the area of
+	 * the screen
+	 * @return Up to the best n scores on windows about this size, best first
+	 */
+	public synchronized List<Score> top(int n, double screenAreaFraction) {
+		if (!loaded) return new ArrayList<Score>();
+		int bucket = bucketOffset(windowSizeClass(screenAreaFraction));
+		int count = Math.min(n, index.getInt(bucket));
+		List<Score> scores = new ArrayList<Score>(count);
+		for (int i = 0; i < count; i++) {
+			long record = index.getLong(
+					bucket + 8 + i * ENTRY_SIZE + 8);
+			Score score = readStoredRecord(record);
+			if (score != null) scores.add(score);
+		}
+		return scores;
+	}
+
+
+	/**
+	 * @return Whether the store is open, which it is not while it is being
+	 * opened or if it could not be
+	 */
+	public boolean isLoaded() {
+		return loaded;
+	}
+
+
+	/**
+	 * @return Distributions of the survival times of the scores in the store,
+	 * or null if it is not open
+	 */
+	public SurvivalStatistics getStatistics() {
+		return loaded ? statistics : null;
+	}
+
+
+	/**
+	 * @return Number of scores in the store, counting damaged ones
+	 */
+	public synchronized long size() {
+		return recordCount;
+	}
+
+
+	/**
+	 * @return Number of damaged scores found when the store was opened, which
+	 * are left out of the index and the statistics
+	 */
+	public long getDamagedRecords() {
+		return damagedRecords;
+	}
+
+
+	/**
+	 * Waits for the scores still being written and closes the files
+	 * @throws IOException If the files could not be closed
+	 */
+	public void close() throws IOException {
+		writer.shutdown();
+		try {
+			writer.awaitTermination(5, TimeUnit.SECONDS);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+		synchronized (this) {
+			if (index != null) index.force();
+			if (log != null) log.close();
+			if (indexChannel != null) indexChannel.close();
+			if (statistics != null) statistics.close();
+		}
+	}
+
+
+	/**
+	 * Empties the index
+	 */
+	private void clearIndex() {
+		for (int i = 0; i < INDEX_SIZE; i++) {
+			index.put(i, (byte)0);
+		}
+		index.putInt(0, INDEX_MAGIC);
+		index.putInt(4, INDEX_VERSION);
+		index.putLong(INDEXED_RECORDS_OFFSET, 0);
+		index.putDouble(BEST_TIME_OFFSET, Double.NEGATIVE_INFINITY);
+		index.putLong(BEST_RECORD_OFFSET, -1);
+	}
+
+
+	/**
+	 * Adds a record to the best scores of its window size class if it is good
+	 * enough, keeping them sorted from best to worst. A record already in the
+	 * index is not added again. The index is left marked as being updated,
+	 * for the caller to clear once it has counted the record.
+	 * @param score The score in the record
+	 * @param record The number of the record in the log
+	 */
+	private void addToIndex(Score score, long record) {
+		index.putInt(UPDATING_OFFSET, 1);
+		double time = score.getTime();
+		if (time > index.getDouble(BEST_TIME_OFFSET)) {
+			index.putDouble(BEST_TIME_OFFSET, time);
+			index.putLong(BEST_RECORD_OFFSET, record);
+		}
+
+		int bucket = bucketOffset(windowSizeClass(score.getScreenAreaFraction()));
+		int count = index.getInt(bucket);
+		int entries = bucket + 8;
+		for (int i = 0; i < count; i++) {
+			if (index.getLong(entries + i * ENTRY_SIZE + 8) == record) return;
+		}
+
+		// Find where the score goes, from the end
+		int position = count;
+		while (position > 0 &&
+				index.getDouble(entries + (position - 1) * ENTRY_SIZE) < time) {
+			position--;
+		}
+		if (position >= TOP_COUNT) return;
+
+		// Shift the worse scores down and insert
+		int last = Math.min(count, TOP_COUNT - 1);
+		for (int i = last; i > position; i--) {
+			int to = entries + i * ENTRY_SIZE;
+			int from = to - ENTRY_SIZE;
+			index.putDouble(to, index.getDouble(from));
+			index.putLong(to + 8, index.getLong(from + 8));
+		}
+		index.putDouble(entries + position * ENTRY_SIZE, time);
+		index.putLong(entries + position * ENTRY_SIZE + 8, record);
+		index.putInt(bucket, Math.min(count + 1, TOP_COUNT));
+	}
+
+
+	/**
+	 * Reads a record that has already been checked, ignoring it if it has
+	 * been damaged since
+	 * @param record The number of the record
+	 * @return The score, or null if the record is damaged
+	 */
+	private Score readStoredRecord(long record) {
+		try {
+			return readRecord(record);
+		} catch (IOException e) {
+			return null;
+		}
+	}
+
+
+	/**
+	 * Reads a record from the log
+	 * @param record The number of the record
+	 * @return The score, or null if the record is incomplete or damaged
+	 * @throws IOException If the log could not be read
+	 */
+	private Score readRecord(long record) throws IOException {
+		ByteBuffer buffer = ByteBuffer.allocate(RECORD_SIZE);
+		long position = record * RECORD_SIZE;
+		while (buffer.hasRemaining()) {
+			int read = log.read(buffer, position + buffer.position());
+			if (read < 0) return null;
+		}
+		buffer.flip();
+		int checksum = buffer.getInt();
+		if (checksum != checksum(buffer)) return null;
+		long timestamp = buffer.getLong();
+		double time = buffer.getDouble();
+		double sceneWidth = buffer.getDouble();
+		double sceneHeight = buffer.getDouble();
+		double screenWidth = buffer.getDouble();
+		double screenHeight = buffer.getDouble();
+		int reason = buffer.get();
+		if (reason < 0 || reason >= GameOverReason.values().length)
+			return null;
+		return new Score(timestamp, GameOverReason.values()[reason], time,
+				sceneWidth, sceneHeight, screenWidth, screenHeight);
+	}
+
+
+	/**
+	 * @param buffer A record
+	 * @return The checksum of everything in the record after the checksum
+	 */
+	private static int checksum(ByteBuffer buffer) {
+		CRC32 crc = new CRC32();
+		for (int i = 4; i < RECORD_SIZE; i++) {
+			crc.update(buffer.get(i));
+		}
+		return (int)crc.getValue();
+	}
+
+
+	/**
+	 * @param screenAreaFraction Area of a scene as a fraction of the area of
+	 * the screen
+	 * @return The window size class
+	 */
+	public static int windowSizeClass(double screenAreaFraction) {
+		int bucket = (int)(screenAreaFraction * 100 / BUCKET_PERCENT);
+		return Math.max(0, Math.min(BUCKET_COUNT - 1, bucket));
+	}
+
+
+	/**
+	 * @param bucket A window size class
+	 * @return Where the best scores of the window size class start in the
+	 * index
+	 */
+	private static int bucketOffset(int bucket) {
+		return HEADER_SIZE + bucket * BUCKET_SIZE;
+	}
+
+}
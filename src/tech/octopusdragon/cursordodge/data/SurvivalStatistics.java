@@ -0,0 +1,168 @@
+package tech.octopusdragon.cursordodge.data;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+
+import tech.octopusdragon.cursordodge.game.classes.GameOverReason;
+
+/**
+ * Distributions of survival times over every finished game: one for all games,
+ * one for each reason a game can end, and one for each window size class of
+ * the score store. The distributions are kept as {@link TimeHistogram} counts
+ * in a memory-mapped file, so adding a game only increments three counts and
+ * reading percentiles never needs the past games themselves.
+ * @author Alex Gill
+ *
+ */
+public class SurvivalStatistics {
+
+	// --- Constants ---
+	// File name of the statistics
+	public static final String FILE_NAME = "statistics.dat";
+	// Identifies a statistics file
+	private static final int MAGIC = 0x43445353;
+	// Version of the statistics file format
+	private static final int VERSION = 1;
+	// Layout of the statistics file
+	private static final int HEADER_SIZE = 16;
+	private static final int RECORDED_SCORES_OFFSET = 8;
+	private static final int HISTOGRAM_SIZE = TimeHistogram.BUCKET_COUNT * 8;
+	private static final int ALL_HISTOGRAM = 0;
+	private static final int FIRST_REASON_HISTOGRAM = 1;
+	private static final int FIRST_WINDOW_SIZE_HISTOGRAM =
+			FIRST_REASON_HISTOGRAM + GameOverReason.values().length;
+	private static final int HISTOGRAM_COUNT =
+			FIRST_WINDOW_SIZE_HISTOGRAM + ScoreStore.BUCKET_COUNT;
+	private static final int FILE_SIZE =
+			HEADER_SIZE + HISTOGRAM_COUNT * HISTOGRAM_SIZE;
+
+	// --- Variables ---
+	private FileChannel channel;		// The statistics file
+	private MappedByteBuffer buffer;	// The statistics, mapped into memory
+
+
+	/**
+	 * Opens the statistics in the given directory, creating them if they do
+	 * not exist
+	 * @param directory The directory
+	 * @throws IOException If the file could not be opened
+	 */
+	public SurvivalStatistics(File directory) throws IOException {
+		channel = FileChannel.open(new File(directory, FILE_NAME).toPath(),
+				StandardOpenOption.CREATE, StandardOpenOption.READ,
+				StandardOpenOption.WRITE);
+		buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, FILE_SIZE);
+		if (buffer.getInt(0) != MAGIC || buffer.getInt(4) != VERSION) {
+			clear();
+		}
+	}
+
+
+	/**
+	 * Counts the survival time of a finished game
+	 * @param score The score of the game
+	 */
+	public synchronized void record(Score score) {
+		int bucket = TimeHistogram.bucket(score.getTime());
+		increment(ALL_HISTOGRAM, bucket);
+		increment(FIRST_REASON_HISTOGRAM + score.getReason().ordinal(), bucket);
+		increment(FIRST_WINDOW_SIZE_HISTOGRAM + ScoreStore.windowSizeClass(
+				score.getScreenAreaFraction()), bucket);
+		buffer.putLong(RECORDED_SCORES_OFFSET, getRecordedScores() + 1);
+	}
+
+
+	/**
+	 * Passes over a score that could not be read, so that it is counted as
+	 * gone through without being counted in any distribution
+	 */
+	public synchronized void skip() {
+		buffer.putLong(RECORDED_SCORES_OFFSET, getRecordedScores() + 1);
+	}
+
+
+	/**
+	 * Forgets every game
+	 */
+	public synchronized void clear() {
+		for (int i = 0; i < FILE_SIZE; i += 8) {
+			buffer.putLong(i, 0);
+		}
+		buffer.putInt(0, MAGIC);
+		buffer.putInt(4, VERSION);
+	}
+
+
+	/**
+	 * @return Number of scores gone through, counted or passed over
+	 */
+	public synchronized long getRecordedScores() {
+		return buffer.getLong(RECORDED_SCORES_OFFSET);
+	}
+
+
+	/**
+	 * @return Survival times of all games
+	 */
+	public TimeHistogram all() {
+		return histogram(ALL_HISTOGRAM);
+	}
+
+
+	/**
+	 * @param reason A reason a game can end
+	 * @return Survival times of the games that ended for that reason
+	 */
+	public TimeHistogram byReason(GameOverReason reason) {
+		return histogram(FIRST_REASON_HISTOGRAM + reason.ordinal());
+	}
+
+
+	/**
+	 * @param windowSizeClass A window size class of the score store
+	 * @return Survival times of the games played on windows of that class
+	 */
+	public TimeHistogram byWindowSize(int windowSizeClass) {
+		return histogram(FIRST_WINDOW_SIZE_HISTOGRAM + windowSizeClass);
+	}
+
+
+	/**
+	 * Makes sure the statistics are on disk and closes the file
+	 * @throws IOException If the file could not be closed
+	 */
+	public synchronized void close() throws IOException {
+		buffer.force();
+		channel.close();
+	}
+
+
+	/**
+	 * Adds one to a count
+	 * @param histogram The histogram
+	 * @param bucket The bucket of the histogram
+	 */
+	private void increment(int histogram, int bucket) {
+		int offset = HEADER_SIZE + histogram * HISTOGRAM_SIZE + bucket * 8;
+		buffer.putLong(offset, buffer.getLong(offset) + 1);
+	}
+
+
+	/**
+	 * @param histogram The histogram
+	 * @return A copy of the histogram
+	 */
+	private synchronized TimeHistogram histogram(int histogram) {
+		TimeHistogram copy = new TimeHistogram();
+		int offset = HEADER_SIZE + histogram * HISTOGRAM_SIZE;
+		for (int i = 0; i < TimeHistogram.BUCKET_COUNT; i++) {
+			long count = buffer.getLong(offset + i * 8);
+			if (count != 0) copy.add(i, count);
+		}
+		return copy;
+	}
+
+}
@@ -0,0 +1,113 @@
+package tech.octopusdragon.cursordodge.data;
+
+/**
+ * Counts of survival times in buckets that grow by a fixed ratio, so that any
+ * percentile can be read back to within {@value #PRECISION} of its true value
+ * no matter how many times were counted. Histograms with the same buckets can
+ * be merged by adding their counts.
+ * @author Alex Gill
+ *
+ */
+public class TimeHistogram {
+
+	// --- Constants ---
+	// Smallest time in seconds told apart from zero
+	public static final double MIN_TIME = 0.01;
+	// Largest time in seconds told apart from larger ones
+	public static final double MAX_TIME = 100000.0;
+	// Relative width of a bucket
+	public static final double PRECISION = 0.01;
+	// Number of buckets
+	public static final int BUCKET_COUNT = bucket(MAX_TIME) + 1;
+
+	// --- Variables ---
+	private long[] counts;	// Number of times in each bucket
+	private long count;		// Number of times in all buckets
+
+
+	/**
+	 * Constructs an empty histogram
+	 */
+	public TimeHistogram() {
+		counts = new long[BUCKET_COUNT];
+	}
+
+
+	/**
+	 * Counts a time
+	 * @param time Time in seconds
+	 */
+	public void record(double time) {
+		add(bucket(time), 1);
+	}
+
+
+	/**
+	 * Adds to the count of a bucket
+	 * @param bucket The bucket
+	 * @param n Number of times to add
+	 */
+	public void add(int bucket, long n) {
+		counts[bucket] += n;
+		count += n;
+	}
+
+
+	/**
+	 * Adds all counts of another histogram to this one
+	 * @param other The other histogram
+	 */
+	public void merge(TimeHistogram other) {
+		for (int i = 0; i < BUCKET_COUNT; i++) {
+			counts[i] += other.counts[i];
+		}
+		count += other.count;
+	}
+
+
+	/**
+	 * @param quantile A fraction between 0 and 1, such as 0.99 for the 99th
+	 * percentile
+	 * @return The time at the quantile, or NaN if nothing has been counted
+	 */
+	public double quantile(double quantile) {
+		if (count == 0) return Double.NaN;
+		long rank = Math.max(1, (long)Math.ceil(quantile * count));
+		long seen = 0;
+		for (int i = 0; i < BUCKET_COUNT; i++) {
+			seen += counts[i];
+			if (seen >= rank) return bucketTime(i);
+		}
+		return bucketTime(BUCKET_COUNT - 1);
+	}
+
+
+	/**
+	 * @return Number of times counted
+	 */
+	public long getCount() {
+		return count;
+	}
+
+
+	/**
+	 * @param time Time in seconds
+	 * @return The bucket the time falls into
+	 */
+	public static int bucket(double time) {
+		if (!(time > MIN_TIME)) return 0;
+		if (time >= MAX_TIME) time = MAX_TIME;
+		return 1 + (int)(Math.log(time / MIN_TIME) / Math.log1p(PRECISION));
+	}
+
+
+	/**
+	 * @param bucket A bucket
+	 * @return The time in the middle of the bucket
+	 */
+	public static double bucketTime(int bucket) {
+		if (bucket == 0) return 0.0;
+		return MIN_TIME * Math.pow(1 + PRECISION, bucket - 0.5);
+	}
+
+}
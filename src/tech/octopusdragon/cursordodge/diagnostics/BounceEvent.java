@@ -0,0 +1,52 @@
+package tech.octopusdragon.cursordodge.diagnostics;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Timespan;
+
+/**
+ * Flight recorder event for an obstacle circle bouncing off an edge. The
+ * duration of the event is the time taken to work out the new direction and
+ * where the circle will next hit an edge.
+ * @author Alex Gill
+ *
+ */
+@Name("tech.octopusdragon.cursordodge.Bounce")
+@Label("Bounce")
+@Category({ "Cursor Dodge", "Simulation" })
+@Description("An obstacle circle bounced off an edge of the scene")
+public class BounceEvent extends Event {
+
+	@Label("Tick")
+	@Description("Simulation step the bounce was resolved in")
+	public long tick;
+
+	@Label("Edge")
+	@Description("Edge of the scene, or WALL for a wall of a shaped arena")
+	public String edge;
+
+	@Label("Old Angle")
+	public double oldAngle;
+
+	@Label("New Angle")
+	public double newAngle;
+
+	@Label("New Angle Time")
+	@Description("Time spent in Arena.newAngle")
+	@Timespan(Timespan.NANOSECONDS)
+	public long newAngleTime;
+
+	@Label("Collision Point Time")
+	@Description("Time spent in Arena.collisionPoint")
+	@Timespan(Timespan.NANOSECONDS)
+	public long collisionPointTime;
+
+	@Label("Bounces This Tick")
+	@Description("Bounces of the same circle in the same step, including " +
+			"this one")
+	public int bounces;
+
+}
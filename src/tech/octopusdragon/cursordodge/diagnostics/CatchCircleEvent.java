@@ -0,0 +1,53 @@
+package tech.octopusdragon.cursordodge.diagnostics;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Timespan;
+
+/**
+ * Flight recorder event for a change in the life of a catch circle: it
+ * appearing, being caught, or fading out before it was caught
+ * @author Alex Gill
+ *
+ */
+@Name("tech.octopusdragon.cursordodge.CatchCircle")
+@Label("Catch Circle")
+@Category({ "Cursor Dodge", "Simulation" })
+@Description("A catch circle appeared, was caught or faded out")
+public class CatchCircleEvent extends Event {
+
+	// --- Constants ---
+	public static final String SPAWNED = "SPAWNED";
+	public static final String CAUGHT = "CAUGHT";
+	public static final String EXPIRED = "EXPIRED";
+
+	@Label("Phase")
+	public String phase;
+
+	@Label("Tick")
+	public long tick;
+
+	@Label("X")
+	public double x;
+
+	@Label("Y")
+	public double y;
+
+	@Label("Fade Duration")
+	@Description("Simulated time the circle takes to fade out")
+	@Timespan(Timespan.NANOSECONDS)
+	public long fadeDuration;
+
+	@Label("Age")
+	@Description("Simulated time since the circle appeared")
+	@Timespan(Timespan.NANOSECONDS)
+	public long age;
+
+	@Label("Catch Circle Count")
+	@Description("Number of catch circles on screen after the change")
+	public int catchCount;
+
+}
@@ -0,0 +1,40 @@
+package tech.octopusdragon.cursordodge.diagnostics;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Timespan;
+
+/**
+ * Flight recorder event for a burst of corner circles, which lasts from the
+ * cursor entering a corner until it leaves or the game ends
+ * @author Alex Gill
+ *
+ */
+@Name("tech.octopusdragon.cursordodge.CornerBurst")
+@Label("Corner Burst")
+@Category({ "Cursor Dodge", "Simulation" })
+@Description("Corner circles popped up while the cursor was in a corner")
+public class CornerBurstEvent extends Event {
+
+	@Label("Start Tick")
+	public long startTick;
+
+	@Label("End Tick")
+	public long endTick;
+
+	@Label("Simulated Duration")
+	@Timespan(Timespan.NANOSECONDS)
+	public long simulatedDuration;
+
+	@Label("Corner Circles")
+	@Description("Number of corner circles that popped up")
+	public int circles;
+
+	@Label("Same Corner Circles")
+	@Description("Number of those that popped up in the corner of the cursor")
+	public int sameCornerCircles;
+
+}
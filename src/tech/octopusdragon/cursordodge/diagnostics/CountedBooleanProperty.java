@@ -0,0 +1,66 @@
+package tech.octopusdragon.cursordodge.diagnostics;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import javafx.beans.InvalidationListener;
+import javafx.beans.property.SimpleBooleanProperty;
+import javafx.beans.value.ChangeListener;
+
+/**
+ * A boolean property that keeps track of how many listeners are registered on
+ * it, so that listeners that are never removed can be spotted
+ * @author Alex Gill
+ *
+ */
+public class CountedBooleanProperty extends SimpleBooleanProperty {
+
+	// --- Variables ---
+	private List<Object> listeners = new ArrayList<Object>();	// Registered
+
+
+	/**
+	 * Constructs a property
+	 * @param initialValue The initial value
+	 */
+	public CountedBooleanProperty(boolean initialValue) {
+		super(initialValue);
+	}
+
+
+	/**
+	 * @return Number of listeners registered on the property
+	 */
+	public int getListenerCount() {
+		return listeners.size();
+	}
+
+
+	@Override
+	public void addListener(InvalidationListener listener) {
+		super.addListener(listener);
+		listeners.add(listener);
+	}
+
+
+	@Override
+	public void removeListener(InvalidationListener listener) {
+		super.removeListener(listener);
+		listeners.remove(listener);
+	}
+
+
+	@Override
+	public void addListener(ChangeListener<? super Boolean> listener) {
+		super.addListener(listener);
+		listeners.add(listener);
+	}
+
+
+	@Override
+	public void removeListener(ChangeListener<? super Boolean> listener) {
+		super.removeListener(listener);
+		listeners.remove(listener);
+	}
+
+}
@@ -0,0 +1,77 @@
+package tech.octopusdragon.cursordodge.diagnostics;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import javafx.beans.InvalidationListener;
+import javafx.beans.property.SimpleObjectProperty;
+import javafx.beans.value.ChangeListener;
+
+/**
+ * A property that keeps track of how many listeners are registered on it,
+ * so that listeners that are never removed can be spotted
+ * @param <T> The type of the value
+ * @author Alex Gill
+ *
+ */
+public class CountedObjectProperty<T> extends SimpleObjectProperty<T> {
+
+	// --- Variables ---
+	private List<Object> listeners = new ArrayList<Object>();	// Registered
+
+
+	/**
+	 * Constructs a property
+	 * @param initialValue The initial value
+	 */
+	public CountedObjectProperty(T initialValue) {
+		super(initialValue);
+	}
+
+
+	/**
+	 * Tells the listeners that the value has changed in place. Invalidation
+	 * listeners are told every time. Change listeners are not, since the
+	 * value is still the same object.
+	 */
+	public void invalidate() {
+		fireValueChangedEvent();
+	}
+
+
+	/**
+	 * @return Number of listeners registered on the property
+	 */
+	public int getListenerCount() {
+		return listeners.size();
+	}
+
+
+	@Override
+	public void addListener(InvalidationListener listener) {
+		super.addListener(listener);
+		listeners.add(listener);
+	}
+
+
+	@Override
+	public void removeListener(InvalidationListener listener) {
+		super.removeListener(listener);
+		listeners.remove(listener);
+	}
+
+
+	@Override
+	public void addListener(ChangeListener<? super T> listener) {
+		super.addListener(listener);
+		listeners.add(listener);
+	}
+
+
+	@Override
+	public void removeListener(ChangeListener<? super T> listener) {
+		super.removeListener(listener);
+		listeners.remove(listener);
+	}
+
+}
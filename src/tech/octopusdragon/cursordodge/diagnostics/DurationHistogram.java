@@ -0,0 +1,158 @@
+package tech.octopusdragon.cursordodge.diagnostics;
+
+/**
+ * Counts of short durations in nanoseconds, in buckets that split every power
+ * of two into {@value #SUB_BUCKETS} parts, so that any percentile can be read
+ * back to within about 1/{@value #SUB_BUCKETS} of its true value. Finding the
+ * bucket of a duration takes a few bit operations and recording one never
+ * allocates, so durations can be recorded every frame. Histograms can be
+ * merged by adding their counts.
+ * @author Alex Gill
+ *
+ */
+public class DurationHistogram {
+
+	// --- Constants ---
+	// Number of bits of a duration kept below its highest bit
+	private static final int SUB_BUCKET_BITS = 4;
+	// Number of buckets each power of two is split into
+	public static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+	// Highest bit of the longest duration told apart from longer ones, about
+	// 18 minutes
+	private static final int MAX_BIT = 40;
+	// Longest duration in nanoseconds told apart from longer ones
+	public static final long MAX_DURATION = (1L << (MAX_BIT + 1)) - 1;
+	// Number of buckets
+	public static final int BUCKET_COUNT = bucket(MAX_DURATION) + 1;
+
+	// --- Variables ---
+	private long[] counts;	// Number of durations in each bucket
+	private long count;		// Number of durations in all buckets
+	private long total;		// Sum of all durations
+	private long max;		// Longest duration
+
+
+	/**
+	 * Constructs an empty histogram
+	 */
+	public DurationHistogram() {
+		counts = new long[BUCKET_COUNT];
+	}
+
+
+	/**
+	 * Counts a duration
+	 * @param nanos Duration in nanoseconds
+	 */
+	public void record(long nanos) {
+		if (nanos < 0) nanos = 0;
+		counts[bucket(nanos)]++;
+		count++;
+		total += nanos;
+		if (nanos > max) max = nanos;
+	}
+
+
+	/**
+	 * Adds all counts of another histogram to this one
+	 * @param other The other histogram
+	 */
+	public void merge(DurationHistogram other) {
+		for (int i = 0; i < BUCKET_COUNT; i++) {
+			counts[i] += other.counts[i];
+		}
+		count += other.count;
+		total += other.total;
+		if (other.max > max) max = other.max;
+	}
+
+
+	/**
+	 * Empties the histogram
+	 */
+	public void clear() {
+		for (int i = 0; i < BUCKET_COUNT; i++) {
+			counts[i] = 0;
+		}
+		count = 0;
+		total = 0;
+		max = 0;
+	}
+
+
+	/**
+	 * @param quantile A fraction between 0 and 1, such as 0.99 for the 99th
+	 * percentile
+	 * @return The duration in nanoseconds at the quantile, or 0 if nothing has
+	 * been counted
+	 */
+	public long quantile(double quantile) {
+		if (count == 0) return 0;
+		long rank = Math.max(1, (long)Math.ceil(quantile * count));
+		long seen = 0;
+		for (int i = 0; i < BUCKET_COUNT; i++) {
+			seen += counts[i];
+			if (seen >= rank) return Math.min(max, bucketDuration(i));
+		}
+		return max;
+	}
+
+
+	/**
+	 * @return Number of durations counted
+	 */
+	public long getCount() {
+		return count;
+	}
+
+
+	/**
+	 * @return Sum of all durations counted in nanoseconds
+	 */
+	public long getTotal() {
+		return total;
+	}
+
+
+	/**
+	 * @return Mean duration in nanoseconds, or 0 if nothing has been counted
+	 */
+	public double getMean() {
+		return count == 0 ? 0.0 : (double)total / count;
+	}
+
+
+	/**
+	 * @return Longest duration counted in nanoseconds
+	 */
+	public long getMax() {
+		return max;
+	}
+
+
+	/**
+	 * @param nanos Duration in nanoseconds
+	 * @return The bucket the duration falls into
+	 */
+	public static int bucket(long nanos) {
+		if (nanos < SUB_BUCKETS) return (int)Math.max(0, nanos);
+		if (nanos > MAX_DURATION) nanos = MAX_DURATION;
+		int bit = 63 - Long.numberOfLeadingZeros(nanos);
+		int sub = (int)(nanos >>> (bit - SUB_BUCKET_BITS)) & (SUB_BUCKETS - 1);
+		return (bit - SUB_BUCKET_BITS + 1) * SUB_BUCKETS + sub;
+	}
+
+
+	/**
+	 * @param bucket A bucket
+	 * @return The duration in nanoseconds in the middle of the bucket
+	 */
+	public static long bucketDuration(int bucket) {
+		if (bucket < SUB_BUCKETS) return bucket;
+		int bit = bucket / SUB_BUCKETS + SUB_BUCKET_BITS - 1;
+		long sub = bucket % SUB_BUCKETS;
+		long width = 1L << (bit - SUB_BUCKET_BITS);
+		return (1L << bit) + sub * width + width / 2;
+	}
+
+}
@@ -0,0 +1,189 @@
+package tech.octopusdragon.cursordodge.diagnostics;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.Locale;
+
+/**
+ * Time spent in each stage of every frame, kept as one
+ * {@link DurationHistogram} per stage per number of obstacle circles on
+ * screen, so that it can be seen which stage costs frames as the game gets
+ * busier. Time is added to a stage as it is spent, and at the end of a frame
+ * the time of each stage is recorded. Everything is allocated up front, so
+ * profiling a frame never allocates.
+ * @author Alex Gill
+ *
+ */
+public class FrameProfile {
+
+	// --- Constants ---
+	// Stages of a frame
+	public static final int INPUT = 0;			// Feeding the cursor in
+	public static final int SPAWN = 1;			// Creating circles that are due
+	public static final int INTEGRATION = 2;	// Moving circles
+	public static final int BOUNCE = 3;			// Bouncing circles
+	public static final int COLLISION = 4;		// Checking the cursor
+	public static final int RENDER = 5;			// Moving nodes to match
+	public static final int STAGE_COUNT = 6;
+	// Names of the stages, as written to the summary
+	public static final String[] STAGE_NAMES = {
+		"input", "spawn", "integration", "bounce", "collision", "render"
+	};
+	// Obstacle counts told apart; more than this are counted together
+	public static final int MAX_OBSTACLES = 16;
+	// Percentiles written to the summary
+	private static final double[] QUANTILES = { 0.5, 0.9, 0.99 };
+
+	// --- Variables ---
+	// Time of each stage in the current frame
+	private long[] frame = new long[STAGE_COUNT];
+	// Times of each stage by number of obstacles
+	private DurationHistogram[][] histograms;
+	// Times of each stage over all frames
+	private DurationHistogram[] totals;
+
+
+	/**
+	 * Constructs an empty profile
+	 */
+	public FrameProfile() {
+		histograms = new DurationHistogram[STAGE_COUNT][MAX_OBSTACLES + 1];
+		totals = new DurationHistogram[STAGE_COUNT];
+		for (int stage = 0; stage < STAGE_COUNT; stage++) {
+			for (int i = 0; i <= MAX_OBSTACLES; i++) {
+				histograms[stage][i] = new DurationHistogram();
+			}
+			totals[stage] = new DurationHistogram();
+		}
+	}
+
+
+	/**
+	 * Adds time spent to a stage of the current frame
+	 * @param stage The stage
+	 * @param nanos Time spent in nanoseconds
+	 */
+	public void add(int stage, long nanos) {
+		frame[stage] += nanos;
+	}
+
+
+	/**
+	 * Adds the time since a mark to a stage of the current frame
+	 * @param stage The stage
+	 * @param since The mark, from {@link System#nanoTime()}
+	 * @return The current time, to use as the next mark
+	 */
+	public long lap(int stage, long since) {
+		long now = System.nanoTime();
+		frame[stage] += now - since;
+		return now;
+	}
+
+
+	/**
+	 * Records the time of every stage of the current frame and starts a new
+	 * frame
+	 * @param obstacleCount Number of obstacle circles during the frame
+	 */
+	public void endFrame(int obstacleCount) {
+		int obstacles = Math.max(0, Math.min(MAX_OBSTACLES, obstacleCount));
+		for (int stage = 0; stage < STAGE_COUNT; stage++) {
+			histograms[stage][obstacles].record(frame[stage]);
+			totals[stage].record(frame[stage]);
+			frame[stage] = 0;
+		}
+	}
+
+
+	/**
+	 * Empties the profile
+	 */
+	public void clear() {
+		for (int stage = 0; stage < STAGE_COUNT; stage++) {
+			for (int i = 0; i <= MAX_OBSTACLES; i++) {
+				histograms[stage][i].clear();
+			}
+			totals[stage].clear();
+			frame[stage] = 0;
+		}
+	}
+
+
+	/**
+	 * @param stage A stage
+	 * @return Times of the stage over all frames
+	 */
+	public DurationHistogram getTotal(int stage) {
+		return totals[stage];
+	}
+
+
+	/**
+	 * @param stage A stage
+	 * @param obstacleCount A number of obstacle circles
+	 * @return Times of the stage in frames with that many obstacle circles, or
+	 * at least {@value #MAX_OBSTACLES}
+	 */
+	public DurationHistogram get(int stage, int obstacleCount) {
+		return histograms[stage][Math.min(MAX_OBSTACLES, obstacleCount)];
+	}
+
+
+	/**
+	 * Writes a summary of the profile as CSV, with a row for every stage over
+	 * all frames, a row for every stage and number of obstacles that was seen,
+	 * and a row for each stage of the time from mouse moves to their effect.
+	 * Times are in microseconds.
+	 * @param file The file
+	 * @param latency Time from mouse moves to their effect, or null
+	 * @throws IOException If the file could not be written
+	 */
+	public void write(File file, InputLatency latency) throws IOException {
+		try (PrintWriter out = new PrintWriter(
+				new BufferedWriter(new FileWriter(file)))) {
+			out.print("stage,obstacles,frames,mean_us");
+			for (double quantile : QUANTILES) {
+				out.printf(Locale.ROOT, ",p%d_us",
+						Math.round(quantile * 100));
+			}
+			out.println(",max_us");
+
+			for (int stage = 0; stage < STAGE_COUNT; stage++) {
+				writeRow(out, STAGE_NAMES[stage], "all", totals[stage]);
+				for (int i = 0; i <= MAX_OBSTACLES; i++) {
+					if (histograms[stage][i].getCount() == 0) continue;
+					writeRow(out, STAGE_NAMES[stage],
+							i == MAX_OBSTACLES ? i + "+" : String.valueOf(i),
+							histograms[stage][i]);
+				}
+			}
+			if (latency != null) {
+				writeRow(out, "input-dispatch", "all", latency.getDispatch());
+				writeRow(out, "input-decision", "all", latency.getDecision());
+				writeRow(out, "input-frame", "all", latency.getFrame());
+			}
+			if (out.checkError())
+				throw new IOException("Error writing " + file);
+		}
+	}
+
+
+	/**
+	 * Writes one row of the summary
+	 */
+	private static void writeRow(PrintWriter out, String stage,
+			String obstacles, DurationHistogram histogram) {
+		out.printf(Locale.ROOT, "%s,%s,%d,%.3f", stage, obstacles,
+				histogram.getCount(), histogram.getMean() / 1e3);
+		for (double quantile : QUANTILES) {
+			out.printf(Locale.ROOT, ",%.3f",
+					histogram.quantile(quantile) / 1e3);
+		}
+		out.printf(Locale.ROOT, ",%.3f%n", histogram.getMax() / 1e3);
+	}
+
+}
@@ -0,0 +1,47 @@
+package tech.octopusdragon.cursordodge.diagnostics;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Timespan;
+
+/**
+ * Flight recorder event for the end of a game. The duration of the event is
+ * the time taken to stop the game and move on to the game over scene.
+ * @author Alex Gill
+ *
+ */
+@Name("tech.octopusdragon.cursordodge.GameOver")
+@Label("Game Over")
+@Category({ "Cursor Dodge", "Application" })
+@Description("A game ended")
+public class GameOverEvent extends Event {
+
+	@Label("Reason")
+	public String reason;
+
+	@Label("Started")
+	@Description("Whether the game had started before it ended")
+	public boolean started;
+
+	@Label("Ticks")
+	public long ticks;
+
+	@Label("Survival Time")
+	@Description("Simulated time the player survived")
+	@Timespan(Timespan.NANOSECONDS)
+	public long survivalTime;
+
+	@Label("Obstacle Count")
+	public int obstacleCount;
+
+	@Label("Catch Circles Caught")
+	public int catchCirclesCaught;
+
+	@Label("Quality")
+	@Description("Quality the game was drawn at when it ended")
+	public String quality;
+
+}
@@ -0,0 +1,111 @@
+package tech.octopusdragon.cursordodge.diagnostics;
+
+/**
+ * Measures how long it takes a mouse move to make a difference in the game.
+ * Every move is timed from when its handler is entered to three points:
+ * <ul>
+ * <li>dispatch: when the listeners of the cursor position have all run</li>
+ * <li>decision: when the simulation has checked the new position against the
+ * circles and decided whether the player was hit</li>
+ * <li>frame: when the pulse that shows the result of that decision has moved
+ * the circles on screen</li>
+ * </ul>
+ * Moves waiting for a decision or a frame are kept in fixed arrays, so
+ * measuring never allocates. If more moves arrive between two pulses than fit,
+ * the oldest waiting ones are kept, since they have the longest latency.
+ * @author Alex Gill
+ *
+ */
+public class InputLatency {
+
+	// --- Constants ---
+	// Most moves that can wait for a decision or a frame at once
+	private static final int MAX_WAITING = 64;
+
+	// --- Variables ---
+	private DurationHistogram dispatch = new DurationHistogram();
+	private DurationHistogram decision = new DurationHistogram();
+	private DurationHistogram frame = new DurationHistogram();
+	// Handler entry times of moves waiting for a decision
+	private long[] undecided = new long[MAX_WAITING];
+	private int undecidedCount;
+	// Handler entry times of moves waiting for a frame
+	private long[] unshown = new long[MAX_WAITING];
+	private int unshownCount;
+
+
+	/**
+	 * Records that a move has been received and dispatched to the listeners of
+	 * the cursor position
+	 * @param received Time the handler of the move was entered in nanoseconds
+	 * @param dispatched Time the listeners had all run in nanoseconds
+	 */
+	public void dispatched(long received, long dispatched) {
+		dispatch.record(dispatched - received);
+		if (undecidedCount < MAX_WAITING)
+			undecided[undecidedCount++] = received;
+	}
+
+
+	/**
+	 * Records that the simulation has decided whether every waiting move hit
+	 * @param now The current time in nanoseconds
+	 */
+	public void decided(long now) {
+		for (int i = 0; i < undecidedCount; i++) {
+			decision.record(now - undecided[i]);
+			if (unshownCount < MAX_WAITING)
+				unshown[unshownCount++] = undecided[i];
+		}
+		undecidedCount = 0;
+	}
+
+
+	/**
+	 * Records that the result of every decided move is on screen
+	 * @param now The current time in nanoseconds
+	 */
+	public void shown(long now) {
+		for (int i = 0; i < unshownCount; i++) {
+			frame.record(now - unshown[i]);
+		}
+		unshownCount = 0;
+	}
+
+
+	/**
+	 * Forgets every move measured and every move waiting
+	 */
+	public void clear() {
+		dispatch.clear();
+		decision.clear();
+		frame.clear();
+		undecidedCount = 0;
+		unshownCount = 0;
+	}
+
+
+	/**
+	 * @return Times from entering the handler until the listeners have run
+	 */
+	public DurationHistogram getDispatch() {
+		return dispatch;
+	}
+
+
+	/**
+	 * @return Times from entering the handler until the hit was decided
+	 */
+	public DurationHistogram getDecision() {
+		return decision;
+	}
+
+
+	/**
+	 * @return Times from entering the handler until the result was on screen
+	 */
+	public DurationHistogram getFrame() {
+		return frame;
+	}
+
+}
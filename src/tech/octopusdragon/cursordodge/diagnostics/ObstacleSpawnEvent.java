@@ -0,0 +1,46 @@
+package tech.octopusdragon.cursordodge.diagnostics;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Timespan;
+
+/**
+ * Flight recorder event for the creation of an obstacle circle. The duration
+ * of the event is the time taken to create it.
+ * @author Alex Gill
+ *
+ */
+@Name("tech.octopusdragon.cursordodge.ObstacleSpawn")
+@Label("Obstacle Spawn")
+@Category({ "Cursor Dodge", "Simulation" })
+@Description("An obstacle circle was created")
+public class ObstacleSpawnEvent extends Event {
+
+	@Label("Tick")
+	@Description("Simulation step the circle was created in")
+	public long tick;
+
+	@Label("X")
+	public double x;
+
+	@Label("Y")
+	public double y;
+
+	@Label("Selection Time")
+	@Description("Time spent choosing a position and direction away from " +
+			"the cursor")
+	@Timespan(Timespan.NANOSECONDS)
+	public long selectionTime;
+
+	@Label("Candidates")
+	@Description("Positions and directions tried before one was taken")
+	public int candidates;
+
+	@Label("Obstacle Count")
+	@Description("Number of obstacle circles including the new one")
+	public int obstacleCount;
+
+}
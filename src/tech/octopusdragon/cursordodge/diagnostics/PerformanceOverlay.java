@@ -0,0 +1,361 @@
+package tech.octopusdragon.cursordodge.diagnostics;
+
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.Arrays;
+import java.util.List;
+
+import tech.octopusdragon.cursordodge.game.CircleCanvas;
+import tech.octopusdragon.cursordodge.game.Game;
+import tech.octopusdragon.cursordodge.game.Simulation;
+import tech.octopusdragon.cursordodge.game.classes.Quality;
+
+import javafx.animation.AnimationTimer;
+import javafx.event.EventHandler;
+import javafx.geometry.Pos;
+import javafx.scene.Node;
+import javafx.scene.Parent;
+import javafx.scene.Scene;
+import javafx.scene.control.Label;
+import javafx.scene.input.KeyCode;
+import javafx.scene.input.KeyEvent;
+import javafx.scene.layout.StackPane;
+
+/**
+ * A panel drawn over the game showing how well it is running: frame times,
+ * pulse rate, circle and node counts, how much of the circles was redrawn,
+ * the quality they are drawn at, heap use, garbage collection, how much the
+ * FX thread allocates, the time from mouse moves to their effect and the
+ * number of listeners on the properties of the game. It is shown and hidden
+ * with {@value #TOGGLE_KEY_NAME}, and starts shown if the system property
+ * {@value #VISIBLE_PROPERTY} is true.
+ * <p>
+ * Every frame only the time of the frame is stored. Everything else is
+ * gathered and the text replaced {@value #REFRESH_INTERVAL_MILLIS} ms at a
+ * time, so the panel costs next to nothing per frame. While the game is drawn
+ * at {@link Quality#REDUCED_OVERLAYS} or below, the text is replaced
+ * {@value #REDUCED_REFRESH_FACTOR} times less often. While hidden it does
+ * nothing at all.
+ * @author Alex Gill
+ *
+ */
+public class PerformanceOverlay extends Label {
+
+	// --- Constants ---
+	// Style sheet the look of the panel is in
+	private static final String STYLESHEET_PATH = "resources/styles.css";
+	// Key that shows and hides the panel
+	private static final KeyCode TOGGLE_KEY = KeyCode.F3;
+	private static final String TOGGLE_KEY_NAME = "F3";
+	// System property that shows the panel from the start
+	private static final String VISIBLE_PROPERTY = "cursordodge.hud";
+	// Number of most recent frames the frame times are taken from
+	private static final int FRAME_WINDOW = 240;
+	// Time between updates of the text
+	private static final long REFRESH_INTERVAL_MILLIS = 500;
+	private static final long REFRESH_INTERVAL = REFRESH_INTERVAL_MILLIS *
+			1_000_000L;
+	// How many times longer between updates while overlays are reduced
+	private static final int REDUCED_REFRESH_FACTOR = 4;
+
+	// --- Variables ---
+	private Game game;						// The game being watched
+	private long[] frameTimes = new long[FRAME_WINDOW];	// Recent frames
+	private long[] sortedFrameTimes = new long[FRAME_WINDOW];
+	private int frameCount;					// Frames stored, up to the window
+	private int nextFrame;					// Where the next frame is stored
+	private long lastFrame;					// Time of the last frame
+	private long lastRefresh;				// Time the text was last updated
+	private int framesSinceRefresh;			// Frames since the text update
+	private List<GarbageCollectorMXBean> collectors;	// Garbage collectors
+	private long lastCollectionCount;		// Collections at last update
+	private long lastCollectionTime;		// Collection time at last update
+	// Counts what the FX thread allocates, or null if the JVM cannot
+	private com.sun.management.ThreadMXBean threads;
+	private long lastAllocatedBytes;		// Allocated at last update
+	private long lastFullRedraws;			// Full redraws at last update
+	private long lastPartialRedraws;		// Partial redraws at last update
+	private long lastDamagedBoxes;			// Damaged boxes at last update
+	private StringBuilder text = new StringBuilder(512);	// Text being built
+	private FrameTimer timer = new FrameTimer();	// Runs while shown
+	// Shows and hides the panel
+	private EventHandler<KeyEvent> toggleHandler = e -> {
+		if (e.getCode() == TOGGLE_KEY) setVisible(!isVisible());
+	};
+
+
+	/**
+	 * Constructs the panel
+	 * @param game The game being watched
+	 */
+	public PerformanceOverlay(Game game) {
+		this.game = game;
+		collectors = ManagementFactory.getGarbageCollectorMXBeans();
+		ThreadMXBean threadBean = ManagementFactory.getThreadMXBean();
+		if (threadBean instanceof com.sun.management.ThreadMXBean) {
+			threads = (com.sun.management.ThreadMXBean)threadBean;
+			if (threads.isThreadAllocatedMemorySupported())
+				threads.setThreadAllocatedMemoryEnabled(true);
+			else
+				threads = null;
+		}
+		getStylesheets().add(getClass().getClassLoader()
+				.getResource(STYLESHEET_PATH).toExternalForm());
+		getStyleClass().add("performance-overlay");
+		setMouseTransparent(true);
+		setMaxSize(USE_PREF_SIZE, USE_PREF_SIZE);
+		StackPane.setAlignment(this, Pos.TOP_LEFT);
+		setVisible(Boolean.getBoolean(VISIBLE_PROPERTY));
+
+		// Only watch frames while shown and in a scene
+		visibleProperty().addListener((obs, oldVal, newVal) -> updateTimer());
+		sceneProperty().addListener((obs, oldScene, newScene) -> {
+			if (oldScene != null)
+				oldScene.removeEventFilter(KeyEvent.KEY_PRESSED, toggleHandler);
+			if (newScene != null)
+				newScene.addEventFilter(KeyEvent.KEY_PRESSED, toggleHandler);
+			updateTimer();
+		});
+	}
+
+
+	/**
+	 * Starts watching frames if the panel is shown and stops otherwise
+	 */
+	private void updateTimer() {
+		if (isVisible() && getScene() != null) {
+			frameCount = 0;
+			nextFrame = 0;
+			lastFrame = 0;
+			lastRefresh = 0;
+			framesSinceRefresh = 0;
+			timer.start();
+		}
+		else {
+			timer.stop();
+		}
+	}
+
+
+	/**
+	 * Replaces the text with the latest measurements
+	 * @param now The time of the current frame in nanoseconds
+	 */
+	private void refresh(long now) {
+		text.setLength(0);
+
+		// Frame times
+		int count = frameCount;
+		System.arraycopy(frameTimes, 0, sortedFrameTimes, 0, count);
+		Arrays.sort(sortedFrameTimes, 0, count);
+		text.append("frame ms  p50 ");
+		appendMillis(percentile(count, 0.5));
+		text.append("  p95 ");
+		appendMillis(percentile(count, 0.95));
+		text.append("  p99 ");
+		appendMillis(percentile(count, 0.99));
+		text.append("  max ");
+		appendMillis(count == 0 ? 0 : sortedFrameTimes[count - 1]);
+		text.append('\n');
+
+		// Pulse rate
+		text.append("pulses/s  ");
+		if (lastRefresh != 0) {
+			appendFixed(framesSinceRefresh * 1e9 / (now - lastRefresh), 1);
+		}
+		else {
+			text.append('-');
+		}
+		text.append('\n');
+
+		// What is on screen
+		Simulation simulation = game.getSimulation();
+		if (simulation != null) {
+			text.append("circles   obstacle ")
+					.append(simulation.getObstacleCircles().size())
+					.append("  catch ")
+					.append(simulation.getCatchCircles().size())
+					.append("  corner ")
+					.append(simulation.getCornerCircles().size())
+					.append('\n');
+		}
+		text.append("nodes     ").append(countNodes(getScene().getRoot()))
+				.append('\n');
+		CircleCanvas canvas = game.getCircleCanvas();
+		long fullRedraws = canvas.getFullRedraws();
+		long partialRedraws = canvas.getPartialRedraws();
+		long damagedBoxes = canvas.getDamagedBoxes();
+		text.append("redraw    full ").append(fullRedraws - lastFullRedraws)
+				.append("  partial ")
+				.append(partialRedraws - lastPartialRedraws)
+				.append("  boxes ").append(damagedBoxes - lastDamagedBoxes)
+				.append('\n');
+		lastFullRedraws = fullRedraws;
+		lastPartialRedraws = partialRedraws;
+		lastDamagedBoxes = damagedBoxes;
+		text.append("quality   ").append(game.getQuality().name())
+				.append('\n');
+
+		// Memory and garbage collection
+		Runtime runtime = Runtime.getRuntime();
+		long used = runtime.totalMemory() - runtime.freeMemory();
+		text.append("heap MB   ");
+		appendFixed(used / 1048576.0, 1);
+		text.append(" / ");
+		appendFixed(runtime.maxMemory() / 1048576.0, 1);
+		text.append('\n');
+		long collectionCount = 0;
+		long collectionTime = 0;
+		for (int i = 0; i < collectors.size(); i++) {
+			GarbageCollectorMXBean collector = collectors.get(i);
+			collectionCount += Math.max(0, collector.getCollectionCount());
+			collectionTime += Math.max(0, collector.getCollectionTime());
+		}
+		text.append("gc        ")
+				.append(collectionCount - lastCollectionCount)
+				.append(" in ")
+				.append(collectionTime - lastCollectionTime)
+				.append(" ms  (total ").append(collectionCount)
+				.append(" in ").append(collectionTime).append(" ms)\n");
+		lastCollectionCount = collectionCount;
+		lastCollectionTime = collectionTime;
+
+		// What the FX thread allocated, which is everything the game does
+		// each frame: the mouse handler, the game loop and drawing, along
+		// with this panel's own text
+		if (threads != null) {
+			long allocated = threads.getThreadAllocatedBytes(
+					Thread.currentThread().getId());
+			text.append("alloc KB/s  fx ");
+			if (lastRefresh != 0) {
+				appendFixed((allocated - lastAllocatedBytes) / 1024.0 *
+						1e9 / (now - lastRefresh), 1);
+			}
+			else {
+				text.append('-');
+			}
+			text.append('\n');
+			lastAllocatedBytes = allocated;
+		}
+
+		// Time from mouse moves to their effect
+		InputLatency latency = game.getInputLatency();
+		text.append("input ms  dispatch ");
+		appendLatency(latency.getDispatch());
+		text.append("\n          decision ");
+		appendLatency(latency.getDecision());
+		text.append("\n          frame    ");
+		appendLatency(latency.getFrame());
+		text.append('\n');
+
+		// Listeners
+		text.append("listeners gameOver ")
+				.append(game.getGameOverListenerCount())
+				.append("  cursorPos ")
+				.append(game.getCursorPosListenerCount());
+
+		setText(text.toString());
+		lastRefresh = now;
+		framesSinceRefresh = 0;
+	}
+
+
+	/**
+	 * @param count Number of sorted frame times
+	 * @param quantile A quantile between 0 and 1
+	 * @return The frame time at the quantile, or 0 if there are none
+	 */
+	private long percentile(int count, double quantile) {
+		if (count == 0) return 0;
+		int index = (int)Math.ceil(quantile * count) - 1;
+		return sortedFrameTimes[Math.max(0, Math.min(count - 1, index))];
+	}
+
+
+	/**
+	 * Appends the median and 99th percentile of a histogram in milliseconds
+	 */
+	private void appendLatency(DurationHistogram histogram) {
+		text.append("p50 ");
+		appendMillis(histogram.quantile(0.5));
+		text.append("  p99 ");
+		appendMillis(histogram.quantile(0.99));
+	}
+
+
+	/**
+	 * Appends a time in nanoseconds as milliseconds
+	 */
+	private void appendMillis(long nanos) {
+		appendFixed(nanos / 1e6, 2);
+	}
+
+
+	/**
+	 * Appends a number with a set number of decimal places without formatting
+	 * it through a string
+	 */
+	private void appendFixed(double value, int decimals) {
+		long scale = 1;
+		for (int i = 0; i < decimals; i++) {
+			scale *= 10;
+		}
+		long scaled = Math.round(value * scale);
+		if (scaled < 0) {
+			text.append('-');
+			scaled = -scaled;
+		}
+		text.append(scaled / scale);
+		if (decimals > 0) {
+			text.append('.');
+			long fraction = scaled % scale;
+			for (long digit = scale / 10; digit > 0; digit /= 10) {
+				text.append((char)('0' + fraction / digit % 10));
+			}
+		}
+	}
+
+
+	/**
+	 * @param node A node
+	 * @return Number of nodes in the tree under the node, including itself
+	 */
+	private static int countNodes(Node node) {
+		int count = 1;
+		if (node instanceof Parent) {
+			List<Node> children = ((Parent)node).getChildrenUnmodifiable();
+			for (int i = 0; i < children.size(); i++) {
+				count += countNodes(children.get(i));
+			}
+		}
+		return count;
+	}
+
+
+	/**
+	 * Stores the time of every frame and updates the text now and then
+	 * @author Alex Gill
+	 *
+	 */
+	private class FrameTimer extends AnimationTimer {
+		@Override
+		public void handle(long now) {
+			if (lastFrame != 0) {
+				frameTimes[nextFrame] = now - lastFrame;
+				nextFrame = (nextFrame + 1) % FRAME_WINDOW;
+				if (frameCount < FRAME_WINDOW) frameCount++;
+			}
+			lastFrame = now;
+			framesSinceRefresh++;
+
+			long interval = REFRESH_INTERVAL;
+			if (game.getQuality().compareTo(Quality.REDUCED_OVERLAYS) >= 0)
+				interval *= REDUCED_REFRESH_FACTOR;
+			Scene scene = getScene();
+			if (scene != null && now - lastRefresh >= interval)
+				refresh(now);
+		}
+	}
+
+}
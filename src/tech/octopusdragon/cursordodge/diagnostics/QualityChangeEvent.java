@@ -0,0 +1,35 @@
+package tech.octopusdragon.cursordodge.diagnostics;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Flight recorder event for the quality the game is drawn at being lowered or
+ * raised to keep frames within their budget
+ * @author Alex Gill
+ *
+ */
+@Name("tech.octopusdragon.cursordodge.QualityChange")
+@Label("Quality Change")
+@Category({ "Cursor Dodge", "Rendering" })
+@Description("The quality the game is drawn at changed")
+public class QualityChangeEvent extends Event {
+
+	@Label("Previous Quality")
+	public String previous;
+
+	@Label("Quality")
+	public String quality;
+
+	@Label("Tick")
+	@Description("Simulation step the quality changed in")
+	public long tick;
+
+	@Label("Late Frames")
+	@Description("Frames over budget in the frames the change was decided on")
+	public int lateFrames;
+
+}
@@ -0,0 +1,33 @@
+package tech.octopusdragon.cursordodge.diagnostics;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Flight recorder event for switching the window to another scene. The
+ * duration of the event is the time taken to load and show the scene, or only
+ * to show it if it was kept from before.
+ * @author Alex Gill
+ *
+ */
+@Name("tech.octopusdragon.cursordodge.SceneSwitch")
+@Label("Scene Switch")
+@Category({ "Cursor Dodge", "Application" })
+@Description("The window switched to another scene")
+public class SceneSwitchEvent extends Event {
+
+	@Label("Scene")
+	@Description("FXML file of the scene")
+	public String scene;
+
+	@Label("Succeeded")
+	public boolean succeeded;
+
+	@Label("Cached")
+	@Description("Whether a kept scene was reused instead of loading it")
+	public boolean cached;
+
+}
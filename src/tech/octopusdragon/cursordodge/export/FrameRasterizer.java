@@ -0,0 +1,195 @@
+package tech.octopusdragon.cursordodge.export;
+
+import tech.octopusdragon.cursordodge.game.ArenaShape;
+
+import javafx.scene.paint.Color;
+
+/**
+ * Draws frames of a game into an array of pixels without a display. Each
+ * frame starts as a copy of a background, which holds the walls of a shaped
+ * arena and is drawn only once. Circles are drawn with smoothed edges, the
+ * pixels on an edge covered by the part of them inside the circle.
+ * <p>
+ * A rasterizer keeps its pixels between frames, so each thread drawing
+ * frames should have its own. The background can be shared.
+ * @author Alex Gill
+ *
+ */
+class FrameRasterizer {
+
+	// --- Variables ---
+	private int width;			// Width in pixels
+	private int height;			// Height in pixels
+	private int[] background;	// What every frame starts as
+	private int[] pixels;		// The frame being drawn, each 0xRRGGBB
+
+
+	/**
+	 * Creates a rasterizer
+	 * @param width Width in pixels
+	 * @param height Height in pixels
+	 * @param background What every frame starts as, which is not changed
+	 */
+	FrameRasterizer(int width, int height, int[] background) {
+		this.width = width;
+		this.height = height;
+		this.background = background;
+		pixels = new int[width * height];
+	}
+
+
+	/**
+	 * Draws the background of a game: the walls of its arena if it has a
+	 * shape, and empty space everywhere else
+	 * @param shape The shape of the arena, or null if it has none
+	 * @param width Width in pixels
+	 * @param height Height in pixels
+	 * @param space Color of the empty space
+	 * @param wall Color of the walls
+	 * @return The pixels
+	 */
+	static int[] background(ArenaShape shape, int width, int height,
+			int space, int wall) {
+		int[] pixels = new int[width * height];
+		for (int y = 0; y < height; y++) {
+			for (int x = 0; x < width; x++) {
+				// Test the middle of the pixel, as a fraction of the scene
+				boolean open = shape == null || isOpen(shape,
+						(x + 0.5) / width, (y + 0.5) / height);
+				pixels[y * width + x] = open ? space : wall;
+			}
+		}
+		return pixels;
+	}
+
+
+	/**
+	 * @return Whether a point is inside the boundary of an arena and outside
+	 * every pillar
+	 */
+	private static boolean isOpen(ArenaShape shape, double x, double y) {
+		for (int p = 0; p < shape.getPolygonCount(); p++) {
+			boolean inside = false;
+			int corners = shape.getCornerCount(p);
+			for (int i = 0, j = corners - 1; i < corners; j = i++) {
+				double xi = shape.getX(p, i), yi = shape.getY(p, i);
+				double xj = shape.getX(p, j), yj = shape.getY(p, j);
+				if ((yi > y) != (yj > y) &&
+						x < xj + (y - yj) * (xi - xj) / (yi - yj))
+					inside = !inside;
+			}
+			if (inside != shape.isBoundary(p)) return false;
+		}
+		return true;
+	}
+
+
+	/**
+	 * @param color A color
+	 * @return The color as 0xRRGGBB
+	 */
+	static int rgb(Color color) {
+		return (int) Math.round(color.getRed() * 255) << 16 |
+				(int) Math.round(color.getGreen() * 255) << 8 |
+				(int) Math.round(color.getBlue() * 255);
+	}
+
+
+	/**
+	 * Starts a new frame from the background
+	 */
+	void begin() {
+		System.arraycopy(background, 0, pixels, 0, pixels.length);
+	}
+
+
+	/**
+	 * Draws a circle
+	 * @param centerX X-coordinate of the center in pixels
+	 * @param centerY Y-coordinate of the center in pixels
+	 * @param radius Radius in pixels
+	 * @param color Color as 0xRRGGBB
+	 * @param opacity Opacity from 0 to 1
+	 */
+	void fillCircle(double centerX, double centerY, double radius, int color,
+			double opacity) {
+		if (opacity <= 0.0) return;
+		int minX = Math.max(0, (int) Math.floor(centerX - radius));
+		int maxX = Math.min(width - 1, (int) Math.ceil(centerX + radius));
+		int minY = Math.max(0, (int) Math.floor(centerY - radius));
+		int maxY = Math.min(height - 1, (int) Math.ceil(centerY + radius));
+		// Pixels closer than this are covered and further are not touched
+		double inner = Math.max(0.0, radius - 0.5);
+		double outer = radius + 0.5;
+		double innerSquared = inner * inner;
+		double outerSquared = outer * outer;
+		for (int y = minY; y <= maxY; y++) {
+			double dy = y + 0.5 - centerY;
+			int rowStart = y * width;
+			for (int x = minX; x <= maxX; x++) {
+				double dx = x + 0.5 - centerX;
+				double distanceSquared = dx * dx + dy * dy;
+				if (distanceSquared >= outerSquared) continue;
+				double coverage = distanceSquared <= innerSquared ? 1.0 :
+						outer - Math.sqrt(distanceSquared);
+				blend(rowStart + x, color, coverage * opacity);
+			}
+		}
+	}
+
+
+	/**
+	 * Mixes a color into a pixel
+	 * @param i Index of the pixel
+	 * @param color The color as 0xRRGGBB
+	 * @param alpha How much of the color, from 0 to 1
+	 */
+	private void blend(int i, int color, double alpha) {
+		if (alpha >= 1.0) {
+			pixels[i] = color;
+			return;
+		}
+		int a = (int) (alpha * 256);
+		int pixel = pixels[i];
+		int red = (pixel >> 16 & 0xFF) +
+				(((color >> 16 & 0xFF) - (pixel >> 16 & 0xFF)) * a >> 8);
+		int green = (pixel >> 8 & 0xFF) +
+				(((color >> 8 & 0xFF) - (pixel >> 8 & 0xFF)) * a >> 8);
+		int blue = (pixel & 0xFF) +
+				(((color & 0xFF) - (pixel & 0xFF)) * a >> 8);
+		pixels[i] = red << 16 | green << 8 | blue;
+	}
+
+
+	/**
+	 * @return The frame, each pixel 0xRRGGBB
+	 */
+	int[] getPixels() {
+		return pixels;
+	}
+
+
+	/**
+	 * @return What every frame starts as
+	 */
+	int[] getBackground() {
+		return background;
+	}
+
+
+	/**
+	 * @return Width in pixels
+	 */
+	int getWidth() {
+		return width;
+	}
+
+
+	/**
+	 * @return Height in pixels
+	 */
+	int getHeight() {
+		return height;
+	}
+
+}
@@ -0,0 +1,303 @@
+package tech.octopusdragon.cursordodge.export;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Arrays;
+import java.util.zip.Adler32;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+
+/**
+ * Writes pixels as PNG images. Only what the game needs is written: 8-bit RGB
+ * with every row stored as the difference from the pixel to its left, which
+ * turns the large areas of one color in a frame into runs of zeros that
+ * compress quickly.
+ * <p>
+ * Most of a frame of the game is the same from one frame to the next, so an
+ * encoder can be given a background. Every row of the background is
+ * compressed once, on its own, and a row of an image that matches it is
+ * copied in already compressed instead of being compressed again. Rows that
+ * differ are compressed in runs, each ending with a full flush so that it does
+ * not refer back to the rows before it.
+ * <p>
+ * An encoder keeps its buffers between images, so each thread writing images
+ * should have its own.
+ * @author Alex Gill
+ *
+ */
+public class PngEncoder {
+
+	// --- Constants ---
+	// Bytes every PNG file starts with
+	private static final byte[] SIGNATURE = {
+			(byte) 0x89, 'P', 'N', 'G', '\r', '\n', 0x1A, '\n' };
+	// Header of the compressed data: deflate with the largest window and no
+	// preset dictionary
+	private static final byte[] ZLIB_HEADER = { 0x78, 0x01 };
+	// Largest prime below 65536, the modulus of the Adler-32 check
+	private static final int ADLER_BASE = 65521;
+	// Bytes of each pixel
+	private static final int BYTES_PER_PIXEL = 3;
+	// Filter type that stores each byte as the difference from the one to
+	// its left
+	private static final byte SUB_FILTER = 1;
+	// Bytes of filtered rows handed to the compressor at once
+	private static final int BATCH_SIZE = 1 << 16;
+
+	// --- Variables ---
+	private Deflater deflater;		// Compresses the rows
+	private Adler32 adler;			// Checks the rows that are compressed
+	private CRC32 crc;				// Checks each chunk
+	private byte[] rows;			// Filtered rows not yet compressed
+	private byte[] data;			// Compressed rows
+	private byte[] header;			// Header chunk
+	private byte[] chunkHeader;		// Length and type of a chunk
+	private byte[] check;			// Check of a chunk
+	// Background, and each of its rows compressed and its check
+	private int[] background;
+	private int backgroundWidth;
+	private byte[][] backgroundRows;
+	private long[] backgroundChecks;
+
+
+	/**
+	 * Creates an encoder
+	 * @param level How hard to compress, as in {@link Deflater}
+	 */
+	public PngEncoder(int level) {
+		deflater = new Deflater(level, true);
+		adler = new Adler32();
+		crc = new CRC32();
+		rows = new byte[0];
+		data = new byte[1 << 16];
+		header = new byte[13];
+		chunkHeader = new byte[8];
+		check = new byte[4];
+	}
+
+
+	/**
+	 * Sets what most images will look like, compressing each of its rows
+	 * @param pixels Pixels in rows from the top, each 0xRRGGBB, which must not
+	 * change while they are the background
+	 * @param width Width of the background
+	 * @param height Height of the background
+	 */
+	public void setBackground(int[] pixels, int width, int height) {
+		int rowSize = 1 + width * BYTES_PER_PIXEL;
+		byte[] row = new byte[rowSize];
+		background = pixels;
+		backgroundWidth = width;
+		backgroundRows = new byte[height][];
+		backgroundChecks = new long[height];
+		for (int y = 0; y < height; y++) {
+			filter(pixels, width, y, row, 0);
+			adler.reset();
+			adler.update(row, 0, rowSize);
+			backgroundChecks[y] = adler.getValue();
+			deflater.reset();
+			deflater.setInput(row, 0, rowSize);
+			int size = flush(0);
+			backgroundRows[y] = Arrays.copyOf(data, size);
+		}
+	}
+
+
+	/**
+	 * Writes an image
+	 * @param pixels Pixels in rows from the top, each 0xRRGGBB
+	 * @param width Width of the image
+	 * @param height Height of the image
+	 * @param out Where to write it
+	 * @throws IOException If it could not be written
+	 */
+	public void write(int[] pixels, int width, int height, OutputStream out)
+			throws IOException {
+		out.write(SIGNATURE);
+
+		putInt(header, 0, width);
+		putInt(header, 4, height);
+		header[8] = 8;		// Bits per channel
+		header[9] = 2;		// RGB
+		header[10] = 0;		// Deflate
+		header[11] = 0;		// Standard filters
+		header[12] = 0;		// Not interlaced
+		writeChunk(out, "IHDR", header, header.length);
+
+		int rowSize = 1 + width * BYTES_PER_PIXEL;
+		int batchRows = Math.max(1, BATCH_SIZE / rowSize);
+		if (rows.length < batchRows * rowSize)
+			rows = new byte[batchRows * rowSize];
+		deflater.reset();
+		int dataSize = append(0, ZLIB_HEADER, ZLIB_HEADER.length);
+		long checkValue = 1;
+		int y = 0;
+		while (y < height) {
+			if (matchesBackground(pixels, width, height, y)) {
+				byte[] compressed = backgroundRows[y];
+				dataSize = append(dataSize, compressed, compressed.length);
+				checkValue = combine(checkValue, backgroundChecks[y],
+						rowSize);
+				y++;
+				continue;
+			}
+
+			// Compress the rows up to the next one that matches
+			int count = 0;
+			do {
+				filter(pixels, width, y + count, rows, count * rowSize);
+				count++;
+			} while (count < batchRows && y + count < height &&
+					!matchesBackground(pixels, width, height, y + count));
+			adler.reset();
+			adler.update(rows, 0, count * rowSize);
+			checkValue = combine(checkValue, adler.getValue(),
+					count * rowSize);
+			deflater.setInput(rows, 0, count * rowSize);
+			dataSize = flush(dataSize);
+			y += count;
+		}
+		deflater.finish();
+		while (!deflater.finished()) {
+			if (dataSize == data.length)
+				data = Arrays.copyOf(data, dataSize * 2);
+			dataSize += deflater.deflate(data, dataSize,
+					data.length - dataSize);
+		}
+		putInt(check, 0, (int) checkValue);
+		dataSize = append(dataSize, check, check.length);
+		writeChunk(out, "IDAT", data, dataSize);
+
+		writeChunk(out, "IEND", data, 0);
+	}
+
+
+	/**
+	 * Frees the compressor. The encoder cannot be used after.
+	 */
+	public void end() {
+		deflater.end();
+	}
+
+
+	/**
+	 * Filters a row of pixels into bytes
+	 * @param pixels The pixels
+	 * @param width Width of the image
+	 * @param y The row
+	 * @param bytes Where to put the filtered row
+	 * @param offset Where in the bytes to put it
+	 */
+	private static void filter(int[] pixels, int width, int y, byte[] bytes,
+			int offset) {
+		int i = offset;
+		bytes[i++] = SUB_FILTER;
+		int previous = 0;
+		for (int x = y * width, last = x + width; x < last; x++) {
+			int pixel = pixels[x];
+			bytes[i++] = (byte) ((pixel >> 16) - (previous >> 16));
+			bytes[i++] = (byte) ((pixel >> 8) - (previous >> 8));
+			bytes[i++] = (byte) (pixel - previous);
+			previous = pixel;
+		}
+	}
+
+
+	/**
+	 * @return Whether a row of an image is the same as that row of the
+	 * background
+	 */
+	private boolean matchesBackground(int[] pixels, int width, int height,
+			int y) {
+		if (background == null || width != backgroundWidth ||
+				height != backgroundRows.length)
+			return false;
+		for (int x = y * width, last = x + width; x < last; x++) {
+			if (pixels[x] != background[x]) return false;
+		}
+		return true;
+	}
+
+
+	/**
+	 * Compresses all of the input and flushes it, so that what comes after
+	 * does not refer back to it
+	 * @param size Bytes of compressed data so far
+	 * @return Bytes of compressed data after
+	 */
+	private int flush(int size) {
+		while (true) {
+			if (size == data.length) data = Arrays.copyOf(data, size * 2);
+			int space = data.length - size;
+			size += deflater.deflate(data, size, space, Deflater.FULL_FLUSH);
+			// Filling the space means there may be more to come
+			if (size < data.length) return size;
+		}
+	}
+
+
+	/**
+	 * Adds bytes to the compressed data, growing it as needed
+	 * @return Bytes of compressed data after
+	 */
+	private int append(int size, byte[] bytes, int length) {
+		if (size + length > data.length) {
+			data = Arrays.copyOf(data, Math.max(size + length,
+					data.length * 2));
+		}
+		System.arraycopy(bytes, 0, data, size, length);
+		return size + length;
+	}
+
+
+	/**
+	 * Works out the Adler-32 check of two runs of bytes one after the other
+	 * from the checks of each
+	 * @param first Check of the first run
+	 * @param second Check of the second run
+	 * @param secondLength Length of the second run
+	 * @return Check of both
+	 */
+	private static long combine(long first, long second, int secondLength) {
+		long remainder = secondLength % ADLER_BASE;
+		long sum1 = first & 0xFFFF;
+		long sum2 = remainder * sum1 % ADLER_BASE;
+		sum1 += (second & 0xFFFF) + ADLER_BASE - 1;
+		sum2 += (first >> 16 & 0xFFFF) + (second >> 16 & 0xFFFF) +
+				ADLER_BASE - remainder;
+		sum1 %= ADLER_BASE;
+		sum2 %= ADLER_BASE;
+		return sum2 << 16 | sum1;
+	}
+
+
+	/**
+	 * Writes a chunk: its length, type, data and check
+	 */
+	private void writeChunk(OutputStream out, String type, byte[] bytes,
+			int length) throws IOException {
+		putInt(chunkHeader, 0, length);
+		for (int i = 0; i < 4; i++) {
+			chunkHeader[4 + i] = (byte) type.charAt(i);
+		}
+		out.write(chunkHeader);
+		out.write(bytes, 0, length);
+		crc.reset();
+		crc.update(chunkHeader, 4, 4);
+		crc.update(bytes, 0, length);
+		putInt(check, 0, (int) crc.getValue());
+		out.write(check);
+	}
+
+
+	/**
+	 * Puts an int into bytes, most significant first
+	 */
+	private static void putInt(byte[] bytes, int offset, int value) {
+		bytes[offset] = (byte) (value >>> 24);
+		bytes[offset + 1] = (byte) (value >>> 16);
+		bytes[offset + 2] = (byte) (value >>> 8);
+		bytes[offset + 3] = (byte) value;
+	}
+
+}
@@ -0,0 +1,366 @@
+package tech.octopusdragon.cursordodge.export;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Arrays;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.zip.Deflater;
+
+import tech.octopusdragon.cursordodge.game.GamePaints;
+import tech.octopusdragon.cursordodge.game.Simulation;
+import tech.octopusdragon.cursordodge.game.classes.CatchCircles;
+import tech.octopusdragon.cursordodge.game.classes.Circles;
+import tech.octopusdragon.cursordodge.replay.Replay;
+
+import javafx.scene.paint.Color;
+
+/**
+ * Turns a replay into a numbered PNG image for every frame, without a display.
+ * The replay is played again as fast as possible on the calling thread, which
+ * copies the circles of each frame into a frame from a small pool. Worker
+ * threads, one for each core by default, draw the frames with a
+ * {@link FrameRasterizer}, write them with a {@link PngEncoder} and hand them
+ * back to be filled again. When every frame is taken, the replay waits for one
+ * to come back, so however long the replay, only the pool is ever held.
+ * <p>
+ * Usage: {@code ReplayExporter [--fps N] [--scale PIXELS] [--threads N]
+ * [--out DIRECTORY] REPLAY}, where the scale is pixels per unit of the scene
+ * and the images are written to a directory named after the replay unless
+ * another is given.
+ * @author Alex Gill
+ *
+ */
+public class ReplayExporter {
+
+	// --- Constants ---
+	// Prefix of the name of every image
+	private static final String FILE_PREFIX = "frame-";
+	// Extension of the images
+	private static final String FILE_EXTENSION = ".png";
+	// Frames in the pool for each worker
+	private static final int FRAMES_PER_WORKER = 2;
+	// Color of the scene behind the circles
+	private static final Color SPACE_PAINT = Color.WHITE;
+	// Color of the cursor
+	private static final Color CURSOR_PAINT = Color.BLACK;
+	// Radius in pixels of the mark where the cursor is
+	private static final double CURSOR_RADIUS = 3.0;
+	// Colors of each kind of circle, in the order they are drawn
+	private static final int[] CIRCLE_COLORS = {
+			FrameRasterizer.rgb(GamePaints.OBSTACLE_CIRCLE_PAINT),
+			FrameRasterizer.rgb(GamePaints.CATCH_CIRCLE_PAINT),
+			FrameRasterizer.rgb(GamePaints.CORNER_CIRCLE_PAINT)
+	};
+
+	// --- Variables ---
+	private File replayFile;				// Replay to export
+	private File outDirectory;				// Directory images go in
+	private double framesPerSecond = 60.0;	// Frames for each second of game
+	private double scale = 1.0;				// Pixels per unit of the scene
+	private int threads =					// Workers drawing frames
+			Runtime.getRuntime().availableProcessors();
+	private double circleRadius;			// Radius of circles in pixels
+	private BlockingQueue<Frame> empty;		// Frames ready to fill
+	private BlockingQueue<Frame> full;		// Frames ready to draw
+	private Frame end;						// Tells a worker to finish
+	private int frameCount;					// Frames filled so far
+	private long lastTick = -1;				// Step of the last frame filled
+	private volatile IOException error;		// Why writing failed, if it did
+
+
+	public static void main(String[] args) {
+		ReplayExporter exporter = new ReplayExporter();
+		try {
+			exporter.parse(args);
+		} catch (IllegalArgumentException e) {
+			System.err.println(e.getMessage());
+			System.err.println("Usage: ReplayExporter [--fps N] " +
+					"[--scale PIXELS] [--threads N] [--out DIRECTORY] REPLAY");
+			System.exit(2);
+		}
+		try {
+			exporter.run();
+		} catch (IOException e) {
+			System.out.println("Error exporting replay");
+			e.printStackTrace();
+			System.exit(1);
+		} catch (InterruptedException e) {
+			System.exit(1);
+		}
+	}
+
+
+	/**
+	 * Reads the command line arguments
+	 * @param args The arguments
+	 * @throws IllegalArgumentException If an argument is not valid
+	 */
+	private void parse(String[] args) throws IllegalArgumentException {
+		for (int i = 0; i < args.length; i++) {
+			String arg = args[i];
+			if (arg.startsWith("--") && i + 1 >= args.length)
+				throw new IllegalArgumentException("Missing value for " + arg);
+			switch (arg) {
+			case "--fps":
+				framesPerSecond = Double.parseDouble(args[++i]);
+				break;
+			case "--scale":
+				scale = Double.parseDouble(args[++i]);
+				break;
+			case "--threads":
+				threads = Integer.parseInt(args[++i]);
+				break;
+			case "--out":
+				outDirectory = new File(args[++i]);
+				break;
+			default:
+				if (arg.startsWith("--") || replayFile != null)
+					throw new IllegalArgumentException(
+							"Unknown argument " + arg);
+				replayFile = new File(arg);
+			}
+		}
+		if (replayFile == null)
+			throw new IllegalArgumentException("No replay given");
+		if (framesPerSecond <= 0.0 ||
+				framesPerSecond > Simulation.TICKS_PER_SECOND)
+			throw new IllegalArgumentException("Invalid frame rate");
+		if (scale <= 0.0)
+			throw new IllegalArgumentException("Invalid scale");
+		if (threads < 1)
+			throw new IllegalArgumentException("Invalid number of threads");
+		if (outDirectory == null) {
+			String name = replayFile.getName();
+			if (name.endsWith(Replay.FILE_EXTENSION)) {
+				name = name.substring(0,
+						name.length() - Replay.FILE_EXTENSION.length());
+			}
+			outDirectory = new File(
+					replayFile.getAbsoluteFile().getParentFile(),
+					name + "-frames");
+		}
+	}
+
+
+	/**
+	 * Plays the replay and writes every frame
+	 * @throws IOException If the replay could not be read or a frame could
+	 * not be written
+	 * @throws InterruptedException If interrupted while waiting for a frame
+	 */
+	private void run() throws IOException, InterruptedException {
+		Replay replay = Replay.read(replayFile);
+		if (!outDirectory.isDirectory() && !outDirectory.mkdirs())
+			throw new IOException("Could not create " + outDirectory);
+		int width = (int) Math.ceil(replay.getSceneWidth() * scale);
+		int height = (int) Math.ceil(replay.getSceneHeight() * scale);
+		int[] background = FrameRasterizer.background(replay.getShape(),
+				width, height, FrameRasterizer.rgb(SPACE_PAINT),
+				FrameRasterizer.rgb(GamePaints.WALL_PAINT));
+
+		int poolSize = threads * FRAMES_PER_WORKER;
+		empty = new ArrayBlockingQueue<Frame>(poolSize);
+		full = new ArrayBlockingQueue<Frame>(poolSize + threads);
+		for (int i = 0; i < poolSize; i++) {
+			empty.add(new Frame());
+		}
+		end = new Frame();
+		Thread[] workers = new Thread[threads];
+		for (int i = 0; i < threads; i++) {
+			FrameRasterizer rasterizer =
+					new FrameRasterizer(width, height, background);
+			workers[i] = new Thread(() -> draw(rasterizer),
+					"Frame exporter " + (i + 1));
+			workers[i].start();
+		}
+
+		// Fill a frame whenever the game reaches the time of the next one
+		long wallStart = System.nanoTime();
+		Simulation simulation;
+		try {
+			simulation = replay.play(playing -> {
+				if (playing.getTick() >= frameTick(frameCount)) fill(playing);
+			});
+			// Show how the game ended even if it was between frames
+			if (simulation.getTick() != lastTick) fill(simulation);
+		} finally {
+			for (int i = 0; i < threads; i++) {
+				full.put(end);
+			}
+			for (Thread worker : workers) {
+				worker.join();
+			}
+		}
+		if (error != null) throw error;
+
+		double wallSeconds = (System.nanoTime() - wallStart) / 1e9;
+		System.err.println(String.format(
+				"%d frames of %dx%d on %d threads in %.1f s " +
+						"(%.0f frames per s, %.1fx real time) to %s",
+				frameCount, width, height, threads, wallSeconds,
+				frameCount / wallSeconds,
+				simulation.getTime() / wallSeconds, outDirectory));
+	}
+
+
+	/**
+	 * @param frame Number of a frame
+	 * @return First step at or after the time of the frame
+	 */
+	private long frameTick(int frame) {
+		return (long) Math.ceil(frame * Simulation.TICKS_PER_SECOND /
+				framesPerSecond);
+	}
+
+
+	/**
+	 * Copies the state of the game into the next frame, waiting for one to be
+	 * free if every frame is taken
+	 * @param simulation The game
+	 */
+	private void fill(Simulation simulation) {
+		Frame frame;
+		try {
+			frame = empty.take();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			return;
+		}
+		circleRadius = simulation.getArena().getCircleRadius() * scale;
+		frame.copy(simulation, frameCount++);
+		lastTick = simulation.getTick();
+		full.add(frame);
+	}
+
+
+	/**
+	 * Draws and writes frames as they are filled until told to finish
+	 * @param rasterizer Draws the frames of this worker
+	 */
+	private void draw(FrameRasterizer rasterizer) {
+		PngEncoder encoder = new PngEncoder(Deflater.BEST_SPEED);
+		encoder.setBackground(rasterizer.getBackground(),
+				rasterizer.getWidth(), rasterizer.getHeight());
+		try {
+			while (true) {
+				Frame frame = full.take();
+				if (frame == end) break;
+				// Keep taking frames after an error so the replay never waits
+				// forever, but stop drawing them
+				if (error == null) {
+					try {
+						write(frame, rasterizer, encoder);
+					} catch (IOException e) {
+						error = e;
+					}
+				}
+				empty.add(frame);
+			}
+		} catch (InterruptedException e) {
+			error = new IOException("Frame exporter interrupted", e);
+		} finally {
+			encoder.end();
+		}
+	}
+
+
+	/**
+	 * Draws a frame and writes it as an image
+	 */
+	private void write(Frame frame, FrameRasterizer rasterizer,
+			PngEncoder encoder) throws IOException {
+		rasterizer.begin();
+		for (int kind = 0; kind < Frame.KINDS; kind++) {
+			for (int i = 0; i < frame.count[kind]; i++) {
+				rasterizer.fillCircle(frame.x[kind][i] * scale,
+						frame.y[kind][i] * scale, frame.radius,
+						CIRCLE_COLORS[kind], frame.opacity[kind][i]);
+			}
+		}
+		if (frame.cursorKnown) {
+			rasterizer.fillCircle(frame.cursorX * scale,
+					frame.cursorY * scale, CURSOR_RADIUS,
+					FrameRasterizer.rgb(CURSOR_PAINT), 1.0);
+		}
+
+		File file = new File(outDirectory, String.format("%s%06d%s",
+				FILE_PREFIX, frame.number, FILE_EXTENSION));
+		try (OutputStream out = new BufferedOutputStream(
+				new FileOutputStream(file), 1 << 16)) {
+			encoder.write(rasterizer.getPixels(), rasterizer.getWidth(),
+					rasterizer.getHeight(), out);
+		}
+	}
+
+
+	/**
+	 * Where everything was in one frame of the game
+	 * @author Alex Gill
+	 *
+	 */
+	private class Frame {
+
+		// Kinds of circle, in the order they are drawn
+		private static final int KINDS = 3;
+		private static final int OBSTACLE = 0;
+		private static final int CATCH = 1;
+		private static final int CORNER = 2;
+
+		private int number;				// Number of the frame
+		private double radius;			// Radius of the circles in pixels
+		private boolean cursorKnown;	// Whether the cursor is on the scene
+		private double cursorX;			// X-coordinate of the cursor
+		private double cursorY;			// Y-coordinate of the cursor
+		// Circles of each kind: where they are and how opaque
+		private int[] count = new int[KINDS];
+		private double[][] x = new double[KINDS][32];
+		private double[][] y = new double[KINDS][32];
+		private double[][] opacity = new double[KINDS][32];
+
+
+		/**
+		 * Copies the state of a game into the frame
+		 */
+		private void copy(Simulation simulation, int number) {
+			this.number = number;
+			radius = circleRadius;
+			cursorX = simulation.getCursorX();
+			cursorY = simulation.getCursorY();
+			cursorKnown = !Double.isNaN(cursorX) && !Double.isNaN(cursorY);
+			copy(OBSTACLE, simulation.getObstacleCircles(), null, 0.0);
+			copy(CATCH, simulation.getCatchCircles(),
+					simulation.getCatchCircles(), simulation.getTime());
+			copy(CORNER, simulation.getCornerCircles(), null, 0.0);
+		}
+
+
+		/**
+		 * Copies the circles of one kind into the frame
+		 * @param catches The circles again if they fade, or null if not
+		 */
+		private void copy(int kind, Circles circles, CatchCircles catches,
+				double time) {
+			int size = circles.size();
+			if (size > x[kind].length) {
+				int capacity = Math.max(size, x[kind].length * 2);
+				x[kind] = Arrays.copyOf(x[kind], capacity);
+				y[kind] = Arrays.copyOf(y[kind], capacity);
+				opacity[kind] = Arrays.copyOf(opacity[kind], capacity);
+			}
+			for (int i = 0; i < size; i++) {
+				x[kind][i] = circles.getX(i);
+				y[kind][i] = circles.getY(i);
+				opacity[kind][i] = catches == null ? 1.0 :
+						Math.max(0.0, Math.min(1.0,
+								catches.getOpacity(i, time)));
+			}
+			count[kind] = size;
+		}
+
+	}
+
+}
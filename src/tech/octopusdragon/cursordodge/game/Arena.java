@@ -0,0 +1,966 @@
+package tech.octopusdragon.cursordodge.game;
+
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.Random;
+
+import tech.octopusdragon.cursordodge.game.classes.CollisionPoint;
+import tech.octopusdragon.cursordodge.game.classes.Corner;
+import tech.octopusdragon.cursordodge.game.classes.Edge;
+import tech.octopusdragon.cursordodge.game.classes.Position;
+
+/**
+ * The geometry of the playing field: the scene the circles move in and the
+ * size of the circles. Contains the calculations for bounces and random
+ * placement. Does not depend on JavaFX so that games can be simulated without
+ * a display.
+ * <p>
+ * An arena never changes. Everything that follows from the sizes, such as the
+ * part of the scene the centers of circles can be in, the corners and where
+ * spawns may go, is worked out once when it is made, so reading it never
+ * allocates. A new arena is made when the window is resized or the screen
+ * changes.
+ * <p>
+ * An arena can be given an {@link ArenaShape} of polygon walls to bounce off
+ * instead of the edges of the scene. The walls are put in a
+ * {@link SegmentTree} when the arena is made, so that finding the next wall a
+ * circle hits stays quick however many walls there are. Circles bounce off
+ * them about their normals, and new circles are only placed where they do not
+ * touch any wall. Corners are still the corners of the scene.
+ * @author Alex Gill
+ *
+ */
+public class Arena {
+
+	// --- Constants ---
+	// Size of circles as percent of screen size
+	public static final double CIRCLE_SIZE = 0.001;
+	// The area around the cursor as a percent of scene size inside which
+	// circles will not appear
+	public static final double MOUSE_BOX_SIZE = 0.5;
+	// Circles will bounce in the direction of the new angle +/- a random number
+	// in this range divided by two
+	public static final double NEW_ANGLE_RANGE = 22.5;
+	// Random positions tried before giving up on finding one clear of the
+	// walls of a shaped arena
+	private static final int MAX_SPAWN_ATTEMPTS = 100;
+	// Points along each side of the grid searched for points clear of the
+	// walls of a shaped arena, doubled until some are found
+	private static final int OPEN_POINT_GRID = 32;
+	// Most bounces followed when predicting the path of a circle
+	private static final int MAX_PREDICTED_BOUNCES = 8;
+
+	// --- Variables ---
+	private double screenWidth;		// Screen width
+	private double screenHeight;	// Screen height
+	private double sceneWidth;		// Scene width
+	private double sceneHeight;		// Scene height
+	private double circleRadius;	// The radius of the circles
+	// Part of the scene the centers of circles can be in, which also bounds
+	// the corners that set off corner circles
+	private double playfieldMinX;
+	private double playfieldMinY;
+	private double playfieldMaxX;
+	private double playfieldMaxY;
+	private double playfieldWidth;
+	private double playfieldHeight;
+	// Whole pixels where new obstacle circles can be placed
+	private int spawnMinX;
+	private int spawnMinY;
+	private int spawnColumns;
+	private int spawnRows;
+	// Half the size of the area around the cursor kept clear of new circles
+	private double mouseBoxHalfWidth;
+	private double mouseBoxHalfHeight;
+	// Where corner circles sit in each corner and hide just past it
+	private EnumMap<Corner, Position> onscreen =
+			new EnumMap<Corner, Position>(Corner.class);
+	private EnumMap<Corner, Position> offscreen =
+			new EnumMap<Corner, Position>(Corner.class);
+	// The walls of a shaped arena, or null if the edges of the scene are
+	private ArenaShape shape;
+	private SegmentTree walls;
+	// Corners of the polygons of the shape in pixels
+	private double[][] polygonX;
+	private double[][] polygonY;
+	// Points clear of the walls, found once, that circles are placed at when
+	// no random position clear of them is found
+	private double[] openX;
+	private double[] openY;
+
+
+	/**
+	 * Constructs an arena
+	 * @param sceneWidth Scene width
+	 * @param sceneHeight Scene height
+	 * @param screenWidth Screen width
+	 * @param screenHeight Screen height
+	 */
+	public Arena(double sceneWidth, double sceneHeight,
+			double screenWidth, double screenHeight) {
+		this(sceneWidth, sceneHeight, screenWidth, screenHeight, null);
+	}
+
+
+	/**
+	 * Constructs an arena with walls of the given shape
+	 * @param sceneWidth Scene width
+	 * @param sceneHeight Scene height
+	 * @param screenWidth Screen width
+	 * @param screenHeight Screen height
+	 * @param shape The walls, or null for the edges of the scene
+	 * @throws IllegalArgumentException If the walls leave no room for a
+	 * circle on a scene of this size
+	 */
+	public Arena(double sceneWidth, double sceneHeight,
+			double screenWidth, double screenHeight, ArenaShape shape)
+			throws IllegalArgumentException {
+		this.sceneWidth = sceneWidth;
+		this.sceneHeight = sceneHeight;
+		this.screenWidth = screenWidth;
+		this.screenHeight = screenHeight;
+
+		double screenArea = screenWidth * screenHeight;
+		circleRadius = Math.sqrt(screenArea * CIRCLE_SIZE) / 2;
+
+		playfieldMinX = circleRadius;
+		playfieldMinY = circleRadius;
+		playfieldMaxX = sceneWidth - circleRadius;
+		playfieldMaxY = sceneHeight - circleRadius;
+		playfieldWidth = sceneWidth - 2 * circleRadius;
+		playfieldHeight = sceneHeight - 2 * circleRadius;
+		spawnMinX = (int) circleRadius;
+		spawnMinY = (int) circleRadius;
+		spawnColumns = (int) Math.ceil(sceneWidth - circleRadius) - spawnMinX;
+		spawnRows = (int) Math.ceil(sceneHeight - circleRadius) - spawnMinY;
+		mouseBoxHalfWidth = sceneWidth * MOUSE_BOX_SIZE / 2;
+		mouseBoxHalfHeight = sceneHeight * MOUSE_BOX_SIZE / 2;
+
+		for (Corner corner : Corner.values()) {
+			boolean left = corner == Corner.TOP_LEFT ||
+					corner == Corner.BOTTOM_LEFT;
+			boolean top = corner == Corner.TOP_LEFT ||
+					corner == Corner.TOP_RIGHT;
+			onscreen.put(corner, new Position(
+					left ? 0.0 : sceneWidth,
+					top ? 0.0 : sceneHeight));
+			offscreen.put(corner, new Position(
+					left ? -circleRadius : sceneWidth + circleRadius,
+					top ? -circleRadius : sceneHeight + circleRadius));
+		}
+
+		if (shape != null) buildWalls(shape);
+	}
+
+
+	/**
+	 * Puts the walls of a shape in pixels and builds the tree over them. If
+	 * the shape has no boundary, the edges of the scene are walls too.
+	 * @param shape The walls
+	 */
+	private void buildWalls(ArenaShape shape) {
+		this.shape = shape;
+		int polygons = shape.getPolygonCount();
+		polygonX = new double[polygons][];
+		polygonY = new double[polygons][];
+		int corners = shape.hasBoundary() ? 0 : 4;
+		for (int p = 0; p < polygons; p++) {
+			int count = shape.getCornerCount(p);
+			polygonX[p] = new double[count];
+			polygonY[p] = new double[count];
+			for (int i = 0; i < count; i++) {
+				polygonX[p][i] = shape.getX(p, i) * sceneWidth;
+				polygonY[p][i] = shape.getY(p, i) * sceneHeight;
+			}
+			corners += count;
+		}
+
+		// The ends of each wall in pairs, leaving out walls of no length
+		double[] x = new double[2 * corners];
+		double[] y = new double[2 * corners];
+		int count = 0;
+		if (!shape.hasBoundary()) {
+			double[] sceneX = {0.0, sceneWidth, sceneWidth, 0.0};
+			double[] sceneY = {0.0, 0.0, sceneHeight, sceneHeight};
+			count = addWalls(sceneX, sceneY, x, y, count);
+		}
+		for (int p = 0; p < polygons; p++) {
+			count = addWalls(polygonX[p], polygonY[p], x, y, count);
+		}
+		walls = new SegmentTree(x, y, count, circleRadius);
+		findOpenPoints();
+	}
+
+
+	/**
+	 * Finds points clear of the walls on a grid over the playfield, making the
+	 * grid finer until some are found or it is finer than a pixel
+	 * @throws IllegalArgumentException If there are none
+	 */
+	private void findOpenPoints() {
+		double finest = Math.max(playfieldWidth, playfieldHeight);
+		for (int grid = OPEN_POINT_GRID; ; grid *= 2) {
+			double[] x = new double[grid * grid];
+			double[] y = new double[grid * grid];
+			int count = 0;
+			for (int row = 0; row < grid; row++) {
+				double pointY = playfieldMinY +
+						playfieldHeight * (row + 0.5) / grid;
+				for (int column = 0; column < grid; column++) {
+					double pointX = playfieldMinX +
+							playfieldWidth * (column + 0.5) / grid;
+					if (isOpen(pointX, pointY)) {
+						x[count] = pointX;
+						y[count] = pointY;
+						count++;
+					}
+				}
+			}
+			if (count > 0) {
+				openX = Arrays.copyOf(x, count);
+				openY = Arrays.copyOf(y, count);
+				return;
+			}
+			if (grid >= finest)
+				throw new IllegalArgumentException(
+						"Arena leaves no room for circles");
+		}
+	}
+
+
+	/**
+	 * Adds the sides of a polygon to a list of walls
+	 * @param cornerX X-coordinates of the corners
+	 * @param cornerY Y-coordinates of the corners
+	 * @param x X-coordinates of the ends of the walls, in pairs
+	 * @param y Y-coordinates of the ends of the walls, in pairs
+	 * @param count Number of walls so far
+	 * @return Number of walls now
+	 */
+	private static int addWalls(double[] cornerX, double[] cornerY,
+			double[] x, double[] y, int count) {
+		for (int i = 0; i < cornerX.length; i++) {
+			int next = (i + 1) % cornerX.length;
+			if (cornerX[i] == cornerX[next] && cornerY[i] == cornerY[next])
+				continue;
+			x[2 * count] = cornerX[i];
+			y[2 * count] = cornerY[i];
+			x[2 * count + 1] = cornerX[next];
+			y[2 * count + 1] = cornerY[next];
+			count++;
+		}
+		return count;
+	}
+
+
+	/**
+	 * @return Scene width
+	 */
+	public double getSceneWidth() {
+		return sceneWidth;
+	}
+
+
+	/**
+	 * @return Scene height
+	 */
+	public double getSceneHeight() {
+		return sceneHeight;
+	}
+
+
+	/**
+	 * @return Screen width
+	 */
+	public double getScreenWidth() {
+		return screenWidth;
+	}
+
+
+	/**
+	 * @return Screen height
+	 */
+	public double getScreenHeight() {
+		return screenHeight;
+	}
+
+
+	/**
+	 * @return The walls of the arena, or null if the edges of the scene are
+	 */
+	public ArenaShape getShape() {
+		return shape;
+	}
+
+
+	/**
+	 * @return The radius of the circles
+	 */
+	public double getCircleRadius() {
+		return circleRadius;
+	}
+
+
+	/**
+	 * @return The smallest X-coordinate the center of a circle can have
+	 */
+	public double getPlayfieldMinX() {
+		return playfieldMinX;
+	}
+
+
+	/**
+	 * @return The smallest Y-coordinate the center of a circle can have
+	 */
+	public double getPlayfieldMinY() {
+		return playfieldMinY;
+	}
+
+
+	/**
+	 * @return The largest X-coordinate the center of a circle can have
+	 */
+	public double getPlayfieldMaxX() {
+		return playfieldMaxX;
+	}
+
+
+	/**
+	 * @return The largest Y-coordinate the center of a circle can have
+	 */
+	public double getPlayfieldMaxY() {
+		return playfieldMaxY;
+	}
+
+
+	/**
+	 * Calculates the point at which a circle will collide with the edge of the
+	 * scene, or the first wall in its way in a shaped arena, given an angle of
+	 * movement.
+	 * @param fromX The X-coordinate of the center of the circle
+	 * @param fromY The Y-coordinate of the center of the circle
+	 * @param angle The angle of the direction of movement
+	 * @return The collision point
+	 * @throws IllegalArgumentException If an invalid angle was given and the
+	 * collision point could not be calculated
+	 */
+	public CollisionPoint collisionPoint(double fromX, double fromY,
+			double angle) throws IllegalArgumentException {
+		if (walls != null) {
+			double radians = Math.toRadians(angle);
+			CollisionPoint point = walls.cast(
+					fromX, fromY, Math.cos(radians), -Math.sin(radians));
+			if (point != null) return point;
+			throw new IllegalArgumentException(String.format(
+					"fromX: %f\nfromY: %f\nangle: %f\nNo wall is in the " +
+					"way of the circle.", fromX, fromY, angle));
+		}
+		double radius = circleRadius;
+
+		// Calculate the slope to create line of movement
+		double dirAngleRadians = Math.toRadians(angle);
+		double slope = Math.tan(dirAngleRadians);
+
+		// Of the possible intersections, keep the one with the smallest angle
+		// between the direction of the line and the edge
+		Edge edge = null;
+		double x = 0.0;
+		double y = 0.0;
+		double smallestAngle = Double.MAX_VALUE;
+		if (slope != 0.0) {
+			double xIntersection;
+			// Check if the top edge intersects with the line
+			xIntersection = fromX + fromY / slope;
+			xIntersection -= radius / slope;
+			if (xIntersection - radius >= 0.0 &&
+					xIntersection + radius <= sceneWidth) {
+				double curAngle = edgeAngle(Edge.TOP, dirAngleRadians);
+				if (curAngle < smallestAngle) {
+					smallestAngle = curAngle;
+					edge = Edge.TOP;
+					x = xIntersection;
+					y = 0.0 + radius;
+				}
+			}
+
+			// Check if the bottom edge intersects with the line
+			xIntersection = fromX - (sceneHeight - fromY) / slope;
+			xIntersection += radius / slope;
+			if (xIntersection - radius >= 0.0 &&
+					xIntersection + radius <= sceneWidth) {
+				double curAngle = edgeAngle(Edge.BOTTOM, dirAngleRadians);
+				if (curAngle < smallestAngle) {
+					smallestAngle = curAngle;
+					edge = Edge.BOTTOM;
+					x = xIntersection;
+					y = sceneHeight - radius;
+				}
+			}
+		}
+		if (slope != Double.POSITIVE_INFINITY) {
+			double yIntersection;
+			// Check if the left edge intersects with the line
+			yIntersection = fromY + slope * fromX;
+			yIntersection -= radius * slope;
+			if (yIntersection - radius >= 0.0 &&
+					yIntersection + radius <= sceneHeight) {
+				double curAngle = edgeAngle(Edge.LEFT, dirAngleRadians);
+				if (curAngle < smallestAngle) {
+					smallestAngle = curAngle;
+					edge = Edge.LEFT;
+					x = 0.0 + radius;
+					y = yIntersection;
+				}
+			}
+
+			// Check if the right edge intersects with the line
+			yIntersection = fromY - slope * (sceneWidth - fromX);
+			yIntersection += radius * slope;
+			if (yIntersection - radius >= 0.0 &&
+					yIntersection + radius <= sceneHeight) {
+				double curAngle = edgeAngle(Edge.RIGHT, dirAngleRadians);
+				if (curAngle < smallestAngle) {
+					smallestAngle = curAngle;
+					edge = Edge.RIGHT;
+					x = sceneWidth - radius;
+					y = yIntersection;
+				}
+			}
+		}
+
+		if (edge != null) {
+			return new CollisionPoint(edge, x, y);
+		}
+
+		// Throw an exception if none of these equations worked
+		throw new IllegalArgumentException(
+				String.format("fromX: %f\nfromY: %f\nangle: %f\nOne of these " +
+						"numbers did not allow for a correct collision point " +
+						"equation.", fromX, fromY, angle));
+	}
+
+
+	/**
+	 * @param edge An edge of the scene
+	 * @param dirAngleRadians The angle of the direction of movement in radians
+	 * @return The angle between the direction of movement and the edge
+	 */
+	private static double edgeAngle(Edge edge, double dirAngleRadians) {
+		switch (edge) {
+		case TOP:
+			return Math.abs(dirAngleRadians - Math.PI / 2);
+		case RIGHT:
+			return Math.min(
+					Math.abs(dirAngleRadians),
+					Math.abs(dirAngleRadians - 2 * Math.PI));
+		case BOTTOM:
+			return Math.abs(dirAngleRadians - 3 * Math.PI / 2);
+		case LEFT:
+			return Math.abs(dirAngleRadians - Math.PI);
+		default:
+			return Double.MAX_VALUE;
+		}
+	}
+
+
+	/**
+	 * Calculates the reflection of the angle given the edge of a collision
+	 * point. A bit of randomness is added.
+	 * @param edge The edge the circle collided with
+	 * @param angle The incoming angle
+	 * @param rand The random number generator of the game
+	 * @return The outgoing reflected angle
+	 */
+	public double newAngle(Edge edge, double angle, Random rand) {
+
+		// Get the angle of the axis which the angle will be reflected upon
+		double reflectionAxis = 0.0;
+		switch (edge) {
+		case TOP:
+			reflectionAxis = 90;
+			break;
+		case RIGHT:
+			reflectionAxis = 360;
+			break;
+		case BOTTOM:
+			reflectionAxis = 270;
+			break;
+		case LEFT:
+			reflectionAxis = 180;
+			break;
+		}
+
+		// Calculate the reflected angle
+		double reflectedAngle =
+				(180 + reflectionAxis - (angle - reflectionAxis)) % 360;
+
+		// Get the range of acceptable values for the new angle
+		double rangeMin = reflectedAngle - NEW_ANGLE_RANGE / 2;
+		double rangeMax = reflectedAngle + NEW_ANGLE_RANGE / 2;
+		switch (edge) {
+		case TOP:
+			rangeMin = Math.max(rangeMin, 180);
+			rangeMax = Math.min(rangeMax, 360);
+			break;
+		case RIGHT:
+			rangeMin = Math.max(rangeMin, 90);
+			rangeMax = Math.min(rangeMax, 270);
+			break;
+		case BOTTOM:
+			rangeMin = Math.max(rangeMin, 0);
+			rangeMax = Math.min(rangeMax, 180);
+			break;
+		case LEFT:
+			if (reflectedAngle > 0 && reflectedAngle < 90) {
+				rangeMin = Math.max(rangeMin, -90);
+				rangeMax = Math.min(rangeMax, 90);
+			}
+			else if (reflectedAngle > 270 && reflectedAngle < 360) {
+				rangeMin = Math.max(rangeMin, 270);
+				rangeMax = Math.min(rangeMax, 450);
+			}
+			break;
+		}
+
+		// The new angle is a random angle between the min and max range
+		double newAngle = rangeMin + (rangeMax - rangeMin) * rand.nextDouble();
+		newAngle = (newAngle % 360 + 360) % 360;
+		return newAngle;
+	}
+
+
+	/**
+	 * Calculates the reflection of the angle about the normal of a wall that
+	 * is not an edge of the scene. The same bit of randomness is added as for
+	 * the edges, keeping the new angle pointing away from the wall.
+	 * @param normalX X part of the unit normal of the wall facing the circle
+	 * @param normalY Y part of the unit normal of the wall facing the circle
+	 * @param angle The incoming angle
+	 * @param rand The random number generator of the game
+	 * @return The outgoing reflected angle
+	 */
+	public double newAngle(double normalX, double normalY, double angle,
+			Random rand) {
+
+		// Reflect the direction of movement about the wall
+		double radians = Math.toRadians(angle);
+		double directionX = Math.cos(radians);
+		double directionY = -Math.sin(radians);
+		double dot = directionX * normalX + directionY * normalY;
+		double reflectedX = directionX - 2 * dot * normalX;
+		double reflectedY = directionY - 2 * dot * normalY;
+
+		// Measure it from the normal, which the new angle must stay within
+		// 90 degrees of
+		double normalAngle = Math.toDegrees(Math.atan2(-normalY, normalX));
+		double reflectedAngle = Math.toDegrees(
+				Math.atan2(-reflectedY, reflectedX)) - normalAngle;
+		reflectedAngle -= 360 * Math.floor((reflectedAngle + 180) / 360);
+		double rangeMin = Math.max(reflectedAngle - NEW_ANGLE_RANGE / 2, -90);
+		double rangeMax = Math.min(reflectedAngle + NEW_ANGLE_RANGE / 2, 90);
+
+		// The new angle is a random angle between the min and max range
+		double newAngle = normalAngle + rangeMin +
+				(rangeMax - rangeMin) * rand.nextDouble();
+		newAngle = (newAngle % 360 + 360) % 360;
+		return newAngle;
+	}
+
+
+	/**
+	 * Calculates the time it would take for a circle to travel from an initial
+	 * position to a final position at the given speed
+	 * @param fromX Initial X-coordinate
+	 * @param fromY Initial Y-coordinate
+	 * @param toX Final X-coordinate
+	 * @param toY Final Y-coordinate
+	 * @param speed Speed in pixels per second
+	 * @return The time in seconds
+	 */
+	public double time(double fromX, double fromY, double toX, double toY,
+			double speed) {
+		double distanceX = toX - fromX;
+		double distanceY = toY - fromY;
+		double distance = Math.sqrt(
+				distanceX * distanceX + distanceY * distanceY);
+		return distance / speed;
+	}
+
+
+	/**
+	 * Predicts the path of a circle over a distance, bouncing off the edges
+	 * of the scene or the walls without the randomness real bounces have, and
+	 * finds how close its center comes to a point along it. Nothing is
+	 * allocated, so it is cheap to ask about many paths.
+	 * @param fromX X-coordinate of the center of the circle
+	 * @param fromY Y-coordinate of the center of the circle
+	 * @param angle The angle of the direction of movement
+	 * @param distance How far along its path to follow the circle
+	 * @param pointX X-coordinate of the point
+	 * @param pointY Y-coordinate of the point
+	 * @return The smallest distance between the center and the point
+	 */
+	public double closestApproach(double fromX, double fromY, double angle,
+			double distance, double pointX, double pointY) {
+		double radians = Math.toRadians(angle);
+		double directionX = Math.cos(radians);
+		double directionY = -Math.sin(radians);
+		double x = fromX;
+		double y = fromY;
+		double closest = Double.POSITIVE_INFINITY;
+		for (int bounce = 0; bounce <= MAX_PREDICTED_BOUNCES; bounce++) {
+
+			// How far the circle goes before it next bounces
+			double hitX = Double.POSITIVE_INFINITY;
+			double hitY = Double.POSITIVE_INFINITY;
+			double hit;
+			if (walls != null) {
+				hit = walls.castDistance(x, y, directionX, directionY);
+			}
+			else {
+				if (directionX != 0) hitX = ((directionX > 0 ?
+						playfieldMaxX : playfieldMinX) - x) / directionX;
+				if (directionY != 0) hitY = ((directionY > 0 ?
+						playfieldMaxY : playfieldMinY) - y) / directionY;
+				hit = Math.max(0, Math.min(hitX, hitY));
+			}
+
+			// The closest point to the point along this stretch
+			double travel = Math.min(hit, distance);
+			double offsetX = pointX - x;
+			double offsetY = pointY - y;
+			double along = Math.max(0, Math.min(travel,
+					offsetX * directionX + offsetY * directionY));
+			double dx = offsetX - directionX * along;
+			double dy = offsetY - directionY * along;
+			closest = Math.min(closest, Math.sqrt(dx * dx + dy * dy));
+
+			distance -= travel;
+			if (distance <= 0) break;
+			x += directionX * travel;
+			y += directionY * travel;
+
+			// Reflect off whatever it hit
+			if (walls != null) {
+				double normalX = walls.getHitNormalX();
+				double normalY = walls.getHitNormalY();
+				double dot = directionX * normalX + directionY * normalY;
+				directionX -= 2 * dot * normalX;
+				directionY -= 2 * dot * normalY;
+			}
+			else {
+				if (hitX <= hitY) directionX = -directionX;
+				if (hitY <= hitX) directionY = -directionY;
+			}
+		}
+		return closest;
+	}
+
+
+	/**
+	 * @param rand The random number generator of the game
+	 * @return A random angle in degrees
+	 */
+	public double randomAngle(Random rand) {
+		return rand.nextDouble() * 360.0;
+	}
+
+
+	/**
+	 * @param rand The random number generator of the game
+	 * @return A random position, clear of the walls of a shaped arena
+	 */
+	public Position randomPosition(Random rand) {
+		Position position = new Position();
+		randomPosition(rand, position);
+		return position;
+	}
+
+
+	/**
+	 * Picks a random position without allocating
+	 * @param rand The random number generator of the game
+	 * @param position Set to a random position, clear of the walls of a shaped
+	 * arena
+	 */
+	public void randomPosition(Random rand, Position position) {
+		int attempts = 0;
+		do {
+			position.setX(playfieldMinX + playfieldWidth * rand.nextDouble());
+			position.setY(playfieldMinY + playfieldHeight * rand.nextDouble());
+		} while (walls != null && !isOpen(position.getX(), position.getY()) &&
+				++attempts < MAX_SPAWN_ATTEMPTS);
+		if (walls != null && !isOpen(position.getX(), position.getY()))
+			openPosition(rand, Double.NaN, Double.NaN, position);
+	}
+
+
+	/**
+	 * Picks one of the points found clear of the walls, away from the cursor
+	 * if any are
+	 * @param rand The random number generator of the game
+	 * @param cursorX The X-coordinate of the cursor, or NaN if unknown
+	 * @param cursorY The Y-coordinate of the cursor, or NaN if unknown
+	 * @param position Set to the point
+	 */
+	private void openPosition(Random rand, double cursorX, double cursorY,
+			Position position) {
+		int away = 0;
+		for (int i = 0; i < openX.length; i++) {
+			if (!nearCursor(openX[i], openY[i], cursorX, cursorY)) away++;
+		}
+		int index = rand.nextInt(away > 0 ? away : openX.length);
+		for (int i = 0; i < openX.length; i++) {
+			if (away > 0 && nearCursor(openX[i], openY[i], cursorX, cursorY))
+				continue;
+			if (index-- == 0) {
+				position.setX(openX[i]);
+				position.setY(openY[i]);
+				return;
+			}
+		}
+	}
+
+
+	/**
+	 * @return Whether a point is in the area around the cursor kept clear of
+	 * new circles, which it never is if the cursor is unknown
+	 */
+	private boolean nearCursor(double x, double y,
+			double cursorX, double cursorY) {
+		return Math.abs(x - cursorX) <= mouseBoxHalfWidth &&
+				Math.abs(y - cursorY) <= mouseBoxHalfHeight;
+	}
+
+
+	/**
+	 * Checks whether the center of a circle can be at a point: inside the
+	 * boundary, outside every pillar and not touching any wall
+	 * @param x X-coordinate of the point
+	 * @param y Y-coordinate of the point
+	 * @return Whether a circle can be there
+	 */
+	public boolean isOpen(double x, double y) {
+		if (walls == null) {
+			return x >= playfieldMinX && x <= playfieldMaxX &&
+					y >= playfieldMinY && y <= playfieldMaxY;
+		}
+		if (walls.nearWall(x, y)) return false;
+		if (!shape.hasBoundary() &&
+				(x < 0 || x > sceneWidth || y < 0 || y > sceneHeight))
+			return false;
+		for (int p = 0; p < polygonX.length; p++) {
+			if (inside(polygonX[p], polygonY[p], x, y) != shape.isBoundary(p))
+				return false;
+		}
+		return true;
+	}
+
+
+	/**
+	 * @param cornerX X-coordinates of the corners of a polygon
+	 * @param cornerY Y-coordinates of the corners of a polygon
+	 * @param x X-coordinate of a point
+	 * @param y Y-coordinate of a point
+	 * @return Whether the point is inside the polygon, counting how many of
+	 * its sides a line from the point to the right crosses
+	 */
+	private static boolean inside(double[] cornerX, double[] cornerY,
+			double x, double y) {
+		boolean inside = false;
+		for (int i = 0, j = cornerX.length - 1; i < cornerX.length; j = i++) {
+			if ((cornerY[i] > y) != (cornerY[j] > y) &&
+					x < cornerX[j] + (y - cornerY[j]) *
+					(cornerX[i] - cornerX[j]) / (cornerY[i] - cornerY[j]))
+				inside = !inside;
+		}
+		return inside;
+	}
+
+
+	/**
+	 * Picks a random whole-pixel position where the center of a circle can be
+	 * placed, excluding an area around the given cursor position. Every valid
+	 * pixel is equally likely. The pixel is found by counting rather than by
+	 * listing every valid pixel of the scene. In a shaped arena, pixels are
+	 * picked until one is clear of the walls.
+	 * @param rand The random number generator of the game
+	 * @param cursorX The X-coordinate of the cursor, or NaN if unknown
+	 * @param cursorY The Y-coordinate of the cursor, or NaN if unknown
+	 * @return A random position
+	 */
+	public Position randomPositionExcludeCursorVicinity(Random rand,
+			double cursorX, double cursorY) {
+		Position position = new Position();
+		randomPositionExcludeCursorVicinity(rand, cursorX, cursorY, position);
+		return position;
+	}
+
+
+	/**
+	 * Picks a random position excluding an area around the given cursor
+	 * position, as {@link #randomPositionExcludeCursorVicinity(Random, double,
+	 * double)} does, without allocating
+	 * @param rand The random number generator of the game
+	 * @param cursorX The X-coordinate of the cursor, or NaN if unknown
+	 * @param cursorY The Y-coordinate of the cursor, or NaN if unknown
+	 * @param position Set to the random position
+	 */
+	public void randomPositionExcludeCursorVicinity(Random rand,
+			double cursorX, double cursorY, Position position) {
+		int attempts = 0;
+		do {
+			pickPositionExcludeCursorVicinity(rand, cursorX, cursorY, position);
+		} while (walls != null && !isOpen(position.getX(), position.getY()) &&
+				++attempts < MAX_SPAWN_ATTEMPTS);
+		if (walls != null && !isOpen(position.getX(), position.getY()))
+			openPosition(rand, cursorX, cursorY, position);
+	}
+
+
+	/**
+	 * Picks a random whole-pixel position in the scene, excluding an area
+	 * around the given cursor position
+	 * @param rand The random number generator of the game
+	 * @param cursorX The X-coordinate of the cursor, or NaN if unknown
+	 * @param cursorY The Y-coordinate of the cursor, or NaN if unknown
+	 * @param position Set to the random position
+	 */
+	private void pickPositionExcludeCursorVicinity(Random rand,
+			double cursorX, double cursorY, Position position) {
+
+		// Columns and rows of pixels where the center of a circle can be placed
+		int minX = spawnMinX;
+		int minY = spawnMinY;
+		int columns = spawnColumns;
+		int rows = spawnRows;
+
+		// Columns and rows covered by the box around the cursor. If the cursor
+		// is not on the scene yet, nothing is covered.
+		int boxMinX = 0, boxMaxX = -1, boxMinY = 0, boxMaxY = -1;
+		if (!Double.isNaN(cursorX) && !Double.isNaN(cursorY)) {
+			boxMinX = Math.max(minX, (int) Math.ceil(
+					cursorX - mouseBoxHalfWidth));
+			boxMaxX = Math.min(minX + columns - 1, (int) Math.floor(
+					cursorX + mouseBoxHalfWidth));
+			boxMinY = Math.max(minY, (int) Math.ceil(
+					cursorY - mouseBoxHalfHeight));
+			boxMaxY = Math.min(minY + rows - 1, (int) Math.floor(
+					cursorY + mouseBoxHalfHeight));
+		}
+		int boxColumns = Math.max(0, boxMaxX - boxMinX + 1);
+		int boxRows = Math.max(0, boxMaxY - boxMinY + 1);
+		if (boxColumns == 0 || boxRows == 0) {
+			boxColumns = 0;
+			boxRows = 0;
+			boxMinX = minX;
+		}
+
+		// If the box covers everything, just return a random position
+		int validCount = columns * rows - boxColumns * boxRows;
+		if (validCount <= 0) {
+			randomPosition(rand, position);
+			return;
+		}
+
+		// Walk column by column to the chosen pixel: first the columns left of
+		// the box, then the columns the box cuts through, then the rest
+		int index = rand.nextInt(validCount);
+		int leftCount = (boxMinX - minX) * rows;
+		if (index < leftCount) {
+			position.setX(minX + index / rows);
+			position.setY(minY + index % rows);
+			return;
+		}
+		index -= leftCount;
+		int boxCount = boxColumns * (rows - boxRows);
+		if (index < boxCount) {
+			int rowsLeft = rows - boxRows;
+			int x = boxMinX + index / rowsLeft;
+			int row = index % rowsLeft;
+			int rowsAbove = boxMinY - minY;
+			int y = row < rowsAbove ?
+					minY + row : boxMaxY + 1 + (row - rowsAbove);
+			position.setX(x);
+			position.setY(y);
+			return;
+		}
+		index -= boxCount;
+		position.setX(boxMinX + boxColumns + index / rows);
+		position.setY(minY + index % rows);
+	}
+
+
+	/**
+	 * @param x The X-coordinate of the cursor
+	 * @param y The Y-coordinate of the cursor
+	 * @return Whether the cursor is in the corner of the scene
+	 */
+	public boolean inCorner(double x, double y) {
+		return ((x <= playfieldMinX || x >= playfieldMaxX) &&
+				(y <= playfieldMinY || y >= playfieldMaxY));
+	}
+
+
+	/**
+	 * @param x The X-coordinate of the cursor
+	 * @param y The Y-coordinate of the cursor
+	 * @return The corner the cursor is in, or null if none
+	 */
+	public Corner corner(double x, double y) {
+		Corner corner;
+		if (x <= playfieldMinX && y <= playfieldMinY) {
+			corner = Corner.TOP_LEFT;
+		}
+		else if (x >= playfieldMaxX && y <= playfieldMinY) {
+			corner = Corner.TOP_RIGHT;
+		}
+		else if (x <= playfieldMinX && y >= playfieldMaxY) {
+			corner = Corner.BOTTOM_LEFT;
+		}
+		else if (x >= playfieldMaxX && y >= playfieldMaxY) {
+			corner = Corner.BOTTOM_RIGHT;
+		}
+		else {
+			corner = null;
+		}
+		return corner;
+	}
+
+
+	/**
+	 * @param corner A corner of the scene
+	 * @return The X-coordinate of a circle sitting in the corner
+	 */
+	public double onscreenX(Corner corner) {
+		return onscreen.get(corner).getX();
+	}
+
+
+	/**
+	 * @param corner A corner of the scene
+	 * @return The Y-coordinate of a circle sitting in the corner
+	 */
+	public double onscreenY(Corner corner) {
+		return onscreen.get(corner).getY();
+	}
+
+
+	/**
+	 * @param corner A corner of the scene
+	 * @return The X-coordinate of a circle hidden just past the corner
+	 */
+	public double offscreenX(Corner corner) {
+		return offscreen.get(corner).getX();
+	}
+
+
+	/**
+	 * @param corner A corner of the scene
+	 * @return The Y-coordinate of a circle hidden just past the corner
+	 */
+	public double offscreenY(Corner corner) {
+		return offscreen.get(corner).getY();
+	}
+
+}
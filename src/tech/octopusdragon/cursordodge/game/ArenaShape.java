@@ -0,0 +1,296 @@
+package tech.octopusdragon.cursordodge.game;
+
+import java.io.BufferedReader;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The walls of an arena that is not just the rectangle of the scene: an
+ * optional boundary the circles stay inside of and any number of pillars they
+ * bounce around. Each is a polygon, with its corners given as fractions of the
+ * width and height of the scene so that the same shape fits any size of
+ * window. Without a boundary, the edges of the scene are the boundary.
+ * <p>
+ * Shapes are read from a text file. Each polygon starts with a line saying
+ * {@code boundary} or {@code pillar}, followed by one line per corner with
+ * the X and Y fractions separated by spaces. Blank lines and lines starting
+ * with {@code #} are skipped. For example:
+ * <pre>
+ * # A pillar in the middle
+ * pillar
+ * 0.45 0.4
+ * 0.55 0.4
+ * 0.55 0.6
+ * 0.45 0.6
+ * </pre>
+ * A shape never changes once read.
+ * @author Alex Gill
+ *
+ */
+public class ArenaShape {
+
+	// --- Constants ---
+	// Keywords that start each polygon in a file
+	private static final String BOUNDARY = "boundary";
+	private static final String PILLAR = "pillar";
+	// Fewest corners a polygon can have
+	private static final int MIN_CORNERS = 3;
+
+	// --- Variables ---
+	private String name;			// Where the shape was read from
+	private boolean[] boundary;		// Whether each polygon is the boundary
+	private double[][] x;			// X fractions of the corners of each
+	private double[][] y;			// Y fractions of the corners of each
+
+
+	/**
+	 * Constructs a shape
+	 * @param name Where the shape was read from
+	 * @param boundary Whether each polygon is the boundary
+	 * @param x X fractions of the corners of each polygon
+	 * @param y Y fractions of the corners of each polygon
+	 */
+	private ArenaShape(String name, boolean[] boundary, double[][] x,
+			double[][] y) {
+		this.name = name;
+		this.boundary = boundary;
+		this.x = x;
+		this.y = y;
+	}
+
+
+	/**
+	 * Reads a shape from a file, or if there is no such file, from a resource
+	 * of the game with that path
+	 * @param path Path of the file or resource
+	 * @return The shape
+	 * @throws IOException If the shape could not be found or read
+	 */
+	public static ArenaShape load(String path) throws IOException {
+		File file = new File(path);
+		InputStream in = file.isFile() ? new FileInputStream(file) :
+				ArenaShape.class.getClassLoader().getResourceAsStream(path);
+		if (in == null) throw new IOException("No arena file " + path);
+		try {
+			return read(path, in);
+		} finally {
+			in.close();
+		}
+	}
+
+
+	/**
+	 * Reads a shape from a text file
+	 * @param name Where the shape is read from, for error messages
+	 * @param in The text of the file
+	 * @return The shape
+	 * @throws IOException If the shape could not be read or is not valid
+	 */
+	public static ArenaShape read(String name, InputStream in)
+			throws IOException {
+		BufferedReader reader = new BufferedReader(
+				new InputStreamReader(in, StandardCharsets.UTF_8));
+		List<Boolean> boundaries = new ArrayList<Boolean>();
+		List<double[]> xs = new ArrayList<double[]>();
+		List<double[]> ys = new ArrayList<double[]>();
+		List<Double> cornerX = new ArrayList<Double>();
+		List<Double> cornerY = new ArrayList<Double>();
+		String line;
+		int lineNumber = 0;
+		while (true) {
+			line = reader.readLine();
+			lineNumber++;
+			String text = line == null ? null : line.trim();
+			if (text != null && (text.isEmpty() || text.startsWith("#")))
+				continue;
+
+			// A keyword or the end of the file finishes the last polygon
+			if (text == null || text.equals(BOUNDARY) || text.equals(PILLAR)) {
+				if (!boundaries.isEmpty()) {
+					if (cornerX.size() < MIN_CORNERS)
+						throw error(name, lineNumber,
+								"a polygon needs at least " + MIN_CORNERS +
+								" corners");
+					xs.add(toArray(cornerX));
+					ys.add(toArray(cornerY));
+					cornerX.clear();
+					cornerY.clear();
+				}
+				if (text == null) break;
+				boolean isBoundary = text.equals(BOUNDARY);
+				if (isBoundary && boundaries.contains(Boolean.TRUE))
+					throw error(name, lineNumber, "more than one boundary");
+				boundaries.add(isBoundary);
+				continue;
+			}
+
+			if (boundaries.isEmpty())
+				throw error(name, lineNumber,
+						"expected " + BOUNDARY + " or " + PILLAR);
+			String[] parts = text.split("\\s+");
+			if (parts.length != 2)
+				throw error(name, lineNumber, "expected X and Y");
+			try {
+				cornerX.add(Double.parseDouble(parts[0]));
+				cornerY.add(Double.parseDouble(parts[1]));
+			} catch (NumberFormatException e) {
+				throw error(name, lineNumber, "invalid number");
+			}
+		}
+		if (boundaries.isEmpty())
+			throw new IOException("Invalid arena file " + name + ": empty");
+
+		boolean[] boundary = new boolean[boundaries.size()];
+		for (int i = 0; i < boundary.length; i++) {
+			boundary[i] = boundaries.get(i);
+		}
+		return new ArenaShape(name, boundary,
+				xs.toArray(new double[xs.size()][]),
+				ys.toArray(new double[ys.size()][]));
+	}
+
+
+	/**
+	 * @return An exception for a line of a file that is not valid
+	 */
+	private static IOException error(String name, int lineNumber,
+			String message) {
+		return new IOException(String.format(
+				"Invalid arena file %s: line %d: %s",
+				name, lineNumber, message));
+	}
+
+
+	/**
+	 * @return The numbers of a list in an array
+	 */
+	private static double[] toArray(List<Double> list) {
+		double[] array = new double[list.size()];
+		for (int i = 0; i < array.length; i++) {
+			array[i] = list.get(i);
+		}
+		return array;
+	}
+
+
+	/**
+	 * Writes the shape in binary, as it is kept in a replay
+	 * @param out The stream
+	 * @throws IOException If the shape could not be written
+	 */
+	public void write(DataOutputStream out) throws IOException {
+		out.writeUTF(name);
+		out.writeInt(boundary.length);
+		for (int p = 0; p < boundary.length; p++) {
+			out.writeBoolean(boundary[p]);
+			out.writeInt(x[p].length);
+			for (int i = 0; i < x[p].length; i++) {
+				out.writeDouble(x[p][i]);
+				out.writeDouble(y[p][i]);
+			}
+		}
+	}
+
+
+	/**
+	 * Reads a shape written by {@link #write(DataOutputStream)}
+	 * @param in The stream
+	 * @return The shape
+	 * @throws IOException If the shape could not be read
+	 */
+	public static ArenaShape read(DataInputStream in) throws IOException {
+		String name = in.readUTF();
+		int count = in.readInt();
+		if (count < 1) throw new IOException("Arena has no polygons");
+		boolean[] boundary = new boolean[count];
+		double[][] x = new double[count][];
+		double[][] y = new double[count][];
+		for (int p = 0; p < count; p++) {
+			boundary[p] = in.readBoolean();
+			int corners = in.readInt();
+			if (corners < MIN_CORNERS)
+				throw new IOException("Arena polygon has too few corners");
+			x[p] = new double[corners];
+			y[p] = new double[corners];
+			for (int i = 0; i < corners; i++) {
+				x[p][i] = in.readDouble();
+				y[p][i] = in.readDouble();
+			}
+		}
+		return new ArenaShape(name, boundary, x, y);
+	}
+
+
+	/**
+	 * @return Where the shape was read from
+	 */
+	public String getName() {
+		return name;
+	}
+
+
+	/**
+	 * @return Number of polygons
+	 */
+	public int getPolygonCount() {
+		return boundary.length;
+	}
+
+
+	/**
+	 * @param polygon Index of a polygon
+	 * @return Whether the polygon is the boundary rather than a pillar
+	 */
+	public boolean isBoundary(int polygon) {
+		return boundary[polygon];
+	}
+
+
+	/**
+	 * @return Whether one of the polygons is the boundary
+	 */
+	public boolean hasBoundary() {
+		for (int p = 0; p < boundary.length; p++) {
+			if (boundary[p]) return true;
+		}
+		return false;
+	}
+
+
+	/**
+	 * @param polygon Index of a polygon
+	 * @return Number of corners of the polygon
+	 */
+	public int getCornerCount(int polygon) {
+		return x[polygon].length;
+	}
+
+
+	/**
+	 * @param polygon Index of a polygon
+	 * @param corner Index of a corner of the polygon
+	 * @return X-coordinate of the corner as a fraction of the scene width
+	 */
+	public double getX(int polygon, int corner) {
+		return x[polygon][corner];
+	}
+
+
+	/**
+	 * @param polygon Index of a polygon
+	 * @param corner Index of a corner of the polygon
+	 * @return Y-coordinate of the corner as a fraction of the scene height
+	 */
+	public double getY(int polygon, int corner) {
+		return y[polygon][corner];
+	}
+
+}
@@ -0,0 +1,352 @@
+package tech.octopusdragon.cursordodge.game;
+
+import java.util.Arrays;
+
+import javafx.scene.canvas.Canvas;
+import javafx.scene.canvas.GraphicsContext;
+import javafx.scene.image.Image;
+import javafx.scene.transform.Scale;
+
+/**
+ * A canvas the circles of the game are drawn on, which only draws again the
+ * parts of itself that changed since the last frame. The circles to show are
+ * added one at a time every frame, back to front, between {@link #begin()}
+ * and {@link #draw()}. Each circle is compared with the one added at the same
+ * place in the last frame, and if it moved, faded or changed kind, the box
+ * around where it was and where it is now is damaged. Only the damaged boxes
+ * are cleared and have the circles over them drawn again, clipped to the box,
+ * so the cost of a frame grows with the number of circles that moved instead
+ * of the size of the window.
+ * <p>
+ * If the damage covers more than {@value #FULL_REDRAW_AREA} of the canvas or
+ * is split into more than {@value #MAX_DAMAGE} boxes, the whole canvas is
+ * drawn again instead, as that is cheaper by then. So is it after the canvas
+ * or circles are resized, or {@link #redrawAll()} is called.
+ * <p>
+ * The canvas can have fewer pixels than the scene it covers, which are
+ * stretched over the scene, so that there is less to clear and draw each
+ * frame. Circles are still added at their places in the scene.
+ * @author Alex Gill
+ *
+ */
+public class CircleCanvas extends Canvas {
+
+	// --- Constants ---
+	// Fraction of the canvas that can be damaged before all of it is drawn
+	private static final double FULL_REDRAW_AREA = 0.5;
+	// Most damaged boxes drawn one at a time before all of it is drawn
+	private static final int MAX_DAMAGE = 64;
+	// Pixels kept around each circle for its antialiased edge
+	private static final double EDGE = 1.0;
+	// Circles there is room for before the arrays have to grow
+	private static final int INITIAL_CAPACITY = 32;
+
+	// --- Variables ---
+	private GraphicsContext graphics;	// Draws on the canvas
+	private Scale stretch;				// Stretches the pixels over the scene
+	private double sceneWidth;			// Width of the scene covered
+	private double sceneHeight;			// Height of the scene covered
+	private double resolution = 1.0;	// Pixels per unit of the scene
+	private double sceneRadius;			// Radius of the circles in the scene
+	private double radius;				// Radius of the circles in pixels
+	private double renderScale;			// Pixels per unit of the images
+	private boolean redrawAll = true;	// Whether all of it has to be drawn
+	// Circles drawn in the last frame
+	private int drawnCount;
+	private double[] drawnX = new double[INITIAL_CAPACITY];
+	private double[] drawnY = new double[INITIAL_CAPACITY];
+	private double[] drawnOpacity = new double[INITIAL_CAPACITY];
+	private Image[] drawnImage = new Image[INITIAL_CAPACITY];
+	// Circles added this frame
+	private int count;
+	private double[] x = new double[INITIAL_CAPACITY];
+	private double[] y = new double[INITIAL_CAPACITY];
+	private double[] opacity = new double[INITIAL_CAPACITY];
+	private Image[] image = new Image[INITIAL_CAPACITY];
+	// Boxes damaged this frame
+	private int damageCount;
+	private double damageArea;
+	private double[] damageMinX = new double[MAX_DAMAGE];
+	private double[] damageMinY = new double[MAX_DAMAGE];
+	private double[] damageMaxX = new double[MAX_DAMAGE];
+	private double[] damageMaxY = new double[MAX_DAMAGE];
+	// What was drawn over every frame so far
+	private long fullRedraws;		// Frames all of the canvas was drawn
+	private long partialRedraws;	// Frames only the damage was drawn
+	private long damagedBoxes;		// Boxes drawn in those frames
+
+
+	/**
+	 * Constructs an empty canvas
+	 */
+	public CircleCanvas() {
+		super();
+		graphics = getGraphicsContext2D();
+		setMouseTransparent(true);
+		stretch = new Scale(1.0, 1.0, 0.0, 0.0);
+		getTransforms().add(stretch);
+		widthProperty().addListener(observable -> redrawAll());
+		heightProperty().addListener(observable -> redrawAll());
+	}
+
+
+	/**
+	 * Changes the size of the scene the canvas covers, drawing all of the
+	 * canvas in the next frame
+	 * @param width Width of the scene
+	 * @param height Height of the scene
+	 */
+	public void setSceneSize(double width, double height) {
+		sceneWidth = width;
+		sceneHeight = height;
+		resize();
+	}
+
+
+	/**
+	 * Changes how many pixels the canvas has for each unit of the scene,
+	 * drawing all of the canvas in the next frame
+	 * @param resolution Pixels per unit of the scene
+	 */
+	public void setResolution(double resolution) {
+		if (resolution == this.resolution) return;
+		this.resolution = resolution;
+		resize();
+	}
+
+
+	/**
+	 * Changes the size of the circles, drawing all of the canvas in the next
+	 * frame
+	 * @param radius Radius of the circles in the scene
+	 * @param renderScale Pixels per unit of the images of the circles
+	 */
+	public void setCircleSize(double radius, double renderScale) {
+		sceneRadius = radius;
+		this.radius = radius * resolution;
+		this.renderScale = renderScale;
+		redrawAll();
+	}
+
+
+	/**
+	 * Gives the canvas as many pixels as the scene and resolution need and
+	 * stretches them over the scene
+	 */
+	private void resize() {
+		setWidth(Math.ceil(sceneWidth * resolution));
+		setHeight(Math.ceil(sceneHeight * resolution));
+		stretch.setX(1.0 / resolution);
+		stretch.setY(1.0 / resolution);
+		radius = sceneRadius * resolution;
+		redrawAll();
+	}
+
+
+	/**
+	 * Draws all of the canvas in the next frame
+	 */
+	public void redrawAll() {
+		redrawAll = true;
+	}
+
+
+	/**
+	 * Starts adding the circles of a frame
+	 */
+	public void begin() {
+		count = 0;
+	}
+
+
+	/**
+	 * Adds a circle to the frame, in front of the circles added before it
+	 * @param sprite The image of the kind of circle
+	 * @param centerX X-coordinate of the center of the circle
+	 * @param centerY Y-coordinate of the center of the circle
+	 * @param alpha Opacity of the circle
+	 */
+	public void add(CircleSprite sprite, double centerX, double centerY,
+			double alpha) {
+		if (count == x.length) {
+			int capacity = x.length * 2;
+			x = Arrays.copyOf(x, capacity);
+			y = Arrays.copyOf(y, capacity);
+			opacity = Arrays.copyOf(opacity, capacity);
+			image = Arrays.copyOf(image, capacity);
+		}
+		x[count] = centerX * resolution;
+		y[count] = centerY * resolution;
+		opacity[count] = alpha;
+		image[count] = sprite.getImage(sceneRadius, renderScale);
+		count++;
+	}
+
+
+	/**
+	 * Draws the circles added since {@link #begin()} over the ones of the last
+	 * frame, drawing only what changed if it can
+	 */
+	public void draw() {
+		if (!redrawAll) findDamage();
+
+		if (redrawAll) {
+			graphics.clearRect(0, 0, getWidth(), getHeight());
+			for (int i = 0; i < count; i++) {
+				drawCircle(i);
+			}
+			fullRedraws++;
+		}
+		else {
+			for (int d = 0; d < damageCount; d++) {
+				drawDamage(d);
+			}
+			partialRedraws++;
+			damagedBoxes += damageCount;
+		}
+		redrawAll = false;
+
+		// The circles of this frame are the ones drawn last from now on
+		double[] swapX = drawnX;
+		double[] swapY = drawnY;
+		double[] swapOpacity = drawnOpacity;
+		Image[] swapImage = drawnImage;
+		drawnX = x;
+		drawnY = y;
+		drawnOpacity = opacity;
+		drawnImage = image;
+		drawnCount = count;
+		x = swapX;
+		y = swapY;
+		opacity = swapOpacity;
+		image = swapImage;
+		if (x.length < drawnX.length) {
+			x = new double[drawnX.length];
+			y = new double[drawnX.length];
+			opacity = new double[drawnX.length];
+			image = new Image[drawnX.length];
+		}
+		count = 0;
+	}
+
+
+	/**
+	 * Damages the boxes around every circle that changed since the last frame,
+	 * giving up and drawing all of the canvas if there is too much damage
+	 */
+	private void findDamage() {
+		damageCount = 0;
+		damageArea = 0;
+		double maxArea = FULL_REDRAW_AREA * getWidth() * getHeight();
+		int slots = Math.max(count, drawnCount);
+		for (int i = 0; i < slots; i++) {
+			boolean was = i < drawnCount;
+			boolean is = i < count;
+			if (was && is && drawnX[i] == x[i] && drawnY[i] == y[i] &&
+					drawnOpacity[i] == opacity[i] &&
+					drawnImage[i] == image[i])
+				continue;
+
+			// The box around where the circle was and where it is now
+			double minX = Double.POSITIVE_INFINITY;
+			double minY = Double.POSITIVE_INFINITY;
+			double maxX = Double.NEGATIVE_INFINITY;
+			double maxY = Double.NEGATIVE_INFINITY;
+			if (was) {
+				minX = drawnX[i];
+				minY = drawnY[i];
+				maxX = drawnX[i];
+				maxY = drawnY[i];
+			}
+			if (is) {
+				minX = Math.min(minX, x[i]);
+				minY = Math.min(minY, y[i]);
+				maxX = Math.max(maxX, x[i]);
+				maxY = Math.max(maxY, y[i]);
+			}
+			minX = Math.max(0, Math.floor(minX - radius - EDGE));
+			minY = Math.max(0, Math.floor(minY - radius - EDGE));
+			maxX = Math.min(getWidth(), Math.ceil(maxX + radius + EDGE));
+			maxY = Math.min(getHeight(), Math.ceil(maxY + radius + EDGE));
+			if (maxX <= minX || maxY <= minY) continue;
+
+			if (damageCount == MAX_DAMAGE) {
+				redrawAll = true;
+				return;
+			}
+			damageMinX[damageCount] = minX;
+			damageMinY[damageCount] = minY;
+			damageMaxX[damageCount] = maxX;
+			damageMaxY[damageCount] = maxY;
+			damageCount++;
+			damageArea += (maxX - minX) * (maxY - minY);
+			if (damageArea > maxArea) {
+				redrawAll = true;
+				return;
+			}
+		}
+	}
+
+
+	/**
+	 * Clears a damaged box and draws again the circles over it, clipped to it
+	 * so that no circle is drawn twice over itself
+	 * @param d Index of the box
+	 */
+	private void drawDamage(int d) {
+		double minX = damageMinX[d];
+		double minY = damageMinY[d];
+		double maxX = damageMaxX[d];
+		double maxY = damageMaxY[d];
+		graphics.save();
+		graphics.beginPath();
+		graphics.rect(minX, minY, maxX - minX, maxY - minY);
+		graphics.clip();
+		graphics.clearRect(minX, minY, maxX - minX, maxY - minY);
+		double reach = radius + EDGE;
+		for (int i = 0; i < count; i++) {
+			if (x[i] + reach > minX && x[i] - reach < maxX &&
+					y[i] + reach > minY && y[i] - reach < maxY)
+				drawCircle(i);
+		}
+		graphics.restore();
+	}
+
+
+	/**
+	 * Draws a circle added this frame
+	 * @param i Index of the circle
+	 */
+	private void drawCircle(int i) {
+		graphics.setGlobalAlpha(opacity[i]);
+		graphics.drawImage(image[i], x[i] - radius, y[i] - radius,
+				2 * radius, 2 * radius);
+		graphics.setGlobalAlpha(1.0);
+	}
+
+
+	/**
+	 * @return Number of frames all of the canvas was drawn in
+	 */
+	public long getFullRedraws() {
+		return fullRedraws;
+	}
+
+
+	/**
+	 * @return Number of frames only the damaged boxes were drawn in
+	 */
+	public long getPartialRedraws() {
+		return partialRedraws;
+	}
+
+
+	/**
+	 * @return Number of damaged boxes drawn in the frames only they were drawn
+	 * in
+	 */
+	public long getDamagedBoxes() {
+		return damagedBoxes;
+	}
+
+}
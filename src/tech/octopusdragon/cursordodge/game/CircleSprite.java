@@ -0,0 +1,69 @@
+package tech.octopusdragon.cursordodge.game;
+
+import javafx.scene.SnapshotParameters;
+import javafx.scene.image.Image;
+import javafx.scene.image.WritableImage;
+import javafx.scene.paint.Color;
+import javafx.scene.paint.Paint;
+import javafx.scene.shape.Circle;
+import javafx.scene.transform.Scale;
+
+/**
+ * An image of a circle of one paint, rasterized once so that drawing a circle
+ * only has to copy the image instead of filling the shape again. The image is
+ * only rasterized again when the radius or the render scale changes. It must
+ * be used on the application thread.
+ * @author Alex Gill
+ *
+ */
+public class CircleSprite {
+
+	// --- Variables ---
+	private Paint paint;			// Paint of the circle
+	private double radius;			// Radius the image was rasterized at
+	private double renderScale;		// Pixels per unit the image has
+	private WritableImage image;	// The rasterized circle
+
+
+	/**
+	 * Constructs a sprite that has not been rasterized yet
+	 * @param paint The paint of the circle
+	 */
+	public CircleSprite(Paint paint) {
+		this.paint = paint;
+	}
+
+
+	/**
+	 * Gets the image of the circle, rasterizing it if the radius or render
+	 * scale is not the one it was last rasterized at
+	 * @param radius Radius of the circle
+	 * @param renderScale Pixels per unit of the image
+	 * @return The image, 2 * radius * renderScale pixels across
+	 */
+	public Image getImage(double radius, double renderScale) {
+		if (isStale(radius, renderScale)) {
+			this.radius = radius;
+			this.renderScale = renderScale;
+			Circle circle = new Circle(radius, radius, radius, paint);
+			SnapshotParameters parameters = new SnapshotParameters();
+			parameters.setFill(Color.TRANSPARENT);
+			parameters.setTransform(new Scale(renderScale, renderScale));
+			image = circle.snapshot(parameters, null);
+		}
+		return image;
+	}
+
+
+	/**
+	 * @param radius Radius of the circle
+	 * @param renderScale Pixels per unit of the image
+	 * @return Whether the image has to be rasterized again for the radius and
+	 * render scale
+	 */
+	public boolean isStale(double radius, double renderScale) {
+		return image == null || radius != this.radius ||
+				renderScale != this.renderScale;
+	}
+
+}
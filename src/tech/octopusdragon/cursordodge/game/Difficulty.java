@@ -0,0 +1,274 @@
+package tech.octopusdragon.cursordodge.game;
+
+/**
+ * The values that decide how hard a game is: how fast and how often circles
+ * appear and how long the player has to react to them. A new difficulty has
+ * the values the game is played with.
+ * @author Alex Gill
+ *
+ */
+public class Difficulty {
+
+	// --- Constants ---
+	// Initial speed of obstacle circles in pixels per second
+	public static final double OBSTACLE_CIRCLE_INITIAL_SPEED = 100.0;
+	// Acceleration of obstacle circles in pixels per second squared
+	public static final double OBSTACLE_CIRCLE_ACCELERATION = 2;
+	// Interval in seconds after which a new obstacle circle will be added
+	public static final double OBSTACLE_CIRCLE_INITIAL_INTERVAL = 7.5;
+	// Amount in seconds that will be added to the obstacle circle interval
+	// after every appearance
+	public static final double OBSTACLE_CIRCLE_INTERVAL_ADDER = 5.0;
+	// Delay after which circles the user must grab will start being added
+	public static final double CATCH_CIRCLE_DELAY = 22.5;
+	// Interval in seconds after which a new circle the player must grab will be
+	// added
+	public static final double CATCH_CIRCLE_INTERVAL = 15.0;
+	// Duration for which circles the user must grab will fade and after which,
+	// if the user does not catch, will end the game
+	public static final double CATCH_CIRCLE_INITIAL_DURATION = 5.0;
+	// Value catch circle duration will be multiplied by after every time one
+	// appears
+	public static final double CATCH_CIRCLE_DURATION_MULTIPLIER = 0.95;
+	// Interval in seconds after which corner obstacle circles will pop up
+	public static final double CORNER_CIRCLE_INTERVAL = 2.0;
+	// Duration of the enter and exit animations of the corner obstacle circle
+	public static final double CORNER_CIRCLE_ANIMATION_DURATION = 0.15;
+	// Duration corner obstacles will stay on screen
+	public static final double CORNER_CIRCLE_DURATION = 0.15;
+	// The chance of a corner circle appearing in the same corner as the user
+	public static final double CORNER_CIRCLE_SAME_CIRCLE_CHANCE = 0.5;
+	// Most obstacle circles on screen at once; no more are added after that
+	public static final double OBSTACLE_CIRCLE_LIMIT = Double.POSITIVE_INFINITY;
+	// Whether obstacle circles bounce off each other: 1 if they do, 0 if they
+	// pass through each other
+	public static final double OBSTACLE_CIRCLE_COLLISIONS = 0.0;
+	// Seconds ahead the path of a new obstacle circle is predicted to keep it
+	// from heading straight at the cursor, or 0 to not predict it
+	public static final double SPAWN_PREDICTION_TIME = 1.0;
+	// How close in circle radii the edge of a new obstacle circle may come to
+	// the cursor along its predicted path
+	public static final double SPAWN_SAFETY_MARGIN = 3.0;
+	// Names of the values, as accepted by set
+	public static final String[] NAMES = {
+		"OBSTACLE_CIRCLE_INITIAL_SPEED",
+		"OBSTACLE_CIRCLE_ACCELERATION",
+		"OBSTACLE_CIRCLE_INITIAL_INTERVAL",
+		"OBSTACLE_CIRCLE_INTERVAL_ADDER",
+		"CATCH_CIRCLE_DELAY",
+		"CATCH_CIRCLE_INTERVAL",
+		"CATCH_CIRCLE_INITIAL_DURATION",
+		"CATCH_CIRCLE_DURATION_MULTIPLIER",
+		"CORNER_CIRCLE_INTERVAL",
+		"CORNER_CIRCLE_ANIMATION_DURATION",
+		"CORNER_CIRCLE_DURATION",
+		"CORNER_CIRCLE_SAME_CIRCLE_CHANCE",
+		"OBSTACLE_CIRCLE_LIMIT",
+		"OBSTACLE_CIRCLE_COLLISIONS",
+		"SPAWN_PREDICTION_TIME",
+		"SPAWN_SAFETY_MARGIN"
+	};
+
+	// --- Variables ---
+	private double[] values;	// The values, in the order of the names
+
+
+	/**
+	 * Constructs the difficulty the game is played with
+	 */
+	public Difficulty() {
+		values = new double[] {
+			OBSTACLE_CIRCLE_INITIAL_SPEED,
+			OBSTACLE_CIRCLE_ACCELERATION,
+			OBSTACLE_CIRCLE_INITIAL_INTERVAL,
+			OBSTACLE_CIRCLE_INTERVAL_ADDER,
+			CATCH_CIRCLE_DELAY,
+			CATCH_CIRCLE_INTERVAL,
+			CATCH_CIRCLE_INITIAL_DURATION,
+			CATCH_CIRCLE_DURATION_MULTIPLIER,
+			CORNER_CIRCLE_INTERVAL,
+			CORNER_CIRCLE_ANIMATION_DURATION,
+			CORNER_CIRCLE_DURATION,
+			CORNER_CIRCLE_SAME_CIRCLE_CHANCE,
+			OBSTACLE_CIRCLE_LIMIT,
+			OBSTACLE_CIRCLE_COLLISIONS,
+			SPAWN_PREDICTION_TIME,
+			SPAWN_SAFETY_MARGIN
+		};
+	}
+
+
+	/**
+	 * Constructs a copy of a difficulty
+	 * @param other The difficulty to copy
+	 */
+	public Difficulty(Difficulty other) {
+		values = other.values.clone();
+	}
+
+
+	/**
+	 * Changes one of the values
+	 * @param name The name of the value, one of {@link #NAMES}
+	 * @param value The new value
+	 * @throws IllegalArgumentException If there is no value with the name
+	 */
+	public void set(String name, double value)
+			throws IllegalArgumentException {
+		values[indexOf(name)] = value;
+	}
+
+
+	/**
+	 * @param name The name of the value, one of {@link #NAMES}
+	 * @return The value
+	 * @throws IllegalArgumentException If there is no value with the name
+	 */
+	public double get(String name) throws IllegalArgumentException {
+		return values[indexOf(name)];
+	}
+
+
+	/**
+	 * @return Initial speed of obstacle circles in pixels per second
+	 */
+	public double getObstacleCircleInitialSpeed() {
+		return values[0];
+	}
+
+	/**
+	 * @return Acceleration of obstacle circles in pixels per second squared
+	 */
+	public double getObstacleCircleAcceleration() {
+		return values[1];
+	}
+
+	/**
+	 * @return Interval in seconds after which the first new obstacle circle
+	 * will be added
+	 */
+	public double getObstacleCircleInitialInterval() {
+		return values[2];
+	}
+
+	/**
+	 * @return Amount in seconds that will be added to the obstacle circle
+	 * interval after every appearance
+	 */
+	public double getObstacleCircleIntervalAdder() {
+		return values[3];
+	}
+
+	/**
+	 * @return Delay after which catch circles will start being added
+	 */
+	public double getCatchCircleDelay() {
+		return values[4];
+	}
+
+	/**
+	 * @return Interval in seconds after which a new catch circle will be added
+	 */
+	public double getCatchCircleInterval() {
+		return values[5];
+	}
+
+	/**
+	 * @return Duration over which the first catch circles will fade
+	 */
+	public double getCatchCircleInitialDuration() {
+		return values[6];
+	}
+
+	/**
+	 * @return Value catch circle duration will be multiplied by after every
+	 * time one appears
+	 */
+	public double getCatchCircleDurationMultiplier() {
+		return values[7];
+	}
+
+	/**
+	 * @return Interval in seconds after which corner circles will pop up
+	 */
+	public double getCornerCircleInterval() {
+		return values[8];
+	}
+
+	/**
+	 * @return Duration of the enter and exit animations of corner circles
+	 */
+	public double getCornerCircleAnimationDuration() {
+		return values[9];
+	}
+
+	/**
+	 * @return Duration corner circles will stay on screen
+	 */
+	public double getCornerCircleDuration() {
+		return values[10];
+	}
+
+	/**
+	 * @return The chance of a corner circle appearing in the same corner as
+	 * the cursor
+	 */
+	public double getCornerCircleSameCornerChance() {
+		return values[11];
+	}
+
+	/**
+	 * @return Most obstacle circles on screen at once
+	 */
+	public double getObstacleCircleLimit() {
+		return values[12];
+	}
+
+	/**
+	 * @return Whether obstacle circles bounce off each other
+	 */
+	public boolean hasObstacleCircleCollisions() {
+		return values[13] != 0.0;
+	}
+
+	/**
+	 * @return Seconds ahead the path of a new obstacle circle is predicted, or
+	 * 0 if it is not
+	 */
+	public double getSpawnPredictionTime() {
+		return values[14];
+	}
+
+	/**
+	 * @return How close in circle radii the edge of a new obstacle circle may
+	 * come to the cursor along its predicted path
+	 */
+	public double getSpawnSafetyMargin() {
+		return values[15];
+	}
+
+
+	/**
+	 * @param name The name of a value
+	 * @return The index of the value
+	 * @throws IllegalArgumentException If there is no value with the name
+	 */
+	private static int indexOf(String name) throws IllegalArgumentException {
+		for (int i = 0; i < NAMES.length; i++) {
+			if (NAMES[i].equals(name)) return i;
+		}
+		throw new IllegalArgumentException("No difficulty value " + name);
+	}
+
+
+	@Override
+	public String toString() {
+		StringBuilder sb = new StringBuilder();
+		for (int i = 0; i < NAMES.length; i++) {
+			if (i > 0) sb.append(", ");
+			sb.append(String.format("%s=%s", NAMES[i], values[i]));
+		}
+		return sb.toString();
+	}
+
+}
@@ -1,48 +1,48 @@
 package tech.octopusdragon.cursordodge.game;
 
-import java.util.ArrayList;
-import java.util.Arrays;
-import java.util.HashMap;
-import java.util.List;
-import java.util.Map;
+import java.io.File;
+import java.io.IOException;
 import java.util.Random;
 
 import tech.octopusdragon.cursordodge.application.CursorDodgeApplication;
-import tech.octopusdragon.cursordodge.game.classes.CollisionPoint;
-import tech.octopusdragon.cursordodge.game.classes.Corner;
-import tech.octopusdragon.cursordodge.game.classes.Edge;
+import tech.octopusdragon.cursordodge.data.DataFiles;
+import tech.octopusdragon.cursordodge.diagnostics.CountedBooleanProperty;
+import tech.octopusdragon.cursordodge.diagnostics.CountedObjectProperty;
+import tech.octopusdragon.cursordodge.diagnostics.FrameProfile;
+import tech.octopusdragon.cursordodge.diagnostics.GameOverEvent;
+import tech.octopusdragon.cursordodge.diagnostics.InputLatency;
+import tech.octopusdragon.cursordodge.game.classes.CatchCircles;
+import tech.octopusdragon.cursordodge.game.classes.CornerCircles;
 import tech.octopusdragon.cursordodge.game.classes.GameOverReason;
+import tech.octopusdragon.cursordodge.game.classes.ObstacleCircles;
 import tech.octopusdragon.cursordodge.game.classes.Position;
+import tech.octopusdragon.cursordodge.game.classes.Quality;
+import tech.octopusdragon.cursordodge.replay.Replay;
+import tech.octopusdragon.cursordodge.spectator.SpectatorPublisher;
+import tech.octopusdragon.cursordodge.telemetry.TelemetryRecorder;
 
-import javafx.animation.Animation;
-import javafx.animation.FadeTransition;
-import javafx.animation.Interpolator;
+import javafx.animation.AnimationTimer;
 import javafx.animation.KeyFrame;
-import javafx.animation.PauseTransition;
-import javafx.animation.SequentialTransition;
 import javafx.animation.Timeline;
-import javafx.animation.TranslateTransition;
 import javafx.application.Platform;
+import javafx.beans.InvalidationListener;
+import javafx.beans.Observable;
 import javafx.beans.binding.Bindings;
 import javafx.beans.property.BooleanProperty;
-import javafx.beans.property.DoubleProperty;
-import javafx.beans.property.ObjectProperty;
 import javafx.beans.property.SimpleBooleanProperty;
-import javafx.beans.property.SimpleDoubleProperty;
-import javafx.beans.property.SimpleObjectProperty;
 import javafx.beans.value.ChangeListener;
 import javafx.beans.value.ObservableValue;
-import javafx.event.ActionEvent;
 import javafx.event.EventHandler;
 import javafx.geometry.Rectangle2D;
 import javafx.scene.Scene;
 import javafx.scene.control.Label;
 import javafx.scene.input.MouseEvent;
 import javafx.scene.layout.Pane;
-import javafx.scene.paint.Color;
-import javafx.scene.paint.Paint;
-import javafx.scene.shape.Ellipse;
-import javafx.stage.Screen;
+import javafx.scene.shape.ClosePath;
+import javafx.scene.shape.FillRule;
+import javafx.scene.shape.LineTo;
+import javafx.scene.shape.MoveTo;
+import javafx.scene.shape.Path;
 import javafx.stage.Stage;
 import javafx.stage.Window;
 import javafx.util.Duration;
@@ -50,52 +50,42 @@ import javafx.util.Duration;
 public class Game extends Pane {
 	
 	// --- Constants ---
-	// Size of circles as percent of scene size
-	private static final double CIRCLE_SIZE = 0.001;
-	// The area around the cursor as a percent of scene size inside which
-	// circles will not appear
-	private static final double MOUSE_BOX_SIZE = 0.5;
-	// Circles will bounce in the direction of the new angle +/- a random number
-	// in this range divided by two
-	private static final double NEW_ANGLE_RANGE = 22.5;
 	// The number from which to count down
 	private static final int COUNTDOWN_FROM = 3;
 	// Duration in seconds of each count
 	private static final double COUNTDOWN_DURATION = 0.5;
-	// Paint of the obstacle circles
-	private static final Paint OBSTACLE_CIRCLE_PAINT = Color.RED;
-	// Initial speed of obstacle circles in pixels per second
-	private static final double OBSTACLE_CIRCLE_INITIAL_SPEED = 100.0;
-	// Acceleration of obstacle circles in pixels per second squared
-	private static final double OBSTACLE_CIRCLE_ACCELERATION = 2;
-	// Interval in seconds after which a new obstacle circle will be added
-	private static final double OBSTACLE_CIRCLE_INITIAL_INTERVAL = 7.5;
-	// Amount in seconds that will be added to the obstacle circle interval
-	// after every appearance
-	private static final double OBSTACLE_CIRCLE_INTERVAL_ADDER = 5.0;
-	// Paint of the circles the player must grab
-	private static final Paint CATCH_CIRCLE_PAINT = Color.BLUE;
-	// Delay after which circles the user must grab will start being added
-	private static final double CATCH_CIRCLE_DELAY = 22.5;
-	// Interval in seconds after which a new circle the player must grab will be
-	// added
-	private static final double CATCH_CIRCLE_INTERVAL = 15.0;
-	// Duration for which circles the user must grab will fade and after which,
-	// if the user does not catch, will end the game
-	private static final double CATCH_CIRCLE_INITIAL_DURATION = 5.0;
-	// Value catch circle duration will be multiplied by after every time one
-	// appears
-	private static final double CATCH_CIRCLE_DURATION_MULTIPLIER = 0.95;
-	// Paint of corner obstacle circles
-	private static final Paint CORNER_CIRCLE_PAINT = Color.GREEN;
-	// Interval in seconds after which corner obstacle circles will pop up
-	private static final double CORNER_CIRCLE_INTERVAL = 2.0;
-	// Duration of the enter and exit animations of the corner obstacle circle
-	private static final double CORNER_CIRCLE_ANIMATION_DURATION = 0.15;
-	// Duration corner obstacles will stay on screen
-	private static final double CORNER_CIRCLE_DURATION = 0.15;
-	// The chance of a corner circle appearing in the same corner as the user
-	private static final double CORNER_CIRCLE_SAME_CIRCLE_CHANCE = 0.5;
+	// Length in nanoseconds of one simulation step
+	private static final double TICK_NANOS = Simulation.TICK_DURATION * 1e9;
+	// System property that turns on checking the cursor against the circles as
+	// soon as it moves instead of at the next frame
+	private static final String LOW_LATENCY_PROPERTY = "cursordodge.lowLatency";
+	// File name extension of the summary of frame timings of a game
+	private static final String TIMINGS_EXTENSION = ".timings.csv";
+	// System property that turns on recording telemetry of every frame
+	private static final String TELEMETRY_PROPERTY = "cursordodge.telemetry";
+	// System property for the pixels per unit the circles are drawn at
+	private static final String RENDER_SCALE_PROPERTY =
+			"cursordodge.renderScale";
+	// System property that keeps the game drawn at full quality however long
+	// frames take
+	private static final String FIXED_QUALITY_PROPERTY =
+			"cursordodge.fixedQuality";
+	// Seconds each frame should take
+	private static final double FRAME_BUDGET = 1.0 / 60.0;
+	// Frames between telemetry records while telemetry is reduced
+	private static final int REDUCED_TELEMETRY_INTERVAL = 4;
+	// Pixels the circles are drawn with for each unit of the scene while
+	// resolution is low
+	private static final double LOW_RESOLUTION_SCALE = 0.5;
+	// File name extension of the log of quality changes of a game
+	private static final String QUALITY_EXTENSION = ".quality.csv";
+	// System property for the file or resource of the shape of the arena
+	private static final String ARENA_PROPERTY = "cursordodge.arena";
+	// System property that turns on sending every frame to spectators
+	private static final String SPECTATORS_PROPERTY = "cursordodge.spectators";
+	// System property for the port spectators connect to
+	public static final String SPECTATOR_PORT_PROPERTY =
+			"cursordodge.spectatorPort";
 	
 	// --- Variables ---
 	private double screenWidth;		// Screen width
@@ -103,640 +93,449 @@ public class Game extends Pane {
 	private double sceneWidth;		// Scene width
 	private double sceneHeight;		// Scene height
 	private double circleRadius;	// The radius of the circle
+	private double renderScale;		// Pixels per unit the circles are drawn at
+	private Arena arena;			// The geometry of the scene
+	private ArenaShape arenaShape;	// Walls of the arena, or null if none
+	private WindowBoundsMonitor windowMonitor;	// Watches the window
 	
 	// --- GUI components ---
 	private Label messageLabel;				// Message label
-	private Ellipse firstObstacleCircle;	// First obstacle circle
+	private String startMessage;			// Message shown before each round
+	// Canvas the circles of the simulation are drawn on, kept between rounds
+	private CircleCanvas circleCanvas;
+	// Walls of a shaped arena, behind the circles
+	private Path walls;
+	// Images the circles of each kind are drawn with
+	private CircleSprite obstacleSprite;
+	private CircleSprite catchSprite;
+	private CircleSprite cornerSprite;
+	// Whether the handlers of the scene and window have been set up
+	private boolean attached;
 	
 	// --- Game information ---
 	// Property for the position of the cursor
-	private ObjectProperty<Position> cursorPosProperty;
+	private CountedObjectProperty<Position> cursorPosProperty;
 	// Whether the mouse is outside of the scene
 	private BooleanProperty mouseExitedProperty;
-	// Listens to whether the mouse is outside of the scene
-	private ChangeListener<? super Boolean> mouseExitedListener;
 	// Whether the window is outside of acceptable bounds
 	private BooleanProperty windowOutOfBoundsProperty;
-	// Listens to whether the window is outside of acceptable bounds
-	private ChangeListener<? super Boolean> windowOutOfBoundsListener;
 	// Whether the window is maximized
 	private BooleanProperty maximizedProperty;
 	// Property for whether or not the game is over
-	private BooleanProperty gameOverProperty;
-	// Current speed of obstacle circles
-	private double obstacleCircleSpeed;
-	// Property for interval at which new obstacle circles are created
-	private DoubleProperty obstacleCircleIntervalProperty;
-	// Duration over which catch circles will fade out
-	private double catchCircleFadeDuration;
+	private CountedBooleanProperty gameOverProperty;
+	// Chooses the seed of every round
+	private Random seeds;
+	// Seed of the random number generator of the game
+	private long seed;
+	// The rules of the game
+	private Simulation simulation;
+	// Recording of the game
+	private Replay replay;
+	// Whether the cursor is checked against the circles as soon as it moves
+	private boolean lowLatency;
+	// Time from mouse moves to their effect on the game
+	private InputLatency inputLatency;
+	// Time spent in each stage of every frame
+	private FrameProfile profile;
+	// Whether the timings above have been handed to the replay writer
+	private boolean timingsSaving;
+	// Timings of an earlier round that have been saved and emptied, ready to
+	// be reused, or null if there are none
+	private FrameProfile spareProfile;
+	private InputLatency spareInputLatency;
+	// Recording of the state of every frame, if turned on
+	private TelemetryRecorder telemetry;
+	// Frames since telemetry started recording
+	private long telemetryFrames;
+	// Sends every frame to spectators, if turned on
+	private SpectatorPublisher spectators;
+	// Lowers what is drawn when frames take too long
+	private QualityGovernor governor;
+	// Whether the game is always drawn at full quality
+	private boolean fixedQuality;
+	// Advances the simulation every frame
+	private GameLoop gameLoop;
+	// Counts down to the start of the game
+	private Timeline countdownTimeline;
+	// Current count of the countdown
+	private int count;
 	// Time the user started the game
-	private double startTime;
-	// Time the user ended the game
-	private double endTime;
-	// Whether the corner circle timeline is currently playing
-	private boolean cornerCirclesActive;
+	private long startTime;
+	
+	// --- Listeners ---
+	// Listeners are made once and added and removed as each round goes on, so
+	// that no round leaves any behind for the next
+	// Starts the round once the window is no longer maximized
+	private ChangeListener<Boolean> unmaximizedListener =
+			new ChangeListener<Boolean>() {
+		@Override
+		public void changed(ObservableValue<? extends Boolean> obs,
+				Boolean oldVal, Boolean newVal) {
+			if (!newVal) {
+				maximizedProperty.removeListener(this);
+				messageLabel.setText(
+						"Please move your cursor inside the window.");
+				Platform.runLater(() -> {
+					// Build the pane
+					buildPane();
+					// Start prompt
+					displayMoveCursor();
+				});
+			}
+		}
+	};
+	// Starts the countdown when the cursor first moves
+	private InvalidationListener cursorMovedListener =
+			new InvalidationListener() {
+		@Override
+		public void invalidated(Observable obs) {
+			cursorPosProperty.removeListener(this);
+			displayCountdownAndStartGame();
+		}
+	};
+	// Starts the countdown when the window is first moved
+	private ChangeListener<Boolean> windowMovedListener =
+			new ChangeListener<Boolean>() {
+		@Override
+		public void changed(ObservableValue<? extends Boolean> obs,
+				Boolean oldVal, Boolean newVal) {
+			windowOutOfBoundsProperty.removeListener(this);
+			displayCountdownAndStartGame();
+		}
+	};
+	// Restarts the countdown when the window is back inside the screen
+	private ChangeListener<Boolean> windowBackListener =
+			new ChangeListener<Boolean>() {
+		@Override
+		public void changed(ObservableValue<? extends Boolean> obs,
+				Boolean oldVal, Boolean newVal) {
+			if (!newVal) {
+				windowOutOfBoundsProperty.removeListener(this);
+				displayCountdownAndStartGame();
+			}
+		}
+	};
+	// Updates the prompt while waiting for the cursor to come back
+	private ChangeListener<Boolean> alsoOutOfBoundsListener =
+			(obs, oldVal, newVal) -> {
+		if (newVal) {
+			messageLabel.setText(
+					"Please move the window back inside the screen.");
+		}
+		else {
+			messageLabel.setText(
+					"Please move the cursor back inside the window.");
+		}
+	};
+	// Restarts the countdown when the cursor is back inside the window
+	private ChangeListener<Boolean> cursorBackListener =
+			new ChangeListener<Boolean>() {
+		@Override
+		public void changed(ObservableValue<? extends Boolean> obs,
+				Boolean oldVal, Boolean newVal) {
+			if (!newVal && !windowOutOfBounds()) {
+				windowOutOfBoundsProperty.removeListener(
+						alsoOutOfBoundsListener);
+				mouseExitedProperty.removeListener(this);
+				displayCountdownAndStartGame();
+			}
+		}
+	};
+	// Stops the countdown if the mouse leaves the scene
+	private ChangeListener<Boolean> mouseExitedListener =
+			(obs, oldVal, newVal) -> {
+		countdownTimeline.stop();
+		displayCorrectionNeeded();
+	};
+	// Stops the countdown if the window leaves the screen
+	private ChangeListener<Boolean> windowOutOfBoundsListener =
+			(obs, oldVal, newVal) -> {
+		countdownTimeline.stop();
+		displayCorrectionNeeded();
+	};
+	// Ends the game if the mouse leaves the scene while playing
+	private ChangeListener<Boolean> outOfBoundsListener =
+			(obs, oldVal, newVal) -> {
+		if (newVal) gameOver(GameOverReason.OUT_OF_BOUNDS);
+	};
+	// Ends the game if the window is resized
+	private ChangeListener<Number> resizeListener =
+			(obs, oldVal, newVal) -> gameOver(GameOverReason.RESIZE);
 
 	
 	/**
-	 * Instantiates a new cursor dodge game
+	 * Instantiates a new cursor dodge game. Nothing is shown until
+	 * {@link #newRound()} is called once the pane is in a scene.
 	 * @param messageLabel The message label that will be used to display
 	 * messages to the player
 	 */
 	public Game(Label messageLabel) {
 		super();
 		this.messageLabel = messageLabel;
+		startMessage = messageLabel.getText();
 		
 		// Initialize game properties
-		cursorPosProperty = new SimpleObjectProperty<Position>(new Position());
+		cursorPosProperty = new CountedObjectProperty<Position>(new Position());
 		mouseExitedProperty = new SimpleBooleanProperty();
 		windowOutOfBoundsProperty = new SimpleBooleanProperty();
 		maximizedProperty = new SimpleBooleanProperty();
-		gameOverProperty = new SimpleBooleanProperty(false);
-		obstacleCircleSpeed = OBSTACLE_CIRCLE_INITIAL_SPEED;
-		obstacleCircleIntervalProperty = new SimpleDoubleProperty(
-				OBSTACLE_CIRCLE_INITIAL_INTERVAL);
-		catchCircleFadeDuration = CATCH_CIRCLE_INITIAL_DURATION;
-		
-		Platform.runLater(() -> {
-			
-			// Initialize some properties
-			Scene scene = this.getScene();
-			Stage stage = (Stage)scene.getWindow();
-			scene.setOnMouseExited(event -> {
-				mouseExitedProperty.set(true);
-			});
-			scene.setOnMouseEntered(event -> {
-				mouseExitedProperty.set(false);
-			});
-			windowOutOfBoundsProperty.bind(Bindings.createBooleanBinding(() -> {
-				if (!gameOverProperty.get())
-					return windowOutOfBounds();
-				else
-					return false;
-			}, stage.xProperty(), stage.yProperty(),
-					stage.widthProperty(), stage.heightProperty()));
-			maximizedProperty.bind(stage.maximizedProperty());
-			
-			// Only continue if the window is not maximized
-			if (maximizedProperty.get()) {
-				messageLabel.setText("Please unmaximize the window.");
-				maximizedProperty.addListener((obs, oldVal, newVal) -> {
-					if (!newVal) {
-						messageLabel.setText(
-								"Please move your cursor inside the window.");
-						Platform.runLater(() -> {
-							// Build the pane
-							buildPane();
-							// Start prompt
-							displayMoveCursor();
-						});
-					}
-				});
+		gameOverProperty = new CountedBooleanProperty(false);
+		seeds = new Random();
+		circleCanvas = new CircleCanvas();
+		walls = new Path();
+		walls.setFill(GamePaints.WALL_PAINT);
+		walls.setStroke(null);
+		walls.setFillRule(FillRule.EVEN_ODD);
+		walls.setMouseTransparent(true);
+		this.getChildren().addAll(walls, circleCanvas);
+		String arenaPath = System.getProperty(ARENA_PROPERTY);
+		if (arenaPath != null) {
+			try {
+				arenaShape = ArenaShape.load(arenaPath);
+			} catch (IOException e) {
+				System.out.println("Error loading arena");
+				e.printStackTrace();
 			}
-			else {
-				// Build the pane
-				buildPane();
-				// Start prompt
-				displayMoveCursor();
-			}
-		});
-	}
-	
-	
-	/**
-	 * Constructs this pane
-	 */
-	private void buildPane() {
-		
-		// Initialize variables
-		Scene scene = this.getScene();
-		Rectangle2D bounds = Screen.getPrimary().getBounds();
-		
-		screenWidth = bounds.getWidth();
-		screenHeight = bounds.getHeight();
-		sceneWidth = scene.getWidth();
-		sceneHeight = scene.getHeight();
-		
-		double screenArea = screenWidth * screenHeight;
-		circleRadius = Math.sqrt(screenArea * CIRCLE_SIZE) / 2;
-		
-		
-		// Create one new circle immediately
-		firstObstacleCircle = newObstacleCircle();
-		
-		// If the mouse moves, recalculate its position
-		this.getScene().setOnMouseMoved(new MouseMoveHandler());
-		
-		// If the window is resized, end the game before it begins
-		ChangeListener<Number> resizeListener = new ChangeListener<Number>() {
-			@Override
-			public void changed(ObservableValue<? extends Number> observable,
-					Number oldValue, Number newValue) {
-				gameOver(GameOverReason.RESIZE);
+		}
+		obstacleSprite = new CircleSprite(GamePaints.OBSTACLE_CIRCLE_PAINT);
+		catchSprite = new CircleSprite(GamePaints.CATCH_CIRCLE_PAINT);
+		cornerSprite = new CircleSprite(GamePaints.CORNER_CIRCLE_PAINT);
+		renderScale = 1.0;
+		String scale = System.getProperty(RENDER_SCALE_PROPERTY);
+		if (scale != null) {
+			try {
+				renderScale = Double.parseDouble(scale);
+			} catch (NumberFormatException e) {
+				System.out.println("Error reading render scale");
+				e.printStackTrace();
 			}
-		};
-		Window window = this.getScene().getWindow();
-		window.widthProperty().addListener(resizeListener);
-		window.heightProperty().addListener(resizeListener);
-		gameOverProperty.addListener((observable, oldValue, newValue) -> {
-			if (newValue == true) {
-				window.widthProperty().removeListener(resizeListener);
-				window.heightProperty().removeListener(resizeListener);
+		}
+		gameLoop = new GameLoop();
+		lowLatency = Boolean.getBoolean(LOW_LATENCY_PROPERTY);
+		inputLatency = new InputLatency();
+		profile = new FrameProfile();
+		governor = new QualityGovernor(FRAME_BUDGET);
+		governor.qualityProperty().addListener(
+				(obs, oldVal, newVal) -> applyQuality());
+		fixedQuality = Boolean.getBoolean(FIXED_QUALITY_PROPERTY);
+		if (Boolean.getBoolean(SPECTATORS_PROPERTY)) {
+			try {
+				spectators = new SpectatorPublisher(Integer.getInteger(
+						SPECTATOR_PORT_PROPERTY,
+						SpectatorPublisher.DEFAULT_PORT));
+			} catch (IOException e) {
+				System.out.println("Error starting spectator stream");
+				e.printStackTrace();
 			}
-		});
-	}
-	
-
-	/**
-	 * Creates and returns a new obstacle circle
-	 * @return The obstacle circle
-	 */
-	private Ellipse newObstacleCircle() {
-		Ellipse circle = new Ellipse(circleRadius, circleRadius);
-		circle.setFill(OBSTACLE_CIRCLE_PAINT);
-		
-		// Place starting point at random position excluding an area around the
-		// cursor
-		Position startPosition = randomPositionExcludeCursorVicinity();
-		circle.setTranslateX(startPosition.getX());
-		circle.setTranslateY(startPosition.getY());
+		}
 		
-		// Game over if player hits circle
-		circle.addEventHandler(MouseEvent.MOUSE_ENTERED,
-				new EventHandler<MouseEvent>() {
-			@Override
-			public void handle(MouseEvent e) {
-				gameOver(GameOverReason.OBSTACLE);
+		// Count down, then start the game
+		countdownTimeline = new Timeline(new KeyFrame(
+				Duration.seconds(COUNTDOWN_DURATION), e -> {
+			count--;
+			
+			if (count == 0) {
+				messageLabel.setText("Go!");
+				startGame();
+			} else if (count > 0) {
+				messageLabel.setText(String.valueOf(count));
 			}
+		}));
+		countdownTimeline.setCycleCount(COUNTDOWN_FROM + 1);
+		countdownTimeline.setOnFinished(event -> {
+			messageLabel.setVisible(false);
+			mouseExitedProperty.removeListener(mouseExitedListener);
+			windowOutOfBoundsProperty.removeListener(windowOutOfBoundsListener);
 		});
-		this.getChildren().add(0, circle);	// Index 0 so behind catch circle
-		
-		return circle;
 	}
 	
 	
 	/**
-	 * Creates and returns a new catch circle
-	 * @return The catch circle
+	 * Starts a new round, putting the game back to how it was before the
+	 * last round began. The circles, listeners and timers of the last round are
+	 * reused, so starting another round builds nothing new.
 	 */
-	private Ellipse newCatchCircle() {
-		Ellipse circle = new Ellipse(circleRadius, circleRadius);
-		circle.setFill(CATCH_CIRCLE_PAINT);
-		
-		// Place at random position
-		Position position = randomPosition();
-		circle.setTranslateX(position.getX());
-		circle.setTranslateY(position.getY());
-		
-		// Remove circle if player hits it
-		circle.addEventHandler(MouseEvent.MOUSE_ENTERED,
-				new EventHandler<MouseEvent>() {
-			@Override
-			public void handle(MouseEvent e) {
-				((Pane)circle.getParent()).getChildren().remove(circle);
+	public void newRound() {
+		if (!attached) attach();
+		
+		// The timings of the last round may still be being saved, so never
+		// wait for them. Swap in timings that have already been saved, or
+		// new ones if none have been yet.
+		if (timingsSaving) {
+			if (spareProfile != null) {
+				profile = spareProfile;
+				inputLatency = spareInputLatency;
+				spareProfile = null;
+				spareInputLatency = null;
 			}
-		});
-		
-		this.getChildren().add(circle);
-		
-		return circle;
-	}
-	
-	
-	/**
-	 * Creates and returns a new corner circle
-	 * @return The corner circle
-	 */
-	private Ellipse newCornerCircle() {
-		Ellipse circle = new Ellipse(circleRadius, circleRadius);
-		circle.setFill(CORNER_CIRCLE_PAINT);
-		
-		// Game over if player hits circle
-		circle.addEventHandler(MouseEvent.MOUSE_ENTERED,
-				new EventHandler<MouseEvent>() {
-			@Override
-			public void handle(MouseEvent e) {
-				gameOver(GameOverReason.OBSTACLE);
+			else {
+				profile = new FrameProfile();
+				inputLatency = new InputLatency();
 			}
-		});
+			timingsSaving = false;
+		}
+		else {
+			profile.clear();
+			inputLatency.clear();
+		}
 		
-		this.getChildren().add(circle);
+		seed = seeds.nextLong();
+		governor.clearLog();
+		simulation = null;
+		replay = null;
+		telemetry = null;
+		gameOverProperty.set(false);
+		messageLabel.setText(startMessage);
+		messageLabel.setVisible(true);
 		
-		return circle;
-	}
-	
-	
-	/**
-	 * Creates and returns an animation of the given obstacle circle moving
-	 * in a straight line in a random direction until it hits the edge of the
-	 * scene. Upon finishing, it will create a new animation moving in a new
-	 * direction as if bouncing against the edge of the window.
-	 * @param circle The obstacle circle
-	 * @return The animation
-	 */
-	private Animation newObstacleCircleAnimation(Ellipse circle) {
-		return newCircleAnimation(circle, randomAngle());
+		// Only continue if the window is not maximized
+		if (maximizedProperty.get()) {
+			messageLabel.setText("Please unmaximize the window.");
+			maximizedProperty.addListener(unmaximizedListener);
+		}
+		else {
+			// Build the pane
+			buildPane();
+			// Start prompt
+			displayMoveCursor();
+		}
 	}
 	
 	
 	/**
-	 * Creates and returns an animation of the given obstacle circle moving
-	 * in a straight line in the given direction until it hits the edge of the
-	 * scene. Upon finishing, it will create a new animation moving in a new
-	 * direction as if bouncing against the edge of the window.
-	 * @param circle The obstacle circle
-	 * @param angle The angle in which the circle will move
-	 * @return The animation
+	 * Sets up the handlers of the scene and window the game is shown in, which
+	 * stay for every round
 	 */
-	private Animation newCircleAnimation(Ellipse circle, double angle) {
-		TranslateTransition tt = new TranslateTransition();
-		tt.setNode(circle);
-		tt.setInterpolator(Interpolator.LINEAR);
-		CollisionPoint collisionPoint = collisionPoint(circle, angle);
-		tt.setDuration(Duration.seconds(time(
-				new Position(circle.getTranslateX(), circle.getTranslateY()),
-				new Position(collisionPoint.getX(), collisionPoint.getY()))));
-		tt.setToX(collisionPoint.getX());
-		tt.setToY(collisionPoint.getY());
+	private void attach() {
+		attached = true;
+		Scene scene = this.getScene();
+		Stage stage = (Stage)scene.getWindow();
+		windowMonitor = new WindowBoundsMonitor(stage);
 		
-		// Start the next animation upon finishing
-		tt.setOnFinished(e -> {
-			double newAngle = newAngle(collisionPoint, angle);
-			newCircleAnimation(circle, newAngle).play();
+		scene.setOnMouseExited(event -> {
+			mouseExitedProperty.set(true);
 		});
-		
-		// Stop the animation on game over
-		gameOverProperty.addListener((observable, oldValue, newValue) -> {
-			if (newValue == true) {
-				tt.stop();
-			}
+		scene.setOnMouseEntered(event -> {
+			mouseExitedProperty.set(false);
 		});
+		windowOutOfBoundsProperty.bind(Bindings.createBooleanBinding(() -> {
+			if (!gameOverProperty.get())
+				return windowOutOfBounds();
+			else
+				return false;
+		}, windowMonitor.outOfBoundsProperty()));
+		maximizedProperty.bind(stage.maximizedProperty());
 		
-		return tt;
+		// If the mouse moves, recalculate its position
+		scene.setOnMouseMoved(new MouseMoveHandler());
 	}
 	
 	
 	/**
-	 * Creates and returns an animation of a catch circle fading out to
-	 * complete transparency over a duration of time. If the player does not
-	 * move the cursor to the circle in time, it will cause a game over.
-	 * @param circle The circle
-	 * @return The animation
+	 * Constructs this pane
 	 */
-	private Animation newCatchCircleAnimation(Ellipse circle) {
-		FadeTransition ft = new FadeTransition(
-				Duration.seconds(catchCircleFadeDuration),
-				circle);
-		ft.setInterpolator(Interpolator.LINEAR);
-		ft.setToValue(0.0);
+	private void buildPane() {
 		
-		// Cause game over if the animation completes
-		ft.setOnFinished(e -> {
-			gameOver(GameOverReason.DID_NOT_CATCH);
-		});
+		// Initialize variables
+		Scene scene = this.getScene();
+		Rectangle2D bounds = windowMonitor.getScreenBounds();
 		
-		// Stop the animation on mouse entered
-		circle.addEventHandler(MouseEvent.MOUSE_ENTERED,
-				new EventHandler<MouseEvent>() {
-			@Override
-			public void handle(MouseEvent e) {
-				ft.stop();
-			}
-		});
+		screenWidth = bounds.getWidth();
+		screenHeight = bounds.getHeight();
+		sceneWidth = scene.getWidth();
+		sceneHeight = scene.getHeight();
 		
-		// Stop the animation on game over
-		gameOverProperty.addListener((observable, oldValue, newValue) -> {
-			if (newValue == true) {
-				ft.stop();
+		// Keep the geometry of the last round if nothing has changed
+		if (arena == null || arena.getSceneWidth() != sceneWidth ||
+				arena.getSceneHeight() != sceneHeight ||
+				arena.getScreenWidth() != screenWidth ||
+				arena.getScreenHeight() != screenHeight) {
+			try {
+				arena = new Arena(sceneWidth, sceneHeight,
+						screenWidth, screenHeight, arenaShape);
+			} catch (IllegalArgumentException e) {
+				// Play without the walls rather than place circles in them
+				System.out.println("Error fitting arena to the window");
+				e.printStackTrace();
+				arena = new Arena(sceneWidth, sceneHeight,
+						screenWidth, screenHeight);
 			}
-		});
-		
-		return ft;
-	}
-	
-	
-	/**
-	 * Creates and returns an animation of a corner circle popping in and out of
-	 * the screen at a random corner. The circle will be removed upon completion
-	 * @param circle The circle
-	 * @param cursorCorner The corner the cursor is in
-	 * @return The animation
-	 */
-	private Animation newCornerCircleAnimation(Ellipse circle, Corner cursorCorner) {
-		Map<Corner, Position> onscreenPositions = new HashMap<>();
-		onscreenPositions.put(Corner.TOP_LEFT, new Position(0.0, 0.0));
-		onscreenPositions.put(Corner.TOP_RIGHT, new Position(sceneWidth, 0.0));
-		onscreenPositions.put(Corner.BOTTOM_LEFT, new Position(0.0, sceneHeight));
-		onscreenPositions.put(Corner.BOTTOM_RIGHT, new Position(sceneWidth, sceneHeight));
-		Map<Corner, Position> offscreenPositions = new HashMap<>();
-		offscreenPositions.put(Corner.TOP_LEFT, new Position(-circleRadius, -circleRadius));
-		offscreenPositions.put(Corner.TOP_RIGHT, new Position(sceneWidth + circleRadius, -circleRadius));
-		offscreenPositions.put(Corner.BOTTOM_LEFT, new Position(-circleRadius, sceneHeight + circleRadius));
-		offscreenPositions.put(Corner.BOTTOM_RIGHT, new Position(sceneWidth + circleRadius, sceneHeight + circleRadius));
-		Corner corner;
-		Random rand = new Random();
-		if (rand.nextDouble() < CORNER_CIRCLE_SAME_CIRCLE_CHANCE) {
-			corner = cursorCorner;
-		}
-		else {
-			List<Corner> cornersLeft = new ArrayList<>(Arrays.asList(Corner.values()));
-			cornersLeft.remove(cursorCorner);
-			corner = cornersLeft.get(rand.nextInt(cornersLeft.size()));
+			circleRadius = arena.getCircleRadius();
+			buildWalls();
+			circleCanvas.setSceneSize(sceneWidth, sceneHeight);
+			circleCanvas.setCircleSize(circleRadius, getDrawnScale());
 		}
-		Position onscreenPosition = onscreenPositions.get(corner);
-		Position offscreenPosition = offscreenPositions.get(corner);
+		circleCanvas.redrawAll();
 		
-		TranslateTransition enter = new TranslateTransition(
-				Duration.seconds(CORNER_CIRCLE_ANIMATION_DURATION));
-		enter.setInterpolator(Interpolator.LINEAR);
-		enter.setFromX(offscreenPosition.getX());
-		enter.setFromY(offscreenPosition.getY());
-		enter.setToX(onscreenPosition.getX());
-		enter.setToY(onscreenPosition.getY());
+		// Create the game, which creates one new circle immediately
+		simulation = new Simulation(arena, seed);
+		simulation.setProfile(profile);
+		replay = new Replay(seed, arena);
+		updateCircles();
 		
-		TranslateTransition exit = new TranslateTransition(
-				Duration.seconds(CORNER_CIRCLE_ANIMATION_DURATION));
-		exit.setInterpolator(Interpolator.LINEAR);
-		exit.setFromX(onscreenPosition.getX());
-		exit.setFromY(onscreenPosition.getY());
-		exit.setToX(offscreenPosition.getX());
-		exit.setToY(offscreenPosition.getY());
-		
-		SequentialTransition animation = new SequentialTransition (circle,
-			enter,
-			new PauseTransition(
-					Duration.seconds(CORNER_CIRCLE_DURATION)),
-			exit
-		);
-		
-		// Remove the circle upon finishing
-		animation.setOnFinished(e -> {
-			((Pane)circle.getParent()).getChildren().remove(circle);
-		});
-		
-		// Stop the timeline on game over
-		gameOverProperty.addListener((observable, oldValue, newValue) -> {
-			if (newValue == true) {
-				animation.stop();
-			}
-		});
-		
-		return animation;
+		// If the window is resized, end the game
+		Window window = this.getScene().getWindow();
+		window.widthProperty().addListener(resizeListener);
+		window.heightProperty().addListener(resizeListener);
 	}
 	
 	
 	/**
-	 * Calculates the point at which a circle will collide with the edge of the
-	 * scene, given an angle of movement.
-	 * @param circle The circle
-	 * @param angle The angle of the direction of movement
-	 * @return The collision point
-	 * @throws IllegalArgumentException If an invalid angle was given and the
-	 * collision point could not be calculated
+	 * Shapes the walls of the arena to the size of the scene. Everything
+	 * outside the boundary and inside the pillars is filled, which with the
+	 * even-odd rule is the scene, the boundary and the pillars as one path.
 	 */
-	private CollisionPoint collisionPoint(Ellipse circle, double angle)
-			throws IllegalArgumentException {
-		double fromX = circle.getTranslateX();
-		double fromY = circle.getTranslateY();
-		
-		// Create a list of possible intersections
-		List<CollisionPoint> possibleIntersections =
-				new ArrayList<CollisionPoint>();
-		
-		// Calculate the slope to create line of movement
-		double dirAngleRadians = Math.toRadians(angle);
-		double slope = Math.tan(dirAngleRadians);
-		
-		if (slope != 0.0) {
-			double xIntersection;
-			// Check if the top edge intersects with the line
-			xIntersection = fromX + fromY / slope;
-			xIntersection -= circle.getRadiusY() / slope;
-			if (xIntersection - circle.getRadiusY() >= 0.0 &&
-					xIntersection + circle.getRadiusY() <= sceneWidth) {
-				possibleIntersections.add(new CollisionPoint(Edge.TOP,
-						xIntersection, 0.0 + circle.getRadiusY()));
-			}
-			
-			// Check if the bottom edge intersects with the line
-			xIntersection = fromX - (sceneHeight - fromY) / slope;
-			xIntersection += circle.getRadiusY() / slope;
-			if (xIntersection - circle.getRadiusY() >= 0.0 &&
-					xIntersection + circle.getRadiusY() <= sceneWidth) {
-				possibleIntersections.add(new CollisionPoint(Edge.BOTTOM,
-						xIntersection, sceneHeight - circle.getRadiusY()));
-			}
-		}
-		if (slope != Double.POSITIVE_INFINITY) {
-			double yIntersection;
-			// Check if the left edge intersects with the line
-			yIntersection = fromY + slope * fromX;
-			yIntersection -= circle.getRadiusX() * slope;
-			if (yIntersection - circle.getRadiusX() >= 0.0 &&
-					yIntersection + circle.getRadiusX() <= sceneHeight) {
-				possibleIntersections.add(new CollisionPoint(Edge.LEFT,
-						0.0 + circle.getRadiusX(), yIntersection));
-			}
-			
-			// Check if the right edge intersects with the line
-			yIntersection = fromY - slope * (sceneWidth - fromX);
-			yIntersection += circle.getRadiusX() * slope;
-			if (yIntersection - circle.getRadiusX() >= 0.0 &&
-					yIntersection + circle.getRadiusX() <= sceneHeight) {
-				possibleIntersections.add(new CollisionPoint(Edge.RIGHT,
-						sceneWidth - circle.getRadiusX(), yIntersection));
-			}
-		}
-		
-		// If there is one possible intersection, return it
-		if (possibleIntersections.size() == 1) {
-			return possibleIntersections.get(0);
-		}
-		
-		// If there are multiple, find the one with the smallest angle between
-		// the direction of the line and the edge and return it
-		else if (possibleIntersections.size() > 1) {
-			double smallestAngle = Double.MAX_VALUE;
-			CollisionPoint smallestIntersection = null;
-			for (CollisionPoint curIntersection : possibleIntersections) {
-				double curAngle = Double.MAX_VALUE;
-				switch (curIntersection.getEdge()) {
-				case TOP:
-					curAngle = Math.abs(dirAngleRadians - Math.PI / 2);
-					break;
-				case RIGHT:
-					curAngle = Math.min(
-							Math.abs(dirAngleRadians),
-							Math.abs(dirAngleRadians - 2 * Math.PI));
-					break;
-				case BOTTOM:
-					curAngle = Math.abs(dirAngleRadians - 3 * Math.PI / 2);
-					break;
-				case LEFT:
-					curAngle = Math.abs(dirAngleRadians - Math.PI);
-					break;
-				}
-
-				if (curAngle < smallestAngle) {
-					smallestAngle = curAngle;
-					smallestIntersection = curIntersection;
-				}
-			}
-			
-			return smallestIntersection;
-		}
-		
-		// Throw an exception if none of these equations worked
-		throw new IllegalArgumentException(
-				String.format("fromX: %f\nfromY: %f\nangle: %f\nOne of these " +
-						"numbers did not allow for a correct collision point " +
-						"equation.", fromX, fromY, angle));
-	}
-
-	
-	/**
-	 * Calculates the reflection of the angle given the edge of a collision
-	 * point. A bit of randomness is added.
-	 * @param collisionPoint The collision point of the circle
-	 * @param angle The incoming angle
-	 * @return The outgoing reflected angle
-	 */
-	private double newAngle(CollisionPoint collisionPoint, double angle) {
-		
-		// Get the angle of the axis which the angle will be reflected upon
-		double reflectionAxis = 0.0;
-		switch (collisionPoint.getEdge()) {
-		case TOP:
-			reflectionAxis = 90;
-			break;
-		case RIGHT:
-			reflectionAxis = 360;
-			break;
-		case BOTTOM:
-			reflectionAxis = 270;
-			break;
-		case LEFT:
-			reflectionAxis = 180;
-			break;
-		}
-		
-		// Calculate the reflected angle
-		double reflectedAngle =
-				(180 + reflectionAxis - (angle - reflectionAxis)) % 360;
-		
-		// Get the range of acceptable values for the new angle
-		double rangeMin = reflectedAngle - NEW_ANGLE_RANGE / 2;
-		double rangeMax = reflectedAngle + NEW_ANGLE_RANGE / 2;
-		switch (collisionPoint.getEdge()) {
-		case TOP:
-			rangeMin = Math.max(rangeMin, 180);
-			rangeMax = Math.min(rangeMax, 360);
-			break;
-		case RIGHT:
-			rangeMin = Math.max(rangeMin, 90);
-			rangeMax = Math.min(rangeMax, 270);
-			break;
-		case BOTTOM:
-			rangeMin = Math.max(rangeMin, 0);
-			rangeMax = Math.min(rangeMax, 180);
-			break;
-		case LEFT:
-			if (reflectedAngle > 0 && reflectedAngle < 90) {
-				rangeMin = Math.max(rangeMin, -90);
-				rangeMax = Math.min(rangeMax, 90);
+	private void buildWalls() {
+		walls.getElements().clear();
+		ArenaShape shape = arena.getShape();
+		if (shape == null) return;
+		if (shape.hasBoundary()) {
+			walls.getElements().addAll(
+					new MoveTo(0.0, 0.0),
+					new LineTo(sceneWidth, 0.0),
+					new LineTo(sceneWidth, sceneHeight),
+					new LineTo(0.0, sceneHeight),
+					new ClosePath());
+		}
+		for (int p = 0; p < shape.getPolygonCount(); p++) {
+			for (int i = 0; i < shape.getCornerCount(p); i++) {
+				double x = shape.getX(p, i) * sceneWidth;
+				double y = shape.getY(p, i) * sceneHeight;
+				walls.getElements().add(
+						i == 0 ? new MoveTo(x, y) : new LineTo(x, y));
 			}
-			else if (reflectedAngle > 270 && reflectedAngle < 360) {
-				rangeMin = Math.max(rangeMin, 270);
-				rangeMax = Math.min(rangeMax, 450);
-			}
-			break;
+			walls.getElements().add(new ClosePath());
 		}
-		
-		// The new angle is a random angle between the min and max range
-		Random rand = new Random();
-		double newAngle = rangeMin + (rangeMax - rangeMin) * rand.nextDouble();
-		newAngle = (newAngle % 360 + 360) % 360;
-		return newAngle;
 	}
 	
 	
 	/**
-	 * Given the current velocity of the circles, calculates the time it would
-	 * take for a circle to travel from an initial position to a final position
-	 * @param initialPos The initial position
-	 * @param finalPos The final position
-	 * @return The time
+	 * Draws the circles of the simulation where they are now, drawing again
+	 * only what changed since the last frame
 	 */
-	private double time(Position initialPos, Position finalPos) {
+	private void updateCircles() {
+		circleCanvas.begin();
 		
-		// Calculate the distance traveled
-		double distanceX = Math.abs(initialPos.getX() - finalPos.getX());
-		double distanceY = Math.abs(initialPos.getY() - finalPos.getY());
-		double distance = Math.sqrt(
-				Math.pow(distanceX, 2) + Math.pow(distanceY, 2));
-		
-		// Calculate the time based on that
-		double time = distance / obstacleCircleSpeed;
-		return time;
-	}
-	
-	
-	/**
-	 * @return A random angle in degrees
-	 */
-	private double randomAngle() {
-		Random rand = new Random();
-		return rand.nextDouble() * 360.0;
-	}
-	
-	
-	/**
-	 * @return A random position
-	 */
-	private Position randomPosition() {
-		Random rand = new Random();
-		double x = circleRadius +
-				(sceneWidth - 2 * circleRadius) * rand.nextDouble();
-		double y = circleRadius + 
-				(sceneHeight - 2 * circleRadius) * rand.nextDouble();
-		return new Position(x, y);
-	}
-	
-	
-	/**
-	 * @return A random position excluding an area around the current position
-	 * of the cursor
-	 */
-	private Position randomPositionExcludeCursorVicinity() {
-		Random rand = new Random();
-		Position cursorPos = cursorPosProperty.get();
+		// Obstacle circles first so behind catch circles
+		ObstacleCircles obstacles = simulation.getObstacleCircles();
+		for (int i = 0; i < obstacles.size(); i++) {
+			circleCanvas.add(obstacleSprite,
+					obstacles.getX(i), obstacles.getY(i), 1.0);
+		}
 		
-		// If the cursor is not on the scene yet, just return a random position
-		// on the scene
-		if (cursorPos.isEmpty()) {
-			return randomPosition();
+		CatchCircles catches = simulation.getCatchCircles();
+		for (int i = 0; i < catches.size(); i++) {
+			circleCanvas.add(catchSprite, catches.getX(i), catches.getY(i),
+					catches.getOpacity(i, simulation.getTime()));
 		}
 		
-		// Create a list of valid positions where the center of a circle can
-		// be placed
-		List<Position> validPositions = new ArrayList<Position>();
-		for (int x = (int) circleRadius;
-				x < sceneWidth - circleRadius; x++) {
-			for (int y = (int) circleRadius;
-					y < sceneHeight - circleRadius; y++) {
-				// Add a position to the list if it is not inside the cursor
-				// box
-				if (!(x >= cursorPos.getX() - sceneWidth * MOUSE_BOX_SIZE / 2 &&
-					x <= cursorPos.getY() + sceneWidth * MOUSE_BOX_SIZE / 2 &&
-					y >= cursorPos.getY() - sceneHeight * MOUSE_BOX_SIZE / 2 &&
-					y <= cursorPos.getY() + sceneHeight * MOUSE_BOX_SIZE / 2)) {
-					validPositions.add(new Position(x, y));
-				}
-			}
+		CornerCircles corners = simulation.getCornerCircles();
+		for (int i = 0; i < corners.size(); i++) {
+			circleCanvas.add(cornerSprite,
+					corners.getX(i), corners.getY(i), 1.0);
 		}
 		
-		// Return a random position from the list
-		return validPositions.get(rand.nextInt(validPositions.size()));
+		circleCanvas.draw();
 	}
 	
 	
@@ -753,27 +552,12 @@ public class Game extends Pane {
 					"Please move the window fully inside the screen.");
 			
 			// Start the game when the user moves the window to a valid position
-			windowOutOfBoundsProperty.addListener(
-					new ChangeListener<Boolean>() {
-				@Override
-				public void changed(ObservableValue<? extends Boolean> obs,
-						Boolean oldVal, Boolean newVal) {
-					windowOutOfBoundsProperty.removeListener(this);
-					displayCountdownAndStartGame();
-				};
-			});
+			windowOutOfBoundsProperty.addListener(windowMovedListener);
 		}
 		
 		// Start the game when the user moves the cursor inside
 		else {
-			cursorPosProperty.addListener(new ChangeListener<Position>() {
-				@Override
-				public void changed(ObservableValue<? extends Position> obs,
-						Position oldVal, Position newVal) {
-					cursorPosProperty.removeListener(this);
-					displayCountdownAndStartGame();
-				};
-			});
+			cursorPosProperty.addListener(cursorMovedListener);
 		}
 	}
 	
@@ -789,46 +573,14 @@ public class Game extends Pane {
 		if (windowOutOfBounds()) {
 			messageLabel.setText(
 					"Please move the window back inside the screen.");
-			windowOutOfBoundsProperty.addListener(
-					new ChangeListener<Boolean>() {
-				@Override public void changed(
-						ObservableValue<? extends Boolean> obs,
-						Boolean oldVal, Boolean newVal) {
-				if (!newVal) {
-					windowOutOfBoundsProperty.removeListener(this);
-					displayCountdownAndStartGame();
-				}
-			}});
+			windowOutOfBoundsProperty.addListener(windowBackListener);
 		}
 		
 		else if (mouseExitedProperty.get()) {
 			messageLabel.setText(
 					"Please move the cursor back inside the window.");
-			ChangeListener<? super Boolean> alsoOutOfBoundsListener =
-					(obs, oldVal, newVal) -> {
-				if (newVal) {
-					messageLabel.setText(
-							"Please move the window back inside the screen.");
-				}
-				else {
-					messageLabel.setText(
-							"Please move the cursor back inside the window.");
-				}
-			};
-			
 			windowOutOfBoundsProperty.addListener(alsoOutOfBoundsListener);
-			mouseExitedProperty.addListener(
-					new ChangeListener<Boolean>() {
-				@Override public void changed(
-						ObservableValue<? extends Boolean> obs,
-						Boolean oldVal, Boolean newVal) {
-				if (!newVal && !windowOutOfBounds()) {
-					windowOutOfBoundsProperty.removeListener(
-							alsoOutOfBoundsListener);
-					mouseExitedProperty.removeListener(this);
-					displayCountdownAndStartGame();
-				}
-			}});
+			mouseExitedProperty.addListener(cursorBackListener);
 		}
 
 		windowOutOfBoundsProperty.removeListener(windowOutOfBoundsListener);
@@ -843,79 +595,21 @@ public class Game extends Pane {
 	 * of bounds prompt method.
 	 */
 	private void displayCountdownAndStartGame() {
-		// Inner class to keep track of the current count and return the
-		// countdown timeline so that it can be stopped if need be.
-		class Countdown {
-			private int count;					// Current count
-			private Timeline countdownTimeline;	// Countdown timeline
-			
-			/**
-			 * Starts a new countdown, displaying it on the message label
-			 */
-			public Countdown() {
-				count = COUNTDOWN_FROM;
-				
-				messageLabel.setText(String.valueOf(count));
-				
-				countdownTimeline = new Timeline(
-						new KeyFrame(
-								Duration.seconds(COUNTDOWN_DURATION),
-								new EventHandler<ActionEvent>() {
-					@Override
-					public void handle(ActionEvent e) {
-						count--;
-						
-						if (count == 0) {
-							messageLabel.setText("Go!");
-							startGame();
-						} else if (count > 0) {
-							messageLabel.setText(String.valueOf(count));
-						}
-					}
-				}));
-				countdownTimeline.setCycleCount(COUNTDOWN_FROM + 1);
-				countdownTimeline.setOnFinished(e -> {
-					messageLabel.setVisible(false);
-				});
-				
-				countdownTimeline.play();
-			}
-			
-			/**
-			 * @return The countdown timeline
-			 */
-			public Timeline getCountdownTimeline() {
-				return countdownTimeline;
-			}
-		}
-		Countdown countdown = new Countdown();
+		count = COUNTDOWN_FROM;
+		messageLabel.setText(String.valueOf(count));
+		countdownTimeline.playFromStart();
 		
 		// Stop the countdown and show a correction prompt if the cursor goes
 		// out of bounds or window goes out of bounds
-		mouseExitedListener = (obs, oldVal, newVal) -> {
-			countdown.getCountdownTimeline().stop();
-			displayCorrectionNeeded();
-		};
 		mouseExitedProperty.addListener(mouseExitedListener);
-		windowOutOfBoundsListener = (obs, oldVal, newVal) -> {
-			countdown.getCountdownTimeline().stop();
-			displayCorrectionNeeded();
-		};
 		windowOutOfBoundsProperty.addListener(windowOutOfBoundsListener);
 		
 		if (maximizedProperty.get() ||
 				mouseExitedProperty.get() ||
 				windowOutOfBoundsProperty.get()) {
-			countdown.getCountdownTimeline().stop();
+			countdownTimeline.stop();
 			displayCorrectionNeeded();
 		}
-		
-		countdown.getCountdownTimeline().setOnFinished(event -> {
-			messageLabel.setVisible(false);
-			mouseExitedProperty.removeListener(mouseExitedListener);
-			windowOutOfBoundsProperty.removeListener(windowOutOfBoundsListener);
-		});
-		
 	}
 	
 	
@@ -925,124 +619,23 @@ public class Game extends Pane {
 	private void startGame() {
 		
 		// Now, if the mouse exits the pane, end the game
-		mouseExitedProperty.addListener((obs, oldVal, newVal) -> {
-			if (newVal) gameOver(GameOverReason.OUT_OF_BOUNDS);
-		});
+		mouseExitedProperty.addListener(outOfBoundsListener);
 		
-		// Start moving the first obstacle circle
-		newObstacleCircleAnimation(firstObstacleCircle).play();
-		
-		// Create the first task that creates a new obstacle circle after an
-		// interval
-		Timeline firstNewObstacleCircleTimeline = new Timeline(
-				new KeyFrame(
-						Duration.seconds(obstacleCircleIntervalProperty.get()),
-						new EventHandler<ActionEvent>() {
-			@Override
-			public void handle(ActionEvent e) {
-				Ellipse circle = newObstacleCircle();
-				newObstacleCircleAnimation(circle).play();
-				
-				// Multiply the obstacle circle interval
-				obstacleCircleIntervalProperty.set(
-						obstacleCircleIntervalProperty.get() +
-						OBSTACLE_CIRCLE_INTERVAL_ADDER);
-			}
-		}));
+		if (Boolean.getBoolean(TELEMETRY_PROPERTY)) startTelemetry();
 		
-		// Create a listener that creates the remaining tasks that create new
-		// obstacle circles after increasingly large intervals
-		obstacleCircleIntervalProperty.addListener(
-				(observable, oldValue, newValue) -> {
-			Timeline newObstacleCircleTimeline = new Timeline(
-					new KeyFrame(
-							Duration.seconds(
-									obstacleCircleIntervalProperty.get()),
-							new EventHandler<ActionEvent>() {
-				@Override
-				public void handle(ActionEvent e) {
-					Ellipse circle = newObstacleCircle();
-					newObstacleCircleAnimation(circle).play();
-					
-					// Multiply the obstacle circle interval
-					obstacleCircleIntervalProperty.set(
-							obstacleCircleIntervalProperty.get() +
-							OBSTACLE_CIRCLE_INTERVAL_ADDER);
-				}
-			}));
-			newObstacleCircleTimeline.play();
-			gameOverProperty.addListener((obs, oldVal, newVal) -> {
-				if (newVal == true) {
-					newObstacleCircleTimeline.stop();
-				}
-			});
-		});
-		
-		// Create an initial task that creates a circle the user must grab after
-		// a delay.
-		Timeline initialCatchCircleTimeline = new Timeline(
-				new KeyFrame(Duration.seconds(CATCH_CIRCLE_DELAY),
-						new EventHandler<ActionEvent>() {
-			@Override
-			public void handle(ActionEvent e) {
-				Ellipse circle = newCatchCircle();
-				newCatchCircleAnimation(circle).play();
-			}
-		}));
-
-		// After the initial task, create a new task that repeatedly creates new
-		// circles the user must grab after an interval
-		Timeline newCatchCircleTimeline = new Timeline(
-				new KeyFrame(Duration.seconds(CATCH_CIRCLE_INTERVAL),
-						new EventHandler<ActionEvent>() {
-			@Override
-			public void handle(ActionEvent e) {
-				Ellipse circle = newCatchCircle();
-				newCatchCircleAnimation(circle).play();
-				catchCircleFadeDuration *= CATCH_CIRCLE_DURATION_MULTIPLIER;
-			}
-		}));
-		newCatchCircleTimeline.setCycleCount(Timeline.INDEFINITE);
-		initialCatchCircleTimeline.setOnFinished(e -> {
-			newCatchCircleTimeline.play();
-		});
-		
-		// If the cursor position reaches any of the corners, start the corner
-		// obstacle circles appearing
-		cursorPosProperty.addListener((obs, oldVal, newVal) -> {
-			if (cursorInCorner() && !cornerCirclesActive) {
-				new CornerCircleTimeline().play();
-			}
-		});
-		
-		// Create a task that constantly updates game values
-		Timeline updateTimeline = new Timeline(
-				new KeyFrame(Duration.seconds(1.0),
-						new EventHandler<ActionEvent>() {
-			@Override
-			public void handle(ActionEvent e) {
-				obstacleCircleSpeed += OBSTACLE_CIRCLE_ACCELERATION;
-			}
-		}));
-		updateTimeline.setCycleCount(Timeline.INDEFINITE);
-		
-		// Stop the timelines on game over
-		gameOverProperty.addListener((observable, oldValue, newValue) -> {
-			if (newValue == true) {
-				firstNewObstacleCircleTimeline.stop();
-				initialCatchCircleTimeline.stop();
-				newCatchCircleTimeline.stop();
-				updateTimeline.stop();
-			}
-		});
-		
-		// Start the animations
-		firstNewObstacleCircleTimeline.play();
-		initialCatchCircleTimeline.play();
-		updateTimeline.play();
+		// Let the simulation know where the cursor waited during the
+		// countdown so that the first obstacle circle is not sent at it
+		Position cursorPos = cursorPosProperty.get();
+		if (simulation.setCursor(cursorPos.getX(), cursorPos.getY())) {
+			replay.recordCursor(simulation.getTick(),
+					cursorPos.getX(), cursorPos.getY());
+		}
 		
-		// Record the start time
+		// Start moving the first obstacle circle and the rest of the game
+		simulation.start();
 		startTime = System.nanoTime();
+		governor.start();
+		gameLoop.start();
 	}
 	
 	
@@ -1052,162 +645,344 @@ public class Game extends Pane {
 	 */
 	private void gameOver(GameOverReason reason) {
 		if (gameOverProperty.get()) return;
+		GameOverEvent event = new GameOverEvent();
+		event.begin();
 		
-		// Record the end timer
-		endTime = System.nanoTime();
+		// Let the simulation know if the game was ended from outside of it
+		if (simulation.isStarted() && !simulation.isGameOver()) {
+			replay.recordEnd(simulation.getTick(), reason);
+			simulation.end(reason);
+			if (spectators != null) spectators.publish(simulation);
+		}
+		gameLoop.stop();
+		if (telemetry != null) telemetry.close();
+		removeRoundListeners();
 		
 		gameOverProperty.set(true);
 		
-		double time = (endTime - startTime) / 1e9;
-		
 		// If the game has not started yet (screen resized, etc.), don't show
 		// a score.
-		if (startTime == 0.0) {
+		if (!simulation.isStarted()) {
 			CursorDodgeApplication.switchToGameOverScene(reason);
 		}
 		
 		else {
-			CursorDodgeApplication.switchToGameOverScene(reason, time,
+			replay.setResult(reason, simulation.getTick());
+			saveReplay();
+			CursorDodgeApplication.switchToGameOverScene(reason,
+					simulation.getTime(),
 					sceneWidth, sceneHeight, screenWidth, screenHeight);
 		}
+		
+		event.end();
+		if (event.shouldCommit()) {
+			event.reason = reason.name();
+			event.started = simulation.isStarted();
+			event.ticks = simulation.getTick();
+			event.survivalTime = Math.round(simulation.getTime() * 1e9);
+			event.obstacleCount = simulation.getObstacleCircles().size();
+			event.catchCirclesCaught = simulation.getCatchCirclesCaught();
+			event.quality = governor.getQuality().name();
+			event.commit();
+		}
+	}
+	
+	
+	/**
+	 * Stops the countdown and removes every listener added during the round
+	 */
+	private void removeRoundListeners() {
+		countdownTimeline.stop();
+		maximizedProperty.removeListener(unmaximizedListener);
+		cursorPosProperty.removeListener(cursorMovedListener);
+		windowOutOfBoundsProperty.removeListener(windowMovedListener);
+		windowOutOfBoundsProperty.removeListener(windowBackListener);
+		windowOutOfBoundsProperty.removeListener(alsoOutOfBoundsListener);
+		windowOutOfBoundsProperty.removeListener(windowOutOfBoundsListener);
+		mouseExitedProperty.removeListener(cursorBackListener);
+		mouseExitedProperty.removeListener(mouseExitedListener);
+		mouseExitedProperty.removeListener(outOfBoundsListener);
+		Window window = this.getScene().getWindow();
+		window.widthProperty().removeListener(resizeListener);
+		window.heightProperty().removeListener(resizeListener);
+	}
+	
+	
+	/**
+	 * Starts recording telemetry of every frame to the telemetry directory
+	 */
+	private void startTelemetry() {
+		File directory = DataFiles.TELEMETRY_DIRECTORY;
+		File file = new File(directory, String.format("%d-%016x%s",
+				System.currentTimeMillis(), seed,
+				TelemetryRecorder.FILE_EXTENSION));
+		try {
+			directory.mkdirs();
+			telemetry = new TelemetryRecorder(file, simulation.getArena());
+			telemetryFrames = 0;
+		} catch (IOException e) {
+			System.out.println("Error starting telemetry");
+			e.printStackTrace();
+		}
+	}
+	
+	
+	/**
+	 * Saves the recording of the game to the replay directory on a background
+	 * thread, along with a summary of the time spent in each stage of a frame
+	 * and the changes to the quality the game was drawn at, if there were any.
+	 * The thread is handed the timings of the round and gives them back
+	 * emptied once they are written, so the next round never waits for it.
+	 */
+	private void saveReplay() {
+		Replay finishedReplay = replay;
+		FrameProfile finishedProfile = profile;
+		InputLatency finishedInputLatency = inputLatency;
+		String qualityLog = governor.getChangeCount() > 0 ?
+				governor.getLog() : null;
+		timingsSaving = true;
+		Thread replayWriter = new Thread(() -> {
+			File directory = DataFiles.REPLAY_DIRECTORY;
+			String name = String.format("%d-%016x",
+					System.currentTimeMillis(), seed);
+			try {
+				directory.mkdirs();
+				finishedReplay.write(
+						new File(directory, name + Replay.FILE_EXTENSION));
+			} catch (IOException e) {
+				System.out.println("Error saving replay");
+				e.printStackTrace();
+			}
+			try {
+				finishedProfile.write(
+						new File(directory, name + TIMINGS_EXTENSION),
+						finishedInputLatency);
+			} catch (IOException e) {
+				System.out.println("Error saving frame timings");
+				e.printStackTrace();
+			}
+			if (qualityLog != null) {
+				try {
+					QualityGovernor.writeLog(qualityLog,
+							new File(directory, name + QUALITY_EXTENSION));
+				} catch (IOException e) {
+					System.out.println("Error saving quality changes");
+					e.printStackTrace();
+				}
+			}
+			
+			// Give the timings back to be reused by a later round
+			finishedProfile.clear();
+			finishedInputLatency.clear();
+			Platform.runLater(() -> {
+				spareProfile = finishedProfile;
+				spareInputLatency = finishedInputLatency;
+			});
+		}, "Replay writer");
+		replayWriter.setDaemon(true);
+		replayWriter.start();
 	}
 	
 	
 	/**
 	 * Updates a variable with the current position of the cursor whenever it
-	 * moves
+	 * moves. In low latency mode, also checks the cursor against the circles
+	 * straight away.
 	 * @author Alex Gill
 	 *
 	 */
 	private class MouseMoveHandler implements EventHandler<MouseEvent> {
 		@Override
 		public void handle(MouseEvent e) {
-			cursorPosProperty.set(new Position(e.getSceneX(), e.getSceneY()));
+			long received = System.nanoTime();
+			if (simulation == null || gameOverProperty.get()) return;
+			double x = e.getSceneX();
+			double y = e.getSceneY();
+			// Move the one position in place rather than allocating on
+			// every move
+			cursorPosProperty.get().set(x, y);
+			cursorPosProperty.invalidate();
+			
+			// Game over if player hits the first circle before the game starts
+			if (!simulation.isStarted()) {
+				if (simulation.obstacleCircleAt(x, y))
+					gameOver(GameOverReason.OBSTACLE);
+				return;
+			}
+			if (simulation.isGameOver()) return;
+			inputLatency.dispatched(received, System.nanoTime());
+			
+			if (lowLatency) {
+				if (simulation.setCursor(x, y)) {
+					replay.recordCheckedCursor(simulation.getTick(), x, y);
+					simulation.checkCursor();
+				}
+				inputLatency.decided(System.nanoTime());
+				if (simulation.isGameOver())
+					gameOver(simulation.getGameOverReason());
+			}
 		}
 	}
 	
 	
 	/**
-	 * Creates a timeline that regularly causes circles appear in the corners
-	 * of the window. Automatically stops if the user moves out of the corner
-	 * or the game ends.
+	 * Advances the simulation to the current time every frame, feeding it the
+	 * cursor position before each step and recording it, and then moves the
+	 * circles on the pane to match
 	 * @author Alex Gill
 	 *
 	 */
-	private class CornerCircleTimeline {
-		private Timeline timeline;
-		ChangeListener<Boolean> gameOverListener;
-		ChangeListener<Position> cursorMoveListener;
-		public CornerCircleTimeline() {
-			// Create timeline that makes corner circles appear regularly
-			timeline = new Timeline(new KeyFrame(Duration.ZERO,
-							new EventHandler<ActionEvent>() {
-				@Override
-				public void handle(ActionEvent e) {
-					Ellipse circle = newCornerCircle();
-					Animation animation = newCornerCircleAnimation(circle, cursorCorner());
-					// Stop the timeline upon game over
-					gameOverListener = new ChangeListener<Boolean>() {
-						@Override
-						public void changed(ObservableValue<? extends Boolean> obs,
-								Boolean oldVal, Boolean newVal) {
-						if (newVal) {
-							timeline.stop();
-							removeListeners();
-							cornerCirclesActive = false;
-						}
-					}};
-					// Stop timeline upon player moving away
-					cursorMoveListener = new ChangeListener<Position>() {
-						@Override
-						public void changed(ObservableValue<? extends Position> obs,
-								Position oldVal, Position newVal) {
-						if (!cursorInCorner()) {
-							timeline.stop();
-							removeListeners();
-							cornerCirclesActive = false;
-						}
-					}};
-					addListeners();
-					animation.play();
+	private class GameLoop extends AnimationTimer {
+		@Override
+		public void handle(long now) {
+			if (!fixedQuality) governor.frame(now, simulation.getTick());
+			long targetTick = (long) ((now - startTime) / TICK_NANOS);
+			boolean stepped = false;
+			while (simulation.getTick() < targetTick &&
+					!simulation.isGameOver()) {
+				long inputStart = System.nanoTime();
+				Position cursorPos = cursorPosProperty.get();
+				if (simulation.setCursor(cursorPos.getX(), cursorPos.getY())) {
+					replay.recordCursor(simulation.getTick(),
+							cursorPos.getX(), cursorPos.getY());
 				}
-			}), new KeyFrame(Duration.seconds(CORNER_CIRCLE_INTERVAL)));
-			timeline.setCycleCount(Timeline.INDEFINITE);
-		}
-		private void addListeners() {
-			gameOverProperty.addListener(gameOverListener);
-			cursorPosProperty.addListener(cursorMoveListener);
-		}
-		private void removeListeners() {
-			gameOverProperty.removeListener(gameOverListener);
-			cursorPosProperty.removeListener(cursorMoveListener);
-		}
-		public void play() {
-			timeline.play();
-			cornerCirclesActive = true;
+				profile.lap(FrameProfile.INPUT, inputStart);
+				simulation.step();
+				
+				// The first step decides whether the latest moves hit
+				if (!stepped) {
+					inputLatency.decided(System.nanoTime());
+					stepped = true;
+				}
+			}
+			if (telemetry != null && telemetryFrames++ %
+					getTelemetryInterval() == 0)
+				telemetry.record(simulation);
+			
+			long renderStart = System.nanoTime();
+			updateCircles();
+			if (spectators != null) spectators.publish(simulation);
+			long shown = profile.lap(FrameProfile.RENDER, renderStart);
+			inputLatency.shown(shown);
+			profile.endFrame(simulation.getObstacleCircles().size());
+			
+			if (simulation.isGameOver()) {
+				gameOver(simulation.getGameOverReason());
+			}
 		}
 	}
 	
 	
 	/**
-	 * @return whether the window is outside of the screen bounds
+	 * @return whether the window is outside of the screen it is on
 	 */
 	private boolean windowOutOfBounds() {
-		Stage stage = (Stage)this.getScene().getWindow();
-		Rectangle2D screenBounds = Screen.getPrimary().getBounds();
-		double x = stage.getX();
-		double y = stage.getY();
-		double w = stage.getWidth();
-		double h = stage.getHeight();
-		boolean outOfBounds = false;
-		if (x <= screenBounds.getMinX()) {
-			outOfBounds = true;
-		}
-		else if (x + w >= screenBounds.getMaxX()) {
-			outOfBounds = true;
-		}
-		else if (y <= screenBounds.getMinY()) {
-			outOfBounds = true;
-		}
-		else if (y + h >= screenBounds.getMaxY()) {
-			outOfBounds = true;
-		}
-		return outOfBounds;
+		return windowMonitor.isOutOfBounds();
 	}
 	
 	
 	/**
-	 * @return Whether the cursor is in the corner of the window
+	 * @return Canvas the circles are drawn on
 	 */
-	private boolean cursorInCorner() {
-		Position cursorPos = cursorPosProperty.get();
-		return ((cursorPos.getX() <= circleRadius || cursorPos.getX() >= sceneWidth - circleRadius) &&
-				(cursorPos.getY() <= circleRadius || cursorPos.getY() >= sceneHeight - circleRadius));
+	public CircleCanvas getCircleCanvas() {
+		return circleCanvas;
 	}
 	
 	
 	/**
-	 * @return The corner the curser is in, or null if none
+	 * @return Pixels per unit the circles are drawn at
 	 */
-	private Corner cursorCorner() {
-		Position cursorPos = cursorPosProperty.get();
-		Corner corner;
-		if (cursorPos.getX() <= circleRadius && cursorPos.getY() <= circleRadius) {
-			corner = Corner.TOP_LEFT;
-		}
-		else if (cursorPos.getX() >= sceneWidth - circleRadius && cursorPos.getY() <= circleRadius) {
-			corner = Corner.TOP_RIGHT;
-		}
-		else if (cursorPos.getX() <= circleRadius && cursorPos.getY() >= sceneHeight - circleRadius) {
-			corner = Corner.BOTTOM_LEFT;
-		}
-		else if (cursorPos.getX() >= sceneWidth - circleRadius && cursorPos.getY() >= sceneHeight - circleRadius) {
-			corner = Corner.BOTTOM_RIGHT;
-		}
-		else {
-			corner = null;
-		}
-		return corner;
+	public double getRenderScale() {
+		return renderScale;
+	}
+	
+	
+	/**
+	 * Changes how many pixels per unit the images of the circles have, drawing
+	 * them again at the new scale
+	 * @param renderScale Pixels per unit the circles are drawn at
+	 */
+	public void setRenderScale(double renderScale) {
+		if (renderScale == this.renderScale) return;
+		this.renderScale = renderScale;
+		circleCanvas.setCircleSize(circleRadius, getDrawnScale());
+	}
+	
+	
+	/**
+	 * Gives up what the current quality does not draw, or takes it back
+	 */
+	private void applyQuality() {
+		circleCanvas.setResolution(atLeast(Quality.LOW_RESOLUTION) ?
+				LOW_RESOLUTION_SCALE : 1.0);
+		circleCanvas.setCircleSize(circleRadius, getDrawnScale());
+	}
+	
+	
+	/**
+	 * @param quality A quality
+	 * @return Whether the game is drawn at that quality or a cheaper one
+	 */
+	private boolean atLeast(Quality quality) {
+		return governor.getQuality().compareTo(quality) >= 0;
+	}
+	
+	
+	/**
+	 * @return Pixels per unit the circles are drawn at, at the current quality
+	 */
+	private double getDrawnScale() {
+		return atLeast(Quality.LOW_RESOLUTION) ?
+				renderScale * LOW_RESOLUTION_SCALE : renderScale;
+	}
+	
+	
+	/**
+	 * @return Frames between telemetry records at the current quality
+	 */
+	private int getTelemetryInterval() {
+		return atLeast(Quality.REDUCED_TELEMETRY) ?
+				REDUCED_TELEMETRY_INTERVAL : 1;
+	}
+	
+	
+	/**
+	 * @return The quality the game is drawn at
+	 */
+	public Quality getQuality() {
+		return governor.getQuality();
+	}
+	
+	
+	/**
+	 * @return The rules of the game, or null if the pane is not built yet
+	 */
+	public Simulation getSimulation() {
+		return simulation;
+	}
+	
+	
+	/**
+	 * @return Time from mouse moves to their effect on the game
+	 */
+	public InputLatency getInputLatency() {
+		return inputLatency;
+	}
+	
+	
+	/**
+	 * @return Number of listeners registered on whether the game is over
+	 */
+	public int getGameOverListenerCount() {
+		return gameOverProperty.getListenerCount();
+	}
+	
+	
+	/**
+	 * @return Number of listeners registered on the cursor position
+	 */
+	public int getCursorPosListenerCount() {
+		return cursorPosProperty.getListenerCount();
 	}
 	
-}
+}
\ No newline at end of file
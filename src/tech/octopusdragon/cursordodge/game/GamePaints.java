@@ -0,0 +1,26 @@
+package tech.octopusdragon.cursordodge.game;
+
+import javafx.scene.paint.Color;
+
+/**
+ * Colors the game is drawn in. Kept apart from {@link Game} so that tools that
+ * draw games without a display can use them without starting JavaFX.
+ * @author Alex Gill
+ *
+ */
+public class GamePaints {
+
+	// --- Constants ---
+	// Paint of the obstacle circles
+	public static final Color OBSTACLE_CIRCLE_PAINT = Color.RED;
+	// Paint of the circles the player must grab
+	public static final Color CATCH_CIRCLE_PAINT = Color.BLUE;
+	// Paint of corner obstacle circles
+	public static final Color CORNER_CIRCLE_PAINT = Color.GREEN;
+	// Paint of the walls of a shaped arena
+	public static final Color WALL_PAINT = Color.DARKGRAY;
+
+
+	private GamePaints() {}
+
+}
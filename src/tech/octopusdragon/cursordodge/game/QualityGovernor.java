@@ -0,0 +1,233 @@
+package tech.octopusdragon.cursordodge.game;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.Arrays;
+import java.util.Locale;
+
+import tech.octopusdragon.cursordodge.diagnostics.QualityChangeEvent;
+import tech.octopusdragon.cursordodge.game.classes.Quality;
+
+import javafx.beans.property.ReadOnlyObjectProperty;
+import javafx.beans.property.ReadOnlyObjectWrapper;
+
+/**
+ * Lowers the quality the game is drawn at when frames take longer than their
+ * budget, and raises it again once they have kept within it for a while. It
+ * only decides the {@link Quality}; what each level gives up is up to whoever
+ * watches it. Nothing about how the game is simulated is ever changed.
+ * <p>
+ * Frames are judged {@value #WINDOW} at a time. A frame is late if it took
+ * more than {@value #LATE_FACTOR} times the budget, so that it missed its
+ * place. If more than {@value #LATE_FRACTION} of a window was late, the
+ * quality goes down one level. It only goes back up one level after
+ * {@value #RAISE_AFTER} frames in a row without a late one. Every time
+ * raising it made frames late again soon after, that wait doubles, up to
+ * {@value #MAX_RAISE_AFTER} frames, so that the quality does not keep going
+ * up and down.
+ * <p>
+ * Every change is recorded as a flight recorder event and kept in a log of
+ * the round, which can be written out next to the replay.
+ * @author Alex Gill
+ *
+ */
+public class QualityGovernor {
+
+	// --- Constants ---
+	// Frames judged together
+	private static final int WINDOW = 60;
+	// How much longer than the budget a frame can take before it is late
+	private static final double LATE_FACTOR = 1.5;
+	// Fraction of a window that can be late before the quality is lowered
+	private static final double LATE_FRACTION = 0.1;
+	// Frames in a row without a late one before the quality is raised
+	private static final int RAISE_AFTER = 5 * WINDOW;
+	// Longest wait before raising the quality
+	private static final int MAX_RAISE_AFTER = 64 * WINDOW;
+	// Qualities from best to cheapest
+	private static final Quality[] QUALITIES = Quality.values();
+
+	// --- Variables ---
+	private long lateTime;			// Nanoseconds after which a frame is late
+	private long lastFrame;			// Time of the last frame
+	private int windowFrames;		// Frames judged so far in this window
+	private int lateFrames;			// Late frames so far in this window
+	private int steadyFrames;		// Frames in a row without a late one
+	private int raiseAfter = RAISE_AFTER;	// Wait before raising quality
+	private int sinceRaise = -1;	// Frames since the last raise, if recent
+	// The quality the game is drawn at
+	private ReadOnlyObjectWrapper<Quality> qualityProperty =
+			new ReadOnlyObjectWrapper<Quality>(Quality.FULL);
+	// Changes this round: the step, the new quality and the late frames
+	private int changeCount;
+	private long[] changeTicks = new long[16];
+	private Quality[] changeQualities = new Quality[16];
+	private int[] changeLateFrames = new int[16];
+
+
+	/**
+	 * Constructs a governor at full quality
+	 * @param budget Seconds each frame should take
+	 */
+	public QualityGovernor(double budget) {
+		lateTime = (long)(budget * LATE_FACTOR * 1e9);
+	}
+
+
+	/**
+	 * Starts judging frames afresh, keeping the quality. Called when the game
+	 * starts, so that the time before it is not taken as a late frame.
+	 */
+	public void start() {
+		lastFrame = 0;
+		windowFrames = 0;
+		lateFrames = 0;
+		steadyFrames = 0;
+		sinceRaise = -1;
+	}
+
+
+	/**
+	 * Judges a frame and changes the quality if it is time to
+	 * @param now Time of the frame in nanoseconds
+	 * @param tick Simulation step the frame is at
+	 */
+	public void frame(long now, long tick) {
+		long last = lastFrame;
+		lastFrame = now;
+		if (last == 0) return;
+
+		windowFrames++;
+		if (now - last > lateTime) {
+			lateFrames++;
+			steadyFrames = 0;
+		}
+		else {
+			steadyFrames++;
+		}
+		if (sinceRaise >= 0) sinceRaise++;
+
+		int level = qualityProperty.get().ordinal();
+		if (steadyFrames >= raiseAfter && level > 0) {
+			change(QUALITIES[level - 1], tick);
+			sinceRaise = 0;
+			return;
+		}
+		if (windowFrames < WINDOW) return;
+
+		if (lateFrames > LATE_FRACTION * WINDOW &&
+				level < QUALITIES.length - 1) {
+			// Raising it did not last, so wait longer next time
+			if (sinceRaise >= 0 && sinceRaise < raiseAfter)
+				raiseAfter = Math.min(MAX_RAISE_AFTER, raiseAfter * 2);
+			sinceRaise = -1;
+			change(QUALITIES[level + 1], tick);
+			return;
+		}
+		windowFrames = 0;
+		lateFrames = 0;
+	}
+
+
+	/**
+	 * Changes the quality and records the change
+	 * @param quality The new quality
+	 * @param tick Simulation step the change is made in
+	 */
+	private void change(Quality quality, long tick) {
+		QualityChangeEvent event = new QualityChangeEvent();
+		if (event.shouldCommit()) {
+			event.previous = qualityProperty.get().name();
+			event.quality = quality.name();
+			event.tick = tick;
+			event.lateFrames = lateFrames;
+			event.commit();
+		}
+
+		if (changeCount == changeTicks.length) {
+			int capacity = changeCount * 2;
+			changeTicks = Arrays.copyOf(changeTicks, capacity);
+			changeQualities = Arrays.copyOf(changeQualities, capacity);
+			changeLateFrames = Arrays.copyOf(changeLateFrames, capacity);
+		}
+		changeTicks[changeCount] = tick;
+		changeQualities[changeCount] = quality;
+		changeLateFrames[changeCount] = lateFrames;
+		changeCount++;
+
+		windowFrames = 0;
+		lateFrames = 0;
+		steadyFrames = 0;
+		qualityProperty.set(quality);
+	}
+
+
+	/**
+	 * Forgets the changes made in the last round
+	 */
+	public void clearLog() {
+		changeCount = 0;
+	}
+
+
+	/**
+	 * @return Number of changes made this round
+	 */
+	public int getChangeCount() {
+		return changeCount;
+	}
+
+
+	/**
+	 * @return The changes made this round as CSV, with the step and time of
+	 * each change, the quality it changed to and the number of late frames it
+	 * was decided on. It is a copy, so it can be written out on another thread
+	 * while the next round is played.
+	 */
+	public String getLog() {
+		StringBuilder log = new StringBuilder();
+		log.append(String.format("tick,time_s,quality,late_frames%n"));
+		for (int i = 0; i < changeCount; i++) {
+			log.append(String.format(Locale.ROOT, "%d,%.3f,%s,%d%n",
+					changeTicks[i], changeTicks[i] * Simulation.TICK_DURATION,
+					changeQualities[i].name(), changeLateFrames[i]));
+		}
+		return log.toString();
+	}
+
+
+	/**
+	 * Writes a log of changes
+	 * @param log The log, from {@link #getLog()}
+	 * @param file The file
+	 * @throws IOException If the file could not be written
+	 */
+	public static void writeLog(String log, File file) throws IOException {
+		try (PrintWriter out = new PrintWriter(
+				new BufferedWriter(new FileWriter(file)))) {
+			out.print(log);
+			if (out.checkError())
+				throw new IOException("Error writing " + file);
+		}
+	}
+
+
+	/**
+	 * @return The quality the game is drawn at
+	 */
+	public ReadOnlyObjectProperty<Quality> qualityProperty() {
+		return qualityProperty.getReadOnlyProperty();
+	}
+
+
+	/**
+	 * @return The quality the game is drawn at
+	 */
+	public Quality getQuality() {
+		return qualityProperty.get();
+	}
+
+}
@@ -0,0 +1,397 @@
+package tech.octopusdragon.cursordodge.game;
+
+import tech.octopusdragon.cursordodge.game.classes.CollisionPoint;
+
+/**
+ * A bounding volume hierarchy over the walls of an arena, so that finding the
+ * wall a moving circle hits first only looks at the walls near its path. Each
+ * wall is a line segment, and a circle hits it when its center comes within
+ * one radius of it, so each wall is really a capsule: the segment pushed out
+ * by the radius on both sides, with round ends. Every node of the tree bounds
+ * its walls with a box grown by the radius, so a path that misses a box
+ * misses every wall in it. Finding the first hit takes about logarithmic time
+ * in the number of walls.
+ * <p>
+ * The tree is built once when the arena is made and never changes. Casting a
+ * path through it allocates nothing but the collision point it returns, and
+ * {@link #castDistance(double, double, double, double)} allocates nothing.
+ * @author Alex Gill
+ *
+ */
+class SegmentTree {
+
+	// --- Constants ---
+	// Most walls kept in a leaf
+	private static final int LEAF_SIZE = 2;
+	// Deepest a balanced tree of the most walls an arena would have can get
+	private static final int MAX_DEPTH = 64;
+
+	// --- Variables ---
+	private double radius;		// Radius of the circles
+	// Walls: where each starts and ends and the unit normal of its line
+	private double[] startX;
+	private double[] startY;
+	private double[] endX;
+	private double[] endY;
+	private double[] normalX;
+	private double[] normalY;
+	private int[] order;		// Walls, grouped by the leaf they are in
+	// Nodes: the box around their walls grown by the radius, and either the
+	// index of their second child, the first being right after them, or for
+	// leaves, the range of the order their walls are in
+	private int nodeCount;
+	private double[] nodeMinX;
+	private double[] nodeMinY;
+	private double[] nodeMaxX;
+	private double[] nodeMaxY;
+	private int[] nodeSecond;	// Second child, or -1 for a leaf
+	private int[] nodeStart;
+	private int[] nodeEnd;
+	private int[] stack = new int[MAX_DEPTH];	// Nodes left to look at
+	// The first hit found by the last cast
+	private double hitDistance;
+	private double hitNormalX;
+	private double hitNormalY;
+
+
+	/**
+	 * Builds the tree over a set of walls
+	 * @param x X-coordinates of the ends of the walls, in pairs
+	 * @param y Y-coordinates of the ends of the walls, in pairs
+	 * @param count Number of walls
+	 * @param radius Radius of the circles
+	 */
+	public SegmentTree(double[] x, double[] y, int count, double radius) {
+		this.radius = radius;
+		startX = new double[count];
+		startY = new double[count];
+		endX = new double[count];
+		endY = new double[count];
+		normalX = new double[count];
+		normalY = new double[count];
+		order = new int[count];
+		double[] centerX = new double[count];
+		double[] centerY = new double[count];
+		for (int i = 0; i < count; i++) {
+			startX[i] = x[2 * i];
+			startY[i] = y[2 * i];
+			endX[i] = x[2 * i + 1];
+			endY[i] = y[2 * i + 1];
+			double dx = endX[i] - startX[i];
+			double dy = endY[i] - startY[i];
+			double length = Math.sqrt(dx * dx + dy * dy);
+			normalX[i] = -dy / length;
+			normalY[i] = dx / length;
+			centerX[i] = (startX[i] + endX[i]) / 2;
+			centerY[i] = (startY[i] + endY[i]) / 2;
+			order[i] = i;
+		}
+
+		int capacity = Math.max(1, 2 * count);
+		nodeMinX = new double[capacity];
+		nodeMinY = new double[capacity];
+		nodeMaxX = new double[capacity];
+		nodeMaxY = new double[capacity];
+		nodeSecond = new int[capacity];
+		nodeStart = new int[capacity];
+		nodeEnd = new int[capacity];
+		build(0, count, centerX, centerY);
+	}
+
+
+	/**
+	 * Builds the node over a range of the order and the nodes under it,
+	 * splitting the walls in half along the longer side of the box around
+	 * their centers
+	 * @param start Start of the range
+	 * @param end End of the range, exclusive
+	 * @param centerX X-coordinate of the center of each wall
+	 * @param centerY Y-coordinate of the center of each wall
+	 */
+	private void build(int start, int end, double[] centerX,
+			double[] centerY) {
+		int node = nodeCount++;
+		double minX = Double.POSITIVE_INFINITY;
+		double minY = Double.POSITIVE_INFINITY;
+		double maxX = Double.NEGATIVE_INFINITY;
+		double maxY = Double.NEGATIVE_INFINITY;
+		double centerMinX = Double.POSITIVE_INFINITY;
+		double centerMaxX = Double.NEGATIVE_INFINITY;
+		double centerMinY = Double.POSITIVE_INFINITY;
+		double centerMaxY = Double.NEGATIVE_INFINITY;
+		for (int i = start; i < end; i++) {
+			int wall = order[i];
+			minX = Math.min(minX, Math.min(startX[wall], endX[wall]));
+			minY = Math.min(minY, Math.min(startY[wall], endY[wall]));
+			maxX = Math.max(maxX, Math.max(startX[wall], endX[wall]));
+			maxY = Math.max(maxY, Math.max(startY[wall], endY[wall]));
+			centerMinX = Math.min(centerMinX, centerX[wall]);
+			centerMaxX = Math.max(centerMaxX, centerX[wall]);
+			centerMinY = Math.min(centerMinY, centerY[wall]);
+			centerMaxY = Math.max(centerMaxY, centerY[wall]);
+		}
+		nodeMinX[node] = minX - radius;
+		nodeMinY[node] = minY - radius;
+		nodeMaxX[node] = maxX + radius;
+		nodeMaxY[node] = maxY + radius;
+		nodeStart[node] = start;
+		nodeEnd[node] = end;
+		if (end - start <= LEAF_SIZE) {
+			nodeSecond[node] = -1;
+			return;
+		}
+
+		// Put the walls with centers in the lower half of the longer side
+		// first, and split at the middle
+		boolean alongX = centerMaxX - centerMinX >= centerMaxY - centerMinY;
+		double[] center = alongX ? centerX : centerY;
+		int middle = (start + end) / 2;
+		select(start, end, middle, center);
+		build(start, middle, centerX, centerY);
+		nodeSecond[node] = nodeCount;
+		build(middle, end, centerX, centerY);
+	}
+
+
+	/**
+	 * Partially sorts a range of the order so that the wall at an index is
+	 * the one that would be there if it were sorted by a coordinate, with
+	 * smaller ones before it and larger ones after
+	 * @param start Start of the range
+	 * @param end End of the range, exclusive
+	 * @param k The index
+	 * @param center The coordinate of the center of each wall
+	 */
+	private void select(int start, int end, int k, double[] center) {
+		int low = start;
+		int high = end - 1;
+		while (low < high) {
+			double pivot = center[order[(low + high) >>> 1]];
+			int i = low;
+			int j = high;
+			while (i <= j) {
+				while (center[order[i]] < pivot) i++;
+				while (center[order[j]] > pivot) j--;
+				if (i <= j) {
+					int swap = order[i];
+					order[i] = order[j];
+					order[j] = swap;
+					i++;
+					j--;
+				}
+			}
+			if (k <= j) high = j;
+			else if (k >= i) low = i;
+			else return;
+		}
+	}
+
+
+	/**
+	 * Finds where a circle moving from a point in a direction first touches a
+	 * wall
+	 * @param fromX X-coordinate of the center of the circle
+	 * @param fromY Y-coordinate of the center of the circle
+	 * @param directionX X part of the unit direction of movement
+	 * @param directionY Y part of the unit direction of movement
+	 * @return Where the center of the circle is when it touches the wall and
+	 * the normal of the wall there facing the circle, or null if it never
+	 * touches one
+	 */
+	public CollisionPoint cast(double fromX, double fromY, double directionX,
+			double directionY) {
+		double distance = castDistance(fromX, fromY, directionX, directionY);
+		if (distance == Double.POSITIVE_INFINITY) return null;
+		return new CollisionPoint(fromX + directionX * distance,
+				fromY + directionY * distance, hitNormalX, hitNormalY);
+	}
+
+
+	/**
+	 * Finds how far a circle moving from a point in a direction goes before
+	 * it first touches a wall, keeping the normal of the wall for
+	 * {@link #getHitNormalX()} and {@link #getHitNormalY()}
+	 * @param fromX X-coordinate of the center of the circle
+	 * @param fromY Y-coordinate of the center of the circle
+	 * @param directionX X part of the unit direction of movement
+	 * @param directionY Y part of the unit direction of movement
+	 * @return The distance, or infinity if it never touches one
+	 */
+	public double castDistance(double fromX, double fromY, double directionX,
+			double directionY) {
+		hitDistance = Double.POSITIVE_INFINITY;
+		double inverseX = 1 / directionX;
+		double inverseY = 1 / directionY;
+		int top = 0;
+		stack[top++] = 0;
+		while (top > 0) {
+			int node = stack[--top];
+			if (nodeCount == 0 ||
+					!entersBox(node, fromX, fromY, inverseX, inverseY))
+				continue;
+			int second = nodeSecond[node];
+			if (second >= 0) {
+				stack[top++] = second;
+				stack[top++] = node + 1;
+				continue;
+			}
+			for (int i = nodeStart[node]; i < nodeEnd[node]; i++) {
+				castWall(order[i], fromX, fromY, directionX, directionY);
+			}
+		}
+
+		return hitDistance;
+	}
+
+
+	/**
+	 * @return X part of the normal of the wall the last cast hit, facing the
+	 * circle
+	 */
+	public double getHitNormalX() {
+		return hitNormalX;
+	}
+
+
+	/**
+	 * @return Y part of the normal of the wall the last cast hit, facing the
+	 * circle
+	 */
+	public double getHitNormalY() {
+		return hitNormalY;
+	}
+
+
+	/**
+	 * @return Whether a path enters the box of a node before the first hit
+	 * found so far
+	 */
+	private boolean entersBox(int node, double fromX, double fromY,
+			double inverseX, double inverseY) {
+		double nearX = (nodeMinX[node] - fromX) * inverseX;
+		double farX = (nodeMaxX[node] - fromX) * inverseX;
+		double nearY = (nodeMinY[node] - fromY) * inverseY;
+		double farY = (nodeMaxY[node] - fromY) * inverseY;
+		// Moving parallel to a side from on its line gives NaN, so compare in
+		// a way that keeps the path in
+		double enter = Math.max(Math.min(nearX, farX), Math.min(nearY, farY));
+		double exit = Math.min(Math.max(nearX, farX), Math.max(nearY, farY));
+		return !(enter > exit) && !(exit < 0) && !(enter >= hitDistance);
+	}
+
+
+	/**
+	 * Checks where a path first touches the capsule around a wall, keeping it
+	 * if it is the first hit so far. Only a circle moving towards the wall can
+	 * touch it, so a circle that has just bounced off it does not.
+	 * @param wall Index of the wall
+	 */
+	private void castWall(int wall, double fromX, double fromY,
+			double directionX, double directionY) {
+
+		// The side of the wall the circle is on
+		double nx = normalX[wall];
+		double ny = normalY[wall];
+		double side = (fromX - startX[wall]) * nx + (fromY - startY[wall]) * ny;
+		if (side < 0) {
+			nx = -nx;
+			ny = -ny;
+			side = -side;
+		}
+		double approach = directionX * nx + directionY * ny;
+		if (approach >= 0) return;
+
+		// Where the center comes one radius from the line of the wall, if that
+		// is alongside the wall rather than past an end
+		double distance = Math.max(0, (side - radius) / -approach);
+		double x = fromX + directionX * distance;
+		double y = fromY + directionY * distance;
+		double wallX = endX[wall] - startX[wall];
+		double wallY = endY[wall] - startY[wall];
+		double along = (x - startX[wall]) * wallX + (y - startY[wall]) * wallY;
+		if (along >= 0 && along <= wallX * wallX + wallY * wallY) {
+			keepHit(distance, nx, ny);
+			return;
+		}
+
+		// Otherwise where it comes one radius from either end
+		castEnd(startX[wall], startY[wall], fromX, fromY,
+				directionX, directionY);
+		castEnd(endX[wall], endY[wall], fromX, fromY, directionX, directionY);
+	}
+
+
+	/**
+	 * Checks where a path first comes within one radius of the end of a wall,
+	 * keeping it if it is the first hit so far
+	 * @param pointX X-coordinate of the end
+	 * @param pointY Y-coordinate of the end
+	 */
+	private void castEnd(double pointX, double pointY, double fromX,
+			double fromY, double directionX, double directionY) {
+		double offsetX = fromX - pointX;
+		double offsetY = fromY - pointY;
+		double b = offsetX * directionX + offsetY * directionY;
+		if (b >= 0) return;
+		double c = offsetX * offsetX + offsetY * offsetY - radius * radius;
+		double discriminant = b * b - c;
+		if (discriminant < 0) return;
+		double distance = Math.max(0, -b - Math.sqrt(discriminant));
+		double x = offsetX + directionX * distance;
+		double y = offsetY + directionY * distance;
+		double length = Math.sqrt(x * x + y * y);
+		if (length == 0) return;
+		keepHit(distance, x / length, y / length);
+	}
+
+
+	/**
+	 * Keeps a hit if it is the first found so far
+	 */
+	private void keepHit(double distance, double nx, double ny) {
+		if (distance >= hitDistance) return;
+		hitDistance = distance;
+		hitNormalX = nx;
+		hitNormalY = ny;
+	}
+
+
+	/**
+	 * @param pointX X-coordinate of a point
+	 * @param pointY Y-coordinate of a point
+	 * @return Whether the point is within one radius of any wall
+	 */
+	public boolean nearWall(double pointX, double pointY) {
+		double radiusSquared = radius * radius;
+		int top = 0;
+		stack[top++] = 0;
+		while (top > 0) {
+			int node = stack[--top];
+			if (nodeCount == 0 ||
+					pointX < nodeMinX[node] || pointX > nodeMaxX[node] ||
+					pointY < nodeMinY[node] || pointY > nodeMaxY[node])
+				continue;
+			int second = nodeSecond[node];
+			if (second >= 0) {
+				stack[top++] = second;
+				stack[top++] = node + 1;
+				continue;
+			}
+			for (int i = nodeStart[node]; i < nodeEnd[node]; i++) {
+				int wall = order[i];
+				double wallX = endX[wall] - startX[wall];
+				double wallY = endY[wall] - startY[wall];
+				double offsetX = pointX - startX[wall];
+				double offsetY = pointY - startY[wall];
+				double t = (offsetX * wallX + offsetY * wallY) /
+						(wallX * wallX + wallY * wallY);
+				t = Math.max(0, Math.min(1, t));
+				double dx = offsetX - wallX * t;
+				double dy = offsetY - wallY * t;
+				if (dx * dx + dy * dy < radiusSquared) return true;
+			}
+		}
+		return false;
+	}
+
+}
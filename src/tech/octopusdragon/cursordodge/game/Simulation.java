@@ -0,0 +1,856 @@
+package tech.octopusdragon.cursordodge.game;
+
+import java.util.Random;
+
+import tech.octopusdragon.cursordodge.diagnostics.BounceEvent;
+import tech.octopusdragon.cursordodge.diagnostics.CatchCircleEvent;
+import tech.octopusdragon.cursordodge.diagnostics.CornerBurstEvent;
+import tech.octopusdragon.cursordodge.diagnostics.FrameProfile;
+import tech.octopusdragon.cursordodge.diagnostics.ObstacleSpawnEvent;
+import tech.octopusdragon.cursordodge.game.classes.CatchCircles;
+import tech.octopusdragon.cursordodge.game.classes.CollisionPoint;
+import tech.octopusdragon.cursordodge.game.classes.Corner;
+import tech.octopusdragon.cursordodge.game.classes.CornerCircles;
+import tech.octopusdragon.cursordodge.game.classes.Edge;
+import tech.octopusdragon.cursordodge.game.classes.GameOverReason;
+import tech.octopusdragon.cursordodge.game.classes.ObstacleCircles;
+import tech.octopusdragon.cursordodge.game.classes.Position;
+
+/**
+ * The rules of a cursor dodge game, advanced in fixed time steps. Given the
+ * same seed and the same cursor input at the same steps, a simulation always
+ * plays out the same way, whether it is driven by the game window or run
+ * without a display.
+ * <p>
+ * The circles of each kind are kept together in packed arrays, and each step
+ * runs over each kind in turn: moving and bouncing the obstacle circles,
+ * sliding the corner circles in and out, and checking the catch circles
+ * against the cursor.
+ * <p>
+ * If the difficulty has obstacle circles collide, those that touch each other
+ * after moving bounce off each other elastically, as equal masses. Only pairs
+ * moving toward each other bounce, so circles that overlap drift apart
+ * instead of sticking. The pairs are found with {@link SweepAndPrune}, in the
+ * same order every time, so a seeded game still plays out the same way.
+ * @author Alex Gill
+ *
+ */
+public class Simulation {
+
+	// --- Constants ---
+	// Number of simulation steps per second
+	public static final int TICKS_PER_SECOND = 240;
+	// Duration in seconds of one simulation step
+	public static final double TICK_DURATION = 1.0 / TICKS_PER_SECOND;
+	// Most bounces a single circle can make in one step
+	private static final int MAX_BOUNCES_PER_TICK = 8;
+	// Most positions and angles tried for a new obstacle circle before the
+	// one that keeps furthest from the cursor is taken
+	private static final int MAX_SPAWN_CANDIDATES = 32;
+	// The corners, kept so that picking one does not copy them
+	private static final Corner[] CORNERS = Corner.values();
+	// Name recorded for bounces off walls that are not edges of the scene
+	private static final String WALL = "WALL";
+
+	// --- Variables ---
+	private Arena arena;			// The geometry of the scene
+	private Difficulty difficulty;	// How hard the game is
+	private long seed;				// Seed of the random number generator
+	private Random random;			// The random number generator
+	private long tick;				// Number of steps since the game started
+	private boolean started;		// Whether the game has started
+	private GameOverReason gameOverReason;	// Reason the game ended, if it has
+	private double cursorX;			// X-coordinate of the cursor
+	private double cursorY;			// Y-coordinate of the cursor
+	private boolean cursorMoved;	// Whether the cursor moved since last step
+
+	// --- Game information ---
+	// Current speed of obstacle circles
+	private double obstacleCircleSpeed;
+	// Time the obstacle circle speed will next increase
+	private double nextSpeedUpdateTime;
+	// Interval at which new obstacle circles are created
+	private double obstacleCircleInterval;
+	// Time the next obstacle circle will be created
+	private double nextObstacleCircleTime;
+	// Duration over which catch circles will fade out
+	private double catchCircleFadeDuration;
+	// Time the next catch circle will be created
+	private double nextCatchCircleTime;
+	// Number of catch circles created so far
+	private int catchCircleCount;
+	// Number of catch circles caught so far
+	private int catchCirclesCaught;
+	// Whether corner circles are currently appearing
+	private boolean cornerCirclesActive;
+	// Time the next corner circle will appear
+	private double nextCornerCircleTime;
+	// Step the corner circles started appearing in
+	private long cornerBurstStartTick;
+	// Number of corner circles since they started appearing, and how many of
+	// them were in the corner of the cursor
+	private int cornerBurstCircles;
+	private int cornerBurstSameCornerCircles;
+	// Finds obstacle circles touching each other, or null if they pass
+	// through each other
+	private SweepAndPrune obstaclePairs;
+	// Number of times obstacle circles have bounced off each other
+	private long obstacleCollisionCount;
+	// Where the next obstacle circle might be placed, reused for every one
+	private Position spawnPosition = new Position();
+	// Where the time of each step is added, or null if it is not timed
+	private FrameProfile profile;
+	// The circles currently in the game
+	private ObstacleCircles obstacleCircles;
+	private CatchCircles catchCircles;
+	private CornerCircles cornerCircles;
+
+
+	/**
+	 * Creates a new game that has not started yet. The first obstacle circle
+	 * is placed right away.
+	 * @param arena The geometry of the scene
+	 * @param seed Seed of the random number generator
+	 */
+	public Simulation(Arena arena, long seed) {
+		this(arena, new Difficulty(), seed);
+	}
+
+
+	/**
+	 * Creates a new game that has not started yet. The first obstacle circle
+	 * is placed right away.
+	 * @param arena The geometry of the scene
+	 * @param difficulty How hard the game is
+	 * @param seed Seed of the random number generator
+	 */
+	public Simulation(Arena arena, Difficulty difficulty, long seed) {
+		this.arena = arena;
+		this.difficulty = difficulty;
+		this.seed = seed;
+		random = new Random(seed);
+		cursorX = Double.NaN;
+		cursorY = Double.NaN;
+
+		obstacleCircleSpeed = difficulty.getObstacleCircleInitialSpeed();
+		nextSpeedUpdateTime = 1.0;
+		obstacleCircleInterval = difficulty.getObstacleCircleInitialInterval();
+		nextObstacleCircleTime = difficulty.getObstacleCircleInitialInterval();
+		catchCircleFadeDuration = difficulty.getCatchCircleInitialDuration();
+		nextCatchCircleTime = difficulty.getCatchCircleDelay();
+		obstacleCircles = new ObstacleCircles();
+		catchCircles = new CatchCircles();
+		cornerCircles = new CornerCircles();
+		if (difficulty.hasObstacleCircleCollisions())
+			obstaclePairs = new SweepAndPrune();
+
+		// Create one new circle immediately
+		newObstacleCircle(false, 0.0);
+	}
+
+
+	/**
+	 * Starts the game. The first obstacle circle starts moving. The cursor
+	 * should be set first to where it waited for the game to start, so that
+	 * the first circle is not sent straight at it.
+	 */
+	public void start() {
+		if (started) return;
+		started = true;
+
+		// The first circle was placed before the cursor was known, so only
+		// its direction can keep it from heading at the cursor, and only if
+		// the cursor was set before the game started
+		double x = obstacleCircles.getX(0);
+		double y = obstacleCircles.getY(0);
+		double angle = arena.randomAngle(random);
+		if (predictingSpawns()) {
+			double clearance = spawnClearance(x, y, angle);
+			for (int candidate = 1; candidate < MAX_SPAWN_CANDIDATES &&
+					clearance < 0.0; candidate++) {
+				double nextAngle = arena.randomAngle(random);
+				double nextClearance = spawnClearance(x, y, nextAngle);
+				if (nextClearance > clearance) {
+					angle = nextAngle;
+					clearance = nextClearance;
+				}
+			}
+		}
+		startMoving(0, angle, 0.0);
+	}
+
+
+	/**
+	 * Moves the cursor
+	 * @param x X-coordinate of the cursor
+	 * @param y Y-coordinate of the cursor
+	 * @return Whether the cursor position changed
+	 */
+	public boolean setCursor(double x, double y) {
+		if (Double.compare(x, cursorX) == 0 && Double.compare(y, cursorY) == 0)
+			return false;
+		cursorX = x;
+		cursorY = y;
+		cursorMoved = true;
+		return true;
+	}
+
+
+	/**
+	 * Advances the game by one step
+	 */
+	public void step() {
+		if (!started || gameOverReason != null) return;
+		tick++;
+		double time = getTime();
+		long mark = profile != null ? System.nanoTime() : 0L;
+
+		// Update game values
+		while (time >= nextSpeedUpdateTime) {
+			obstacleCircleSpeed += difficulty.getObstacleCircleAcceleration();
+			nextSpeedUpdateTime += 1.0;
+		}
+
+		// Create new circles that are due
+		if (time >= nextObstacleCircleTime) {
+			if (obstacleCircles.size() < difficulty.getObstacleCircleLimit())
+				newObstacleCircle(true, nextObstacleCircleTime);
+			obstacleCircleInterval += difficulty.getObstacleCircleIntervalAdder();
+			nextObstacleCircleTime += obstacleCircleInterval;
+		}
+		if (time >= nextCatchCircleTime) {
+			Position position = arena.randomPosition(random);
+			int circle = catchCircles.add(position.getX(), position.getY(),
+					nextCatchCircleTime, catchCircleFadeDuration);
+			catchCircleEvent(CatchCircleEvent.SPAWNED, circle, time,
+					catchCircles.size());
+			if (catchCircleCount > 0)
+				catchCircleFadeDuration *=
+						difficulty.getCatchCircleDurationMultiplier();
+			catchCircleCount++;
+			nextCatchCircleTime += difficulty.getCatchCircleInterval();
+		}
+
+		// Start or stop the corner circles if the cursor moved into or out of
+		// a corner
+		if (cursorMoved) {
+			boolean inCorner = arena.inCorner(cursorX, cursorY);
+			if (inCorner && !cornerCirclesActive) {
+				cornerCirclesActive = true;
+				nextCornerCircleTime = time;
+				cornerBurstStartTick = tick;
+				cornerBurstCircles = 0;
+				cornerBurstSameCornerCircles = 0;
+			}
+			else if (!inCorner) {
+				endCornerBurst();
+			}
+			cursorMoved = false;
+		}
+		if (cornerCirclesActive && time >= nextCornerCircleTime) {
+			newCornerCircle(arena.corner(cursorX, cursorY), time);
+			nextCornerCircleTime += difficulty.getCornerCircleInterval();
+		}
+		if (profile != null) mark = profile.lap(FrameProfile.SPAWN, mark);
+
+		// Move the circles, timing bounces apart from the rest
+		long bounceTime = moveObstacleCircles(time);
+		if (obstaclePairs != null) bounceTime += collideObstacleCircles(time);
+		cornerCircles.advance(time,
+				difficulty.getCornerCircleAnimationDuration(),
+				difficulty.getCornerCircleDuration());
+		if (profile != null) {
+			profile.add(FrameProfile.BOUNCE, bounceTime);
+			mark = profile.lap(FrameProfile.INTEGRATION, mark + bounceTime);
+		}
+
+		collide(time);
+		if (profile != null) profile.lap(FrameProfile.COLLISION, mark);
+	}
+
+
+	/**
+	 * Moves every obstacle circle along its segment, bouncing it off the edges
+	 * of the scene it has reached
+	 * @param time The current time
+	 * @return Nanoseconds spent bouncing, if the step is being timed
+	 */
+	private long moveObstacleCircles(double time) {
+		long bounceTime = 0L;
+		for (int i = 0; i < obstacleCircles.size(); i++) {
+			int bounces = 0;
+			while (time >= obstacleCircles.getSegmentEnd(i) &&
+					bounces < MAX_BOUNCES_PER_TICK) {
+				bounces++;
+				if (profile != null) {
+					long bounceStart = System.nanoTime();
+					bounce(i, bounces);
+					bounceTime += System.nanoTime() - bounceStart;
+				}
+				else {
+					bounce(i, bounces);
+				}
+			}
+			obstacleCircles.advance(i, time);
+		}
+		return bounceTime;
+	}
+
+
+	/**
+	 * Bounces the obstacle circles that touch and are moving toward each
+	 * other off each other, swapping the parts of their velocities along the
+	 * line between their centers
+	 * @param time The current time
+	 * @return Nanoseconds spent, if the step is being timed
+	 */
+	private long collideObstacleCircles(double time) {
+		long start = profile != null ? System.nanoTime() : 0L;
+		int pairs = obstaclePairs.findPairs(obstacleCircles,
+				arena.getCircleRadius());
+		for (int p = 0; p < pairs; p++) {
+			int a = obstaclePairs.getA(p);
+			int b = obstaclePairs.getB(p);
+			double normalX = obstacleCircles.getX(b) - obstacleCircles.getX(a);
+			double normalY = obstacleCircles.getY(b) - obstacleCircles.getY(a);
+			double distance = Math.sqrt(
+					normalX * normalX + normalY * normalY);
+			if (distance == 0.0) continue;
+			normalX /= distance;
+			normalY /= distance;
+			double aVelocityX = obstacleCircles.getVelocityX(a);
+			double aVelocityY = obstacleCircles.getVelocityY(a);
+			double bVelocityX = obstacleCircles.getVelocityX(b);
+			double bVelocityY = obstacleCircles.getVelocityY(b);
+			double approach = (aVelocityX - bVelocityX) * normalX +
+					(aVelocityY - bVelocityY) * normalY;
+			if (approach <= 0.0) continue;
+			redirect(a, aVelocityX - approach * normalX,
+					aVelocityY - approach * normalY, time);
+			redirect(b, bVelocityX + approach * normalX,
+					bVelocityY + approach * normalY, time);
+			obstacleCollisionCount++;
+		}
+		return profile != null ? System.nanoTime() - start : 0L;
+	}
+
+
+	/**
+	 * Checks the cursor against the circles, catching catch circles it is
+	 * inside and ending the game if it is inside an obstacle or corner circle
+	 * or a catch circle has faded out
+	 * @param time The current time
+	 */
+	private void collide(double time) {
+		if (obstacleCircleAt(cursorX, cursorY) ||
+				cornerCircleAt(cursorX, cursorY)) {
+			gameOver(GameOverReason.OBSTACLE);
+			return;
+		}
+		for (int i = 0; i < catchCircles.size(); i++) {
+			if (contains(catchCircles.getX(i), catchCircles.getY(i),
+					cursorX, cursorY)) {
+				catchCircleEvent(CatchCircleEvent.CAUGHT, i, time,
+						catchCircles.size() - 1);
+				catchCircles.remove(i--);
+				catchCirclesCaught++;
+			}
+			else if (time >= catchCircles.getEndTime(i)) {
+				catchCircleEvent(CatchCircleEvent.EXPIRED, i, time,
+						catchCircles.size());
+				gameOver(GameOverReason.DID_NOT_CATCH);
+				return;
+			}
+		}
+	}
+
+
+	/**
+	 * Checks the cursor against the obstacle and corner circles where they are
+	 * now, ending the game if it is inside one, without waiting for the next
+	 * step
+	 * @return Whether the game is over
+	 */
+	public boolean checkCursor() {
+		if (started && gameOverReason == null &&
+				(obstacleCircleAt(cursorX, cursorY) ||
+						cornerCircleAt(cursorX, cursorY))) {
+			gameOver(GameOverReason.OBSTACLE);
+		}
+		return gameOverReason != null;
+	}
+
+
+	/**
+	 * Ends the game for a reason decided outside of the simulation, such as
+	 * the window being resized
+	 * @param reason The reason the game has ended
+	 */
+	public void end(GameOverReason reason) {
+		if (gameOverReason == null)
+			gameOver(reason);
+	}
+
+
+	/**
+	 * @param x X-coordinate
+	 * @param y Y-coordinate
+	 * @return Whether the point is inside an obstacle circle
+	 */
+	public boolean obstacleCircleAt(double x, double y) {
+		return obstacleCircles.anyAt(x, y, arena.getCircleRadius());
+	}
+
+
+	/**
+	 * @param x X-coordinate
+	 * @param y Y-coordinate
+	 * @return Whether the point is inside a corner circle
+	 */
+	public boolean cornerCircleAt(double x, double y) {
+		return cornerCircles.anyAt(x, y, arena.getCircleRadius());
+	}
+
+
+	/**
+	 * Creates a new obstacle circle at a random position excluding an area
+	 * around the cursor. If it starts moving straight away, its direction is
+	 * picked along with its position, and while the path it is predicted to
+	 * take passes too close to the cursor, another position and direction are
+	 * tried. If none of them keep clear, the one that comes least close is
+	 * taken.
+	 * @param move Whether the circle starts moving
+	 * @param startTime The time the circle starts moving
+	 * @return Index of the obstacle circle
+	 */
+	private int newObstacleCircle(boolean move, double startTime) {
+		ObstacleSpawnEvent event = new ObstacleSpawnEvent();
+		event.begin();
+		boolean timed = event.isEnabled();
+		long selectionStart = timed ? System.nanoTime() : 0L;
+		arena.randomPositionExcludeCursorVicinity(
+				random, cursorX, cursorY, spawnPosition);
+		double x = spawnPosition.getX();
+		double y = spawnPosition.getY();
+		double angle = move ? arena.randomAngle(random) : 0.0;
+		int candidates = 1;
+		if (move && predictingSpawns()) {
+			double clearance = spawnClearance(x, y, angle);
+			while (clearance < 0.0 && candidates < MAX_SPAWN_CANDIDATES) {
+				arena.randomPositionExcludeCursorVicinity(
+						random, cursorX, cursorY, spawnPosition);
+				double nextAngle = arena.randomAngle(random);
+				double nextClearance = spawnClearance(spawnPosition.getX(),
+						spawnPosition.getY(), nextAngle);
+				candidates++;
+				if (nextClearance > clearance) {
+					x = spawnPosition.getX();
+					y = spawnPosition.getY();
+					angle = nextAngle;
+					clearance = nextClearance;
+				}
+			}
+		}
+		long selectionEnd = timed ? System.nanoTime() : 0L;
+		int circle = obstacleCircles.add(x, y);
+		if (move) startMoving(circle, angle, startTime);
+
+		event.end();
+		if (event.shouldCommit()) {
+			event.tick = tick;
+			event.x = obstacleCircles.getX(circle);
+			event.y = obstacleCircles.getY(circle);
+			event.selectionTime = selectionEnd - selectionStart;
+			event.candidates = candidates;
+			event.obstacleCount = obstacleCircles.size();
+			event.commit();
+		}
+		return circle;
+	}
+
+
+	/**
+	 * @return Whether the paths of new obstacle circles are predicted to keep
+	 * them from heading straight at the cursor
+	 */
+	private boolean predictingSpawns() {
+		return difficulty.getSpawnPredictionTime() > 0.0 &&
+				!Double.isNaN(cursorX) && !Double.isNaN(cursorY);
+	}
+
+
+	/**
+	 * Predicts the path a new obstacle circle would take and finds how far it
+	 * keeps from the cursor, beyond the safety margin
+	 * @param x X-coordinate of the circle
+	 * @param y Y-coordinate of the circle
+	 * @param angle The angle it would move in
+	 * @return How far the edge of the circle keeps outside the margin around
+	 * the cursor, or less than zero if it comes inside it
+	 */
+	private double spawnClearance(double x, double y, double angle) {
+		double distance =
+				obstacleCircleSpeed * difficulty.getSpawnPredictionTime();
+		double safeDistance = arena.getCircleRadius() *
+				(1.0 + difficulty.getSpawnSafetyMargin());
+		return arena.closestApproach(x, y, angle, distance,
+				cursorX, cursorY) - safeDistance;
+	}
+
+
+	/**
+	 * Creates a new corner circle at a random corner. It is more likely to
+	 * appear in the same corner as the cursor.
+	 * @param cursorCorner The corner the cursor is in
+	 * @param time The time the circle appears
+	 */
+	private void newCornerCircle(Corner cursorCorner, double time) {
+		Corner corner;
+		if (random.nextDouble() < difficulty.getCornerCircleSameCornerChance()) {
+			corner = cursorCorner;
+		}
+		else {
+			// Pick one of the other three corners
+			int index = random.nextInt(CORNERS.length - 1);
+			if (index >= cursorCorner.ordinal()) index++;
+			corner = CORNERS[index];
+		}
+		cornerBurstCircles++;
+		if (corner == cursorCorner) cornerBurstSameCornerCircles++;
+		cornerCircles.add(corner,
+				arena.onscreenX(corner), arena.onscreenY(corner),
+				arena.offscreenX(corner), arena.offscreenY(corner), time);
+	}
+
+
+	/**
+	 * Starts an obstacle circle moving in a straight line in the given
+	 * direction until it hits the edge of the scene
+	 * @param circle Index of the obstacle circle
+	 * @param angle The angle in which the circle will move
+	 * @param startTime The time the circle starts moving
+	 */
+	private void startMoving(int circle, double angle, double startTime) {
+		startMoving(circle, angle, startTime, obstacleCircleSpeed);
+	}
+
+
+	/**
+	 * Starts an obstacle circle moving in a straight line in the given
+	 * direction at the given speed until it hits the edge of the scene
+	 * @param circle Index of the obstacle circle
+	 * @param angle The angle in which the circle will move
+	 * @param startTime The time the circle starts moving
+	 * @param speed Speed of the circle in pixels per second
+	 */
+	private void startMoving(int circle, double angle, double startTime,
+			double speed) {
+		double x = obstacleCircles.getX(circle);
+		double y = obstacleCircles.getY(circle);
+		CollisionPoint collisionPoint = arena.collisionPoint(x, y, angle);
+		double duration = arena.time(x, y,
+				collisionPoint.getX(), collisionPoint.getY(), speed);
+		obstacleCircles.setSegment(circle, angle, collisionPoint, startTime,
+				duration);
+	}
+
+
+	/**
+	 * Starts an obstacle circle moving with a new velocity from where it is
+	 * @param circle Index of the obstacle circle
+	 * @param velocityX Speed along the X-axis in pixels per second
+	 * @param velocityY Speed along the Y-axis in pixels per second
+	 * @param startTime The time the circle starts moving
+	 */
+	private void redirect(int circle, double velocityX, double velocityY,
+			double startTime) {
+		double speed = Math.sqrt(velocityX * velocityX + velocityY * velocityY);
+		if (speed == 0.0) return;
+
+		// Angles go counterclockwise from the right, with Y pointing down
+		double angle = Math.toDegrees(Math.atan2(-velocityY, velocityX));
+		if (angle < 0.0) angle += 360.0;
+		if (angle >= 360.0) angle -= 360.0;
+		startMoving(circle, angle, startTime, speed);
+	}
+
+
+	/**
+	 * Bounces an obstacle circle that has reached the end of its segment off
+	 * the edge of the scene, or off the wall of a shaped arena about its
+	 * normal
+	 * @param circle Index of the obstacle circle
+	 * @param bounces Bounces of the circle in this step, including this one
+	 */
+	private void bounce(int circle, int bounces) {
+		BounceEvent event = new BounceEvent();
+		event.begin();
+		boolean timed = event.isEnabled();
+		double segmentEnd = obstacleCircles.getSegmentEnd(circle);
+		obstacleCircles.advance(circle, segmentEnd);
+		Edge edge = obstacleCircles.getEdge(circle);
+		double oldAngle = obstacleCircles.getAngle(circle);
+		long angleStart = timed ? System.nanoTime() : 0L;
+		double newAngle = edge != null ?
+				arena.newAngle(edge, oldAngle, random) :
+				arena.newAngle(obstacleCircles.getNormalX(circle),
+						obstacleCircles.getNormalY(circle), oldAngle, random);
+		long angleEnd = timed ? System.nanoTime() : 0L;
+		startMoving(circle, newAngle, segmentEnd);
+		long collisionPointEnd = timed ? System.nanoTime() : 0L;
+
+		event.end();
+		if (event.shouldCommit()) {
+			event.tick = tick;
+			event.edge = edge != null ? edge.name() : WALL;
+			event.oldAngle = oldAngle;
+			event.newAngle = newAngle;
+			event.newAngleTime = angleEnd - angleStart;
+			event.collisionPointTime = collisionPointEnd - angleEnd;
+			event.bounces = bounces;
+			event.commit();
+		}
+	}
+
+
+	/**
+	 * Ends the game and anything in progress
+	 * @param reason The reason the game has ended
+	 */
+	private void gameOver(GameOverReason reason) {
+		gameOverReason = reason;
+		endCornerBurst();
+	}
+
+
+	/**
+	 * Stops corner circles from appearing, recording the burst of them that
+	 * has ended
+	 */
+	private void endCornerBurst() {
+		if (!cornerCirclesActive) return;
+		cornerCirclesActive = false;
+		CornerBurstEvent event = new CornerBurstEvent();
+		if (event.shouldCommit()) {
+			event.startTick = cornerBurstStartTick;
+			event.endTick = tick;
+			event.simulatedDuration = nanos(
+					(tick - cornerBurstStartTick) * TICK_DURATION);
+			event.circles = cornerBurstCircles;
+			event.sameCornerCircles = cornerBurstSameCornerCircles;
+			event.commit();
+		}
+	}
+
+
+	/**
+	 * Records a change in the life of a catch circle
+	 * @param phase What happened to the circle
+	 * @param circle Index of the catch circle
+	 * @param time The current time
+	 * @param catchCount Number of catch circles after the change
+	 */
+	private void catchCircleEvent(String phase, int circle, double time,
+			int catchCount) {
+		CatchCircleEvent event = new CatchCircleEvent();
+		if (event.shouldCommit()) {
+			event.phase = phase;
+			event.tick = tick;
+			event.x = catchCircles.getX(circle);
+			event.y = catchCircles.getY(circle);
+			event.fadeDuration = nanos(catchCircles.getFadeDuration(circle));
+			event.age = nanos(time - catchCircles.getStartTime(circle));
+			event.catchCount = catchCount;
+			event.commit();
+		}
+	}
+
+
+	/**
+	 * @param seconds A length of time in seconds
+	 * @return The length of time in nanoseconds
+	 */
+	private static long nanos(double seconds) {
+		return Math.round(seconds * 1e9);
+	}
+
+
+	/**
+	 * @param circleX X-coordinate of the center of a circle
+	 * @param circleY Y-coordinate of the center of a circle
+	 * @param x X-coordinate of a point
+	 * @param y Y-coordinate of a point
+	 * @return Whether the point is inside the circle
+	 */
+	private boolean contains(double circleX, double circleY,
+			double x, double y) {
+		double dx = x - circleX;
+		double dy = y - circleY;
+		double radius = arena.getCircleRadius();
+		return dx * dx + dy * dy < radius * radius;
+	}
+
+
+	/**
+	 * Starts or stops adding the time spent in each stage of a step to a
+	 * profile
+	 * @param profile The profile, or null to stop
+	 */
+	public void setProfile(FrameProfile profile) {
+		this.profile = profile;
+	}
+
+
+	/**
+	 * @return Number of times obstacle circles have bounced off each other
+	 */
+	public long getObstacleCollisionCount() {
+		return obstacleCollisionCount;
+	}
+
+
+	/**
+	 * @return Number of catch circles caught so far
+	 */
+	public int getCatchCirclesCaught() {
+		return catchCirclesCaught;
+	}
+
+
+	/**
+	 * @return The geometry of the scene
+	 */
+	public Arena getArena() {
+		return arena;
+	}
+
+
+	/**
+	 * @return How hard the game is
+	 */
+	public Difficulty getDifficulty() {
+		return difficulty;
+	}
+
+
+	/**
+	 * @return Seed of the random number generator
+	 */
+	public long getSeed() {
+		return seed;
+	}
+
+
+	/**
+	 * @return Number of steps since the game started
+	 */
+	public long getTick() {
+		return tick;
+	}
+
+
+	/**
+	 * @return Time in seconds since the game started
+	 */
+	public double getTime() {
+		return tick * TICK_DURATION;
+	}
+
+
+	/**
+	 * @return Whether the game has started
+	 */
+	public boolean isStarted() {
+		return started;
+	}
+
+
+	/**
+	 * @return Whether the game is over
+	 */
+	public boolean isGameOver() {
+		return gameOverReason != null;
+	}
+
+
+	/**
+	 * @return The reason the game ended, or null if it has not
+	 */
+	public GameOverReason getGameOverReason() {
+		return gameOverReason;
+	}
+
+
+	/**
+	 * @return X-coordinate of the cursor, or NaN if unknown
+	 */
+	public double getCursorX() {
+		return cursorX;
+	}
+
+
+	/**
+	 * @return Y-coordinate of the cursor, or NaN if unknown
+	 */
+	public double getCursorY() {
+		return cursorY;
+	}
+
+
+	/**
+	 * @return Current speed of obstacle circles in pixels per second
+	 */
+	public double getObstacleCircleSpeed() {
+		return obstacleCircleSpeed;
+	}
+
+
+	/**
+	 * @return Time the next obstacle circle will be created
+	 */
+	public double getNextObstacleCircleTime() {
+		return nextObstacleCircleTime;
+	}
+
+
+	/**
+	 * @return Time the next catch circle will be created
+	 */
+	public double getNextCatchCircleTime() {
+		return nextCatchCircleTime;
+	}
+
+
+	/**
+	 * @return Time the next corner circle will appear, or NaN if corner
+	 * circles are not appearing
+	 */
+	public double getNextCornerCircleTime() {
+		return cornerCirclesActive ? nextCornerCircleTime : Double.NaN;
+	}
+
+
+	/**
+	 * @return The obstacle circles currently in the game
+	 */
+	public ObstacleCircles getObstacleCircles() {
+		return obstacleCircles;
+	}
+
+
+	/**
+	 * @return The catch circles currently in the game
+	 */
+	public CatchCircles getCatchCircles() {
+		return catchCircles;
+	}
+
+
+	/**
+	 * @return The corner circles currently in the game
+	 */
+	public CornerCircles getCornerCircles() {
+		return cornerCircles;
+	}
+
+}
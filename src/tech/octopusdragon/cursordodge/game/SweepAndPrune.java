@@ -0,0 +1,130 @@
+package tech.octopusdragon.cursordodge.game;
+
+import java.util.Arrays;
+
+import tech.octopusdragon.cursordodge.game.classes.Circles;
+
+/**
+ * Finds the pairs of circles of one kind that overlap without comparing every
+ * circle with every other. The circles are kept sorted by the left edge of
+ * their bounding box, and only circles whose boxes overlap along the X-axis
+ * are compared. Circles move only a little between steps, so the order of the
+ * last step is nearly sorted and an insertion sort puts it right in close to
+ * one pass. The number of pairs compared stays close to the number of circles
+ * unless many of them are lined up on top of each other.
+ * <p>
+ * Circles must only ever be added to the end, never removed, so that each
+ * index stays the same circle from step to step. Given the same circles in
+ * the same places, the pairs are always found in the same order.
+ * @author Alex Gill
+ *
+ */
+class SweepAndPrune {
+
+	// --- Variables ---
+	private int[] order = new int[16];	// Indices of the circles, sorted
+	private int sorted;					// Number of circles in the order
+	private int pairCount;				// Number of pairs found
+	private int[] pairA = new int[16];	// First circle of each pair
+	private int[] pairB = new int[16];	// Second circle of each pair
+	private long comparisons;			// Pairs compared in the last search
+
+
+	/**
+	 * Finds every pair of circles closer than two radii apart
+	 * @param circles The circles
+	 * @param radius Radius of the circles
+	 * @return Number of pairs found
+	 */
+	public int findPairs(Circles circles, double radius) {
+		sort(circles);
+
+		// Sweep along the X-axis, comparing each circle with the ones after it
+		// until one starts past its right edge
+		double diameter = 2 * radius;
+		double diameterSquared = diameter * diameter;
+		pairCount = 0;
+		comparisons = 0;
+		for (int i = 0; i < sorted; i++) {
+			int a = order[i];
+			double ax = circles.getX(a);
+			double ay = circles.getY(a);
+			for (int j = i + 1; j < sorted; j++) {
+				int b = order[j];
+				double dx = circles.getX(b) - ax;
+				if (dx >= diameter) break;
+				comparisons++;
+				double dy = circles.getY(b) - ay;
+				if (dx * dx + dy * dy < diameterSquared) addPair(a, b);
+			}
+		}
+		return pairCount;
+	}
+
+
+	/**
+	 * Adds any new circles to the order and sorts it by X-coordinate by
+	 * insertion, which is quick when it is nearly sorted already
+	 * @param circles The circles
+	 */
+	private void sort(Circles circles) {
+		int count = circles.size();
+		if (count > order.length)
+			order = Arrays.copyOf(order, Math.max(count, order.length * 2));
+		while (sorted < count) {
+			order[sorted] = sorted;
+			sorted++;
+		}
+		for (int i = 1; i < sorted; i++) {
+			int circle = order[i];
+			double x = circles.getX(circle);
+			int j = i - 1;
+			while (j >= 0 && circles.getX(order[j]) > x) {
+				order[j + 1] = order[j];
+				j--;
+			}
+			order[j + 1] = circle;
+		}
+	}
+
+
+	/**
+	 * Adds a pair to the pairs found
+	 */
+	private void addPair(int a, int b) {
+		if (pairCount == pairA.length) {
+			pairA = Arrays.copyOf(pairA, pairCount * 2);
+			pairB = Arrays.copyOf(pairB, pairCount * 2);
+		}
+		pairA[pairCount] = a;
+		pairB[pairCount] = b;
+		pairCount++;
+	}
+
+
+	/**
+	 * @param pair Index of a pair found
+	 * @return The circle of the pair further left
+	 */
+	public int getA(int pair) {
+		return pairA[pair];
+	}
+
+
+	/**
+	 * @param pair Index of a pair found
+	 * @return The circle of the pair further right
+	 */
+	public int getB(int pair) {
+		return pairB[pair];
+	}
+
+
+	/**
+	 * @return Number of pairs compared in the last search
+	 */
+	public long getComparisons() {
+		return comparisons;
+	}
+
+}
@@ -0,0 +1,145 @@
+package tech.octopusdragon.cursordodge.game;
+
+import java.util.List;
+
+import javafx.animation.AnimationTimer;
+import javafx.beans.InvalidationListener;
+import javafx.beans.property.ReadOnlyBooleanProperty;
+import javafx.beans.property.ReadOnlyBooleanWrapper;
+import javafx.collections.ListChangeListener;
+import javafx.geometry.Rectangle2D;
+import javafx.stage.Screen;
+import javafx.stage.Window;
+
+/**
+ * Watches whether a window is fully inside one of the screens, on any number
+ * of monitors. Moving or resizing the window only marks it to be checked; it
+ * is checked at most once per pulse, however many times the position and size
+ * of the window changed since the last one. Reading whether it is out of
+ * bounds while a check is waiting checks it straight away.
+ * <p>
+ * The screen the window was last on is kept, so that as long as the window
+ * stays inside it the screens do not have to be looked up. They are looked up
+ * again when the window leaves it or the screens change.
+ * @author Alex Gill
+ *
+ */
+public class WindowBoundsMonitor {
+
+	// --- Variables ---
+	private Window window;			// The window being watched
+	private Screen screen;			// The screen the window was last on
+	private boolean dirty;			// Whether the window has to be checked
+	// Whether the window is outside of the screens
+	private ReadOnlyBooleanWrapper outOfBoundsProperty =
+			new ReadOnlyBooleanWrapper();
+	// Checks the window on the next pulse
+	private AnimationTimer pulse = new AnimationTimer() {
+		@Override
+		public void handle(long now) {
+			update();
+		}
+	};
+	// Marks the window to be checked when it moves or is resized
+	private InvalidationListener moveListener = observable -> invalidate();
+	// Forgets the screen the window was on when the screens change
+	private ListChangeListener<Screen> screensListener = change -> {
+		screen = null;
+		invalidate();
+	};
+
+
+	/**
+	 * Starts watching a window
+	 * @param window The window
+	 */
+	public WindowBoundsMonitor(Window window) {
+		this.window = window;
+		window.xProperty().addListener(moveListener);
+		window.yProperty().addListener(moveListener);
+		window.widthProperty().addListener(moveListener);
+		window.heightProperty().addListener(moveListener);
+		Screen.getScreens().addListener(screensListener);
+		update();
+	}
+
+
+	/**
+	 * Marks the window to be checked on the next pulse
+	 */
+	private void invalidate() {
+		if (dirty) return;
+		dirty = true;
+		pulse.start();
+	}
+
+
+	/**
+	 * Checks whether the window is inside the screen it is on
+	 */
+	private void update() {
+		dirty = false;
+		pulse.stop();
+		double x = window.getX();
+		double y = window.getY();
+		double w = window.getWidth();
+		double h = window.getHeight();
+
+		// Look for another screen if the window is not inside the last one
+		if (screen == null || !inside(screen.getBounds(), x, y, w, h)) {
+			List<Screen> screens = Screen.getScreensForRectangle(x, y, w, h);
+			Screen found = null;
+			for (int i = 0; i < screens.size(); i++) {
+				if (inside(screens.get(i).getBounds(), x, y, w, h)) {
+					found = screens.get(i);
+					break;
+				}
+			}
+			if (found == null && !screens.isEmpty()) found = screens.get(0);
+			if (found != null) screen = found;
+		}
+
+		outOfBoundsProperty.set(screen == null ||
+				!inside(screen.getBounds(), x, y, w, h));
+	}
+
+
+	/**
+	 * @return Whether the window is strictly inside the bounds
+	 */
+	private static boolean inside(Rectangle2D bounds,
+			double x, double y, double w, double h) {
+		return x > bounds.getMinX() && x + w < bounds.getMaxX() &&
+				y > bounds.getMinY() && y + h < bounds.getMaxY();
+	}
+
+
+	/**
+	 * @return Whether the window is outside of the screens, as of the last
+	 * check
+	 */
+	public ReadOnlyBooleanProperty outOfBoundsProperty() {
+		return outOfBoundsProperty.getReadOnlyProperty();
+	}
+
+
+	/**
+	 * @return Whether the window is outside of the screens right now
+	 */
+	public boolean isOutOfBounds() {
+		if (dirty) update();
+		return outOfBoundsProperty.get();
+	}
+
+
+	/**
+	 * @return The bounds of the screen the window is on, or of the primary
+	 * screen if it is on none
+	 */
+	public Rectangle2D getScreenBounds() {
+		if (dirty) update();
+		return screen != null ? screen.getBounds() :
+				Screen.getPrimary().getBounds();
+	}
+
+}
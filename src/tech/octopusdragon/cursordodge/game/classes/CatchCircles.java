@@ -0,0 +1,98 @@
+package tech.octopusdragon.cursordodge.game.classes;
+
+import java.util.Arrays;
+
+/**
+ * The circles the player must grab before they fade out
+ * @author Alex Gill
+ *
+ */
+public class CatchCircles extends Circles {
+
+	// --- Variables ---
+	private double[] startTime;		// Time the circle appeared
+	private double[] fadeDuration;	// Time it takes the circle to fade out
+
+
+	/**
+	 * Constructs an empty set of catch circles
+	 */
+	public CatchCircles() {
+		super();
+		startTime = new double[INITIAL_CAPACITY];
+		fadeDuration = new double[INITIAL_CAPACITY];
+	}
+
+
+	@Override
+	protected void grow(int capacity) {
+		super.grow(capacity);
+		startTime = Arrays.copyOf(startTime, capacity);
+		fadeDuration = Arrays.copyOf(fadeDuration, capacity);
+	}
+
+
+	@Override
+	protected void move(int from, int to) {
+		super.move(from, to);
+		startTime[to] = startTime[from];
+		fadeDuration[to] = fadeDuration[from];
+	}
+
+
+	/**
+	 * Adds a catch circle
+	 * @param x X-coordinate
+	 * @param y Y-coordinate
+	 * @param startTime Time the circle appeared
+	 * @param fadeDuration Time it takes the circle to fade out
+	 * @return Index of the circle
+	 */
+	public int add(double x, double y, double startTime,
+			double fadeDuration) {
+		int i = allocate();
+		this.x[i] = x;
+		this.y[i] = y;
+		this.startTime[i] = startTime;
+		this.fadeDuration[i] = fadeDuration;
+		return i;
+	}
+
+
+	/**
+	 * @param i Index of a circle
+	 * @return The time the circle appeared
+	 */
+	public double getStartTime(int i) {
+		return startTime[i];
+	}
+
+
+	/**
+	 * @param i Index of a circle
+	 * @return Time it takes the circle to fade out
+	 */
+	public double getFadeDuration(int i) {
+		return fadeDuration[i];
+	}
+
+
+	/**
+	 * @param i Index of a circle
+	 * @return The time the circle will have completely faded out
+	 */
+	public double getEndTime(int i) {
+		return startTime[i] + fadeDuration[i];
+	}
+
+
+	/**
+	 * @param i Index of a circle
+	 * @param time The current time
+	 * @return The opacity of the circle at the given time
+	 */
+	public double getOpacity(int i, double time) {
+		return Math.max(0.0, 1.0 - (time - startTime[i]) / fadeDuration[i]);
+	}
+
+}
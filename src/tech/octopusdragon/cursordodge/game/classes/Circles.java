@@ -0,0 +1,125 @@
+package tech.octopusdragon.cursordodge.game.classes;
+
+import java.util.Arrays;
+
+/**
+ * All of the circles of one kind, kept as one array per value instead of one
+ * object per circle. The circles are numbered from 0 with no gaps. Removing a
+ * circle moves the last one into its place, so the order of the circles is
+ * not kept, but nothing has to be shifted and iterating over them only reads
+ * packed arrays however many there are.
+ * <p>
+ * Every kind keeps where its circles are. A kind keeps anything else it needs
+ * in arrays of its own, growing them in {@link #grow(int)} and moving them in
+ * {@link #move(int, int)}.
+ * @author Alex Gill
+ *
+ */
+public abstract class Circles {
+
+	// --- Constants ---
+	// Circles there is room for before the arrays have to grow
+	protected static final int INITIAL_CAPACITY = 16;
+
+	// --- Variables ---
+	protected int count;	// Number of circles
+	protected double[] x;	// X-coordinate of each circle
+	protected double[] y;	// Y-coordinate of each circle
+
+
+	/**
+	 * Constructs an empty set of circles
+	 */
+	protected Circles() {
+		x = new double[INITIAL_CAPACITY];
+		y = new double[INITIAL_CAPACITY];
+	}
+
+
+	/**
+	 * Makes room for one more circle at the end, growing the arrays if they
+	 * are full
+	 * @return Index of the new circle
+	 */
+	protected int allocate() {
+		if (count == x.length) grow(x.length * 2);
+		return count++;
+	}
+
+
+	/**
+	 * Grows the arrays of every value. Kinds with values of their own grow
+	 * them as well.
+	 * @param capacity Number of circles there will be room for
+	 */
+	protected void grow(int capacity) {
+		x = Arrays.copyOf(x, capacity);
+		y = Arrays.copyOf(y, capacity);
+	}
+
+
+	/**
+	 * Copies every value of a circle onto another. Kinds with values of their
+	 * own copy them as well.
+	 * @param from Index of the circle copied
+	 * @param to Index it is copied to
+	 */
+	protected void move(int from, int to) {
+		x[to] = x[from];
+		y[to] = y[from];
+	}
+
+
+	/**
+	 * Removes a circle, moving the last circle into its place
+	 * @param i Index of the circle
+	 */
+	public void remove(int i) {
+		int last = --count;
+		if (i != last) move(last, i);
+	}
+
+
+	/**
+	 * @param pointX X-coordinate of a point
+	 * @param pointY Y-coordinate of a point
+	 * @param radius Radius of the circles
+	 * @return Whether the point is inside any of the circles
+	 */
+	public boolean anyAt(double pointX, double pointY, double radius) {
+		double radiusSquared = radius * radius;
+		for (int i = 0; i < count; i++) {
+			double dx = pointX - x[i];
+			double dy = pointY - y[i];
+			if (dx * dx + dy * dy < radiusSquared) return true;
+		}
+		return false;
+	}
+
+
+	/**
+	 * @return Number of circles
+	 */
+	public int size() {
+		return count;
+	}
+
+
+	/**
+	 * @param i Index of a circle
+	 * @return X-coordinate of the circle
+	 */
+	public double getX(int i) {
+		return x[i];
+	}
+
+
+	/**
+	 * @param i Index of a circle
+	 * @return Y-coordinate of the circle
+	 */
+	public double getY(int i) {
+		return y[i];
+	}
+
+}
@@ -1,8 +1,10 @@
 package tech.octopusdragon.cursordodge.game.classes;
 
 /**
- * Represents a point at which a circle can collide. This is always on an edge
- * of the scene. Contains which edge it is as well as its position
+ * Represents a point at which a circle can collide. This is on an edge of the
+ * scene, or on a wall of an arena that is not just a rectangle. Contains which
+ * edge it is, if any, as well as its position and the normal of the wall
+ * facing the circle
  * @author Alex Gill
  *
  */
@@ -10,6 +12,8 @@ public class CollisionPoint {
 	
 	private Edge edge;		// Edge of the scene where the point is located
 	private Position pos;	// The X and Y coordinates
+	private double normalX;	// X part of the unit normal of the wall
+	private double normalY;	// Y part of the unit normal of the wall
 
 	/**
 	 * Constructs a collision point
@@ -19,6 +23,7 @@ public class CollisionPoint {
 	public CollisionPoint(Edge edge, Position pos) {
 		this.edge = edge;
 		this.pos = pos;
+		setNormal(edge);
 	}
 
 	/**
@@ -30,10 +35,46 @@ public class CollisionPoint {
 	public CollisionPoint(Edge edge, double x, double y) {
 		this.edge = edge;
 		pos = new Position(x, y);
+		setNormal(edge);
 	}
 
 	/**
-	 * @return Edge of the scene where the point is located
+	 * Constructs a collision point on a wall that is not an edge of the scene
+	 * @param x X-coordinate
+	 * @param y Y-coordinate
+	 * @param normalX X part of the unit normal of the wall facing the circle
+	 * @param normalY Y part of the unit normal of the wall facing the circle
+	 */
+	public CollisionPoint(double x, double y, double normalX, double normalY) {
+		pos = new Position(x, y);
+		this.normalX = normalX;
+		this.normalY = normalY;
+	}
+
+	/**
+	 * Sets the normal to the one of an edge of the scene, facing into it
+	 * @param edge Edge of the scene
+	 */
+	private void setNormal(Edge edge) {
+		switch (edge) {
+		case TOP:
+			normalY = 1.0;
+			break;
+		case RIGHT:
+			normalX = -1.0;
+			break;
+		case BOTTOM:
+			normalY = -1.0;
+			break;
+		case LEFT:
+			normalX = 1.0;
+			break;
+		}
+	}
+
+	/**
+	 * @return Edge of the scene where the point is located, or null if it is
+	 * on another wall
 	 */
 	public Edge getEdge() {
 		return edge;
@@ -52,6 +93,20 @@ public class CollisionPoint {
 	public double getY() {
 		return pos.getY();
 	}
+
+	/**
+	 * @return X part of the unit normal of the wall, facing the circle
+	 */
+	public double getNormalX() {
+		return normalX;
+	}
+
+	/**
+	 * @return Y part of the unit normal of the wall, facing the circle
+	 */
+	public double getNormalY() {
+		return normalY;
+	}
 	
 	@Override
 	public String toString() {
@@ -0,0 +1,136 @@
+package tech.octopusdragon.cursordodge.game.classes;
+
+import java.util.Arrays;
+
+/**
+ * The circles popping in and out of the corners of the scene. Each one slides
+ * in from a point just past its corner, stays for a moment, and slides back
+ * out.
+ * @author Alex Gill
+ *
+ */
+public class CornerCircles extends Circles {
+
+	// --- Variables ---
+	private Corner[] corner;		// The corner the circle appears in
+	private double[] onscreenX;		// X-coordinate while in the corner
+	private double[] onscreenY;		// Y-coordinate while in the corner
+	private double[] offscreenX;	// X-coordinate while hidden
+	private double[] offscreenY;	// Y-coordinate while hidden
+	private double[] startTime;		// Time the circle started entering
+
+
+	/**
+	 * Constructs an empty set of corner circles
+	 */
+	public CornerCircles() {
+		super();
+		corner = new Corner[INITIAL_CAPACITY];
+		onscreenX = new double[INITIAL_CAPACITY];
+		onscreenY = new double[INITIAL_CAPACITY];
+		offscreenX = new double[INITIAL_CAPACITY];
+		offscreenY = new double[INITIAL_CAPACITY];
+		startTime = new double[INITIAL_CAPACITY];
+	}
+
+
+	@Override
+	protected void grow(int capacity) {
+		super.grow(capacity);
+		corner = Arrays.copyOf(corner, capacity);
+		onscreenX = Arrays.copyOf(onscreenX, capacity);
+		onscreenY = Arrays.copyOf(onscreenY, capacity);
+		offscreenX = Arrays.copyOf(offscreenX, capacity);
+		offscreenY = Arrays.copyOf(offscreenY, capacity);
+		startTime = Arrays.copyOf(startTime, capacity);
+	}
+
+
+	@Override
+	protected void move(int from, int to) {
+		super.move(from, to);
+		corner[to] = corner[from];
+		onscreenX[to] = onscreenX[from];
+		onscreenY[to] = onscreenY[from];
+		offscreenX[to] = offscreenX[from];
+		offscreenY[to] = offscreenY[from];
+		startTime[to] = startTime[from];
+	}
+
+
+	/**
+	 * Adds a corner circle, hidden past its corner
+	 * @param corner The corner the circle appears in
+	 * @param onscreenX X-coordinate while in the corner
+	 * @param onscreenY Y-coordinate while in the corner
+	 * @param offscreenX X-coordinate while hidden
+	 * @param offscreenY Y-coordinate while hidden
+	 * @param startTime Time the circle started entering
+	 * @return Index of the circle
+	 */
+	public int add(Corner corner, double onscreenX, double onscreenY,
+			double offscreenX, double offscreenY, double startTime) {
+		int i = allocate();
+		this.corner[i] = corner;
+		this.onscreenX[i] = onscreenX;
+		this.onscreenY[i] = onscreenY;
+		this.offscreenX[i] = offscreenX;
+		this.offscreenY[i] = offscreenY;
+		this.startTime[i] = startTime;
+		x[i] = offscreenX;
+		y[i] = offscreenY;
+		return i;
+	}
+
+
+	/**
+	 * Moves every circle to where it is in its animation at the given time,
+	 * removing the ones that have slid back out
+	 * @param time The time
+	 * @param animationDuration Duration of the enter and exit animations
+	 * @param duration Duration a circle stays in the corner
+	 */
+	public void advance(double time, double animationDuration,
+			double duration) {
+		for (int i = 0; i < count; i++) {
+			double elapsed = time - startTime[i];
+			if (elapsed >= 2 * animationDuration + duration) {
+				remove(i--);
+				continue;
+			}
+			double fraction;
+			if (elapsed < animationDuration) {
+				fraction = elapsed / animationDuration;
+			}
+			else if (elapsed < animationDuration + duration) {
+				fraction = 1.0;
+			}
+			else {
+				fraction = Math.max(0.0,
+						1.0 - (elapsed - animationDuration - duration) /
+						animationDuration);
+			}
+			x[i] = offscreenX[i] + (onscreenX[i] - offscreenX[i]) * fraction;
+			y[i] = offscreenY[i] + (onscreenY[i] - offscreenY[i]) * fraction;
+		}
+	}
+
+
+	/**
+	 * @param i Index of a circle
+	 * @return The corner the circle appears in
+	 */
+	public Corner getCorner(int i) {
+		return corner[i];
+	}
+
+
+	/**
+	 * @param i Index of a circle
+	 * @return Time the circle started entering
+	 */
+	public double getStartTime(int i) {
+		return startTime[i];
+	}
+
+}
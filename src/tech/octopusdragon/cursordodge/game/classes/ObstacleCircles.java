@@ -0,0 +1,211 @@
+package tech.octopusdragon.cursordodge.game.classes;
+
+import java.util.Arrays;
+
+/**
+ * The obstacle circles bouncing around the scene. Each circle moves in a
+ * straight line from one edge of the scene or wall of the arena to the next,
+ * one segment at a time.
+ * @author Alex Gill
+ *
+ */
+public class ObstacleCircles extends Circles {
+
+	// --- Variables ---
+	private boolean[] moving;			// Whether the circle has a segment
+	private double[] angle;				// Angle of the direction of movement
+	private double[] fromX;				// X-coordinate at start of segment
+	private double[] fromY;				// Y-coordinate at start of segment
+	private double[] toX;				// X-coordinate at end of segment
+	private double[] toY;				// Y-coordinate at end of segment
+	private Edge[] edge;				// Edge at the end of the segment
+	private double[] normalX;			// X part of the normal of the wall
+	private double[] normalY;			// Y part of the normal of the wall
+	private double[] segmentStart;		// Time the segment started
+	private double[] segmentDuration;	// Time it takes to travel the segment
+
+
+	/**
+	 * Constructs an empty set of obstacle circles
+	 */
+	public ObstacleCircles() {
+		super();
+		moving = new boolean[INITIAL_CAPACITY];
+		angle = new double[INITIAL_CAPACITY];
+		fromX = new double[INITIAL_CAPACITY];
+		fromY = new double[INITIAL_CAPACITY];
+		toX = new double[INITIAL_CAPACITY];
+		toY = new double[INITIAL_CAPACITY];
+		edge = new Edge[INITIAL_CAPACITY];
+		normalX = new double[INITIAL_CAPACITY];
+		normalY = new double[INITIAL_CAPACITY];
+		segmentStart = new double[INITIAL_CAPACITY];
+		segmentDuration = new double[INITIAL_CAPACITY];
+	}
+
+
+	@Override
+	protected void grow(int capacity) {
+		super.grow(capacity);
+		moving = Arrays.copyOf(moving, capacity);
+		angle = Arrays.copyOf(angle, capacity);
+		fromX = Arrays.copyOf(fromX, capacity);
+		fromY = Arrays.copyOf(fromY, capacity);
+		toX = Arrays.copyOf(toX, capacity);
+		toY = Arrays.copyOf(toY, capacity);
+		edge = Arrays.copyOf(edge, capacity);
+		normalX = Arrays.copyOf(normalX, capacity);
+		normalY = Arrays.copyOf(normalY, capacity);
+		segmentStart = Arrays.copyOf(segmentStart, capacity);
+		segmentDuration = Arrays.copyOf(segmentDuration, capacity);
+	}
+
+
+	@Override
+	protected void move(int from, int to) {
+		super.move(from, to);
+		moving[to] = moving[from];
+		angle[to] = angle[from];
+		fromX[to] = fromX[from];
+		fromY[to] = fromY[from];
+		toX[to] = toX[from];
+		toY[to] = toY[from];
+		edge[to] = edge[from];
+		normalX[to] = normalX[from];
+		normalY[to] = normalY[from];
+		segmentStart[to] = segmentStart[from];
+		segmentDuration[to] = segmentDuration[from];
+	}
+
+
+	/**
+	 * Adds a stationary obstacle circle
+	 * @param x X-coordinate
+	 * @param y Y-coordinate
+	 * @return Index of the circle
+	 */
+	public int add(double x, double y) {
+		int i = allocate();
+		this.x[i] = x;
+		this.y[i] = y;
+		moving[i] = false;
+		angle[i] = 0.0;
+		edge[i] = null;
+		normalX[i] = 0.0;
+		normalY[i] = 0.0;
+		segmentStart[i] = 0.0;
+		segmentDuration[i] = Double.POSITIVE_INFINITY;
+		return i;
+	}
+
+
+	/**
+	 * Starts a new segment from the current position of a circle
+	 * @param i Index of the circle
+	 * @param angle The angle of the direction of movement
+	 * @param to The point where the circle will collide with a wall
+	 * @param startTime The time the segment starts
+	 * @param duration The time it takes to travel the segment
+	 */
+	public void setSegment(int i, double angle, CollisionPoint to,
+			double startTime, double duration) {
+		moving[i] = true;
+		this.angle[i] = angle;
+		fromX[i] = x[i];
+		fromY[i] = y[i];
+		toX[i] = to.getX();
+		toY[i] = to.getY();
+		edge[i] = to.getEdge();
+		normalX[i] = to.getNormalX();
+		normalY[i] = to.getNormalY();
+		segmentStart[i] = startTime;
+		segmentDuration[i] = duration;
+	}
+
+
+	/**
+	 * Moves a circle to where it is along its segment at the given time
+	 * @param i Index of the circle
+	 * @param time The time
+	 */
+	public void advance(int i, double time) {
+		if (!moving[i]) return;
+		if (time >= getSegmentEnd(i)) {
+			x[i] = toX[i];
+			y[i] = toY[i];
+			return;
+		}
+		double fraction = (time - segmentStart[i]) / segmentDuration[i];
+		x[i] = fromX[i] + (toX[i] - fromX[i]) * fraction;
+		y[i] = fromY[i] + (toY[i] - fromY[i]) * fraction;
+	}
+
+
+	/**
+	 * @param i Index of a circle
+	 * @return Speed of the circle along the X-axis in pixels per second
+	 */
+	public double getVelocityX(int i) {
+		if (!moving[i] || segmentDuration[i] == 0.0) return 0.0;
+		return (toX[i] - fromX[i]) / segmentDuration[i];
+	}
+
+
+	/**
+	 * @param i Index of a circle
+	 * @return Speed of the circle along the Y-axis in pixels per second
+	 */
+	public double getVelocityY(int i) {
+		if (!moving[i] || segmentDuration[i] == 0.0) return 0.0;
+		return (toY[i] - fromY[i]) / segmentDuration[i];
+	}
+
+
+	/**
+	 * @param i Index of a circle
+	 * @return The angle of the direction of movement of the circle
+	 */
+	public double getAngle(int i) {
+		return angle[i];
+	}
+
+
+	/**
+	 * @param i Index of a circle
+	 * @return The edge of the scene the circle will collide with, or null if
+	 * the circle is not moving or will collide with another wall
+	 */
+	public Edge getEdge(int i) {
+		return edge[i];
+	}
+
+
+	/**
+	 * @param i Index of a circle
+	 * @return X part of the normal of the wall the circle will collide with,
+	 * facing the circle
+	 */
+	public double getNormalX(int i) {
+		return normalX[i];
+	}
+
+
+	/**
+	 * @param i Index of a circle
+	 * @return Y part of the normal of the wall the circle will collide with,
+	 * facing the circle
+	 */
+	public double getNormalY(int i) {
+		return normalY[i];
+	}
+
+
+	/**
+	 * @param i Index of a circle
+	 * @return The time the circle reaches the end of its segment
+	 */
+	public double getSegmentEnd(int i) {
+		return segmentStart[i] + segmentDuration[i];
+	}
+
+}
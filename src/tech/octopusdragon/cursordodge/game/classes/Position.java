@@ -62,6 +62,17 @@ public class Position {
 		this.y = y;
 	}
 	
+	/**
+	 * Moves the coordinates, so that one position can be reused instead of
+	 * creating a new one for every move
+	 * @param x X coordinate
+	 * @param y Y coordinate
+	 */
+	public void set(double x, double y) {
+		this.x = x;
+		this.y = y;
+	}
+	
 	/**
 	 * @return whether the position is invalid or uninitialized
 	 */
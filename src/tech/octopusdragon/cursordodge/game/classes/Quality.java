@@ -0,0 +1,15 @@
+package tech.octopusdragon.cursordodge.game.classes;
+
+/**
+ * How well the game is drawn, from best to cheapest. Each level gives up
+ * what the one before it did and one more thing. None of them change how the
+ * game is simulated.
+ * @author Alex Gill
+ *
+ */
+public enum Quality {
+	FULL,				// Everything is drawn as well as it can be
+	REDUCED_OVERLAYS,	// Overlays over the game are updated less often
+	REDUCED_TELEMETRY,	// Telemetry is only recorded every few frames
+	LOW_RESOLUTION		// The circles are drawn with fewer pixels, stretched
+}
@@ -0,0 +1,142 @@
+package tech.octopusdragon.cursordodge.heatmap;
+
+import java.util.Arrays;
+
+/**
+ * How much of something happened in each cell of a square grid laid over the
+ * scene. Points are given as fractions of the width and height of the scene,
+ * so games played in windows of every size add to the same cells.
+ * <p>
+ * A grid is not safe to add to from more than one thread. Each thread should
+ * fill its own and {@link #merge(DensityGrid)} them at the end.
+ * @author Alex Gill
+ *
+ */
+public class DensityGrid {
+
+	// --- Constants ---
+	// Colors a cell goes through from empty to the fullest, each 0xRRGGBB
+	private static final int[] RAMP = {
+			0xFFFFFF, 0x2040FF, 0x00C040, 0xFFE000, 0xFF2000 };
+
+	// --- Variables ---
+	private int size;			// Cells along each side
+	private double[] cells;		// Amount in each cell, in rows from the top
+	private double total;		// Amount in every cell
+
+
+	/**
+	 * Creates an empty grid
+	 * @param size Cells along each side
+	 */
+	public DensityGrid(int size) {
+		this.size = size;
+		cells = new double[size * size];
+	}
+
+
+	/**
+	 * Adds an amount at a point. Points outside of the scene are ignored.
+	 * @param x X-coordinate as a fraction of the scene width
+	 * @param y Y-coordinate as a fraction of the scene height
+	 * @param amount The amount
+	 */
+	public void add(double x, double y, double amount) {
+		if (!(x >= 0.0 && x <= 1.0 && y >= 0.0 && y <= 1.0)) return;
+		int column = Math.min(size - 1, (int) (x * size));
+		int row = Math.min(size - 1, (int) (y * size));
+		cells[row * size + column] += amount;
+		total += amount;
+	}
+
+
+	/**
+	 * Adds every cell of another grid of the same size to this one
+	 * @param other The grid
+	 */
+	public void merge(DensityGrid other) {
+		if (other.size != size)
+			throw new IllegalArgumentException("Grids differ in size");
+		for (int i = 0; i < cells.length; i++) {
+			cells[i] += other.cells[i];
+		}
+		total += other.total;
+	}
+
+
+	/**
+	 * Colors every cell by how full it is compared with the fullest. Cells are
+	 * compared on a log scale, so that places visited a little still show
+	 * next to the few visited most.
+	 * @return The colors, each 0xFFRRGGBB, in rows from the top
+	 */
+	public int[] render() {
+		int[] pixels = new int[cells.length];
+		double max = 0.0;
+		for (double cell : cells) {
+			max = Math.max(max, cell);
+		}
+		double scale = max > 0.0 ? 1.0 / Math.log1p(max) : 0.0;
+		for (int i = 0; i < cells.length; i++) {
+			pixels[i] = 0xFF000000 | color(Math.log1p(cells[i]) * scale);
+		}
+		return pixels;
+	}
+
+
+	/**
+	 * @param value How full a cell is, from 0 to 1
+	 * @return Its color along the ramp, as 0xRRGGBB
+	 */
+	private static int color(double value) {
+		double position = Math.max(0.0, Math.min(1.0, value)) *
+				(RAMP.length - 1);
+		int stop = Math.min(RAMP.length - 2, (int) position);
+		double t = position - stop;
+		int from = RAMP[stop];
+		int to = RAMP[stop + 1];
+		int color = 0;
+		for (int shift = 0; shift <= 16; shift += 8) {
+			int a = from >> shift & 0xFF;
+			int b = to >> shift & 0xFF;
+			color |= (int) Math.round(a + (b - a) * t) << shift;
+		}
+		return color;
+	}
+
+
+	/**
+	 * Empties the grid
+	 */
+	public void clear() {
+		Arrays.fill(cells, 0.0);
+		total = 0.0;
+	}
+
+
+	/**
+	 * @return Cells along each side
+	 */
+	public int getSize() {
+		return size;
+	}
+
+
+	/**
+	 * @param column Column of a cell from the left
+	 * @param row Row of a cell from the top
+	 * @return Amount in the cell
+	 */
+	public double get(int column, int row) {
+		return cells[row * size + column];
+	}
+
+
+	/**
+	 * @return Amount in every cell
+	 */
+	public double getTotal() {
+		return total;
+	}
+
+}
@@ -0,0 +1,87 @@
+package tech.octopusdragon.cursordodge.heatmap;
+
+/**
+ * Where players kept the cursor and where they died, over a number of games.
+ * Made by a {@link HeatmapAggregator}.
+ * @author Alex Gill
+ *
+ */
+public class Heatmap {
+
+	// --- Variables ---
+	private DensityGrid presence;	// Seconds the cursor spent in each cell
+	private DensityGrid deaths;		// Games lost in each cell
+	private long runs;				// Games read
+	private long skipped;			// Files that could not be read
+
+
+	/**
+	 * Creates an empty heatmap
+	 * @param size Cells along each side of the grids
+	 */
+	public Heatmap(int size) {
+		presence = new DensityGrid(size);
+		deaths = new DensityGrid(size);
+	}
+
+
+	/**
+	 * Adds another heatmap of the same size to this one
+	 * @param other The heatmap
+	 */
+	public void merge(Heatmap other) {
+		presence.merge(other.presence);
+		deaths.merge(other.deaths);
+		runs += other.runs;
+		skipped += other.skipped;
+	}
+
+
+	/**
+	 * Counts a game that was read
+	 */
+	void countRun() {
+		runs++;
+	}
+
+
+	/**
+	 * Counts a file that could not be read
+	 */
+	void countSkipped() {
+		skipped++;
+	}
+
+
+	/**
+	 * @return Seconds the cursor spent in each cell
+	 */
+	public DensityGrid getPresence() {
+		return presence;
+	}
+
+
+	/**
+	 * @return Games lost with the cursor in each cell
+	 */
+	public DensityGrid getDeaths() {
+		return deaths;
+	}
+
+
+	/**
+	 * @return Number of games read
+	 */
+	public long getRuns() {
+		return runs;
+	}
+
+
+	/**
+	 * @return Number of files that could not be read
+	 */
+	public long getSkipped() {
+		return skipped;
+	}
+
+}
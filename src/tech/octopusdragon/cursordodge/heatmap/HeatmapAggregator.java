@@ -0,0 +1,296 @@
+package tech.octopusdragon.cursordodge.heatmap;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.Deflater;
+
+import tech.octopusdragon.cursordodge.data.DataFiles;
+import tech.octopusdragon.cursordodge.export.PngEncoder;
+import tech.octopusdragon.cursordodge.game.Simulation;
+import tech.octopusdragon.cursordodge.game.classes.GameOverReason;
+import tech.octopusdragon.cursordodge.replay.Replay;
+
+/**
+ * Builds a {@link Heatmap} of where players kept the cursor and where they
+ * died from every replay in some directories. Each position the cursor moved
+ * to counts for as long as it stayed there, and the last one of a game lost
+ * to an obstacle or a missed catch circle counts as a death.
+ * <p>
+ * The directories are listed lazily into a small queue, so however many
+ * replays there are, only a few file names and one replay for each worker
+ * are held at once. Each worker, one for each core by default, adds to its
+ * own heatmap, and the heatmaps are merged when every replay has been read.
+ * <p>
+ * Usage: {@code HeatmapAggregator [--size CELLS] [--threads N]
+ * [--out DIRECTORY] [REPLAY_DIRECTORY]...}, which reads the replays the game
+ * saved unless other directories are given and writes the heatmaps as
+ * {@value #PRESENCE_FILE} and {@value #DEATHS_FILE}.
+ * @author Alex Gill
+ *
+ */
+public class HeatmapAggregator {
+
+	// --- Constants ---
+	// Cells along each side of a heatmap unless another size is chosen
+	public static final int DEFAULT_SIZE = 128;
+	// Name of the image of where players kept the cursor
+	private static final String PRESENCE_FILE = "presence.png";
+	// Name of the image of where players died
+	private static final String DEATHS_FILE = "deaths.png";
+	// File names that can wait in the queue for each worker
+	private static final int PATHS_PER_WORKER = 64;
+	// Tells a worker to finish
+	private static final Path END = Paths.get("");
+
+	// --- Variables ---
+	private int size;						// Cells along each side
+	private int threads;					// Workers reading replays
+	private BlockingQueue<Path> paths;		// Replays waiting to be read
+	private AtomicLong runsRead;			// Replays read so far
+	private volatile boolean cancelled;		// Whether to stop early
+
+
+	/**
+	 * Creates an aggregator
+	 * @param size Cells along each side of the heatmap
+	 * @param threads Number of workers reading replays
+	 */
+	public HeatmapAggregator(int size, int threads) {
+		this.size = size;
+		this.threads = threads;
+		runsRead = new AtomicLong();
+	}
+
+
+	public static void main(String[] args) {
+		int size = DEFAULT_SIZE;
+		int threads = Runtime.getRuntime().availableProcessors();
+		File outDirectory = new File(".");
+		List<File> directories = new ArrayList<File>();
+		try {
+			for (int i = 0; i < args.length; i++) {
+				String arg = args[i];
+				if (arg.startsWith("--") && i + 1 >= args.length)
+					throw new IllegalArgumentException(
+							"Missing value for " + arg);
+				switch (arg) {
+				case "--size":
+					size = Integer.parseInt(args[++i]);
+					break;
+				case "--threads":
+					threads = Integer.parseInt(args[++i]);
+					break;
+				case "--out":
+					outDirectory = new File(args[++i]);
+					break;
+				default:
+					if (arg.startsWith("--"))
+						throw new IllegalArgumentException(
+								"Unknown argument " + arg);
+					directories.add(new File(arg));
+				}
+			}
+			if (size < 1)
+				throw new IllegalArgumentException("Invalid size");
+			if (threads < 1)
+				throw new IllegalArgumentException(
+						"Invalid number of threads");
+		} catch (IllegalArgumentException e) {
+			System.err.println(e.getMessage());
+			System.err.println("Usage: HeatmapAggregator [--size CELLS] " +
+					"[--threads N] [--out DIRECTORY] [REPLAY_DIRECTORY]...");
+			System.exit(2);
+		}
+		if (directories.isEmpty()) directories.add(DataFiles.REPLAY_DIRECTORY);
+
+		HeatmapAggregator aggregator = new HeatmapAggregator(size, threads);
+		try {
+			long wallStart = System.nanoTime();
+			Heatmap heatmap = aggregator.aggregate(
+					directories.toArray(new File[directories.size()]));
+			double wallSeconds = (System.nanoTime() - wallStart) / 1e9;
+
+			outDirectory.mkdirs();
+			PngEncoder encoder = new PngEncoder(Deflater.DEFAULT_COMPRESSION);
+			try {
+				write(heatmap.getPresence(),
+						new File(outDirectory, PRESENCE_FILE), encoder);
+				write(heatmap.getDeaths(),
+						new File(outDirectory, DEATHS_FILE), encoder);
+			} finally {
+				encoder.end();
+			}
+			System.err.println(String.format(
+					"%d games (%.0f s played, %.0f deaths, %d unreadable) " +
+							"on %d threads in %.1f s (%.0f games per s)",
+					heatmap.getRuns(), heatmap.getPresence().getTotal(),
+					heatmap.getDeaths().getTotal(), heatmap.getSkipped(),
+					threads, wallSeconds, heatmap.getRuns() / wallSeconds));
+		} catch (IOException e) {
+			System.out.println("Error building heatmap");
+			e.printStackTrace();
+			System.exit(1);
+		} catch (InterruptedException e) {
+			System.exit(1);
+		}
+	}
+
+
+	/**
+	 * Writes a grid as an image, one pixel for each cell
+	 */
+	private static void write(DensityGrid grid, File file, PngEncoder encoder)
+			throws IOException {
+		try (OutputStream out = new BufferedOutputStream(
+				new FileOutputStream(file))) {
+			encoder.write(grid.render(), grid.getSize(), grid.getSize(), out);
+		}
+	}
+
+
+	/**
+	 * Reads every replay in some directories. Directories that do not exist
+	 * are skipped.
+	 * @param directories The directories
+	 * @return The heatmap of every replay read, or of those read before the
+	 * aggregator was cancelled
+	 * @throws IOException If a directory could not be listed
+	 * @throws InterruptedException If interrupted while waiting for the
+	 * workers
+	 */
+	public Heatmap aggregate(File... directories)
+			throws IOException, InterruptedException {
+		paths = new ArrayBlockingQueue<Path>(threads * PATHS_PER_WORKER);
+		Heatmap[] heatmaps = new Heatmap[threads];
+		Thread[] workers = new Thread[threads];
+		for (int i = 0; i < threads; i++) {
+			Heatmap heatmap = new Heatmap(size);
+			heatmaps[i] = heatmap;
+			workers[i] = new Thread(() -> read(heatmap),
+					"Heatmap worker " + (i + 1));
+			workers[i].setDaemon(true);
+			workers[i].start();
+		}
+
+		try {
+			for (File directory : directories) {
+				if (!directory.isDirectory()) continue;
+				try (DirectoryStream<Path> stream = Files.newDirectoryStream(
+						directory.toPath(), "*" + Replay.FILE_EXTENSION)) {
+					for (Path path : stream) {
+						if (cancelled) break;
+						paths.put(path);
+					}
+				}
+			}
+		} finally {
+			for (int i = 0; i < threads; i++) {
+				paths.put(END);
+			}
+			for (Thread worker : workers) {
+				worker.join();
+			}
+		}
+
+		Heatmap heatmap = new Heatmap(size);
+		for (Heatmap partial : heatmaps) {
+			heatmap.merge(partial);
+		}
+		return heatmap;
+	}
+
+
+	/**
+	 * Stops reading replays. The heatmap of those already read is still
+	 * returned.
+	 */
+	public void cancel() {
+		cancelled = true;
+	}
+
+
+	/**
+	 * @return Number of replays read so far
+	 */
+	public long getRunsRead() {
+		return runsRead.get();
+	}
+
+
+	/**
+	 * Reads replays as they are listed until told to finish
+	 * @param heatmap The heatmap of this worker
+	 */
+	private void read(Heatmap heatmap) {
+		try {
+			while (true) {
+				Path path = paths.take();
+				if (path == END) break;
+				if (cancelled) continue;
+				add(path, heatmap);
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+
+	/**
+	 * Adds one replay to a heatmap
+	 * @param path The replay
+	 * @param heatmap The heatmap
+	 */
+	private void add(Path path, Heatmap heatmap) {
+		Replay replay;
+		try {
+			replay = Replay.read(path.toFile());
+		} catch (IOException e) {
+			heatmap.countSkipped();
+			return;
+		}
+		double width = replay.getSceneWidth();
+		double height = replay.getSceneHeight();
+		DensityGrid presence = heatmap.getPresence();
+
+		// Each position counts for as long as the cursor stayed there
+		double x = Double.NaN;
+		double y = Double.NaN;
+		long since = 0;
+		long endTick = replay.getTicks();
+		for (int i = 0; i < replay.getInputCount(); i++) {
+			if (!replay.isCursorInput(i)) continue;
+			long tick = replay.getInputTick(i);
+			if (tick > endTick) break;
+			if (!Double.isNaN(x)) {
+				presence.add(x / width, y / height,
+						(tick - since) * Simulation.TICK_DURATION);
+			}
+			x = replay.getInputX(i);
+			y = replay.getInputY(i);
+			since = tick;
+		}
+		if (!Double.isNaN(x)) {
+			presence.add(x / width, y / height,
+					Math.max(0, endTick - since) * Simulation.TICK_DURATION);
+			GameOverReason reason = replay.getReason();
+			if (reason == GameOverReason.OBSTACLE ||
+					reason == GameOverReason.DID_NOT_CATCH)
+				heatmap.getDeaths().add(x / width, y / height, 1.0);
+		}
+		heatmap.countRun();
+		runsRead.incrementAndGet();
+	}
+
+}
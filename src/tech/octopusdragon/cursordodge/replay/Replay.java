@@ -0,0 +1,501 @@
+package tech.octopusdragon.cursordodge.replay;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+import tech.octopusdragon.cursordodge.game.Arena;
+import tech.octopusdragon.cursordodge.game.ArenaShape;
+import tech.octopusdragon.cursordodge.game.Difficulty;
+import tech.octopusdragon.cursordodge.game.Simulation;
+import tech.octopusdragon.cursordodge.game.classes.GameOverReason;
+
+/**
+ * A recording of a game: the seed, the size of the scene and screen, the shape
+ * of the arena if it has one, and every input the simulation received along
+ * with the step it received it at. Also holds the result the game reported, so
+ * that it can be checked by playing the recording again.
+ * @author Alex Gill
+ *
+ */
+public class Replay {
+
+	// --- Constants ---
+	// File name extension of replay files
+	public static final String FILE_EXTENSION = ".cdr";
+	// Identifies a replay file
+	private static final int MAGIC = 0x43445250;
+	// Version of the replay file format
+	private static final int VERSION = 5;
+	// Oldest version recorded with the paths of new obstacle circles
+	// predicted, which changes where they are placed
+	private static final int PREDICTED_SPAWNS_VERSION = 4;
+	// Oldest version recorded with the cursor set before the game started,
+	// which changes the direction of the first obstacle circle
+	private static final int CURSOR_BEFORE_START_VERSION = 5;
+	// Oldest version of the replay file format that can still be read
+	private static final int OLDEST_VERSION = 1;
+	// Types of recorded input
+	private static final byte CURSOR = 0;
+	private static final byte END = 1;
+	private static final byte CHECKED_CURSOR = 2;
+
+	// --- Variables ---
+	private long seed;				// Seed of the random number generator
+	private double sceneWidth;		// Scene width
+	private double sceneHeight;		// Scene height
+	private double screenWidth;		// Screen width
+	private double screenHeight;	// Screen height
+	private ArenaShape shape;		// Walls of the arena, or null if none
+	private int version;			// Version of the game that recorded it
+	private GameOverReason reason;	// Reason the game reported it ended
+	private long ticks;				// Number of steps the game reported
+	// Recorded input
+	private int inputCount;
+	private long[] inputTicks;
+	private byte[] inputTypes;
+	private double[] inputX;
+	private double[] inputY;
+
+
+	/**
+	 * Creates an empty recording of a game
+	 * @param seed Seed of the random number generator
+	 * @param arena The geometry of the scene
+	 */
+	public Replay(long seed, Arena arena) {
+		this(seed, arena.getSceneWidth(), arena.getSceneHeight(),
+				arena.getScreenWidth(), arena.getScreenHeight(),
+				arena.getShape());
+	}
+
+
+	/**
+	 * Creates an empty recording of a game
+	 * @param seed Seed of the random number generator
+	 * @param sceneWidth Scene width
+	 * @param sceneHeight Scene height
+	 * @param screenWidth Screen width
+	 * @param screenHeight Screen height
+	 */
+	public Replay(long seed, double sceneWidth, double sceneHeight,
+			double screenWidth, double screenHeight) {
+		this(seed, sceneWidth, sceneHeight, screenWidth, screenHeight, null);
+	}
+
+
+	/**
+	 * Creates an empty recording of a game in a shaped arena
+	 * @param seed Seed of the random number generator
+	 * @param sceneWidth Scene width
+	 * @param sceneHeight Scene height
+	 * @param screenWidth Screen width
+	 * @param screenHeight Screen height
+	 * @param shape Walls of the arena, or null for the edges of the scene
+	 */
+	public Replay(long seed, double sceneWidth, double sceneHeight,
+			double screenWidth, double screenHeight, ArenaShape shape) {
+		this.seed = seed;
+		this.sceneWidth = sceneWidth;
+		this.sceneHeight = sceneHeight;
+		this.screenWidth = screenWidth;
+		this.screenHeight = screenHeight;
+		this.shape = shape;
+		version = VERSION;
+		inputTicks = new long[256];
+		inputTypes = new byte[256];
+		inputX = new double[256];
+		inputY = new double[256];
+	}
+
+
+	/**
+	 * Records that the cursor moved before the given step
+	 * @param tick The step
+	 * @param x X-coordinate of the cursor
+	 * @param y Y-coordinate of the cursor
+	 */
+	public void recordCursor(long tick, double x, double y) {
+		record(tick, CURSOR, x, y);
+	}
+
+
+	/**
+	 * Records that the cursor moved before the given step and was checked
+	 * against the circles straight away
+	 * @param tick The step
+	 * @param x X-coordinate of the cursor
+	 * @param y Y-coordinate of the cursor
+	 */
+	public void recordCheckedCursor(long tick, double x, double y) {
+		record(tick, CHECKED_CURSOR, x, y);
+	}
+
+
+	/**
+	 * Records that the game was ended from outside of the simulation before
+	 * the given step
+	 * @param tick The step
+	 * @param reason The reason the game ended, which must be one the
+	 * simulation cannot decide for itself
+	 */
+	public void recordEnd(long tick, GameOverReason reason) {
+		if (!isOutsideReason(reason))
+			throw new IllegalArgumentException(
+					"Only the simulation can end a game for " + reason);
+		record(tick, END, reason.ordinal(), 0.0);
+	}
+
+
+	/**
+	 * @param reason A reason a game ended
+	 * @return Whether a game can be ended for that reason from outside of
+	 * the simulation. Hitting an obstacle and missing a catch circle are
+	 * only decided by the simulation, so a recording claiming either from
+	 * outside would pass a death off as one that was never reproduced.
+	 */
+	private static boolean isOutsideReason(GameOverReason reason) {
+		return reason == GameOverReason.OUT_OF_BOUNDS ||
+				reason == GameOverReason.RESIZE;
+	}
+
+
+	/**
+	 * Records the result the game reported
+	 * @param reason The reason the game ended
+	 * @param ticks Number of steps the game lasted
+	 */
+	public void setResult(GameOverReason reason, long ticks) {
+		this.reason = reason;
+		this.ticks = ticks;
+	}
+
+
+	/**
+	 * Adds an input to the recording
+	 */
+	private void record(long tick, byte type, double x, double y) {
+		if (inputCount == inputTicks.length) {
+			int capacity = inputCount * 2;
+			inputTicks = Arrays.copyOf(inputTicks, capacity);
+			inputTypes = Arrays.copyOf(inputTypes, capacity);
+			inputX = Arrays.copyOf(inputX, capacity);
+			inputY = Arrays.copyOf(inputY, capacity);
+		}
+		inputTicks[inputCount] = tick;
+		inputTypes[inputCount] = type;
+		inputX[inputCount] = x;
+		inputY[inputCount] = y;
+		inputCount++;
+	}
+
+
+	/**
+	 * Plays the recording again from the start as fast as possible, without a
+	 * display
+	 * @return The simulation, finished
+	 */
+	public Simulation play() {
+		return play(null);
+	}
+
+
+	/**
+	 * Plays the recording again from the start as fast as possible, without a
+	 * display
+	 * @param listener Called after every step, or null
+	 * @return The simulation, finished
+	 */
+	public Simulation play(StepListener listener) {
+		// Older recordings are played by the rules they were recorded with
+		Difficulty difficulty = new Difficulty();
+		if (version < PREDICTED_SPAWNS_VERSION)
+			difficulty.set("SPAWN_PREDICTION_TIME", 0.0);
+		Simulation simulation = new Simulation(
+				new Arena(sceneWidth, sceneHeight, screenWidth, screenHeight,
+						shape),
+				difficulty, seed);
+		int next = 0;
+		if (version >= CURSOR_BEFORE_START_VERSION && inputCount > 0 &&
+				inputTicks[0] == 0 && inputTypes[0] == CURSOR) {
+			simulation.setCursor(inputX[0], inputY[0]);
+			next++;
+		}
+		simulation.start();
+
+
+		long lastTick = inputCount > 0 ? inputTicks[inputCount - 1] : 0;
+		while (!simulation.isGameOver()) {
+			// Apply the input recorded before this step
+			while (next < inputCount &&
+					inputTicks[next] == simulation.getTick()) {
+				if (inputTypes[next] == CURSOR) {
+					simulation.setCursor(inputX[next], inputY[next]);
+				}
+				else if (inputTypes[next] == CHECKED_CURSOR) {
+					simulation.setCursor(inputX[next], inputY[next]);
+					simulation.checkCursor();
+				}
+				else {
+					simulation.end(GameOverReason.values()[(int) inputX[next]]);
+				}
+				next++;
+			}
+			if (simulation.isGameOver()) break;
+
+			// A game that never ends would be a forged recording, so stop once
+			// the recording runs out and the game has gone on longer than it
+			// claims
+			if (next == inputCount && simulation.getTick() > lastTick &&
+					simulation.getTick() > ticks) {
+				break;
+			}
+
+			simulation.step();
+			if (listener != null) listener.stepped(simulation);
+		}
+		return simulation;
+	}
+
+
+	/**
+	 * Saves the recording to a file
+	 * @param file The file
+	 * @throws IOException If the file could not be written
+	 */
+	public void write(File file) throws IOException {
+		try (DataOutputStream out = new DataOutputStream(
+				new BufferedOutputStream(new GZIPOutputStream(
+						new FileOutputStream(file))))) {
+			out.writeInt(MAGIC);
+			out.writeInt(VERSION);
+			out.writeInt(Simulation.TICKS_PER_SECOND);
+			out.writeLong(seed);
+			out.writeDouble(sceneWidth);
+			out.writeDouble(sceneHeight);
+			out.writeDouble(screenWidth);
+			out.writeDouble(screenHeight);
+			out.writeBoolean(shape != null);
+			if (shape != null) shape.write(out);
+			out.writeByte(reason == null ? -1 : reason.ordinal());
+			out.writeLong(ticks);
+			out.writeInt(inputCount);
+			for (int i = 0; i < inputCount; i++) {
+				out.writeLong(inputTicks[i]);
+				out.writeByte(inputTypes[i]);
+				if (inputTypes[i] == CURSOR ||
+						inputTypes[i] == CHECKED_CURSOR) {
+					out.writeDouble(inputX[i]);
+					out.writeDouble(inputY[i]);
+				}
+				else {
+					out.writeByte((int) inputX[i]);
+				}
+			}
+		}
+	}
+
+
+	/**
+	 * Loads a recording from a file
+	 * @param file The file
+	 * @return The recording
+	 * @throws IOException If the file could not be read or is not a replay
+	 * file this version of the game can play
+	 */
+	public static Replay read(File file) throws IOException {
+		try (DataInputStream in = new DataInputStream(
+				new BufferedInputStream(new GZIPInputStream(
+						new FileInputStream(file))))) {
+			if (in.readInt() != MAGIC)
+				throw new IOException("Not a replay file");
+			int version = in.readInt();
+			if (version < OLDEST_VERSION || version > VERSION)
+				throw new IOException("Unsupported replay file version");
+			if (in.readInt() != Simulation.TICKS_PER_SECOND)
+				throw new IOException("Replay recorded at a different rate");
+			long seed = in.readLong();
+			double sceneWidth = in.readDouble();
+			double sceneHeight = in.readDouble();
+			double screenWidth = in.readDouble();
+			double screenHeight = in.readDouble();
+			ArenaShape shape = null;
+			if (version >= 3 && in.readBoolean()) shape = ArenaShape.read(in);
+			Replay replay = new Replay(seed, sceneWidth, sceneHeight,
+					screenWidth, screenHeight, shape);
+			replay.version = version;
+			int reason = in.readByte();
+			long ticks = in.readLong();
+			if (reason >= GameOverReason.values().length)
+				throw new IOException("Unknown game over reason");
+			replay.setResult(reason < 0 ? null :
+					GameOverReason.values()[reason], ticks);
+			int count = in.readInt();
+			for (int i = 0; i < count; i++) {
+				long tick = in.readLong();
+				byte type = in.readByte();
+				if (type == CURSOR) {
+					replay.recordCursor(tick, in.readDouble(), in.readDouble());
+				}
+				else if (type == CHECKED_CURSOR && version >= 2) {
+					replay.recordCheckedCursor(tick,
+							in.readDouble(), in.readDouble());
+				}
+				else if (type == END) {
+					int endReason = in.readByte();
+					if (endReason < 0 ||
+							endReason >= GameOverReason.values().length)
+						throw new IOException("Unknown game over reason");
+					GameOverReason end = GameOverReason.values()[endReason];
+					if (!isOutsideReason(end))
+						throw new IOException("Game ended from outside of " +
+								"the simulation for " + end);
+					replay.recordEnd(tick, end);
+				}
+				else {
+					throw new IOException("Unknown input type");
+				}
+			}
+			return replay;
+		}
+	}
+
+
+	/**
+	 * @return Seed of the random number generator
+	 */
+	public long getSeed() {
+		return seed;
+	}
+
+
+	/**
+	 * @return Scene width
+	 */
+	public double getSceneWidth() {
+		return sceneWidth;
+	}
+
+
+	/**
+	 * @return Scene height
+	 */
+	public double getSceneHeight() {
+		return sceneHeight;
+	}
+
+
+	/**
+	 * @return Screen width
+	 */
+	public double getScreenWidth() {
+		return screenWidth;
+	}
+
+
+	/**
+	 * @return Screen height
+	 */
+	public double getScreenHeight() {
+		return screenHeight;
+	}
+
+
+	/**
+	 * @return Walls of the arena, or null if the edges of the scene are
+	 */
+	public ArenaShape getShape() {
+		return shape;
+	}
+
+
+	/**
+	 * @return The reason the game reported it ended, or null if unknown
+	 */
+	public GameOverReason getReason() {
+		return reason;
+	}
+
+
+	/**
+	 * @return Number of steps the game reported it lasted
+	 */
+	public long getTicks() {
+		return ticks;
+	}
+
+
+	/**
+	 * @return Time in seconds the game reported it lasted
+	 */
+	public double getTime() {
+		return ticks * Simulation.TICK_DURATION;
+	}
+
+
+	/**
+	 * @return Number of recorded inputs
+	 */
+	public int getInputCount() {
+		return inputCount;
+	}
+
+
+	/**
+	 * @param i Index of an input
+	 * @return The step the input was received before
+	 */
+	public long getInputTick(int i) {
+		return inputTicks[i];
+	}
+
+
+	/**
+	 * @param i Index of an input
+	 * @return Whether the input moved the cursor, rather than ending the game
+	 */
+	public boolean isCursorInput(int i) {
+		return inputTypes[i] == CURSOR || inputTypes[i] == CHECKED_CURSOR;
+	}
+
+
+	/**
+	 * @param i Index of an input that moved the cursor
+	 * @return X-coordinate the cursor moved to
+	 */
+	public double getInputX(int i) {
+		return inputX[i];
+	}
+
+
+	/**
+	 * @param i Index of an input that moved the cursor
+	 * @return Y-coordinate the cursor moved to
+	 */
+	public double getInputY(int i) {
+		return inputY[i];
+	}
+
+
+	/**
+	 * Receives every step of a recording as it is played
+	 * @author Alex Gill
+	 *
+	 */
+	public interface StepListener {
+		/**
+		 * Called after the simulation has advanced one step
+		 * @param simulation The simulation
+		 */
+		void stepped(Simulation simulation);
+	}
+
+}
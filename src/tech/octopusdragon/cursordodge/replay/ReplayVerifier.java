@@ -0,0 +1,174 @@
+package tech.octopusdragon.cursordodge.replay;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import tech.octopusdragon.cursordodge.game.Simulation;
+import tech.octopusdragon.cursordodge.game.classes.GameOverReason;
+
+/**
+ * Checks the results of recorded games by playing each recording again
+ * without a display, as fast as possible, on every core of the machine.
+ * <p>
+ * Usage: {@code ReplayVerifier <replay file or directory>...}
+ * <p>
+ * Prints one line per recording and a summary with the throughput in
+ * simulated seconds per wall-clock second. Exits with status 1 if any
+ * recording does not match the result it claims, or is invalid: unreadable,
+ * or ending the game in a way only the simulation can.
+ * @author Alex Gill
+ *
+ */
+public class ReplayVerifier {
+
+	public static void main(String[] args) throws InterruptedException {
+		if (args.length == 0) {
+			System.out.println(
+					"Usage: ReplayVerifier <replay file or directory>...");
+			System.exit(2);
+		}
+
+		// Find all of the replay files
+		List<File> files = new ArrayList<File>();
+		for (String arg : args) {
+			findReplayFiles(new File(arg), files);
+		}
+
+		// Verify them in parallel
+		int threads = Runtime.getRuntime().availableProcessors();
+		ExecutorService executor = Executors.newFixedThreadPool(threads);
+		long wallStart = System.nanoTime();
+		List<Future<Result>> futures = new ArrayList<Future<Result>>();
+		for (File file : files) {
+			futures.add(executor.submit(() -> verify(file)));
+		}
+		executor.shutdown();
+
+		// Print the results in the order the files were given
+		int verified = 0, mismatched = 0, invalid = 0;
+		double simulatedSeconds = 0.0;
+		for (Future<Result> future : futures) {
+			Result result;
+			try {
+				result = future.get();
+			} catch (ExecutionException e) {
+				throw new IllegalStateException(e.getCause());
+			}
+			System.out.println(result);
+			simulatedSeconds += result.simulatedTime;
+			if (result.error != null) invalid++;
+			else if (result.matches()) verified++;
+			else mismatched++;
+		}
+		double wallSeconds = (System.nanoTime() - wallStart) / 1e9;
+
+		// Print the summary
+		System.out.println();
+		System.out.println(String.format(
+				"%d replays on %d threads: %d verified, %d mismatched, " +
+						"%d invalid",
+				files.size(), threads, verified, mismatched, invalid));
+		System.out.println(String.format(
+				"Simulated %.1f s in %.3f s wall time (%.1f simulated s per " +
+						"wall s, about %.0f replays per hour)",
+				simulatedSeconds, wallSeconds,
+				simulatedSeconds / wallSeconds,
+				files.size() / wallSeconds * 3600));
+
+		System.exit(mismatched + invalid == 0 ? 0 : 1);
+	}
+
+
+	/**
+	 * Adds the file to the list if it is a replay file, or every replay file
+	 * inside it if it is a directory
+	 * @param file The file or directory
+	 * @param files The list of replay files
+	 */
+	private static void findReplayFiles(File file, List<File> files) {
+		if (file.isDirectory()) {
+			File[] children = file.listFiles();
+			if (children == null) return;
+			Arrays.sort(children);
+			for (File child : children) {
+				if (child.isDirectory() ||
+						child.getName().endsWith(Replay.FILE_EXTENSION)) {
+					findReplayFiles(child, files);
+				}
+			}
+		}
+		else {
+			files.add(file);
+		}
+	}
+
+
+	/**
+	 * Plays a recording again and compares the outcome with the result it
+	 * claims
+	 * @param file The replay file
+	 * @return The outcome
+	 */
+	private static Result verify(File file) {
+		Result result = new Result(file);
+		try {
+			Replay replay = Replay.read(file);
+			result.claimedReason = replay.getReason();
+			result.claimedTicks = replay.getTicks();
+			Simulation simulation = replay.play();
+			result.simulatedReason = simulation.getGameOverReason();
+			result.simulatedTicks = simulation.getTick();
+			result.simulatedTime = simulation.getTime();
+		} catch (Exception e) {
+			result.error = e.toString();
+		}
+		return result;
+	}
+
+
+	/**
+	 * The outcome of verifying one recording
+	 * @author Alex Gill
+	 *
+	 */
+	private static class Result {
+		private File file;
+		private GameOverReason claimedReason;
+		private long claimedTicks;
+		private GameOverReason simulatedReason;
+		private long simulatedTicks;
+		private double simulatedTime;
+		private String error;
+
+		public Result(File file) {
+			this.file = file;
+		}
+
+		public boolean matches() {
+			return claimedReason != null &&
+					claimedReason == simulatedReason &&
+					claimedTicks == simulatedTicks;
+		}
+
+		@Override
+		public String toString() {
+			if (error != null) {
+				return String.format("INVALID   %s: %s", file, error);
+			}
+			return String.format("%s  %s: claimed %s at %.3f s, " +
+					"simulated %s at %.3f s",
+					matches() ? "OK      " : "MISMATCH",
+					file,
+					claimedReason, claimedTicks * Simulation.TICK_DURATION,
+					simulatedReason == null ? "no game over" : simulatedReason,
+					simulatedTicks * Simulation.TICK_DURATION);
+		}
+	}
+
+}
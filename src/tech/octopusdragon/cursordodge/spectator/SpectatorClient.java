@@ -0,0 +1,145 @@
+package tech.octopusdragon.cursordodge.spectator;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+
+/**
+ * Watches a game being sent by a {@link SpectatorPublisher} on the same
+ * machine. Messages are read on a background thread into a
+ * {@link SpectatorState}, which can be copied out at any time. If there is no
+ * game to watch, or the game stops sending, the client keeps trying to
+ * connect again.
+ * @author Alex Gill
+ *
+ */
+public class SpectatorClient {
+
+	// --- Constants ---
+	// Milliseconds between attempts to connect
+	private static final long RETRY_INTERVAL = 1000;
+
+	// --- Variables ---
+	private int port;						// Port the game sends on
+	private SpectatorState state;			// The game as last read
+	private Thread reader;					// Thread messages are read on
+	private volatile SocketChannel channel;	// Connection to the game
+	private volatile boolean connected;		// Whether connected to a game
+	private volatile boolean closed;		// Whether watching has finished
+
+
+	/**
+	 * Starts watching
+	 * @param port The port on the loopback address the game sends on
+	 */
+	public SpectatorClient(int port) {
+		this.port = port;
+		state = new SpectatorState();
+		reader = new Thread(this::read, "Spectator client");
+		reader.setDaemon(true);
+		reader.start();
+	}
+
+
+	/**
+	 * Copies the game as last read
+	 * @param target The state to copy it into
+	 */
+	public void copyTo(SpectatorState target) {
+		synchronized (state) {
+			target.copyFrom(state);
+		}
+	}
+
+
+	/**
+	 * @return Whether connected to a game
+	 */
+	public boolean isConnected() {
+		return connected;
+	}
+
+
+	/**
+	 * Stops watching and disconnects
+	 */
+	public void close() {
+		if (closed) return;
+		closed = true;
+		reader.interrupt();
+		SocketChannel channel = this.channel;
+		if (channel != null) {
+			try {
+				channel.close();
+			} catch (IOException e) {
+				System.out.println("Error closing spectator connection");
+				e.printStackTrace();
+			}
+		}
+	}
+
+
+	/**
+	 * Connects and reads messages until watching is closed, connecting again
+	 * whenever the connection is lost
+	 */
+	private void read() {
+		ByteBuffer length = ByteBuffer.allocate(4);
+		ByteBuffer message = ByteBuffer.allocate(4096);
+		while (!closed) {
+			try (SocketChannel channel = SocketChannel.open()) {
+				this.channel = channel;
+				if (closed) break;
+				channel.connect(new InetSocketAddress(
+						InetAddress.getLoopbackAddress(), port));
+				connected = true;
+				while (!closed) {
+					length.clear();
+					readFully(channel, length);
+					length.flip();
+					int size = length.getInt();
+					if (size < 1 || size > SpectatorState.MAX_MESSAGE_SIZE)
+						throw new IOException("Invalid message length");
+					if (size > message.capacity()) {
+						message = ByteBuffer.allocate(
+								Math.max(size, message.capacity() * 2));
+					}
+					message.clear();
+					message.limit(size);
+					readFully(channel, message);
+					message.flip();
+					synchronized (state) {
+						state.apply(message);
+					}
+				}
+			} catch (IOException e) {
+				// No game is being sent, or it stopped; try again
+			}
+			connected = false;
+			synchronized (state) {
+				state.clear();
+			}
+			try {
+				Thread.sleep(RETRY_INTERVAL);
+			} catch (InterruptedException e) {
+				break;
+			}
+		}
+	}
+
+
+	/**
+	 * Reads until a buffer is full
+	 * @throws IOException If the connection closed first
+	 */
+	private static void readFully(SocketChannel channel, ByteBuffer buffer)
+			throws IOException {
+		while (buffer.hasRemaining()) {
+			if (channel.read(buffer) < 0) throw new EOFException();
+		}
+	}
+
+}
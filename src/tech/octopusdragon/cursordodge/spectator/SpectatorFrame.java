@@ -0,0 +1,243 @@
+package tech.octopusdragon.cursordodge.spectator;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+import tech.octopusdragon.cursordodge.game.Simulation;
+import tech.octopusdragon.cursordodge.game.classes.CatchCircles;
+import tech.octopusdragon.cursordodge.game.classes.Circles;
+
+/**
+ * The state of a game in one frame as it is sent to spectators, with every
+ * position already rounded to what is sent. Frames are filled on the game
+ * thread, which only copies numbers into arrays the frame already has, and
+ * written out as messages on the thread of the {@link SpectatorPublisher}.
+ * <p>
+ * A frame is written either whole, as a keyframe, or as the changes from the
+ * frame before it. Circles are compared slot by slot, so a circle that did not
+ * move is not sent again.
+ * @author Alex Gill
+ *
+ */
+class SpectatorFrame {
+
+	// --- Constants ---
+	// Circles there is room for before the arrays have to grow
+	private static final int INITIAL_CAPACITY = 32;
+
+	// --- Variables ---
+	int round;				// Number of the game the frame is from
+	long tick;				// Simulation step of the frame
+	float sceneWidth;		// Scene width
+	float sceneHeight;		// Scene height
+	float circleRadius;		// Radius of the circles
+	boolean cursorKnown;	// Whether the cursor has been on the scene
+	short cursorX;			// X-coordinate of the cursor, rounded
+	short cursorY;			// Y-coordinate of the cursor, rounded
+	byte reason;			// Reason the game ended, or -1 if it has not
+	// Circles of each kind: where they are, rounded, and how opaque
+	int[] count = new int[SpectatorState.KINDS];
+	short[][] x = new short[SpectatorState.KINDS][INITIAL_CAPACITY];
+	short[][] y = new short[SpectatorState.KINDS][INITIAL_CAPACITY];
+	byte[][] alpha = new byte[SpectatorState.KINDS][INITIAL_CAPACITY];
+
+
+	/**
+	 * Copies the state of a simulation into the frame
+	 * @param simulation The simulation
+	 * @param round Number of the game
+	 */
+	void copy(Simulation simulation, int round) {
+		this.round = round;
+		tick = simulation.getTick();
+		sceneWidth = (float) simulation.getArena().getSceneWidth();
+		sceneHeight = (float) simulation.getArena().getSceneHeight();
+		circleRadius = (float) simulation.getArena().getCircleRadius();
+		double cursorX = simulation.getCursorX();
+		double cursorY = simulation.getCursorY();
+		cursorKnown = !Double.isNaN(cursorX) && !Double.isNaN(cursorY);
+		this.cursorX = cursorKnown ?
+				SpectatorState.round(cursorX, sceneWidth) : 0;
+		this.cursorY = cursorKnown ?
+				SpectatorState.round(cursorY, sceneHeight) : 0;
+		reason = simulation.isGameOver() ?
+				(byte) simulation.getGameOverReason().ordinal() : -1;
+
+		copy(SpectatorState.OBSTACLE, simulation.getObstacleCircles(), null,
+				0.0);
+		copy(SpectatorState.CATCH, simulation.getCatchCircles(),
+				simulation.getCatchCircles(), simulation.getTime());
+		copy(SpectatorState.CORNER, simulation.getCornerCircles(), null, 0.0);
+	}
+
+
+	/**
+	 * Copies the circles of one kind into the frame
+	 * @param kind The kind
+	 * @param circles The circles
+	 * @param catches The circles again if they fade, or null if they do not
+	 * @param time The time of the simulation
+	 */
+	private void copy(int kind, Circles circles, CatchCircles catches,
+			double time) {
+		int size = Math.min(circles.size(), SpectatorState.MAX_CIRCLES);
+		if (size > x[kind].length) {
+			int capacity = Math.max(size, x[kind].length * 2);
+			x[kind] = Arrays.copyOf(x[kind], capacity);
+			y[kind] = Arrays.copyOf(y[kind], capacity);
+			alpha[kind] = Arrays.copyOf(alpha[kind], capacity);
+		}
+		for (int i = 0; i < size; i++) {
+			x[kind][i] = SpectatorState.round(circles.getX(i), sceneWidth);
+			y[kind][i] = SpectatorState.round(circles.getY(i), sceneHeight);
+			alpha[kind][i] = catches == null ? (byte) 255 :
+					(byte) Math.round(255 * Math.max(0.0,
+							Math.min(1.0, catches.getOpacity(i, time))));
+		}
+		count[kind] = size;
+	}
+
+
+	/**
+	 * Copies another frame into this one
+	 * @param other The frame
+	 */
+	void copyFrom(SpectatorFrame other) {
+		round = other.round;
+		tick = other.tick;
+		sceneWidth = other.sceneWidth;
+		sceneHeight = other.sceneHeight;
+		circleRadius = other.circleRadius;
+		cursorKnown = other.cursorKnown;
+		cursorX = other.cursorX;
+		cursorY = other.cursorY;
+		reason = other.reason;
+		for (int kind = 0; kind < SpectatorState.KINDS; kind++) {
+			int size = other.count[kind];
+			if (size > x[kind].length) {
+				x[kind] = new short[other.x[kind].length];
+				y[kind] = new short[other.x[kind].length];
+				alpha[kind] = new byte[other.x[kind].length];
+			}
+			System.arraycopy(other.x[kind], 0, x[kind], 0, size);
+			System.arraycopy(other.y[kind], 0, y[kind], 0, size);
+			System.arraycopy(other.alpha[kind], 0, alpha[kind], 0, size);
+			count[kind] = size;
+		}
+	}
+
+
+	/**
+	 * Writes the whole frame as a keyframe message
+	 * @return The message, ready to be sent
+	 */
+	ByteBuffer keyframe() {
+		int size = SpectatorState.HEADER_SIZE + 4 + 8 + 3 * 4 + 5;
+		for (int kind = 0; kind < SpectatorState.KINDS; kind++) {
+			size += 2 + count[kind] * 5;
+		}
+		ByteBuffer buffer = ByteBuffer.allocate(size);
+		buffer.putInt(size - 4);
+		buffer.put(SpectatorState.KEYFRAME);
+		buffer.putInt(round);
+		buffer.putLong(tick);
+		buffer.putFloat(sceneWidth);
+		buffer.putFloat(sceneHeight);
+		buffer.putFloat(circleRadius);
+		putCursor(buffer);
+		for (int kind = 0; kind < SpectatorState.KINDS; kind++) {
+			buffer.putShort((short) count[kind]);
+			for (int i = 0; i < count[kind]; i++) {
+				buffer.putShort(x[kind][i]);
+				buffer.putShort(y[kind][i]);
+				buffer.put(alpha[kind][i]);
+			}
+		}
+		buffer.flip();
+		return buffer;
+	}
+
+
+	/**
+	 * Writes the changes from the frame before as a delta message
+	 * @param previous The frame before, of the same round
+	 * @return The message, ready to be sent
+	 */
+	ByteBuffer delta(SpectatorFrame previous) {
+		int size = SpectatorState.HEADER_SIZE + 4 + 8 + 5;
+		for (int kind = 0; kind < SpectatorState.KINDS; kind++) {
+			size += 4 + changedCount(kind, previous) * 7;
+		}
+		ByteBuffer buffer = ByteBuffer.allocate(size);
+		buffer.putInt(size - 4);
+		buffer.put(SpectatorState.DELTA);
+		buffer.putInt(round);
+		buffer.putLong(tick);
+		putCursor(buffer);
+		for (int kind = 0; kind < SpectatorState.KINDS; kind++) {
+			buffer.putShort((short) count[kind]);
+			buffer.putShort((short) changedCount(kind, previous));
+			for (int i = 0; i < count[kind]; i++) {
+				if (!changed(kind, i, previous)) continue;
+				buffer.putShort((short) i);
+				buffer.putShort(x[kind][i]);
+				buffer.putShort(y[kind][i]);
+				buffer.put(alpha[kind][i]);
+			}
+		}
+		buffer.flip();
+		return buffer;
+	}
+
+
+	/**
+	 * Writes that the game ended as a game over message
+	 * @return The message, ready to be sent
+	 */
+	ByteBuffer gameOver() {
+		int size = SpectatorState.HEADER_SIZE + 4 + 8 + 1;
+		ByteBuffer buffer = ByteBuffer.allocate(size);
+		buffer.putInt(size - 4);
+		buffer.put(SpectatorState.GAME_OVER);
+		buffer.putInt(round);
+		buffer.putLong(tick);
+		buffer.put(reason);
+		buffer.flip();
+		return buffer;
+	}
+
+
+	/**
+	 * Writes the cursor: whether it is known and where it is
+	 */
+	private void putCursor(ByteBuffer buffer) {
+		buffer.put((byte) (cursorKnown ? 1 : 0));
+		buffer.putShort(cursorX);
+		buffer.putShort(cursorY);
+	}
+
+
+	/**
+	 * @return Number of circles of a kind that changed since the frame before
+	 */
+	private int changedCount(int kind, SpectatorFrame previous) {
+		int changed = 0;
+		for (int i = 0; i < count[kind]; i++) {
+			if (changed(kind, i, previous)) changed++;
+		}
+		return changed;
+	}
+
+
+	/**
+	 * @return Whether a circle is not where it was in the frame before or is
+	 * not as opaque
+	 */
+	private boolean changed(int kind, int i, SpectatorFrame previous) {
+		return i >= previous.count[kind] ||
+				x[kind][i] != previous.x[kind][i] ||
+				y[kind][i] != previous.y[kind][i] ||
+				alpha[kind][i] != previous.alpha[kind][i];
+	}
+
+}
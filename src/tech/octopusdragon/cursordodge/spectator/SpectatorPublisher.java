@@ -0,0 +1,389 @@
+package tech.octopusdragon.cursordodge.spectator;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+import tech.octopusdragon.cursordodge.game.Simulation;
+
+/**
+ * Sends the state of the game every frame to spectators on the same machine,
+ * who connect to a port on the loopback address and read it with a
+ * {@link SpectatorClient}.
+ * <p>
+ * Frames are copied into {@link SpectatorFrame}s on the game thread, which
+ * only copies numbers into arrays the publisher already has. They are turned
+ * into messages and sent on a background thread. If that thread falls so far
+ * behind that no empty frame is left, the oldest frame not yet sent is taken
+ * back and filled with the new one, and the frame lost is counted, rather
+ * than making the game wait. The newest frame is never the one lost, so
+ * spectators still see how a game ended when nothing more is published after
+ * it; the next frame sent is still compared with the last one that was.
+ * <p>
+ * A spectator is sent a keyframe when it connects and when a new game starts,
+ * and only the changes after that. Each spectator has its own queue of
+ * messages. If a spectator reads so slowly that its queue fills, the messages
+ * waiting for it are thrown away and it is sent a keyframe instead, so a slow
+ * spectator skips ahead rather than holding up the others or the game.
+ * @author Alex Gill
+ *
+ */
+public class SpectatorPublisher {
+
+	// --- Constants ---
+	// Port spectators connect to unless another is chosen
+	public static final int DEFAULT_PORT = 47311;
+	// Number of frames that can be waiting to be sent at once
+	private static final int FRAME_COUNT = 4;
+	// Messages that can wait for a spectator before it is sent a keyframe
+	private static final int MAX_QUEUED_MESSAGES = 8;
+	// Bytes the system may hold for a spectator before it is sent, kept small
+	// so that a slow spectator falls behind in its queue, where it can skip
+	// ahead, rather than in the connection
+	private static final int SEND_BUFFER_SIZE = 1 << 15;
+
+	// --- Variables ---
+	private BlockingQueue<SpectatorFrame> empty;	// Frames ready to fill
+	private BlockingQueue<SpectatorFrame> full;		// Frames ready to send
+	private Simulation simulation;		// Simulation of the last frame
+	private int round;					// Number of the game being sent
+	private long droppedFrames;			// Frames not sent
+	private volatile long droppedMessages;	// Messages thrown away
+	private volatile int clientCount;	// Spectators connected
+	private volatile boolean closed;	// Whether publishing has finished
+	private ServerSocketChannel server;	// Accepts spectators
+	private Selector selector;			// Waits for spectators and frames
+	private Thread sender;				// Thread frames are sent on
+
+
+	/**
+	 * Starts accepting spectators
+	 * @param port The port on the loopback address, or 0 for any free one
+	 * @throws IOException If the port could not be opened
+	 */
+	public SpectatorPublisher(int port) throws IOException {
+		empty = new ArrayBlockingQueue<SpectatorFrame>(FRAME_COUNT);
+		full = new ArrayBlockingQueue<SpectatorFrame>(FRAME_COUNT);
+		for (int i = 0; i < FRAME_COUNT; i++) {
+			empty.add(new SpectatorFrame());
+		}
+
+		selector = Selector.open();
+		try {
+			server = ServerSocketChannel.open();
+			server.bind(new InetSocketAddress(
+					InetAddress.getLoopbackAddress(), port));
+			server.configureBlocking(false);
+			server.register(selector, SelectionKey.OP_ACCEPT);
+		} catch (IOException e) {
+			if (server != null) server.close();
+			selector.close();
+			throw e;
+		}
+
+		sender = new Thread(this::serve, "Spectator publisher");
+		sender.setDaemon(true);
+		sender.start();
+	}
+
+
+	/**
+	 * Sends a frame. Must be called from one thread only.
+	 * @param simulation The simulation being watched
+	 */
+	public void publish(Simulation simulation) {
+		if (closed) return;
+		if (simulation != this.simulation) {
+			this.simulation = simulation;
+			round++;
+		}
+		SpectatorFrame frame = empty.poll();
+		while (frame == null) {
+			// The sender fell behind, so the oldest frame waiting is lost.
+			// The sender holds at most one frame, so one of the queues has
+			// another unless the sender has just moved it to the other.
+			frame = full.poll();
+			if (frame != null) droppedFrames++;
+			else frame = empty.poll();
+		}
+		frame.copy(simulation, round);
+		full.add(frame);
+		selector.wakeup();
+	}
+
+
+	/**
+	 * Stops publishing and disconnects every spectator
+	 */
+	public void close() {
+		if (closed) return;
+		closed = true;
+		selector.wakeup();
+	}
+
+
+	/**
+	 * @return Port spectators connect to
+	 */
+	public int getPort() {
+		return server.socket().getLocalPort();
+	}
+
+
+	/**
+	 * @return Number of frames that were replaced by newer ones before being
+	 * sent because the sender fell behind
+	 */
+	public long getDroppedFrames() {
+		return droppedFrames;
+	}
+
+
+	/**
+	 * @return Number of messages thrown away because a spectator fell behind
+	 */
+	public long getDroppedMessages() {
+		return droppedMessages;
+	}
+
+
+	/**
+	 * @return Number of spectators connected
+	 */
+	public int getClientCount() {
+		return clientCount;
+	}
+
+
+	/**
+	 * Accepts spectators and sends them frames as they are published until
+	 * publishing is closed
+	 */
+	private void serve() {
+		List<Client> clients = new ArrayList<Client>();
+		SpectatorFrame last = new SpectatorFrame();
+		boolean sentAny = false;
+		ByteBuffer discard = ByteBuffer.allocate(256);
+		try {
+			while (!closed) {
+				selector.select();
+				Iterator<SelectionKey> keys =
+						selector.selectedKeys().iterator();
+				while (keys.hasNext()) {
+					SelectionKey key = keys.next();
+					keys.remove();
+					if (!key.isValid()) continue;
+					if (key.isAcceptable()) {
+						Client client = accept();
+						if (client == null) continue;
+						clients.add(client);
+						clientCount = clients.size();
+						// Show a spectator the game as it is now, even if it
+						// has already ended
+						if (sentAny) {
+							client.queue(last.keyframe());
+							if (last.reason >= 0)
+								client.queue(last.gameOver());
+							client.flush();
+						}
+						continue;
+					}
+					Client client = (Client) key.attachment();
+					if (key.isReadable()) {
+						// Spectators have nothing to say, but reading shows
+						// when they leave
+						discard.clear();
+						try {
+							if (client.channel.read(discard) < 0)
+								client.close();
+						} catch (IOException e) {
+							client.close();
+						}
+					}
+					if (key.isValid() && key.isWritable()) client.flush();
+				}
+
+				SpectatorFrame frame;
+				while ((frame = full.poll()) != null) {
+					send(frame, sentAny ? last : null, clients);
+					last.copyFrom(frame);
+					sentAny = true;
+					empty.add(frame);
+				}
+				if (clients.removeIf(client -> !client.channel.isOpen()))
+					clientCount = clients.size();
+			}
+		} catch (IOException e) {
+			System.out.println("Error sending to spectators");
+			e.printStackTrace();
+		} finally {
+			closed = true;
+			for (Client client : clients) {
+				client.close();
+			}
+			clientCount = 0;
+			try {
+				server.close();
+				selector.close();
+			} catch (IOException e) {
+				System.out.println("Error closing spectator stream");
+				e.printStackTrace();
+			}
+		}
+	}
+
+
+	/**
+	 * Sends a frame to every spectator
+	 * @param frame The frame
+	 * @param previous The last frame sent, or null if none was
+	 * @param clients The spectators
+	 */
+	private void send(SpectatorFrame frame, SpectatorFrame previous,
+			List<Client> clients) {
+		boolean newRound = previous == null || frame.round != previous.round;
+		boolean ended = frame.reason >= 0 &&
+				(newRound || previous.reason < 0);
+		// Each message is made at most once and shared by every spectator
+		ByteBuffer keyframe = null;
+		ByteBuffer delta = null;
+		ByteBuffer gameOver = ended ? frame.gameOver() : null;
+		for (Client client : clients) {
+			if (!client.channel.isOpen()) continue;
+			if (client.queued.size() >= MAX_QUEUED_MESSAGES) {
+				client.dropBacklog();
+			}
+			if (newRound || client.needsKeyframe) {
+				if (keyframe == null) keyframe = frame.keyframe();
+				client.queue(keyframe.duplicate());
+				client.needsKeyframe = false;
+			}
+			else {
+				if (delta == null) delta = frame.delta(previous);
+				client.queue(delta.duplicate());
+			}
+			if (gameOver != null) client.queue(gameOver.duplicate());
+			client.flush();
+		}
+	}
+
+
+	/**
+	 * Accepts a spectator that is waiting to connect
+	 * @return The spectator, or null if none was waiting
+	 * @throws IOException If the server could not accept
+	 */
+	private Client accept() throws IOException {
+		SocketChannel channel = server.accept();
+		if (channel == null) return null;
+		try {
+			channel.configureBlocking(false);
+			channel.socket().setTcpNoDelay(true);
+			channel.socket().setSendBufferSize(SEND_BUFFER_SIZE);
+			SelectionKey key = channel.register(selector,
+					SelectionKey.OP_READ);
+			Client client = new Client(channel, key);
+			key.attach(client);
+			return client;
+		} catch (IOException e) {
+			channel.close();
+			System.out.println("Error accepting spectator");
+			e.printStackTrace();
+			return null;
+		}
+	}
+
+
+	/**
+	 * A spectator and the messages waiting to be sent to it
+	 * @author Alex Gill
+	 *
+	 */
+	private class Client {
+
+		private SocketChannel channel;	// Connection to the spectator
+		private SelectionKey key;		// Registration with the selector
+		// Messages waiting to be sent, the first maybe partly sent
+		private ArrayDeque<ByteBuffer> queued = new ArrayDeque<ByteBuffer>();
+		// Whether the spectator missed messages and needs the whole state
+		private boolean needsKeyframe;
+
+
+		private Client(SocketChannel channel, SelectionKey key) {
+			this.channel = channel;
+			this.key = key;
+		}
+
+
+		/**
+		 * Adds a message to the end of the queue
+		 */
+		private void queue(ByteBuffer message) {
+			queued.add(message);
+		}
+
+
+		/**
+		 * Throws away every waiting message that has not started to be sent,
+		 * so that the spectator is sent the whole state next
+		 */
+		private void dropBacklog() {
+			ByteBuffer head = queued.peek();
+			boolean started = head != null && head.position() > 0;
+			droppedMessages += queued.size() - (started ? 1 : 0);
+			queued.clear();
+			if (started) queued.add(head);
+			needsKeyframe = true;
+		}
+
+
+		/**
+		 * Sends as much of the queue as the connection takes without waiting,
+		 * and waits to be told it can take more if some is left
+		 */
+		private void flush() {
+			if (!channel.isOpen()) return;
+			try {
+				while (!queued.isEmpty()) {
+					ByteBuffer head = queued.peek();
+					channel.write(head);
+					if (head.hasRemaining()) break;
+					queued.poll();
+				}
+				key.interestOps(queued.isEmpty() ? SelectionKey.OP_READ :
+						SelectionKey.OP_READ | SelectionKey.OP_WRITE);
+			} catch (IOException e) {
+				// The spectator left
+				close();
+			}
+		}
+
+
+		/**
+		 * Disconnects the spectator
+		 */
+		private void close() {
+			key.cancel();
+			queued.clear();
+			try {
+				channel.close();
+			} catch (IOException e) {
+				System.out.println("Error closing spectator");
+				e.printStackTrace();
+			}
+		}
+
+	}
+
+}
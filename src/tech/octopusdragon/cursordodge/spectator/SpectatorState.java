@@ -0,0 +1,336 @@
+package tech.octopusdragon.cursordodge.spectator;
+
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+import tech.octopusdragon.cursordodge.game.classes.GameOverReason;
+
+/**
+ * The state of a game as a spectator sees it, built up from the messages of a
+ * {@link SpectatorPublisher}.
+ * <p>
+ * Every message is an int giving the length of the rest, a byte giving its
+ * type, the number of the game and the simulation step it is from. A keyframe
+ * then gives the size of the scene and circles, the cursor, and for each kind
+ * of circle, how many there are and where each is. A delta gives the cursor,
+ * and for each kind, how many there are now and the slots of the ones that
+ * changed since the message before. A game over message gives the reason the
+ * game ended. Positions are sent as shorts, in {@value #SCALE}ths of the
+ * width or height of the scene, so that a spectator can draw the game at any
+ * size.
+ * @author Alex Gill
+ *
+ */
+public class SpectatorState {
+
+	// --- Constants ---
+	// Kinds of circle, in the order they are sent and drawn
+	public static final int OBSTACLE = 0;
+	public static final int CATCH = 1;
+	public static final int CORNER = 2;
+	public static final int KINDS = 3;
+	// Types of message
+	static final byte KEYFRAME = 0;
+	static final byte DELTA = 1;
+	static final byte GAME_OVER = 2;
+	// Bytes of the length and type at the start of every message
+	static final int HEADER_SIZE = 5;
+	// Longest message a spectator will read
+	static final int MAX_MESSAGE_SIZE = 1 << 20;
+	// Most circles of a kind sent
+	static final int MAX_CIRCLES = 0xFFFF;
+	// Units a position is sent in, per width or height of the scene
+	private static final double SCALE = 16384.0;
+	// Circles there is room for before the arrays have to grow
+	private static final int INITIAL_CAPACITY = 32;
+
+	// --- Variables ---
+	private boolean synced;			// Whether a keyframe has been read
+	private int round;				// Number of the game
+	private long tick;				// Simulation step
+	private double sceneWidth;		// Scene width
+	private double sceneHeight;		// Scene height
+	private double circleRadius;	// Radius of the circles
+	private boolean cursorKnown;	// Whether the cursor has been on the scene
+	private short cursorX;			// X-coordinate of the cursor, rounded
+	private short cursorY;			// Y-coordinate of the cursor, rounded
+	private GameOverReason reason;	// Reason the game ended, if it has
+	// Circles of each kind: where they are, rounded, and how opaque
+	private int[] count = new int[KINDS];
+	private short[][] x = new short[KINDS][INITIAL_CAPACITY];
+	private short[][] y = new short[KINDS][INITIAL_CAPACITY];
+	private byte[][] alpha = new byte[KINDS][INITIAL_CAPACITY];
+
+
+	/**
+	 * Rounds a coordinate to the units it is sent in
+	 * @param value The coordinate
+	 * @param size Width or height of the scene
+	 * @return The rounded coordinate
+	 */
+	static short round(double value, double size) {
+		long rounded = Math.round(value / size * SCALE);
+		return (short) Math.max(Short.MIN_VALUE,
+				Math.min(Short.MAX_VALUE, rounded));
+	}
+
+
+	/**
+	 * Applies a message to the state
+	 * @param message The message after its length, from the type on
+	 * @throws IOException If the message is not valid
+	 */
+	public void apply(ByteBuffer message) throws IOException {
+		try {
+			byte type = message.get();
+			int messageRound = message.getInt();
+			long messageTick = message.getLong();
+			if (type == KEYFRAME) {
+				readKeyframe(message);
+			}
+			else if (type == DELTA) {
+				// A delta only makes sense on top of the game it is from
+				if (!synced || messageRound != round) return;
+				readDelta(message);
+			}
+			else if (type == GAME_OVER) {
+				if (!synced || messageRound != round) return;
+				int ordinal = message.get();
+				if (ordinal < 0 || ordinal >= GameOverReason.values().length)
+					throw new IOException("Unknown game over reason");
+				reason = GameOverReason.values()[ordinal];
+			}
+			else {
+				throw new IOException("Unknown message type " + type);
+			}
+			round = messageRound;
+			tick = messageTick;
+		} catch (BufferUnderflowException e) {
+			throw new IOException("Message too short", e);
+		}
+	}
+
+
+	/**
+	 * Reads the whole state from a keyframe
+	 */
+	private void readKeyframe(ByteBuffer message) throws IOException {
+		sceneWidth = message.getFloat();
+		sceneHeight = message.getFloat();
+		circleRadius = message.getFloat();
+		readCursor(message);
+		for (int kind = 0; kind < KINDS; kind++) {
+			int size = message.getShort() & 0xFFFF;
+			ensureCapacity(kind, size);
+			for (int i = 0; i < size; i++) {
+				x[kind][i] = message.getShort();
+				y[kind][i] = message.getShort();
+				alpha[kind][i] = message.get();
+			}
+			count[kind] = size;
+		}
+		reason = null;
+		synced = true;
+	}
+
+
+	/**
+	 * Reads the changes from a delta
+	 */
+	private void readDelta(ByteBuffer message) throws IOException {
+		readCursor(message);
+		for (int kind = 0; kind < KINDS; kind++) {
+			int size = message.getShort() & 0xFFFF;
+			int changed = message.getShort() & 0xFFFF;
+			ensureCapacity(kind, size);
+			for (int c = 0; c < changed; c++) {
+				int i = message.getShort() & 0xFFFF;
+				if (i >= size) throw new IOException("Circle out of range");
+				x[kind][i] = message.getShort();
+				y[kind][i] = message.getShort();
+				alpha[kind][i] = message.get();
+			}
+			count[kind] = size;
+		}
+	}
+
+
+	/**
+	 * Reads whether the cursor is known and where it is
+	 */
+	private void readCursor(ByteBuffer message) {
+		cursorKnown = message.get() != 0;
+		cursorX = message.getShort();
+		cursorY = message.getShort();
+	}
+
+
+	/**
+	 * Grows the arrays of a kind of circle to fit a number of circles
+	 */
+	private void ensureCapacity(int kind, int size) {
+		if (size <= x[kind].length) return;
+		int capacity = Math.max(size, x[kind].length * 2);
+		x[kind] = Arrays.copyOf(x[kind], capacity);
+		y[kind] = Arrays.copyOf(y[kind], capacity);
+		alpha[kind] = Arrays.copyOf(alpha[kind], capacity);
+	}
+
+
+	/**
+	 * Copies another state into this one
+	 * @param other The state
+	 */
+	public void copyFrom(SpectatorState other) {
+		synced = other.synced;
+		round = other.round;
+		tick = other.tick;
+		sceneWidth = other.sceneWidth;
+		sceneHeight = other.sceneHeight;
+		circleRadius = other.circleRadius;
+		cursorKnown = other.cursorKnown;
+		cursorX = other.cursorX;
+		cursorY = other.cursorY;
+		reason = other.reason;
+		for (int kind = 0; kind < KINDS; kind++) {
+			int size = other.count[kind];
+			ensureCapacity(kind, size);
+			System.arraycopy(other.x[kind], 0, x[kind], 0, size);
+			System.arraycopy(other.y[kind], 0, y[kind], 0, size);
+			System.arraycopy(other.alpha[kind], 0, alpha[kind], 0, size);
+			count[kind] = size;
+		}
+	}
+
+
+	/**
+	 * Forgets the game, as when the connection is lost
+	 */
+	public void clear() {
+		synced = false;
+		reason = null;
+		Arrays.fill(count, 0);
+	}
+
+
+	/**
+	 * @return Whether a game is being watched
+	 */
+	public boolean isSynced() {
+		return synced;
+	}
+
+
+	/**
+	 * @return Number of the game, counted by the game being watched
+	 */
+	public int getRound() {
+		return round;
+	}
+
+
+	/**
+	 * @return Simulation step the state is from
+	 */
+	public long getTick() {
+		return tick;
+	}
+
+
+	/**
+	 * @return Scene width of the game being watched
+	 */
+	public double getSceneWidth() {
+		return sceneWidth;
+	}
+
+
+	/**
+	 * @return Scene height of the game being watched
+	 */
+	public double getSceneHeight() {
+		return sceneHeight;
+	}
+
+
+	/**
+	 * @return Radius of the circles of the game being watched
+	 */
+	public double getCircleRadius() {
+		return circleRadius;
+	}
+
+
+	/**
+	 * @return Whether the cursor has been on the scene
+	 */
+	public boolean isCursorKnown() {
+		return cursorKnown;
+	}
+
+
+	/**
+	 * @return X-coordinate of the cursor in the scene of the game
+	 */
+	public double getCursorX() {
+		return cursorX / SCALE * sceneWidth;
+	}
+
+
+	/**
+	 * @return Y-coordinate of the cursor in the scene of the game
+	 */
+	public double getCursorY() {
+		return cursorY / SCALE * sceneHeight;
+	}
+
+
+	/**
+	 * @return Reason the game ended, or null if it has not
+	 */
+	public GameOverReason getGameOverReason() {
+		return reason;
+	}
+
+
+	/**
+	 * @param kind A kind of circle
+	 * @return Number of circles of the kind
+	 */
+	public int getCount(int kind) {
+		return count[kind];
+	}
+
+
+	/**
+	 * @param kind A kind of circle
+	 * @param i Index of a circle
+	 * @return X-coordinate of the circle in the scene of the game
+	 */
+	public double getX(int kind, int i) {
+		return x[kind][i] / SCALE * sceneWidth;
+	}
+
+
+	/**
+	 * @param kind A kind of circle
+	 * @param i Index of a circle
+	 * @return Y-coordinate of the circle in the scene of the game
+	 */
+	public double getY(int kind, int i) {
+		return y[kind][i] / SCALE * sceneHeight;
+	}
+
+
+	/**
+	 * @param kind A kind of circle
+	 * @param i Index of a circle
+	 * @return Opacity of the circle
+	 */
+	public double getOpacity(int kind, int i) {
+		return (alpha[kind][i] & 0xFF) / 255.0;
+	}
+
+}
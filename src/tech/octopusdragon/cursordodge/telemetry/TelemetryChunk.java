@@ -0,0 +1,425 @@
+package tech.octopusdragon.cursordodge.telemetry;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+import tech.octopusdragon.cursordodge.game.Simulation;
+import tech.octopusdragon.cursordodge.game.classes.CatchCircles;
+import tech.octopusdragon.cursordodge.game.classes.CornerCircles;
+import tech.octopusdragon.cursordodge.game.classes.ObstacleCircles;
+
+/**
+ * A run of consecutive frames of telemetry, stored column by column. Some
+ * columns have one value per frame, such as the cursor position, and some have
+ * one value per circle per frame, such as the obstacle positions. Values are
+ * stored as whole numbers: positions and velocities in 1/{@value #SCALE}
+ * pixels and times in simulation steps.
+ * <p>
+ * When written, each column is stored on its own as the differences from the
+ * previous frame, which are small numbers while things move smoothly, as
+ * variable-length numbers compressed with deflate. A reader can decode only
+ * the chunks and columns it needs.
+ * @author Alex Gill
+ *
+ */
+public class TelemetryChunk {
+
+	// --- Constants ---
+	// Columns with one value per frame
+	public static final int TICK = 0;
+	public static final int CURSOR_X = 1;
+	public static final int CURSOR_Y = 2;
+	public static final int SPEED = 3;
+	public static final int NEXT_OBSTACLE = 4;	// Steps until next obstacle
+	public static final int NEXT_CATCH = 5;		// Steps until next catch
+	public static final int NEXT_CORNER = 6;	// Steps until next corner
+	public static final int OBSTACLE_COUNT = 7;
+	public static final int CATCH_COUNT = 8;
+	public static final int CORNER_COUNT = 9;
+	// Columns with one value per circle per frame
+	public static final int OBSTACLE_X = 10;
+	public static final int OBSTACLE_Y = 11;
+	public static final int OBSTACLE_VX = 12;
+	public static final int OBSTACLE_VY = 13;
+	public static final int CATCH_X = 14;
+	public static final int CATCH_Y = 15;
+	public static final int CATCH_REMAINING = 16;	// Steps until it fades
+	public static final int CORNER_X = 17;
+	public static final int CORNER_Y = 18;
+	public static final int COLUMN_COUNT = 19;
+	// Number of parts of a pixel values are stored in
+	public static final double SCALE = 16.0;
+	// Stored in place of a value that is not known
+	public static final int UNKNOWN = Integer.MIN_VALUE;
+
+	// --- Variables ---
+	private int capacity;		// Most frames the chunk holds
+	private int frameCount;		// Number of frames in the chunk
+	private int[][] columns;	// The values of each column
+	private int[] lengths;		// Number of values in each column
+	private int[][] offsets;	// Where each frame starts in circle columns
+	// Buffers used while encoding and decoding
+	private byte[] bytes = new byte[4096];
+	private byte[] compressed = new byte[4096];
+
+
+	/**
+	 * Constructs an empty chunk
+	 * @param capacity Most frames the chunk holds
+	 */
+	public TelemetryChunk(int capacity) {
+		this.capacity = capacity;
+		columns = new int[COLUMN_COUNT][];
+		lengths = new int[COLUMN_COUNT];
+		for (int i = 0; i < COLUMN_COUNT; i++) {
+			columns[i] = new int[capacity];
+		}
+	}
+
+
+	/**
+	 * Adds a frame with the current state of a simulation
+	 * @param simulation The simulation
+	 */
+	public void add(Simulation simulation) {
+		double time = simulation.getTime();
+		add(TICK, (int)simulation.getTick());
+		add(CURSOR_X, position(simulation.getCursorX()));
+		add(CURSOR_Y, position(simulation.getCursorY()));
+		add(SPEED, position(simulation.getObstacleCircleSpeed()));
+		add(NEXT_OBSTACLE, steps(simulation.getNextObstacleCircleTime() - time));
+		add(NEXT_CATCH, steps(simulation.getNextCatchCircleTime() - time));
+		add(NEXT_CORNER, steps(simulation.getNextCornerCircleTime() - time));
+
+		ObstacleCircles obstacles = simulation.getObstacleCircles();
+		add(OBSTACLE_COUNT, obstacles.size());
+		for (int i = 0; i < obstacles.size(); i++) {
+			add(OBSTACLE_X, position(obstacles.getX(i)));
+			add(OBSTACLE_Y, position(obstacles.getY(i)));
+			add(OBSTACLE_VX, position(obstacles.getVelocityX(i)));
+			add(OBSTACLE_VY, position(obstacles.getVelocityY(i)));
+		}
+		CatchCircles catches = simulation.getCatchCircles();
+		add(CATCH_COUNT, catches.size());
+		for (int i = 0; i < catches.size(); i++) {
+			add(CATCH_X, position(catches.getX(i)));
+			add(CATCH_Y, position(catches.getY(i)));
+			add(CATCH_REMAINING, steps(catches.getEndTime(i) - time));
+		}
+		CornerCircles corners = simulation.getCornerCircles();
+		add(CORNER_COUNT, corners.size());
+		for (int i = 0; i < corners.size(); i++) {
+			add(CORNER_X, position(corners.getX(i)));
+			add(CORNER_Y, position(corners.getY(i)));
+		}
+
+		frameCount++;
+		offsets = null;
+	}
+
+
+	/**
+	 * Empties the chunk so it can be filled again
+	 */
+	public void clear() {
+		frameCount = 0;
+		Arrays.fill(lengths, 0);
+		offsets = null;
+	}
+
+
+	/**
+	 * @return Whether the chunk holds as many frames as it can
+	 */
+	public boolean isFull() {
+		return frameCount >= capacity;
+	}
+
+
+	/**
+	 * @return Number of frames in the chunk
+	 */
+	public int getFrameCount() {
+		return frameCount;
+	}
+
+
+	/**
+	 * @param column A column with one value per frame
+	 * @param frame A frame of the chunk
+	 * @return The value of the column at the frame
+	 */
+	public int get(int column, int frame) {
+		return columns[column][frame];
+	}
+
+
+	/**
+	 * @param column A column with one value per circle per frame
+	 * @param frame A frame of the chunk
+	 * @param circle The index of the circle in the frame
+	 * @return The value of the column for the circle at the frame
+	 */
+	public int get(int column, int frame, int circle) {
+		if (offsets == null) computeOffsets();
+		return columns[column][offsets[countColumn(column)][frame] + circle];
+	}
+
+
+	/**
+	 * @param value A stored position or velocity
+	 * @return The position or velocity in pixels, or NaN if unknown
+	 */
+	public static double toPixels(int value) {
+		return value == UNKNOWN ? Double.NaN : value / SCALE;
+	}
+
+
+	/**
+	 * Encodes and compresses the chunk
+	 * @param out Where to write the chunk
+	 * @param deflater The compressor to use
+	 * @throws IOException If the chunk could not be written
+	 */
+	public void write(DataOutput out, Deflater deflater) throws IOException {
+		out.writeInt(frameCount);
+		for (int column = 0; column < COLUMN_COUNT; column++) {
+			int length = encode(column);
+			deflater.reset();
+			deflater.setInput(bytes, 0, length);
+			deflater.finish();
+			int compressedLength = 0;
+			while (!deflater.finished()) {
+				if (compressedLength == compressed.length)
+					compressed = Arrays.copyOf(compressed, compressed.length * 2);
+				compressedLength += deflater.deflate(compressed,
+						compressedLength, compressed.length - compressedLength);
+			}
+			out.writeInt(lengths[column]);
+			out.writeInt(length);
+			out.writeInt(compressedLength);
+			out.write(compressed, 0, compressedLength);
+		}
+	}
+
+
+	/**
+	 * Reads a chunk written by {@link #write}
+	 * @param in Where to read the chunk from
+	 * @param inflater The decompressor to use
+	 * @return The chunk
+	 * @throws IOException If the chunk could not be read or is damaged
+	 */
+	public static TelemetryChunk read(DataInput in, Inflater inflater)
+			throws IOException {
+		int frameCount = in.readInt();
+		TelemetryChunk chunk = new TelemetryChunk(frameCount);
+		chunk.frameCount = frameCount;
+		for (int column = 0; column < COLUMN_COUNT; column++) {
+			int valueCount = in.readInt();
+			int length = in.readInt();
+			int compressedLength = in.readInt();
+			byte[] compressed = new byte[compressedLength];
+			in.readFully(compressed);
+			if (chunk.bytes.length < length) chunk.bytes = new byte[length];
+			inflater.reset();
+			inflater.setInput(compressed);
+			try {
+				int inflated = 0;
+				while (inflated < length && !inflater.finished()) {
+					int n = inflater.inflate(chunk.bytes, inflated,
+							length - inflated);
+					if (n == 0 && inflater.needsInput()) break;
+					inflated += n;
+				}
+				if (inflated != length)
+					throw new IOException("Telemetry column is cut short");
+			} catch (DataFormatException e) {
+				throw new IOException("Telemetry column is damaged", e);
+			}
+			chunk.decode(column, valueCount, length);
+		}
+		return chunk;
+	}
+
+
+	/**
+	 * Appends a value to a column
+	 */
+	private void add(int column, int value) {
+		int[] values = columns[column];
+		if (lengths[column] == values.length) {
+			values = Arrays.copyOf(values, values.length * 2);
+			columns[column] = values;
+		}
+		values[lengths[column]++] = value;
+	}
+
+
+	/**
+	 * Encodes a column into the byte buffer as variable-length differences
+	 * from the previous frame
+	 * @param column The column
+	 * @return Number of bytes used
+	 */
+	private int encode(int column) {
+		int[] values = columns[column];
+		int length = 0;
+		int countColumn = countColumn(column);
+		if (countColumn < 0) {
+			int previous = 0;
+			for (int i = 0; i < lengths[column]; i++) {
+				length = writeVarint(values[i] - previous, length);
+				previous = values[i];
+			}
+		}
+		else {
+			// Each circle is compared with the same circle in the frame before
+			int[] counts = columns[countColumn];
+			int start = 0, previousStart = 0, previousCount = 0;
+			for (int frame = 0; frame < frameCount; frame++) {
+				for (int i = 0; i < counts[frame]; i++) {
+					int previous = i < previousCount ?
+							values[previousStart + i] : 0;
+					length = writeVarint(values[start + i] - previous, length);
+				}
+				previousStart = start;
+				previousCount = counts[frame];
+				start += counts[frame];
+			}
+		}
+		return length;
+	}
+
+
+	/**
+	 * Decodes a column from the byte buffer, undoing {@link #encode}. Columns
+	 * with one value per circle need their count column decoded first.
+	 */
+	private void decode(int column, int valueCount, int length)
+			throws IOException {
+		int[] values = new int[Math.max(valueCount, 1)];
+		int[] position = { 0 };
+		int countColumn = countColumn(column);
+		if (countColumn < 0) {
+			int previous = 0;
+			for (int i = 0; i < valueCount; i++) {
+				previous += readVarint(position, length);
+				values[i] = previous;
+			}
+		}
+		else {
+			int[] counts = columns[countColumn];
+			int start = 0, previousStart = 0, previousCount = 0;
+			for (int frame = 0; frame < frameCount; frame++) {
+				if (start + counts[frame] > valueCount)
+					throw new IOException("Telemetry counts do not match");
+				for (int i = 0; i < counts[frame]; i++) {
+					int previous = i < previousCount ?
+							values[previousStart + i] : 0;
+					values[start + i] = previous + readVarint(position, length);
+				}
+				previousStart = start;
+				previousCount = counts[frame];
+				start += counts[frame];
+			}
+		}
+		columns[column] = values;
+		lengths[column] = valueCount;
+	}
+
+
+	/**
+	 * Writes a number to the byte buffer so that small positive and negative
+	 * numbers take few bytes
+	 * @return The new length of the byte buffer
+	 */
+	private int writeVarint(int value, int length) {
+		if (length + 5 > bytes.length)
+			bytes = Arrays.copyOf(bytes, bytes.length * 2);
+		int zigzag = (value << 1) ^ (value >> 31);
+		while ((zigzag & ~0x7F) != 0) {
+			bytes[length++] = (byte)((zigzag & 0x7F) | 0x80);
+			zigzag >>>= 7;
+		}
+		bytes[length++] = (byte)zigzag;
+		return length;
+	}
+
+
+	/**
+	 * Reads a number written by {@link #writeVarint}
+	 */
+	private int readVarint(int[] position, int length) throws IOException {
+		int zigzag = 0;
+		for (int shift = 0; shift < 35; shift += 7) {
+			if (position[0] >= length)
+				throw new IOException("Telemetry column is cut short");
+			byte b = bytes[position[0]++];
+			zigzag |= (b & 0x7F) << shift;
+			if ((b & 0x80) == 0)
+				return (zigzag >>> 1) ^ -(zigzag & 1);
+		}
+		throw new IOException("Telemetry column is damaged");
+	}
+
+
+	/**
+	 * Finds where each frame starts in the columns with one value per circle
+	 */
+	private void computeOffsets() {
+		offsets = new int[COLUMN_COUNT][];
+		for (int countColumn : new int[] {
+				OBSTACLE_COUNT, CATCH_COUNT, CORNER_COUNT }) {
+			int[] starts = new int[frameCount];
+			int start = 0;
+			for (int frame = 0; frame < frameCount; frame++) {
+				starts[frame] = start;
+				start += columns[countColumn][frame];
+			}
+			offsets[countColumn] = starts;
+		}
+	}
+
+
+	/**
+	 * @param column A column
+	 * @return The column holding the number of circles per frame for the
+	 * column, or -1 if the column has one value per frame
+	 */
+	private static int countColumn(int column) {
+		if (column >= OBSTACLE_X && column <= OBSTACLE_VY)
+			return OBSTACLE_COUNT;
+		if (column >= CATCH_X && column <= CATCH_REMAINING)
+			return CATCH_COUNT;
+		if (column >= CORNER_X && column <= CORNER_Y)
+			return CORNER_COUNT;
+		return -1;
+	}
+
+
+	/**
+	 * @param pixels A position or velocity in pixels
+	 * @return The value stored for it
+	 */
+	private static int position(double pixels) {
+		if (Double.isNaN(pixels)) return UNKNOWN;
+		return (int)Math.round(pixels * SCALE);
+	}
+
+
+	/**
+	 * @param seconds A length of time in seconds
+	 * @return The value stored for it
+	 */
+	private static int steps(double seconds) {
+		if (Double.isNaN(seconds)) return UNKNOWN;
+		return (int)Math.round(seconds * Simulation.TICKS_PER_SECOND);
+	}
+
+}
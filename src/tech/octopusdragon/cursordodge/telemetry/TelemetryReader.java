@@ -0,0 +1,198 @@
+package tech.octopusdragon.cursordodge.telemetry;
+
+import java.io.BufferedInputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.channels.Channels;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.Inflater;
+
+/**
+ * Reads a telemetry file written by {@link TelemetryRecorder}. The index at the
+ * end of the file is read when it is opened, so only the chunks covering the
+ * steps asked for are read and decoded.
+ * @author Alex Gill
+ *
+ */
+public class TelemetryReader implements Closeable {
+
+	// --- Variables ---
+	private RandomAccessFile file;	// The file
+	private int ticksPerSecond;		// Simulation steps per second
+	private double sceneWidth;		// Scene width
+	private double sceneHeight;		// Scene height
+	private double screenWidth;		// Screen width
+	private double screenHeight;	// Screen height
+	private double circleRadius;	// Radius of the circles
+	private long[] offsets;			// Where each chunk starts
+	private long[] firstTicks;		// First step of each chunk
+	private long[] lastTicks;		// Last step of each chunk
+	private Inflater inflater = new Inflater();	// Decompresses columns
+
+
+	/**
+	 * Opens a telemetry file
+	 * @param file The file
+	 * @throws IOException If the file could not be read or is not a complete
+	 * telemetry file
+	 */
+	public TelemetryReader(File file) throws IOException {
+		this.file = new RandomAccessFile(file, "r");
+		try {
+			if (this.file.readInt() != TelemetryRecorder.MAGIC)
+				throw new IOException("Not a telemetry file: " + file);
+			int version = this.file.readInt();
+			if (version != TelemetryRecorder.VERSION)
+				throw new IOException("Unsupported telemetry version " + version);
+			ticksPerSecond = this.file.readInt();
+			if (this.file.readDouble() != TelemetryChunk.SCALE)
+				throw new IOException("Unsupported telemetry scale");
+			sceneWidth = this.file.readDouble();
+			sceneHeight = this.file.readDouble();
+			screenWidth = this.file.readDouble();
+			screenHeight = this.file.readDouble();
+			circleRadius = this.file.readDouble();
+
+			long length = this.file.length();
+			if (length < 12)
+				throw new IOException("Telemetry file is incomplete: " + file);
+			this.file.seek(length - 12);
+			long indexOffset = this.file.readLong();
+			if (this.file.readInt() != TelemetryRecorder.MAGIC ||
+					indexOffset < 0 || indexOffset > length - 16)
+				throw new IOException("Telemetry file is incomplete: " + file);
+			this.file.seek(indexOffset);
+			int chunkCount = this.file.readInt();
+			if (chunkCount < 0 || chunkCount * 24L != length - 16 - indexOffset)
+				throw new IOException("Telemetry index is damaged: " + file);
+			offsets = new long[chunkCount];
+			firstTicks = new long[chunkCount];
+			lastTicks = new long[chunkCount];
+			for (int i = 0; i < chunkCount; i++) {
+				offsets[i] = this.file.readLong();
+				firstTicks[i] = this.file.readLong();
+				lastTicks[i] = this.file.readLong();
+			}
+		} catch (IOException e) {
+			close();
+			throw e;
+		}
+	}
+
+
+	/**
+	 * Reads the chunks holding frames between two steps
+	 * @param fromTick First step wanted
+	 * @param toTick Last step wanted
+	 * @return The chunks, in order, which may also hold frames outside the
+	 * steps wanted
+	 * @throws IOException If the file could not be read or is damaged
+	 */
+	public List<TelemetryChunk> read(long fromTick, long toTick)
+			throws IOException {
+		List<TelemetryChunk> chunks = new ArrayList<TelemetryChunk>();
+		for (int i = 0; i < offsets.length; i++) {
+			if (lastTicks[i] < fromTick || firstTicks[i] > toTick) continue;
+			chunks.add(readChunk(i));
+		}
+		return chunks;
+	}
+
+
+	/**
+	 * Reads one chunk
+	 * @param index The index of the chunk
+	 * @return The chunk
+	 * @throws IOException If the file could not be read or is damaged
+	 */
+	public TelemetryChunk readChunk(int index) throws IOException {
+		file.seek(offsets[index]);
+		DataInputStream in = new DataInputStream(new BufferedInputStream(
+				Channels.newInputStream(file.getChannel())));
+		return TelemetryChunk.read(in, inflater);
+	}
+
+
+	/**
+	 * @return Number of chunks in the file
+	 */
+	public int getChunkCount() {
+		return offsets.length;
+	}
+
+
+	/**
+	 * @return First step recorded, or -1 if nothing was recorded
+	 */
+	public long getFirstTick() {
+		return offsets.length == 0 ? -1 : firstTicks[0];
+	}
+
+
+	/**
+	 * @return Last step recorded, or -1 if nothing was recorded
+	 */
+	public long getLastTick() {
+		return offsets.length == 0 ? -1 : lastTicks[offsets.length - 1];
+	}
+
+
+	/**
+	 * @return Simulation steps per second of the recorded game
+	 */
+	public int getTicksPerSecond() {
+		return ticksPerSecond;
+	}
+
+
+	/**
+	 * @return Scene width
+	 */
+	public double getSceneWidth() {
+		return sceneWidth;
+	}
+
+
+	/**
+	 * @return Scene height
+	 */
+	public double getSceneHeight() {
+		return sceneHeight;
+	}
+
+
+	/**
+	 * @return Screen width
+	 */
+	public double getScreenWidth() {
+		return screenWidth;
+	}
+
+
+	/**
+	 * @return Screen height
+	 */
+	public double getScreenHeight() {
+		return screenHeight;
+	}
+
+
+	/**
+	 * @return Radius of the circles
+	 */
+	public double getCircleRadius() {
+		return circleRadius;
+	}
+
+
+	@Override
+	public void close() throws IOException {
+		inflater.end();
+		file.close();
+	}
+
+}
@@ -0,0 +1,210 @@
+package tech.octopusdragon.cursordodge.telemetry;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.zip.Deflater;
+
+import tech.octopusdragon.cursordodge.game.Arena;
+import tech.octopusdragon.cursordodge.game.Simulation;
+
+/**
+ * Records the state of the whole arena every frame of a game into a telemetry
+ * file, which can be read back with {@link TelemetryReader}.
+ * <p>
+ * Frames are gathered into {@link TelemetryChunk}s on the game thread, which
+ * only copies numbers into arrays the recorder already has. Full chunks are
+ * compressed and written on a background thread and then handed back to be
+ * filled again. If the writer falls so far behind that no empty chunk is left,
+ * frames are dropped and counted rather than making the game wait.
+ * <p>
+ * The file holds a header, the chunks, and at the end an index of where each
+ * chunk starts and which steps it covers, so a reader can jump to any part of
+ * the game.
+ * @author Alex Gill
+ *
+ */
+public class TelemetryRecorder {
+
+	// --- Constants ---
+	// Identifies a telemetry file
+	public static final int MAGIC = 0x4344544D;
+	// Version of the file format
+	public static final int VERSION = 1;
+	// Extension of telemetry files
+	public static final String FILE_EXTENSION = ".cdt";
+	// Frames in a chunk
+	public static final int CHUNK_FRAMES = 256;
+	// Number of chunks that can be filled or waiting to be written at once
+	private static final int CHUNK_COUNT = 4;
+
+	// --- Variables ---
+	private File file;					// The file being written
+	private TelemetryChunk chunk;		// The chunk being filled
+	private BlockingQueue<TelemetryChunk> empty;	// Chunks ready to fill
+	private BlockingQueue<TelemetryChunk> full;		// Chunks ready to write
+	private TelemetryChunk end;			// Tells the writer to finish
+	private Thread writer;				// Thread chunks are written on
+	private long droppedFrames;			// Frames not recorded
+	private boolean closed;				// Whether recording has finished
+	private volatile IOException error;	// Why writing failed, if it did
+
+
+	/**
+	 * Starts recording to a file
+	 * @param file The file
+	 * @param arena The geometry of the game being recorded
+	 * @throws IOException If the file could not be created
+	 */
+	public TelemetryRecorder(File file, Arena arena) throws IOException {
+		this.file = file;
+		empty = new ArrayBlockingQueue<TelemetryChunk>(CHUNK_COUNT);
+		full = new ArrayBlockingQueue<TelemetryChunk>(CHUNK_COUNT + 1);
+		for (int i = 0; i < CHUNK_COUNT; i++) {
+			empty.add(new TelemetryChunk(CHUNK_FRAMES));
+		}
+		end = new TelemetryChunk(0);
+
+		DataOutputStream out = new DataOutputStream(new BufferedOutputStream(
+				new FileOutputStream(file), 1 << 16));
+		try {
+			out.writeInt(MAGIC);
+			out.writeInt(VERSION);
+			out.writeInt(Simulation.TICKS_PER_SECOND);
+			out.writeDouble(TelemetryChunk.SCALE);
+			out.writeDouble(arena.getSceneWidth());
+			out.writeDouble(arena.getSceneHeight());
+			out.writeDouble(arena.getScreenWidth());
+			out.writeDouble(arena.getScreenHeight());
+			out.writeDouble(arena.getCircleRadius());
+		} catch (IOException e) {
+			out.close();
+			throw e;
+		}
+
+		writer = new Thread(() -> write(out), "Telemetry writer");
+		writer.setDaemon(true);
+		writer.start();
+	}
+
+
+	/**
+	 * Records a frame. Must be called from one thread only.
+	 * @param simulation The simulation being recorded
+	 */
+	public void record(Simulation simulation) {
+		if (closed) return;
+		if (chunk == null) {
+			chunk = empty.poll();
+			if (chunk == null) {
+				droppedFrames++;
+				return;
+			}
+		}
+		chunk.add(simulation);
+		if (chunk.isFull()) {
+			full.add(chunk);
+			chunk = null;
+		}
+	}
+
+
+	/**
+	 * Finishes recording. The rest of the file is written in the background.
+	 */
+	public void close() {
+		if (closed) return;
+		closed = true;
+		if (chunk != null && chunk.getFrameCount() > 0) full.add(chunk);
+		chunk = null;
+		full.add(end);
+	}
+
+
+	/**
+	 * Waits for the file to be completely written
+	 * @throws IOException If the file could not be written
+	 * @throws InterruptedException If interrupted while waiting
+	 */
+	public void await() throws IOException, InterruptedException {
+		writer.join();
+		if (error != null) throw error;
+	}
+
+
+	/**
+	 * @return The file being written
+	 */
+	public File getFile() {
+		return file;
+	}
+
+
+	/**
+	 * @return Number of frames that were dropped because the writer fell
+	 * behind
+	 */
+	public long getDroppedFrames() {
+		return droppedFrames;
+	}
+
+
+	/**
+	 * Writes chunks as they fill until recording is closed, then writes the
+	 * index
+	 * @param out The file after the header
+	 */
+	private void write(DataOutputStream out) {
+		Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+		long[] offsets = new long[64];
+		long[] firstTicks = new long[64];
+		long[] lastTicks = new long[64];
+		int chunkCount = 0;
+		try {
+			while (true) {
+				TelemetryChunk next = full.take();
+				if (next == end) break;
+				if (chunkCount == offsets.length) {
+					offsets = Arrays.copyOf(offsets, chunkCount * 2);
+					firstTicks = Arrays.copyOf(firstTicks, chunkCount * 2);
+					lastTicks = Arrays.copyOf(lastTicks, chunkCount * 2);
+				}
+				offsets[chunkCount] = out.size();
+				firstTicks[chunkCount] = next.get(TelemetryChunk.TICK, 0);
+				lastTicks[chunkCount] = next.get(TelemetryChunk.TICK,
+						next.getFrameCount() - 1);
+				chunkCount++;
+				next.write(out, deflater);
+				next.clear();
+				empty.add(next);
+			}
+
+			long indexOffset = out.size();
+			out.writeInt(chunkCount);
+			for (int i = 0; i < chunkCount; i++) {
+				out.writeLong(offsets[i]);
+				out.writeLong(firstTicks[i]);
+				out.writeLong(lastTicks[i]);
+			}
+			out.writeLong(indexOffset);
+			out.writeInt(MAGIC);
+		} catch (IOException e) {
+			error = e;
+		} catch (InterruptedException e) {
+			error = new IOException("Telemetry writer interrupted", e);
+		} finally {
+			deflater.end();
+			try {
+				out.close();
+			} catch (IOException e) {
+				if (error == null) error = e;
+			}
+		}
+	}
+
+}
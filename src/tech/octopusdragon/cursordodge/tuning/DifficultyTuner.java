@@ -0,0 +1,279 @@
+package tech.octopusdragon.cursordodge.tuning;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+import tech.octopusdragon.cursordodge.bot.EvasiveBot;
+import tech.octopusdragon.cursordodge.data.TimeHistogram;
+import tech.octopusdragon.cursordodge.game.Arena;
+import tech.octopusdragon.cursordodge.game.Difficulty;
+import tech.octopusdragon.cursordodge.game.Simulation;
+import tech.octopusdragon.cursordodge.game.classes.GameOverReason;
+
+/**
+ * Plays many simulated games with {@link EvasiveBot} for every combination of
+ * the given difficulty values and prints the distribution of survival times
+ * for each combination as CSV. Games are spread over every core with
+ * fork/join. Every combination plays the same seeds, so differences between
+ * combinations come from the values rather than from luck.
+ * <p>
+ * Usage: {@code DifficultyTuner [--games N] [--max-time SECONDS]
+ * [--scene WxH] [--screen WxH] [--bot-speed PIXELS] [NAME=v1,v2,...]...}
+ * where each NAME is one of {@link Difficulty#NAMES}.
+ * @author Alex Gill
+ *
+ */
+public class DifficultyTuner {
+
+	// --- Constants ---
+	// Number of games one task plays before it stops splitting
+	private static final int GAMES_PER_TASK = 8;
+	// Percentiles printed for every combination
+	private static final double[] QUANTILES = { 0.1, 0.5, 0.9, 0.99 };
+
+	// --- Variables ---
+	private int games = 1000;				// Games per combination
+	private double maxTime = 600.0;			// Longest game in seconds
+	private double sceneWidth = 800.0;		// Scene width
+	private double sceneHeight = 600.0;		// Scene height
+	private double screenWidth = 1920.0;	// Screen width
+	private double screenHeight = 1080.0;	// Screen height
+	private double botSpeed = EvasiveBot.DEFAULT_SPEED;	// Speed of the bot
+	// Values to try for each difficulty value that is swept
+	private Map<String, double[]> sweep =
+			new LinkedHashMap<String, double[]>();
+
+
+	public static void main(String[] args) {
+		DifficultyTuner tuner = new DifficultyTuner();
+		try {
+			tuner.parse(args);
+		} catch (IllegalArgumentException e) {
+			System.err.println(e.getMessage());
+			System.err.println("Usage: DifficultyTuner [--games N] " +
+					"[--max-time SECONDS] [--scene WxH] [--screen WxH] " +
+					"[--bot-speed PIXELS] [NAME=v1,v2,...]...");
+			System.exit(2);
+		}
+		tuner.run();
+	}
+
+
+	/**
+	 * Reads the command line arguments
+	 * @param args The arguments
+	 * @throws IllegalArgumentException If an argument is not valid
+	 */
+	private void parse(String[] args) throws IllegalArgumentException {
+		for (int i = 0; i < args.length; i++) {
+			String arg = args[i];
+			if (arg.startsWith("--") && i + 1 >= args.length)
+				throw new IllegalArgumentException("Missing value for " + arg);
+			switch (arg) {
+			case "--games":
+				games = Integer.parseInt(args[++i]);
+				break;
+			case "--max-time":
+				maxTime = Double.parseDouble(args[++i]);
+				break;
+			case "--scene":
+				double[] scene = parseSize(args[++i]);
+				sceneWidth = scene[0];
+				sceneHeight = scene[1];
+				break;
+			case "--screen":
+				double[] screen = parseSize(args[++i]);
+				screenWidth = screen[0];
+				screenHeight = screen[1];
+				break;
+			case "--bot-speed":
+				botSpeed = Double.parseDouble(args[++i]);
+				break;
+			default:
+				int equals = arg.indexOf('=');
+				if (equals < 0)
+					throw new IllegalArgumentException("Unknown argument " + arg);
+				String name = arg.substring(0, equals);
+				new Difficulty().get(name);	// Check the name
+				String[] values = arg.substring(equals + 1).split(",");
+				double[] numbers = new double[values.length];
+				for (int j = 0; j < values.length; j++) {
+					numbers[j] = Double.parseDouble(values[j]);
+				}
+				sweep.put(name, numbers);
+			}
+		}
+	}
+
+
+	/**
+	 * @param size A size such as 800x600
+	 * @return The width and height
+	 */
+	private static double[] parseSize(String size) {
+		String[] parts = size.split("x");
+		if (parts.length != 2)
+			throw new IllegalArgumentException("Invalid size " + size);
+		return new double[] {
+				Double.parseDouble(parts[0]), Double.parseDouble(parts[1]) };
+	}
+
+
+	/**
+	 * Plays the games for every combination and prints the results
+	 */
+	private void run() {
+		List<Difficulty> combinations = new ArrayList<Difficulty>();
+		combinations.add(new Difficulty());
+		for (Map.Entry<String, double[]> entry : sweep.entrySet()) {
+			List<Difficulty> next = new ArrayList<Difficulty>();
+			for (Difficulty combination : combinations) {
+				for (double value : entry.getValue()) {
+					Difficulty difficulty = new Difficulty(combination);
+					difficulty.set(entry.getKey(), value);
+					next.add(difficulty);
+				}
+			}
+			combinations = next;
+		}
+
+		// Print the header
+		StringBuilder header = new StringBuilder();
+		for (String name : sweep.keySet()) {
+			header.append(name).append(',');
+		}
+		header.append("games,mean");
+		for (double quantile : QUANTILES) {
+			header.append(String.format(",p%d", Math.round(quantile * 100)));
+		}
+		for (GameOverReason reason : GameOverReason.values()) {
+			header.append(',').append(reason);
+		}
+		header.append(",TIMED_OUT");
+		System.out.println(header);
+
+		// Play and print every combination
+		ForkJoinPool pool = ForkJoinPool.commonPool();
+		long wallStart = System.nanoTime();
+		double simulatedSeconds = 0.0;
+		for (Difficulty difficulty : combinations) {
+			Results results = pool.invoke(new Games(difficulty, 0, games));
+			simulatedSeconds += results.totalTime;
+
+			StringBuilder line = new StringBuilder();
+			for (String name : sweep.keySet()) {
+				line.append(difficulty.get(name)).append(',');
+			}
+			line.append(results.histogram.getCount());
+			line.append(String.format(",%.2f",
+					results.totalTime / results.histogram.getCount()));
+			for (double quantile : QUANTILES) {
+				line.append(String.format(",%.2f",
+						results.histogram.quantile(quantile)));
+			}
+			for (long count : results.reasons) {
+				line.append(',').append(count);
+			}
+			System.out.println(line);
+		}
+
+		double wallSeconds = (System.nanoTime() - wallStart) / 1e9;
+		System.err.println(String.format(
+				"%d combinations x %d games on %d threads in %.1f s " +
+						"(%.0f simulated s per wall s)",
+				combinations.size(), games, pool.getParallelism(),
+				wallSeconds, simulatedSeconds / wallSeconds));
+	}
+
+
+	/**
+	 * Plays one game with the bot
+	 * @param difficulty How hard the game is
+	 * @param seed Seed of the game
+	 * @param results Where to count the outcome
+	 */
+	private void play(Difficulty difficulty, long seed, Results results) {
+		Arena arena = new Arena(sceneWidth, sceneHeight,
+				screenWidth, screenHeight);
+		Simulation simulation = new Simulation(arena, difficulty, seed);
+		EvasiveBot bot = new EvasiveBot(arena, botSpeed);
+		long maxTicks = (long)(maxTime * Simulation.TICKS_PER_SECOND);
+		// The cursor waits where the bot starts, as a player's does during
+		// the countdown
+		simulation.setCursor(bot.getX(), bot.getY());
+		simulation.start();
+		while (!simulation.isGameOver() && simulation.getTick() < maxTicks) {
+			bot.move(simulation);
+			simulation.step();
+		}
+
+		results.histogram.record(simulation.getTime());
+		results.totalTime += simulation.getTime();
+		GameOverReason reason = simulation.getGameOverReason();
+		results.reasons[reason == null ?
+				GameOverReason.values().length : reason.ordinal()]++;
+	}
+
+
+	/**
+	 * The outcome of a number of games
+	 * @author Alex Gill
+	 *
+	 */
+	private static class Results {
+		private TimeHistogram histogram = new TimeHistogram();
+		private double totalTime;
+		// Games ended for each reason, then games that timed out
+		private long[] reasons = new long[GameOverReason.values().length + 1];
+
+		private void merge(Results other) {
+			histogram.merge(other.histogram);
+			totalTime += other.totalTime;
+			for (int i = 0; i < reasons.length; i++) {
+				reasons[i] += other.reasons[i];
+			}
+		}
+	}
+
+
+	/**
+	 * Plays a range of seeds, splitting the range in half until it is small
+	 * enough to play on one thread
+	 * @author Alex Gill
+	 *
+	 */
+	private class Games extends RecursiveTask<Results> {
+		private static final long serialVersionUID = 1L;
+		private Difficulty difficulty;
+		private long from;
+		private long to;
+
+		public Games(Difficulty difficulty, long from, long to) {
+			this.difficulty = difficulty;
+			this.from = from;
+			this.to = to;
+		}
+
+		@Override
+		protected Results compute() {
+			if (to - from <= GAMES_PER_TASK) {
+				Results results = new Results();
+				for (long seed = from; seed < to; seed++) {
+					play(difficulty, seed, results);
+				}
+				return results;
+			}
+			long middle = (from + to) / 2;
+			Games left = new Games(difficulty, from, middle);
+			left.fork();
+			Results results = new Games(difficulty, middle, to).compute();
+			results.merge(left.join());
+			return results;
+		}
+	}
+
+}